@@ -9,6 +9,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import com.softlayer.api.ApiClient;
+import com.softlayer.api.ApiResponse;
+import com.softlayer.api.CallOptions;
 import com.softlayer.api.ResultLimit;
 import com.softlayer.api.http.HttpClientFactory;
 import com.softlayer.api.http.ThreadPooledHttpClientFactory;
@@ -32,20 +34,15 @@ public class PaginationAsyncPolling extends Example {
         //  first set of data AND the total count
         System.out.format("Retrieving first %d items\n", PAGE_SIZE);
         Package.ServiceAsync service = Package.service(client).asAsync();
-        service.setResultLimit(new ResultLimit(0, PAGE_SIZE));
-        PackageResponseWrapper first = new PackageResponseWrapper(0, service.getAllObjects(), service);
+        PackageResponseWrapper first = new PackageResponseWrapper(0, getPage(service, 0));
         responses.add(first);
-        first.response.get();
-
-        // Once the total is obtained, a call for all pages after the first can happen
-        for (int i = PAGE_SIZE; i < first.service.getLastResponseTotalItemCount(); i += PAGE_SIZE) {
-            // We create a new service each time because the result limit is specific to the service, not the call
-            //  so it may be overwritten if we reused it
-            System.out.format("Retrieving %d-%d of %d items\n", i + 1, i + PAGE_SIZE,
-                first.service.getLastResponseTotalItemCount());
-            service = Package.service(client).asAsync();
-            service.setResultLimit(new ResultLimit(i, PAGE_SIZE));
-            responses.add(new PackageResponseWrapper(i, service.getAllObjects(), service));
+        int total = first.response.get().getTotalItemCount();
+
+        // Once the total is obtained, a call for all pages after the first can happen. The result limit is
+        //  given per call instead of set on the service, so the same service can be reused for every page
+        for (int i = PAGE_SIZE; i < total; i += PAGE_SIZE) {
+            System.out.format("Retrieving %d-%d of %d items\n", i + 1, i + PAGE_SIZE, total);
+            responses.add(new PackageResponseWrapper(i, getPage(service, i)));
         }
 
         // The thread pool needs to be closed so nothing more can be added to it and it terminates after last call
@@ -59,9 +56,9 @@ public class PaginationAsyncPolling extends Example {
         // Unlike the callback approach, this approach guarantees they come in the order requested since a blocking
         //  call to get() is in the request order
         for (PackageResponseWrapper response : responses) {
-            packages.addAll(response.response.get());
+            packages.addAll(response.response.get().getValue());
             System.out.format("Retrieved %d-%d of %d items\n", response.offset + 1, response.offset +
-                response.response.get().size(), first.service.getLastResponseTotalItemCount());
+                response.response.get().getValue().size(), total);
         }
 
         System.out.println("Packages:");
@@ -70,16 +67,19 @@ public class PaginationAsyncPolling extends Example {
         }
     }
 
+    static Future<ApiResponse<List<Package>>> getPage(Package.ServiceAsync service, int offset) {
+        return service.call(CallOptions.DEFAULT.withResultLimit(new ResultLimit(offset, PAGE_SIZE)),
+            (Package.ServiceAsync pageService) -> pageService.getAllObjects());
+    }
+
     /** Simple wrapper to hold the response and the offset */
     static class PackageResponseWrapper {
-        public final Future<List<Package>> response;
+        public final Future<ApiResponse<List<Package>>> response;
         public final int offset;
-        public final Package.ServiceAsync service;
 
-        public PackageResponseWrapper(int offset, Future<List<Package>> response, Package.ServiceAsync service) {
+        public PackageResponseWrapper(int offset, Future<ApiResponse<List<Package>>> response) {
             this.offset = offset;
             this.response = response;
-            this.service = service;
         }
     }
 
@@ -8,12 +8,19 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import javax.lang.model.element.Modifier;
 
@@ -23,43 +30,88 @@ public class ClassWriter extends JavaWriter {
 
     public static final String SLDN_URL_BASE_PATH = "http://sldn.softlayer.com/reference/";
 
+    public static final String TYPE_ABSTRACT_SERVICE = "com.softlayer.api.AbstractService";
     public static final String TYPE_API_CLIENT = "com.softlayer.api.ApiClient";
+    public static final String TYPE_API_RESPONSE = "com.softlayer.api.ApiResponse";
     public static final String TYPE_API_METHOD = "com.softlayer.api.annotation.ApiMethod";
     public static final String TYPE_API_PROPERTY = "com.softlayer.api.annotation.ApiProperty";
     public static final String TYPE_API_SERVICE = "com.softlayer.api.annotation.ApiService";
     public static final String TYPE_API_TYPE = "com.softlayer.api.annotation.ApiType";
     public static final String TYPE_API_TYPES = "com.softlayer.api.annotation.ApiTypes";
+    public static final String TYPE_CALL_OPTIONS = "com.softlayer.api.CallOptions";
     public static final String TYPE_CALLABLE = "java.util.concurrent.Callable";
+    public static final String TYPE_ENTITY = "com.softlayer.api.service.Entity";
+    public static final String TYPE_ENTITY_JSON_ADAPTER = "com.softlayer.api.json.EntityJsonAdapter";
+    public static final String TYPE_FUNCTION = "java.util.function.Function";
     public static final String TYPE_FUTURE = "java.util.concurrent.Future";
+    public static final String TYPE_IO_EXCEPTION = "java.io.IOException";
+    public static final String TYPE_JSON_READER = "com.google.gson.stream.JsonReader";
+    public static final String TYPE_JSON_WRITER = "com.google.gson.stream.JsonWriter";
+    public static final String TYPE_LIST = "java.util.List";
     public static final String TYPE_MASK = "com.softlayer.api.Mask";
     public static final String TYPE_RESPONSE_HANDLER = "com.softlayer.api.ResponseHandler";
+    public static final String TYPE_RESULT_STREAM = "com.softlayer.api.ResultStream";
     public static final String TYPE_SERVICE = "com.softlayer.api.Service";
+    public static final String TYPE_REST_API_CLIENT = "com.softlayer.api.RestApiClient";
     public static final String TYPE_SERVICE_ASYNC = "com.softlayer.api.ServiceAsync";
+    public static final String TYPE_SERVICE_METHOD = "com.softlayer.api.ServiceMethod";
     public static final String TYPE_TYPE = "com.softlayer.api.Type";
 
+    private static final Set<Modifier> PRIVATE_STATIC_FINAL =
+        EnumSet.of(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL);
     private static final Set<Modifier> PROTECTED = EnumSet.of(Modifier.PROTECTED);
     private static final Set<Modifier> PUBLIC = EnumSet.of(Modifier.PUBLIC);
     private static final Set<Modifier> PUBLIC_STATIC = EnumSet.of(Modifier.PUBLIC, Modifier.STATIC);
     
     public static void emitPackageInfo(File baseDir, List<TypeClass> classes) throws IOException {
-        // Do this manually, the Java writer doesn't help us here
-        StringBuilder types = new StringBuilder();
+        // Do this manually, the Java writer doesn't help us here. Types are indexed by name so the classes are only
+        //  loaded when the type is first seen.
+        Map<String, String> index = new TreeMap<>();
         for (TypeClass type : classes) {
+            index.put(type.meta.name, type.getFullClassName());
+        }
+        StringBuilder types = new StringBuilder();
+        for (Map.Entry<String, String> entry : index.entrySet()) {
             if (types.length() != 0) {
                 types.append(",\n");
             }
-            types.append("    ").append(type.getFullClassName()).append(".class");
+            types.append("    ").append(stringLiteral(entry.getKey() + '=' + entry.getValue()));
         }
         Writer writer = new BufferedWriter(
             new FileWriter(new File(baseDir, "com/softlayer/api/service/package-info.java")));
         try {
-            writer.append("@ApiTypes({\n").append(types).append("\n})\npackage ").
+            writer.append("@ApiTypes(version = ").append(stringLiteral(getTypesVersion(baseDir, index.values()))).
+                append(", index = {\n").append(types).append("\n})\npackage ").
                 append(Generator.BASE_PKG).append(";\nimport ").append(TYPE_API_TYPES).append(";\n");
         } finally {
             try { writer.close(); } catch (Exception e) { }
         }
     }
     
+    /**
+     * Hash of the sources of the given classes, which changes whenever the metadata, the restrictions or the
+     * generator change what the types look like
+     */
+    static String getTypesVersion(File baseDir, Iterable<String> classNames) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        for (String className : classNames) {
+            digest.update(className.getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(new File(baseDir, className.replace('.', '/') + ".java").toPath()));
+        }
+        byte[] hash = digest.digest();
+        StringBuilder result = new StringBuilder();
+        // Half the hash is plenty to tell versions apart
+        for (int i = 0; i < 16; i++) {
+            result.append(String.format("%02x", hash[i]));
+        }
+        return result.toString();
+    }
+    
     public static void emitType(File baseDir, TypeClass type, Meta meta) throws IOException {
         File fileDir = new File(baseDir, type.packageName.replace('.', '/'));
         fileDir.mkdirs();
@@ -87,10 +139,13 @@ public class ClassWriter extends JavaWriter {
     }
     
     public final TypeClass type;
+    private final Writer out;
     private final Meta meta;
+    private Map<String, String> serviceMethodConstants;
     
     public ClassWriter(Writer out, TypeClass type, Meta meta) {
         super(out);
+        this.out = out;
         this.type = type;
         this.meta = meta;
         setIndent("    ");
@@ -188,6 +243,82 @@ public class ClassWriter extends JavaWriter {
         return this;
     }
     
+    /**
+     * Emit the adapter reading and writing the type's own properties as JSON, which leaves those of its base types
+     * to the adapter it extends. It switches on the property name and sets the fields directly instead of having
+     * the marshaller find them by reflection.
+     */
+    public ClassWriter emitJsonAdapter() throws IOException {
+        String base;
+        if (type.baseJavaType != null) {
+            base = compressType(type.baseJavaType) + ".JsonAdapter";
+        } else {
+            base = TYPE_ENTITY_JSON_ADAPTER;
+        }
+        emitJavadoc("Reads and writes {@link " + type.className + "} as JSON without reflection");
+        beginType("JsonAdapter", "class", PUBLIC_STATIC, base).emitEmptyLine();
+        
+        // Every property has its value's adapter, which is looked up once
+        Map<String, String> constants = new HashMap<>(type.properties.size());
+        Set<String> used = new HashSet<>();
+        for (TypeClass.Property property : type.properties) {
+            String constant = getUniqueConstantName(property.name, used);
+            constants.put(property.name, constant);
+            String propertyType = compressType(TYPE_ENTITY_JSON_ADAPTER) + ".Property";
+            emitField(propertyType + '<' + property.javaType + '>', constant, PRIVATE_STATIC_FINAL,
+                "new " + propertyType + "<>(" + getReflectiveTypeExpression(property.javaType) + ")");
+        }
+        if (!constants.isEmpty()) {
+            emitEmptyLine();
+        }
+        
+        emitAnnotation(Override.class);
+        beginMethod(TYPE_ENTITY, "newInstance", PUBLIC).
+            emitStatement("return new %s()", type.className).endMethod().emitEmptyLine();
+        if (type.properties.isEmpty()) {
+            endType().emitEmptyLine();
+            return this;
+        }
+        
+        emitAnnotation(Override.class);
+        beginMethod("boolean", "readProperty", PUBLIC,
+                Arrays.asList(TYPE_ENTITY, "entity", "String", "name", TYPE_JSON_READER, "in"),
+                Collections.singletonList(TYPE_IO_EXCEPTION)).
+            emitStatement("%s value = (%s) entity", type.className, type.className).
+            beginControlFlow("switch (name)");
+        for (TypeClass.Property property : type.properties) {
+            beginControlFlow("case " + stringLiteral(property.meta.name) + ":").
+                emitStatement("value.%s = %s.read(in)", property.name, constants.get(property.name));
+            if (property.meta.form == Meta.PropertyForm.LOCAL) {
+                emitStatement("value.%sSpecified = true", property.name);
+            }
+            emitStatement("return true").endControlFlow();
+        }
+        beginControlFlow("default:").
+            emitStatement("return super.readProperty(entity, name, in)").
+            endControlFlow().endControlFlow().endMethod().emitEmptyLine();
+        
+        // Local properties are also written when explicitly set to null
+        emitAnnotation(Override.class);
+        beginMethod("void", "writeProperties", PUBLIC,
+                Arrays.asList(TYPE_ENTITY, "entity", TYPE_JSON_WRITER, "out"),
+                Collections.singletonList(TYPE_IO_EXCEPTION)).
+            emitStatement("super.writeProperties(entity, out)").
+            emitStatement("%s value = (%s) entity", type.className, type.className);
+        for (TypeClass.Property property : type.properties) {
+            String condition = "value." + property.name + " != null";
+            if (property.meta.form == Meta.PropertyForm.LOCAL) {
+                condition += " || value." + property.name + "Specified";
+            }
+            beginControlFlow("if (" + condition + ")").
+                emitStatement("%s.write(out, %s, value.%s)", constants.get(property.name),
+                    stringLiteral(property.meta.name), property.name).
+                endControlFlow();
+        }
+        endMethod().endType().emitEmptyLine();
+        return this;
+    }
+    
     public ClassWriter emitJavadoc(String javadoc, Object... params) throws IOException {
         //Since the base class formats, we have to double-up our percent signs
         return (ClassWriter) super.emitJavadoc(javadoc.replace("%", "%%"), params);
@@ -218,6 +349,7 @@ public class ClassWriter extends JavaWriter {
         beginMethod("Mask", "withNewMask", PUBLIC).endMethod();
         beginMethod("Mask", "withMask", PUBLIC).endMethod();
         beginMethod("void", "setMask", PUBLIC, "Mask", "mask").endMethod().emitEmptyLine();
+        emitServiceCall("Service", false);
         
         for (TypeClass.Method method : type.methods) {
             emitServiceMethod(method, false);
@@ -243,6 +375,7 @@ public class ClassWriter extends JavaWriter {
         beginMethod("Mask", "withNewMask", PUBLIC).endMethod();
         beginMethod("Mask", "withMask", PUBLIC).endMethod();
         beginMethod("void", "setMask", PUBLIC, "Mask", "mask").endMethod().emitEmptyLine();
+        emitServiceCall("ServiceAsync", true);
         
         for (TypeClass.Method method : type.methods) {
             emitServiceMethod(method, true);
@@ -256,6 +389,271 @@ public class ClassWriter extends JavaWriter {
         }
         endType().emitEmptyLine();
         
+        emitServiceImpl();
+        emitServiceAsyncImpl();
+        return this;
+    }
+    
+    /**
+     * Emit the type of function taken by the call-with-options method and, on sync services, the streaming one,
+     * along with those methods. Each service has its own so a function on another service does not compile. Below a
+     * base service, it extends the base one so lambdas pick this service's methods over the inherited ones.
+     */
+    private ClassWriter emitServiceCall(String serviceName, boolean async) throws IOException {
+        emitJavadoc("Function invoking one method of this service, given to {@link #call}" +
+            (async ? "" : " and {@link #stream}"));
+        if (type.baseServiceJavaType == null) {
+            beginType("Call<T>", "interface", PUBLIC_STATIC, TYPE_FUNCTION + '<' + serviceName + ", T>").endType();
+        } else {
+            String baseService = compressType(type.baseServiceJavaType) + '.' + serviceName;
+            beginType("Call<T>", "interface", PUBLIC_STATIC, baseService + ".Call<T>");
+            beginMethod("T", "apply", PUBLIC, serviceName, "service").endMethod();
+            // Java writer cannot emit default methods, so this is written by hand
+            String indent = getIndent() + getIndent() + getIndent();
+            out.write("\n" + indent + "@Override\n" + indent + "public default T apply(" + baseService +
+                " service) {\n" + indent + getIndent() + "return apply((" + serviceName + ") service);\n" + indent +
+                "}\n");
+            endType();
+        }
+        emitEmptyLine();
+        
+        String response = TYPE_API_RESPONSE + "<T>";
+        beginMethod("<T> " + (async ? TYPE_FUTURE + '<' + response + '>' : response), "call", PUBLIC,
+            TYPE_CALL_OPTIONS, "options", serviceName + ".Call<" + (async ? TYPE_FUTURE + "<T>" : "T") + '>',
+            "method").endMethod();
+        if (!async) {
+            beginMethod("<T> " + TYPE_RESULT_STREAM + "<T>", "stream", PUBLIC, TYPE_CALL_OPTIONS, "options",
+                serviceName + ".Call<" + TYPE_LIST + "<T>>", "method").endMethod();
+        }
+        emitEmptyLine();
+        return this;
+    }
+    
+    /**
+     * Get the name of the ServiceMethod constant for each Java method name that is implemented by this
+     * type's service (i.e. not inherited from a base service).
+     */
+    protected Map<String, String> getServiceMethodConstants() {
+        if (serviceMethodConstants == null) {
+            serviceMethodConstants = new LinkedHashMap<>();
+            Set<String> used = new HashSet<>();
+            for (TypeClass.Method method : type.methods) {
+                serviceMethodConstants.put(method.name, getUniqueConstantName(method.name, used));
+            }
+            for (TypeClass.Property property : type.properties) {
+                if (property.meta.form == Meta.PropertyForm.RELATIONAL) {
+                    String name = getRelationalPropertyMethodName(property);
+                    if (!type.meta.methods.containsKey(name)) {
+                        serviceMethodConstants.put(name, getUniqueConstantName(name, used));
+                    }
+                }
+            }
+        }
+        return serviceMethodConstants;
+    }
+    
+    private static String getUniqueConstantName(String name, Set<String> used) {
+        StringBuilder constant = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                constant.append('_');
+            }
+            constant.append(Character.toUpperCase(c));
+        }
+        String result = constant.toString();
+        for (int i = 2; !used.add(result); i++) {
+            result = constant.toString() + '_' + i;
+        }
+        return result;
+    }
+    
+    protected String getRelationalPropertyMethodName(TypeClass.Property property) {
+        return "get" + Character.toUpperCase(property.name.charAt(0)) + property.name.substring(1);
+    }
+    
+    /** Get the Java expression for the reflective type of the given Java type */
+    protected String getReflectiveTypeExpression(String javaType) {
+        if (javaType.startsWith("java.util.List<")) {
+            String elementType = javaType.substring(15, javaType.length() - 1);
+            return compressType(TYPE_SERVICE_METHOD) + ".listOf(" + compressType(elementType) + ".class)";
+        }
+        return compressType(javaType) + ".class";
+    }
+    
+    protected String getServiceMethodInitializer(String methodName, boolean instanceRequired, String javaType) {
+        return "new " + compressType(TYPE_SERVICE_METHOD) + "(" + stringLiteral(methodName) + ", " +
+            instanceRequired + ", " + getReflectiveTypeExpression(javaType) + ")";
+    }
+    
+    /**
+     * Emit the concrete implementation of the service interface. It forwards every call to the client without
+     * reflection instead of going through a dynamic proxy.
+     */
+    public ClassWriter emitServiceImpl() throws IOException {
+        String base;
+        if (type.baseServiceJavaType != null) {
+            base = compressType(type.baseServiceJavaType) + ".ServiceImpl";
+        } else {
+            base = TYPE_ABSTRACT_SERVICE;
+        }
+        emitJavadoc("Implementation of {@link Service} used by {@link " + TYPE_REST_API_CLIENT + "}");
+        beginType("ServiceImpl", "class", PUBLIC_STATIC, base, "Service").emitEmptyLine();
+        
+        // Every method has precomputed information
+        Map<String, String> constants = getServiceMethodConstants();
+        for (TypeClass.Method method : type.methods) {
+            boolean instanceRequired = !method.meta.isstatic && !"SoftLayer_Resource_Metadata".equals(type.meta.name);
+            emitField(TYPE_SERVICE_METHOD, constants.get(method.name), PRIVATE_STATIC_FINAL,
+                getServiceMethodInitializer(method.meta.name, instanceRequired, method.javaType));
+        }
+        for (TypeClass.Property property : type.properties) {
+            String name = getRelationalPropertyMethodName(property);
+            if (property.meta.form == Meta.PropertyForm.RELATIONAL && !type.meta.methods.containsKey(name)) {
+                emitField(TYPE_SERVICE_METHOD, constants.get(name), PRIVATE_STATIC_FINAL,
+                    getServiceMethodInitializer(name, !"SoftLayer_Account".equals(type.meta.name),
+                        property.javaType));
+            }
+        }
+        if (!constants.isEmpty()) {
+            emitEmptyLine();
+        }
+        
+        beginConstructor(PUBLIC, TYPE_REST_API_CLIENT, "client", "String", "id").
+            emitStatement("super(client, %s, id)", stringLiteral(type.meta.name)).
+            endConstructor().emitEmptyLine();
+        beginConstructor(PROTECTED, TYPE_REST_API_CLIENT, "client", "String", "serviceName", "String", "id").
+            emitStatement("super(client, serviceName, id)").
+            endConstructor().emitEmptyLine();
+        beginConstructor(PROTECTED, TYPE_ABSTRACT_SERVICE, "service").
+            emitStatement("super(service)").
+            endConstructor().emitEmptyLine();
+        
+        // Covariant return overrides
+        emitAnnotation(Override.class);
+        beginMethod("ServiceAsync", "asAsync", PUBLIC).
+            emitStatement("return new ServiceAsyncImpl(this)").endMethod().emitEmptyLine();
+        emitCopyOverrides("ServiceImpl", "Service", "T");
+        emitMaskOverrides();
+        
+        for (TypeClass.Method method : type.methods) {
+            emitServiceImplMethod(method.name, method.javaType, method.parameters, method.meta.deprecated, false);
+        }
+        for (TypeClass.Property property : type.properties) {
+            String name = getRelationalPropertyMethodName(property);
+            if (property.meta.form == Meta.PropertyForm.RELATIONAL && !type.meta.methods.containsKey(name)) {
+                emitServiceImplMethod(name, property.javaType, Collections.<TypeClass.Parameter>emptyList(),
+                    property.meta.deprecated, false);
+            }
+        }
+        endType().emitEmptyLine();
+        return this;
+    }
+    
+    /** Emit the concrete implementation of the async service interface */
+    public ClassWriter emitServiceAsyncImpl() throws IOException {
+        String base;
+        if (type.baseServiceJavaType != null) {
+            base = compressType(type.baseServiceJavaType) + ".ServiceAsyncImpl";
+        } else {
+            base = TYPE_ABSTRACT_SERVICE;
+        }
+        emitJavadoc("Implementation of {@link ServiceAsync} used by {@link " + TYPE_REST_API_CLIENT + "}");
+        beginType("ServiceAsyncImpl", "class", PUBLIC_STATIC, base, "ServiceAsync").emitEmptyLine();
+        
+        beginConstructor(PUBLIC, TYPE_ABSTRACT_SERVICE, "service").
+            emitStatement("super(service)").
+            endConstructor().emitEmptyLine();
+        
+        emitCopyOverrides("ServiceAsyncImpl", "ServiceAsync", TYPE_FUTURE + "<T>");
+        emitMaskOverrides();
+        
+        for (TypeClass.Method method : type.methods) {
+            emitServiceImplMethod(method.name, method.javaType, method.parameters, method.meta.deprecated, true);
+        }
+        for (TypeClass.Property property : type.properties) {
+            String name = getRelationalPropertyMethodName(property);
+            if (property.meta.form == Meta.PropertyForm.RELATIONAL && !type.meta.methods.containsKey(name)) {
+                emitServiceImplMethod(name, property.javaType, Collections.<TypeClass.Parameter>emptyList(),
+                    property.meta.deprecated, true);
+            }
+        }
+        endType().emitEmptyLine();
+        return this;
+    }
+    
+    /**
+     * Emit the per-call copy, the call-with-options method and, on sync services, the streaming one. Every service
+     * implements the latter two for its own function type, the base service's are inherited.
+     */
+    private ClassWriter emitCopyOverrides(String implClass, String serviceName, String resultType)
+            throws IOException {
+        emitAnnotation(Override.class);
+        beginMethod(implClass, "copy", PROTECTED).
+            emitStatement("return new %s(this)", implClass).endMethod().emitEmptyLine();
+        boolean async = !"Service".equals(serviceName);
+        String response = TYPE_API_RESPONSE + "<T>";
+        emitAnnotation(Override.class);
+        beginMethod("<T> " + (async ? TYPE_FUTURE + '<' + response + '>' : response),
+                "call", PUBLIC, TYPE_CALL_OPTIONS, "options", serviceName + ".Call<" + resultType + '>', "method").
+            emitStatement("return %s(options, method)", async ? "invokeAsyncWithOptions" : "invokeWithOptions").
+            endMethod().emitEmptyLine();
+        if (!async) {
+            emitAnnotation(Override.class);
+            beginMethod("<T> " + TYPE_RESULT_STREAM + "<T>", "stream", PUBLIC, TYPE_CALL_OPTIONS, "options",
+                    serviceName + ".Call<" + TYPE_LIST + "<T>>", "method").
+                emitStatement("return invokeStreaming(options, method)").endMethod().emitEmptyLine();
+        }
+        return this;
+    }
+
+    private ClassWriter emitMaskOverrides() throws IOException {
+        emitAnnotation(Override.class);
+        beginMethod("Mask", "withNewMask", PUBLIC).
+            emitStatement("return withNewMask(new Mask())").endMethod().emitEmptyLine();
+        emitAnnotation(Override.class);
+        beginMethod("Mask", "withMask", PUBLIC).
+            emitStatement("return withMask(Mask::new)").endMethod().emitEmptyLine();
+        emitAnnotation(Override.class);
+        beginMethod("void", "setMask", PUBLIC, "Mask", "mask").
+            emitStatement("super.setMask(mask)").endMethod().emitEmptyLine();
+        return this;
+    }
+    
+    private ClassWriter emitServiceImplMethod(String name, String javaType, List<TypeClass.Parameter> params,
+            boolean deprecated, boolean async) throws IOException {
+        String constant = "ServiceImpl." + getServiceMethodConstants().get(name);
+        String[] parameters = new String[params.size() * 2];
+        StringBuilder args = new StringBuilder();
+        for (int i = 0; i < params.size(); i++) {
+            TypeClass.Parameter param = params.get(i);
+            parameters[i * 2] = param.javaType;
+            parameters[i * 2 + 1] = param.meta.name;
+            args.append(i == 0 ? "new Object[] { " : ", ").append(param.meta.name);
+        }
+        args.append(params.isEmpty() ? "null" : " }");
+        
+        if (deprecated) {
+            emitAnnotation("Deprecated");
+        }
+        emitAnnotation(Override.class);
+        if (!async) {
+            beginMethod(javaType, name, PUBLIC, parameters).
+                emitStatement("return invoke(%s, %s)", constant, args).endMethod().emitEmptyLine();
+            return this;
+        }
+        beginMethod(TYPE_FUTURE + '<' + javaType + '>', name, PUBLIC, parameters).
+            emitStatement("return invokeAsync(%s, %s)", constant, args).endMethod().emitEmptyLine();
+        
+        if (deprecated) {
+            emitAnnotation("Deprecated");
+        }
+        emitAnnotation(Override.class);
+        parameters = Arrays.copyOf(parameters, parameters.length + 2);
+        parameters[parameters.length - 2] = TYPE_RESPONSE_HANDLER + '<' + javaType + '>';
+        parameters[parameters.length - 1] = "callback";
+        beginMethod(TYPE_FUTURE + "<?>", name, PUBLIC, parameters).
+            emitStatement("return invokeAsync(%s, %s, callback)", constant, args).endMethod().emitEmptyLine();
         return this;
     }
     
@@ -385,8 +783,9 @@ public class ClassWriter extends JavaWriter {
             emitAnnotation("Deprecated");
         }
         
-        // Each type has a type attribute
-        emitAnnotation("ApiType", stringLiteral(type.meta.name));
+        // Each type has a type attribute and its JSON adapter
+        emitAnnotationWithAttrs("ApiType", "value", stringLiteral(type.meta.name),
+            "jsonAdapter", type.className + ".JsonAdapter.class");
         
         String baseType = type.baseJavaType == null ? TYPE_TYPE : type.baseJavaType;
         beginType(type.className, "class", PUBLIC, baseType).emitEmptyLine();
@@ -429,17 +828,18 @@ public class ClassWriter extends JavaWriter {
             }
             
             beginMethod("Service", "service", PUBLIC_STATIC, TYPE_API_CLIENT, "client").
-                emitStatement("return client.createService(Service.class, null)").
+                emitStatement("return client.createService(Service.class, null, ServiceImpl::new)").
                 endMethod().emitEmptyLine();
 
             if (containsId) {
                 beginMethod("Service", "service", PUBLIC_STATIC, TYPE_API_CLIENT, "client", "Long", "id").
-                    emitStatement("return client.createService(Service.class, id == null ? null : id.toString())").
+                    emitStatement("return client.createService(Service.class, id == null ? null : id.toString(), " +
+                        "ServiceImpl::new)").
                     endMethod().emitEmptyLine();
                 if (containsGlobalIdentifier) {
                     beginMethod("Service", "service", PUBLIC_STATIC, TYPE_API_CLIENT,
                             "client", "String", "globalIdentifier").
-                        emitStatement("return client.createService(Service.class, globalIdentifier)").
+                        emitStatement("return client.createService(Service.class, globalIdentifier, ServiceImpl::new)").
                         endMethod().emitEmptyLine();
                 }
             }
@@ -447,7 +847,7 @@ public class ClassWriter extends JavaWriter {
             emitService();
         }
 
-        emitMask().endType();
+        emitJsonAdapter().emitMask().endType();
         return this;
     }
 
@@ -473,6 +873,16 @@ public class ClassWriter extends JavaWriter {
         // If we have properties or methods...
         if (!type.properties.isEmpty()) {
             imports.put("ApiProperty", TYPE_API_PROPERTY);
+            imports.putIfAbsent("IOException", TYPE_IO_EXCEPTION);
+            imports.putIfAbsent("JsonReader", TYPE_JSON_READER);
+            imports.putIfAbsent("JsonWriter", TYPE_JSON_WRITER);
+        }
+        // Every type has a JSON adapter, but the root entity must not import itself
+        if (!TYPE_ENTITY.equals(type.getFullClassName())) {
+            imports.putIfAbsent("Entity", TYPE_ENTITY);
+        }
+        if (!type.properties.isEmpty() || type.baseJavaType == null) {
+            imports.putIfAbsent("EntityJsonAdapter", TYPE_ENTITY_JSON_ADAPTER);
         }
         if (!type.methods.isEmpty()) {
             imports.put("ApiMethod", TYPE_API_METHOD);
@@ -485,6 +895,16 @@ public class ClassWriter extends JavaWriter {
             imports.remove("Service");
             imports.remove("ServiceAsync");
             imports.put("ApiClient", TYPE_API_CLIENT);
+            imports.put("RestApiClient", TYPE_REST_API_CLIENT);
+            imports.put("ServiceMethod", TYPE_SERVICE_METHOD);
+            // Only used by the call-with-options methods, so do not shadow other types
+            imports.putIfAbsent("ApiResponse", TYPE_API_RESPONSE);
+            imports.putIfAbsent("CallOptions", TYPE_CALL_OPTIONS);
+            imports.putIfAbsent("List", TYPE_LIST);
+            imports.putIfAbsent("ResultStream", TYPE_RESULT_STREAM);
+            if (type.baseServiceJavaType == null) {
+                imports.putIfAbsent("Function", TYPE_FUNCTION);
+            }
         }
         
         emitImports(imports.values()).emitEmptyLine();
@@ -20,6 +20,7 @@ public class Generator {
     private final URL metadataUrl;
     private final Restriction whitelist;
     private final Restriction blacklist;
+    private final boolean javaTimeDates;
 
     /**
      * @param dir The directory to generate classes into.
@@ -28,10 +29,23 @@ public class Generator {
      * @param blacklist
      */
     public Generator(File dir, URL metadataUrl, Restriction whitelist, Restriction blacklist) {
+        this(dir, metadataUrl, whitelist, blacklist, false);
+    }
+
+    /**
+     * @param dir The directory to generate classes into.
+     * @param metadataUrl The metadata to generate from.
+     * @param whitelist
+     * @param blacklist
+     * @param javaTimeDates If true, dates are generated as java.time.OffsetDateTime instead of GregorianCalendar.
+     */
+    public Generator(File dir, URL metadataUrl, Restriction whitelist, Restriction blacklist,
+            boolean javaTimeDates) {
         this.dir = dir;
         this.metadataUrl = metadataUrl;
         this.whitelist = whitelist;
         this.blacklist = blacklist;
+        this.javaTimeDates = javaTimeDates;
     }
     
     public void buildClient() throws IOException {
@@ -45,7 +59,7 @@ public class Generator {
         log("Generating source code");
         List<TypeClass> classes = new ArrayList<>(meta.types.size());
         for (Meta.Type type : meta.types.values()) {
-            TypeClass typeClass = new MetaConverter(BASE_PKG, meta, type).buildTypeClass();
+            TypeClass typeClass = new MetaConverter(BASE_PKG, meta, type, javaTimeDates).buildTypeClass();
             ClassWriter.emitType(dir, typeClass, meta);
             classes.add(typeClass);
         }
@@ -29,7 +29,9 @@ public class Main {
         "   give the type name, the property as type_name.propertyName, or the method as type_name::methodName.\n" +
         "   This is mutually exclusive with --blacklist.\n" +
         " --blacklist FILENAME - Similar to, and mututally exclusive with, --whitelist. Anything included\n" +
-        "   here will NOT be generated.\n";
+        "   here will NOT be generated.\n" +
+        " --java-time - Optional flag to generate dates as java.time.OffsetDateTime instead of\n" +
+        "   java.util.GregorianCalendar.\n";
 
     public static void main(String[] args) throws Exception {
         // Load up args
@@ -37,6 +39,7 @@ public class Main {
         URL url;
         Restriction whitelist;
         Restriction blacklist;
+        boolean javaTimeDates;
         try {
             List<String> argList = Arrays.asList(args);
             if (argList.contains("--help")) {
@@ -49,6 +52,7 @@ public class Main {
             url = new URL(urlString != null ? urlString : METADATA_URL);
             whitelist = getRestriction(getArg("--whitelist", argList));
             blacklist = getRestriction(getArg("--blacklist", argList));
+            javaTimeDates = argList.contains("--java-time");
             if (whitelist != null && blacklist != null) {
                 throw new IllegalArgumentException("Can't have whitelist and blacklist");
             }
@@ -57,7 +61,7 @@ public class Main {
             throw e;
         }
         
-        new Generator(dir, url, whitelist, blacklist).buildClient();
+        new Generator(dir, url, whitelist, blacklist, javaTimeDates).buildClient();
     }
     
     private static String getArg(String argName, List<String> argList) {
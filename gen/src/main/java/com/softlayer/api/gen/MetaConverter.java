@@ -2,6 +2,7 @@ package com.softlayer.api.gen;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.time.OffsetDateTime;
 import java.util.*;
 
 public class MetaConverter {
@@ -28,7 +29,9 @@ public class MetaConverter {
             "const", "float", "native", "super", "while"
         ));
         invalidClassNames = new HashSet<>(Arrays.asList(
-            "Service"
+            "Service",
+            // Nested in every service
+            "Call"
         ));
     }
     
@@ -37,11 +40,20 @@ public class MetaConverter {
     protected final Meta meta;
     protected final Meta.Type type;
     protected final String className;
+    protected final boolean javaTimeDates;
     
     public MetaConverter(String basePackageName, Meta meta, Meta.Type type) {
+        this(basePackageName, meta, type, false);
+    }
+    
+    /**
+     * @param javaTimeDates If true, dates are {@link OffsetDateTime} instead of {@link GregorianCalendar}.
+     */
+    public MetaConverter(String basePackageName, Meta meta, Meta.Type type, boolean javaTimeDates) {
         this.basePackageName = basePackageName;
         this.meta = meta;
         this.type = type;
+        this.javaTimeDates = javaTimeDates;
         this.className = getClassName(type.name);
     }
     
@@ -212,8 +224,13 @@ public class MetaConverter {
                 javaType = "Boolean";
                 break;
             case "dateTime":
-                javaType = GregorianCalendar.class.getName();
-                imports.put("GregorianCalendar", javaType);
+                if (javaTimeDates) {
+                    javaType = OffsetDateTime.class.getName();
+                    imports.put("OffsetDateTime", javaType);
+                } else {
+                    javaType = GregorianCalendar.class.getName();
+                    imports.put("GregorianCalendar", javaType);
+                }
                 break;
             case "decimal":
             case "float":
@@ -0,0 +1,240 @@
+package com.softlayer.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.softlayer.api.http.TransferStats;
+
+/**
+ * Base class for service implementations created by {@link RestApiClient}. It holds the mask and result limit
+ * of a service and forwards invocations to the client. Generated service implementations extend this so calls
+ * do not go through a dynamic proxy.
+ */
+public abstract class AbstractService {
+
+    final RestApiClient client;
+    final String serviceName;
+    final String id;
+    Mask mask;
+    String maskString;
+    ResultLimit resultLimit;
+    String objectFilter;
+    int timeoutMillis;
+    long deadlineMillis;
+    Integer lastResponseTotalItemCount;
+    Map<String, List<String>> lastResponseHeaders;
+    TransferStats lastResponseTransferStats;
+    /** If true, list results are left to be read from the response into {@link #lastResponseStream} */
+    boolean streaming;
+    ResultStream<?> lastResponseStream;
+
+    protected AbstractService(RestApiClient client, String serviceName, String id) {
+        this.client = client;
+        this.serviceName = serviceName;
+        this.id = id;
+    }
+
+    /** Create a service sharing the client, name, identifier, mask, result limit, and timeout of the given service */
+    protected AbstractService(AbstractService service) {
+        this(service.client, service.serviceName, service.id);
+        mask = service.mask;
+        maskString = service.maskString;
+        resultLimit = service.resultLimit;
+        objectFilter = service.objectFilter;
+        timeoutMillis = service.timeoutMillis;
+        deadlineMillis = service.deadlineMillis;
+    }
+
+    /** Create a new service of the same type sharing the state of this one as done by the copy constructor */
+    protected abstract AbstractService copy();
+
+    public void setMask(Mask mask) {
+        if (mask == null) {
+            throw new IllegalArgumentException("Cannot set null mask. Use clearMask to clear");
+        }
+        this.mask = mask;
+        maskString = null;
+    }
+
+    public void setMask(String mask) {
+        if (mask == null) {
+            throw new IllegalArgumentException("Cannot set null mask. Use clearMask to clear");
+        }
+        this.mask = null;
+        maskString = mask;
+    }
+
+    public void clearMask() {
+        mask = null;
+        maskString = null;
+    }
+
+    public ResultLimit getResultLimit() {
+        return resultLimit;
+    }
+
+    public ResultLimit setResultLimit(ResultLimit limit) {
+        resultLimit = limit;
+        return null;
+    }
+
+    public Integer getLastResponseTotalItemCount() {
+        return lastResponseTotalItemCount;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        timeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+    }
+
+    /** Replace the mask with the given one and return it */
+    protected <M extends Mask> M withNewMask(M mask) {
+        this.mask = mask;
+        maskString = null;
+        return mask;
+    }
+
+    /** Return the existing mask or set one from the given supplier if not present */
+    @SuppressWarnings("unchecked")
+    protected <M extends Mask> M withMask(Supplier<M> newMask) {
+        if (mask == null) {
+            mask = newMask.get();
+            maskString = null;
+        }
+        return (M) mask;
+    }
+
+    /** The mask to send with requests, or null if there is none */
+    String getMaskString() {
+        return mask == null ? maskString : mask.getMask();
+    }
+
+    /** Apply the given call options on top of this service's own settings. Only used on per-call copies */
+    void applyOptions(CallOptions options) {
+        if (options.mask != null) {
+            mask = null;
+            maskString = options.mask;
+        }
+        if (options.resultLimit != null) {
+            resultLimit = options.resultLimit;
+        }
+        if (options.objectFilter != null) {
+            objectFilter = options.objectFilter;
+        }
+        if (options.timeoutMillis > 0) {
+            timeoutMillis = options.timeoutMillis;
+        }
+        if (options.deadlineMillis > 0) {
+            deadlineMillis = options.deadlineMillis;
+        }
+    }
+
+    /** Response for the given value with the metadata of the last response this service received */
+    <T> ApiResponse<T> toResponse(T value) {
+        return new ApiResponse<>(value, lastResponseTotalItemCount, lastResponseHeaders,
+            lastResponseTransferStats);
+    }
+
+    /** Future of the response for the given future value once it has been received by this service */
+    <T> Future<ApiResponse<T>> toResponseFuture(final Future<T> future) {
+        return new Future<ApiResponse<T>>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return future.cancel(mayInterruptIfRunning);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return future.isCancelled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return future.isDone();
+            }
+
+            @Override
+            public ApiResponse<T> get() throws InterruptedException, ExecutionException {
+                return toResponse(future.get());
+            }
+
+            @Override
+            public ApiResponse<T> get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                return toResponse(future.get(timeout, unit));
+            }
+        };
+    }
+
+    /** The stream of the list result the last response of this streaming service had */
+    @SuppressWarnings("unchecked")
+    <T> ResultStream<T> toStream() {
+        ResultStream<?> result = lastResponseStream;
+        if (result == null) {
+            throw new IllegalStateException("No API method was invoked to stream");
+        }
+        return (ResultStream<T>) result;
+    }
+
+    /** Invoke the given method on a copy of this service with the given options applied */
+    @SuppressWarnings("unchecked")
+    protected <S, T> ApiResponse<T> invokeWithOptions(CallOptions options, Function<S, T> method) {
+        AbstractService service = copy();
+        service.applyOptions(options);
+        return service.toResponse(method.apply((S) service));
+    }
+
+    /** Invoke the given method on a copy of this service with the given options applied, streaming its result */
+    @SuppressWarnings("unchecked")
+    protected <S, T> ResultStream<T> invokeStreaming(CallOptions options, Function<S, List<T>> method) {
+        AbstractService service = copy();
+        service.applyOptions(options);
+        service.streaming = true;
+        method.apply((S) service);
+        return service.toStream();
+    }
+
+    /** Asynchronous version of {@link #invokeWithOptions(CallOptions, Function)} */
+    @SuppressWarnings("unchecked")
+    protected <S, T> Future<ApiResponse<T>> invokeAsyncWithOptions(CallOptions options,
+            Function<S, Future<T>> method) {
+        AbstractService service = copy();
+        service.applyOptions(options);
+        return service.toResponseFuture(method.apply((S) service));
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T> T invoke(ServiceMethod method, Object[] params) {
+        return (T) client.invokeService(this, method, params);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T> Future<T> invokeAsync(ServiceMethod method, Object[] params) {
+        return (Future<T>) client.invokeServiceAsync(this, method, params);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T> Future<?> invokeAsync(ServiceMethod method, Object[] params, ResponseHandler<T> callback) {
+        return client.invokeServiceAsync(this, method, params, (ResponseHandler<Object>) callback);
+    }
+
+    @Override
+    public String toString() {
+        if (id == null) {
+            return "Service: " + serviceName;
+        }
+        return "Service: " + serviceName + " with ID " + id;
+    }
+}
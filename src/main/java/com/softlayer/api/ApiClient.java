@@ -1,5 +1,7 @@
 package com.softlayer.api;
 
+import java.util.function.BiFunction;
+
 import com.softlayer.api.http.HttpCredentials;
 
 /** Common interface for all API clients. {@link RestApiClient} is the preferred implementation */
@@ -39,4 +41,14 @@ public interface ApiClient {
      * E.g. {@link com.softlayer.api.service.Account#service(ApiClient)}.
      */
     <S extends Service> S createService(Class<S> serviceClass, String id);
+
+    /**
+     * Get a service for the given class and optional ID using the given generated implementation when this
+     * client supports it. By default this falls back to {@link #createService(Class, String)}. It is not
+     * recommended to call this directly, but rather invoke the service method on the type class.
+     */
+    default <S extends Service> S createService(Class<S> serviceClass, String id,
+            BiFunction<RestApiClient, String, S> serviceImpl) {
+        return createService(serviceClass, id);
+    }
 }
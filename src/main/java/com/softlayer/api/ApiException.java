@@ -64,4 +64,16 @@ public class ApiException extends RuntimeException {
             super(message, code, STATUS);
         }
     }
+    
+    /** Thrown without calling the API while the circuit breaker for a service is open */
+    public static class CircuitOpen extends ApiException {
+        public static final int STATUS = 503;
+        
+        public final String circuitBreakerName;
+        
+        public CircuitOpen(String circuitBreakerName) {
+            super("Circuit breaker open for " + circuitBreakerName, "CircuitOpen", STATUS);
+            this.circuitBreakerName = circuitBreakerName;
+        }
+    }
 }
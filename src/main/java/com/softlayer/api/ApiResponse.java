@@ -0,0 +1,50 @@
+package com.softlayer.api;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.softlayer.api.http.TransferStats;
+
+/** The result of an API call along with the metadata of the response it came from */
+public class ApiResponse<T> {
+
+    private final T value;
+    private final Integer totalItemCount;
+    private final Map<String, List<String>> headers;
+    private final TransferStats transferStats;
+
+    public ApiResponse(T value, Integer totalItemCount, Map<String, List<String>> headers) {
+        this(value, totalItemCount, headers, null);
+    }
+
+    public ApiResponse(T value, Integer totalItemCount, Map<String, List<String>> headers,
+            TransferStats transferStats) {
+        this.value = value;
+        this.totalItemCount = totalItemCount;
+        this.headers = headers == null ? Collections.<String, List<String>>emptyMap() : headers;
+        this.transferStats = transferStats;
+    }
+
+    /** The deserialized result of the call */
+    public T getValue() {
+        return value;
+    }
+
+    /** The non-paginated total item count or null if the response did not contain one */
+    public Integer getTotalItemCount() {
+        return totalItemCount;
+    }
+
+    /** The HTTP headers of the response */
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * The compressed and decompressed size of the response body, or null if the HTTP client does not track them
+     */
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+}
@@ -0,0 +1,83 @@
+package com.softlayer.api;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable set of options for a single API call. Unlike the mask and result limit set on a service, these
+ * are never stored on the service so one service can be shared across threads and used with different options
+ * on each call. Values that are null here fall back to the ones set on the service.
+ *
+ * @see Service
+ */
+public class CallOptions {
+
+    /** Options that change nothing about the call */
+    public static final CallOptions DEFAULT = new CallOptions(null, null, null, 0, 0);
+
+    /** The mask in string form or null to use the service's mask */
+    public final String mask;
+    /** The result limit or null to use the service's result limit */
+    public final ResultLimit resultLimit;
+    /** The object filter in JSON form or null for no filter */
+    public final String objectFilter;
+    /** The connect and read timeout in milliseconds for the HTTP request or 0 to use the service's */
+    public final int timeoutMillis;
+    /** The time in milliseconds since the epoch by which the call must be done or 0 for no deadline */
+    public final long deadlineMillis;
+
+    public CallOptions(String mask, ResultLimit resultLimit, String objectFilter, int timeoutMillis) {
+        this(mask, resultLimit, objectFilter, timeoutMillis, 0);
+    }
+
+    public CallOptions(String mask, ResultLimit resultLimit, String objectFilter, int timeoutMillis,
+            long deadlineMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        if (deadlineMillis < 0) {
+            throw new IllegalArgumentException("Deadline cannot be negative");
+        }
+        this.mask = mask;
+        this.resultLimit = resultLimit;
+        this.objectFilter = objectFilter;
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /** Copy of these options with the given mask. The mask is converted to a string at this time */
+    public CallOptions withMask(Mask mask) {
+        return withMask(mask == null ? null : mask.getMask());
+    }
+
+    /** Copy of these options with the given mask string */
+    public CallOptions withMask(String mask) {
+        return new CallOptions(mask, resultLimit, objectFilter, timeoutMillis, deadlineMillis);
+    }
+
+    /** Copy of these options with the given result limit */
+    public CallOptions withResultLimit(ResultLimit resultLimit) {
+        return new CallOptions(mask, resultLimit, objectFilter, timeoutMillis, deadlineMillis);
+    }
+
+    /** Copy of these options with the given object filter in JSON form */
+    public CallOptions withObjectFilter(String objectFilter) {
+        return new CallOptions(mask, resultLimit, objectFilter, timeoutMillis, deadlineMillis);
+    }
+
+    /** Copy of these options with the given HTTP request timeout */
+    public CallOptions withTimeout(long timeout, TimeUnit unit) {
+        return new CallOptions(mask, resultLimit, objectFilter, (int) Math.min(Integer.MAX_VALUE,
+            unit.toMillis(timeout)), deadlineMillis);
+    }
+
+    /**
+     * Copy of these options with the given deadline. A call still running at the deadline is aborted and its
+     * connection closed, whether it is writing the request, waiting on the response, or reading the result.
+     * Since the deadline is absolute, options with one are usually created for each call.
+     */
+    public CallOptions withDeadline(Instant deadline) {
+        return new CallOptions(mask, resultLimit, objectFilter, timeoutMillis,
+            deadline == null ? 0 : deadline.toEpochMilli());
+    }
+}
@@ -0,0 +1,193 @@
+package com.softlayer.api;
+
+/**
+ * Circuit breaker for calls to a single service, or a single method of one. It is closed while calls are healthy
+ * and opens once the ratio of failed or slow calls among the recent ones reaches the policy's thresholds. While
+ * open, calls fail fast with {@link ApiException.CircuitOpen} without reaching the API. After the open duration it
+ * is half-open and lets a few probe calls through: if they all succeed quickly it closes again, otherwise it opens
+ * again. This class is thread-safe.
+ *
+ * @see CircuitBreakerPolicy
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        /** Calls go through and their outcomes are recorded */
+        CLOSED,
+        /** Calls fail fast */
+        OPEN,
+        /** A limited number of probe calls go through to decide whether to close */
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final CircuitBreakerPolicy policy;
+
+    // All guarded by this
+    private State state = State.CLOSED;
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int callCount;
+    private int nextCall;
+    private int failedCount;
+    private int slowCount;
+    private long openedAtNanos;
+    private long halfOpenedAtNanos;
+    private int probesInFlight;
+    private int probeSuccesses;
+    private long openCount;
+    private long rejectedCount;
+
+    CircuitBreaker(String name, CircuitBreakerPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        failed = new boolean[policy.getWindowSize()];
+        slow = new boolean[policy.getWindowSize()];
+    }
+
+    /** The service name, followed by "::" and the method name if the policy has a breaker per method */
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** The ratio of failed calls among the recent ones while closed */
+    public synchronized double getFailureRate() {
+        return callCount == 0 ? 0 : (double) failedCount / callCount;
+    }
+
+    /** The ratio of slow calls among the recent ones while closed */
+    public synchronized double getSlowCallRate() {
+        return callCount == 0 ? 0 : (double) slowCount / callCount;
+    }
+
+    /** The total number of times the breaker opened */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+
+    /** The total number of calls failed fast */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Get permission to make a call. The result must be given back to {@link #onResult(boolean, long, boolean)} or
+     * {@link #onIgnored(boolean)} when the call is done. Probes that never report back, e.g. because they were
+     * cancelled, are given up on after another open duration so that the breaker cannot stay half-open forever.
+     *
+     * @return Whether the call is a probe of a half-open breaker.
+     * @throws ApiException.CircuitOpen If the call is not permitted.
+     */
+    synchronized boolean acquirePermission() {
+        long now = System.nanoTime();
+        if (state == State.OPEN) {
+            if (now - openedAtNanos < policy.getOpenDurationNanos()) {
+                rejectedCount++;
+                throw new ApiException.CircuitOpen(name);
+            }
+            halfOpen(now);
+        } else if (state == State.HALF_OPEN && now - halfOpenedAtNanos >= policy.getOpenDurationNanos()) {
+            halfOpen(now);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= policy.getProbeCount()) {
+                rejectedCount++;
+                throw new ApiException.CircuitOpen(name);
+            }
+            probesInFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record the outcome of a permitted call. Outcomes of calls started in an earlier state are ignored.
+     *
+     * @param probe What {@link #acquirePermission()} returned.
+     * @param durationNanos How long the call took.
+     * @param failure Whether the call failed.
+     */
+    synchronized void onResult(boolean probe, long durationNanos, boolean failure) {
+        boolean slowCall = durationNanos >= policy.getSlowCallDurationNanos();
+        if (probe) {
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+            // A stale probe from an earlier half-open state may arrive after the last one
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (failure || slowCall) {
+                open();
+            } else if (++probeSuccesses >= policy.getProbeCount()) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            if (callCount == failed.length) {
+                failedCount -= failed[nextCall] ? 1 : 0;
+                slowCount -= slow[nextCall] ? 1 : 0;
+            } else {
+                callCount++;
+            }
+            failed[nextCall] = failure;
+            slow[nextCall] = slowCall;
+            failedCount += failure ? 1 : 0;
+            slowCount += slowCall ? 1 : 0;
+            nextCall = (nextCall + 1) % failed.length;
+            if (callCount >= policy.getMinimumCalls() && (getFailureRate() >= policy.getFailureRateThreshold() ||
+                    getSlowCallRate() >= policy.getSlowCallRateThreshold())) {
+                open();
+            }
+        }
+    }
+
+    /** Give back the permission of a call that did not complete, e.g. it was cancelled */
+    synchronized void onIgnored(boolean probe) {
+        if (probe && state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+        }
+    }
+
+    /** Record a permitted call started at the given time that got a response with the given status */
+    void onResponse(boolean probe, long startNanos, int statusCode) {
+        onResult(probe, System.nanoTime() - startNanos, policy.isFailure(statusCode));
+    }
+
+    /** Record a permitted call started at the given time that failed with the given exception */
+    void onFailure(boolean probe, long startNanos, Throwable failure) {
+        if (policy.isFailure(failure)) {
+            onResult(probe, System.nanoTime() - startNanos, true);
+        } else {
+            onIgnored(probe);
+        }
+    }
+
+    private void halfOpen(long now) {
+        state = State.HALF_OPEN;
+        halfOpenedAtNanos = now;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+        openCount++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        callCount = 0;
+        nextCall = 0;
+        failedCount = 0;
+        slowCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker [name=" + name + ", state=" + state + ", failureRate=" + getFailureRate() +
+            ", slowCallRate=" + getSlowCallRate() + "]";
+    }
+}
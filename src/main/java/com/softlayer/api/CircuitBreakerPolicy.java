@@ -0,0 +1,143 @@
+package com.softlayer.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings for the {@link CircuitBreaker}s of a client and the breakers themselves, one per service or per service
+ * method. A breaker opens once at least half of the last 20 calls, after the first 10, failed, or once all of them
+ * were slow. It stays open for 30 seconds and then lets 3 probe calls through. A call fails if the request could not
+ * be sent or the API responded with a 429 or 5xx status. This class is thread-safe.
+ *
+ * @see RestApiClient#setCircuitBreakerPolicy(CircuitBreakerPolicy)
+ */
+public class CircuitBreakerPolicy {
+
+    public static final int DEFAULT_WINDOW_SIZE = 20;
+    public static final int DEFAULT_MINIMUM_CALLS = 10;
+    public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+    public static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 1;
+    public static final long DEFAULT_SLOW_CALL_DURATION_MILLIS = 60 * 1000;
+    public static final long DEFAULT_OPEN_DURATION_MILLIS = 30 * 1000;
+    public static final int DEFAULT_PROBE_COUNT = 3;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final long openDurationNanos;
+    private final int probeCount;
+    private final boolean perMethod;
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    /** Policy with the default settings and a breaker per service */
+    public CircuitBreakerPolicy() {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_MINIMUM_CALLS, DEFAULT_FAILURE_RATE_THRESHOLD,
+            DEFAULT_SLOW_CALL_RATE_THRESHOLD, DEFAULT_SLOW_CALL_DURATION_MILLIS, DEFAULT_OPEN_DURATION_MILLIS,
+            TimeUnit.MILLISECONDS, DEFAULT_PROBE_COUNT, false);
+    }
+
+    /**
+     * @param windowSize The number of recent calls the rates are taken from.
+     * @param minimumCalls The number of calls needed before the breaker can open.
+     * @param failureRateThreshold The ratio of failed calls, between 0 and 1, at which the breaker opens.
+     * @param slowCallRateThreshold The ratio of slow calls, between 0 and 1, at which the breaker opens.
+     * @param slowCallDuration How long a call takes to be slow.
+     * @param openDuration How long the breaker stays open before letting probe calls through.
+     * @param unit The unit of the durations.
+     * @param probeCount The number of probe calls that must succeed for the breaker to close.
+     * @param perMethod If true, each method of a service has its own breaker.
+     */
+    public CircuitBreakerPolicy(int windowSize, int minimumCalls, double failureRateThreshold,
+            double slowCallRateThreshold, long slowCallDuration, long openDuration, TimeUnit unit, int probeCount,
+            boolean perMethod) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Window size and minimum calls must be positive, with the minimum "
+                + "no larger than the window");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || slowCallRateThreshold <= 0 ||
+                slowCallRateThreshold > 1) {
+            throw new IllegalArgumentException("Thresholds must be above 0 and at most 1");
+        }
+        if (slowCallDuration < 0 || openDuration < 0) {
+            throw new IllegalArgumentException("Durations cannot be negative");
+        }
+        if (probeCount <= 0) {
+            throw new IllegalArgumentException("Probe count must be positive");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = unit.toNanos(slowCallDuration);
+        this.openDurationNanos = unit.toNanos(openDuration);
+        this.probeCount = probeCount;
+        this.perMethod = perMethod;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public long getSlowCallDurationNanos() {
+        return slowCallDurationNanos;
+    }
+
+    public long getOpenDurationNanos() {
+        return openDurationNanos;
+    }
+
+    public int getProbeCount() {
+        return probeCount;
+    }
+
+    public boolean isPerMethod() {
+        return perMethod;
+    }
+
+    /** Whether a response with the given status counts as a failed call */
+    public boolean isFailure(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * Whether a call that failed with the given exception counts as a failed call. By default, this is true unless
+     * the request was rejected locally, e.g. by a limiter, before reaching the API.
+     */
+    public boolean isFailure(Throwable failure) {
+        return !(failure instanceof RejectedExecutionException) && !(failure instanceof ApiException.CircuitOpen);
+    }
+
+    /** Get the breaker for the given service and method, creating it if needed */
+    public CircuitBreaker getCircuitBreaker(String serviceName, String methodName) {
+        String name = perMethod ? serviceName + "::" + methodName : serviceName;
+        CircuitBreaker result = circuitBreakers.get(name);
+        if (result == null) {
+            result = circuitBreakers.computeIfAbsent(name, key -> new CircuitBreaker(key, this));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerPolicy [windowSize=" + windowSize + ", minimumCalls=" + minimumCalls +
+            ", failureRateThreshold=" + failureRateThreshold + ", slowCallRateThreshold=" + slowCallRateThreshold +
+            ", slowCallDurationNanos=" + slowCallDurationNanos + ", openDurationNanos=" + openDurationNanos +
+            ", probeCount=" + probeCount + ", perMethod=" + perMethod + "]";
+    }
+}
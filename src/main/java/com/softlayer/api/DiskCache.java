@@ -0,0 +1,377 @@
+package com.softlayer.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.softlayer.api.annotation.ApiTypes;
+import com.softlayer.api.service.Entity;
+
+/**
+ * Keeps the results of a {@link ResponseCache} on local disk so that a new process, e.g. a command line tool or a
+ * short-lived worker, can answer calls to catalogs from disk instead of the API. Each result is a file holding a
+ * small binary header and the result as JSON, which is read through a memory map. This class is thread-safe, and
+ * processes can share a directory since files are replaced atomically.
+ * <p>
+ * Files record when they expire and the version of the generated types they were written with, and those that
+ * expired or were written with another version are ignored and deleted, so results are never decoded into types they
+ * were not written from. Once the files take more than the size cap, the least recently used are deleted. Failures
+ * to read or write files are counted and otherwise ignored, so calls never fail because of the disk.
+ * <p>
+ * Results may hold account details, so the files are only readable by their owner where the file system allows it.
+ * File names are made of the service name, the ID and a hash of the rest of the call, including the credentials,
+ * which are never written.
+ *
+ * @see ResponseCache#withDiskCache(DiskCache)
+ */
+public class DiskCache {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    static final int MAGIC = 0x534C5243;
+    static final short FORMAT_VERSION = 1;
+    static final String SUFFIX = ".slc";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final String version;
+    private final byte[] versionBytes;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    /** Disk cache of up to 64 MB in the given directory for the results of this version of the generated types */
+    public DiskCache(Path directory) {
+        this(directory, DEFAULT_MAX_BYTES, getClientVersion());
+    }
+
+    /**
+     * @param directory The directory holding the files, which is created if needed.
+     * @param maxBytes The most bytes the files take before the least recently used are deleted.
+     * @param version The version of the types results are decoded into. Files written with another are ignored.
+     */
+    public DiskCache(Path directory, long maxBytes, String version) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Max bytes must be positive");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.version = version;
+        versionBytes = version.getBytes(StandardCharsets.UTF_8);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        size.set(getFiles(null).stream().mapToLong(this::getFileSize).sum());
+    }
+
+    /**
+     * The version of the generated types, which the generator records as a hash of their sources so it changes
+     * whenever they may have, even between builds of the same release. Types generated before that fall back to the
+     * version in the jar manifest, or "unknown" outside of a jar.
+     */
+    public static String getClientVersion() {
+        ApiTypes types = Entity.class.getPackage().getAnnotation(ApiTypes.class);
+        if (types != null && !types.version().isEmpty()) {
+            return types.version();
+        }
+        String result = RestApiClient.class.getPackage().getImplementationVersion();
+        return result == null ? "unknown" : result;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /** The bytes the files of this cache are known to take */
+    public long getSize() {
+        return size.get();
+    }
+
+    /** The total number of results read from disk */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** The total number of results looked up that were not on disk, expired or were written by another version */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /** The total number of files that could not be read or written */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /** Delete every file of the given service for the given ID and those without an ID, or all if the ID is null */
+    public void invalidate(String serviceName, String id) {
+        String prefix = toFileNamePart(serviceName) + '.';
+        String idPrefix = id == null ? null : prefix + toFileNamePart(id) + '.';
+        String noIdPrefix = prefix + "-.";
+        for (Path file : getFiles(prefix + '*')) {
+            String name = file.getFileName().toString();
+            if (idPrefix == null || name.startsWith(idPrefix) || name.startsWith(noIdPrefix)) {
+                delete(file);
+            }
+        }
+    }
+
+    /** Delete every file */
+    public void clear() {
+        for (Path file : getFiles(null)) {
+            delete(file);
+        }
+    }
+
+    /**
+     * The result stored for the given call or null if there is none, it expired or it was written by another
+     * version
+     */
+    Record read(String key, String serviceName, String id) {
+        Path file = getFile(key, serviceName, id);
+        Record record = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            record = parse(buffer);
+            if (record == null) {
+                delete(file);
+            } else {
+                // Keep recently used files from being deleted to make room
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+        } catch (NoSuchFileException e) {
+            // Simply not cached
+        } catch (BufferUnderflowException e) {
+            // Cut short, e.g. by a full disk
+            errorCount.incrementAndGet();
+            delete(file);
+        } catch (IOException | RuntimeException e) {
+            errorCount.incrementAndGet();
+        }
+        (record == null ? missCount : hitCount).incrementAndGet();
+        return record;
+    }
+
+    /** Parse the given file contents, returning null if they are from another version or expired */
+    private Record parse(ByteBuffer buffer) {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) {
+            return null;
+        }
+        byte[] fileVersion = new byte[buffer.getShort()];
+        buffer.get(fileVersion);
+        if (!Arrays.equals(fileVersion, versionBytes)) {
+            return null;
+        }
+        long expiresAtMillis = buffer.getLong();
+        int totalItemCount = buffer.getInt();
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return null;
+        }
+        return new Record(expiresAtMillis, totalItemCount < 0 ? null : totalItemCount, buffer.slice());
+    }
+
+    /** Store the result of the given call, given as JSON, replacing any already stored */
+    void write(String key, String serviceName, String id, long expiresAtMillis, Integer totalItemCount,
+            byte[] body) {
+        Path file = getFile(key, serviceName, id);
+        Path temp = null;
+        try {
+            ByteArrayOutputStream header = new ByteArrayOutputStream(32 + versionBytes.length);
+            DataOutputStream out = new DataOutputStream(header);
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeShort(versionBytes.length);
+            out.write(versionBytes);
+            out.writeLong(expiresAtMillis);
+            out.writeInt(totalItemCount == null ? -1 : totalItemCount);
+            // Temporary files are only readable by their owner where supported
+            temp = Files.createTempFile(directory, "write", ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffers = { ByteBuffer.wrap(header.toByteArray()), ByteBuffer.wrap(body) };
+                while (buffers[0].hasRemaining() || buffers[1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+            }
+            long fileSize = header.size() + (long) body.length;
+            long oldSize = getFileSize(file);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+            if (size.addAndGet(fileSize - oldSize) > maxBytes) {
+                evict();
+            }
+        } catch (IOException | RuntimeException e) {
+            errorCount.incrementAndGet();
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) { }
+            }
+        }
+    }
+
+    /** Delete the least recently used files until the rest fit in the size cap */
+    private synchronized void evict() {
+        List<Path> files = getFiles(null);
+        long[] lastUsed = new long[files.size()];
+        long total = 0;
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                lastUsed[i] = Files.getLastModifiedTime(files.get(i)).toMillis();
+                total += Files.size(files.get(i));
+            } catch (IOException e) {
+                lastUsed[i] = Long.MIN_VALUE;
+            }
+        }
+        size.set(total);
+        List<Integer> order = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> Long.compare(lastUsed[a], lastUsed[b]));
+        for (int i = 0; i < order.size() && size.get() > maxBytes; i++) {
+            delete(files.get(order.get(i)));
+        }
+    }
+
+    private void delete(Path file) {
+        long fileSize = getFileSize(file);
+        try {
+            if (Files.deleteIfExists(file)) {
+                size.addAndGet(-fileSize);
+            }
+        } catch (IOException e) {
+            errorCount.incrementAndGet();
+        }
+    }
+
+    private long getFileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /** The files of this cache, optionally only those matching the given glob */
+    private List<Path> getFiles(String glob) {
+        List<Path> result = new ArrayList<>();
+        String pattern = (glob == null ? "*" : glob) + SUFFIX;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, pattern)) {
+            for (Path file : files) {
+                result.add(file);
+            }
+        } catch (IOException e) {
+            errorCount.incrementAndGet();
+        }
+        return result;
+    }
+
+    /** The file of the given call, named so it can be invalidated without being read */
+    Path getFile(String key, String serviceName, String id) {
+        return directory.resolve(toFileNamePart(serviceName) + '.' + (id == null ? "-" : toFileNamePart(id)) + '.' +
+            hash(key) + SUFFIX);
+    }
+
+    private static String toFileNamePart(String value) {
+        return value.replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    private static String hash(String key) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        StringBuilder result = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "DiskCache [directory=" + directory + ", maxBytes=" + maxBytes + ", version=" + version + "]";
+    }
+
+    /** A result read from disk */
+    static class Record {
+
+        final long expiresAtMillis;
+        final Integer totalItemCount;
+        final ByteBuffer body;
+
+        Record(long expiresAtMillis, Integer totalItemCount, ByteBuffer body) {
+            this.expiresAtMillis = expiresAtMillis;
+            this.totalItemCount = totalItemCount;
+            this.body = body;
+        }
+
+        /** How much longer the result is valid for */
+        long getTtlNanos() {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAtMillis - System.currentTimeMillis()));
+        }
+
+        /** The result as JSON, read straight from the memory map */
+        InputStream getBody() {
+            final ByteBuffer buffer = body.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (!buffer.hasRemaining()) {
+                        return -1;
+                    }
+                    int count = Math.min(len, buffer.remaining());
+                    buffer.get(b, off, count);
+                    return count;
+                }
+
+                @Override
+                public int available() {
+                    return buffer.remaining();
+                }
+            };
+        }
+    }
+}
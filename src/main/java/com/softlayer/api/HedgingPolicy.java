@@ -0,0 +1,160 @@
+package com.softlayer.api;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a slow read call is sent a second time to cut tail latency. If a call has not completed after the
+ * hedge delay, an identical request is sent and whichever completes first is used while the other is cancelled. The
+ * hedge delay is a percentile of recent call latencies, 95th by default, so only the slowest calls are hedged. No
+ * call is hedged until enough latencies have been seen to know the percentile.
+ * <p>
+ * The extra load is capped: every call earns a fraction of a hedge, 5% by default, and every hedge spends a whole
+ * one, so over time there are never more extra requests than that fraction of calls. Only read calls, i.e. GET
+ * methods whose names start with "get", are hedged. This class is thread-safe.
+ *
+ * @see RestApiClient#setHedgingPolicy(HedgingPolicy)
+ */
+public class HedgingPolicy {
+
+    public static final double DEFAULT_PERCENTILE = 95;
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 50;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 10 * 1000;
+    public static final double DEFAULT_MAX_EXTRA_RATIO = 0.05;
+
+    /** The most hedges that can be saved up while calls are fast */
+    static final int MAX_BUDGET = 10;
+    /** The number of recent latencies the percentile is taken from */
+    static final int SAMPLE_SIZE = 256;
+    /** The number of latencies needed before calls are hedged */
+    static final int MIN_SAMPLES = 20;
+    /** The number of new latencies after which the percentile is taken again */
+    static final int RECOMPUTE_INTERVAL = 16;
+
+    private final double percentile;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final double maxExtraRatio;
+
+    // All guarded by this
+    private final long[] samples = new long[SAMPLE_SIZE];
+    private int sampleCount;
+    private int nextSample;
+    private int samplesSinceRecompute;
+    private long hedgeDelayMillis = -1;
+    private double budget;
+    private long callCount;
+    private long hedgeCount;
+    private long hedgeWinCount;
+
+    /** Policy with the default percentile, delays and extra load */
+    public HedgingPolicy() {
+        this(DEFAULT_PERCENTILE, DEFAULT_MIN_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS,
+            DEFAULT_MAX_EXTRA_RATIO);
+    }
+
+    /**
+     * @param percentile The percentile of recent call latencies to wait before hedging, between 0 and 100.
+     * @param minDelay The least to wait before hedging, however fast calls are.
+     * @param maxDelay The most to wait before hedging, however slow calls are.
+     * @param unit The unit of the delays.
+     * @param maxExtraRatio The most extra requests hedging may add as a fraction of calls, e.g. 0.05 for 5%.
+     */
+    public HedgingPolicy(double percentile, long minDelay, long maxDelay, TimeUnit unit, double maxExtraRatio) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be above 0 and at most 100");
+        }
+        if (minDelay < 0 || maxDelay < minDelay) {
+            throw new IllegalArgumentException("Delays cannot be negative and the maximum cannot be below the minimum");
+        }
+        if (maxExtraRatio < 0) {
+            throw new IllegalArgumentException("Extra ratio cannot be negative");
+        }
+        this.percentile = percentile;
+        this.minDelayMillis = unit.toMillis(minDelay);
+        this.maxDelayMillis = unit.toMillis(maxDelay);
+        this.maxExtraRatio = maxExtraRatio;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public double getMaxExtraRatio() {
+        return maxExtraRatio;
+    }
+
+    /**
+     * Whether an API method invoked with the given HTTP verb can be hedged. By default, this is true for GET methods
+     * whose names start with "get". Other methods are also sent with GET, e.g. "powerOff", but they change things
+     * and must not be sent twice.
+     *
+     * @param httpMethod The HTTP verb from {@link RestApiClient#getHttpMethodFromMethodName(String)}.
+     * @param methodName The API method name.
+     */
+    public boolean isHedgeable(String httpMethod, String methodName) {
+        return "GET".equals(httpMethod) && methodName.startsWith("get");
+    }
+
+    /** The milliseconds a call currently waits before it is hedged or -1 if too few calls have been seen yet */
+    public synchronized long getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    /** The total number of calls that could have been hedged */
+    public synchronized long getCallCount() {
+        return callCount;
+    }
+
+    /** The total number of hedge requests sent */
+    public synchronized long getHedgeCount() {
+        return hedgeCount;
+    }
+
+    /** The total number of hedge requests that completed before the call's first request */
+    public synchronized long getHedgeWinCount() {
+        return hedgeWinCount;
+    }
+
+    /** Record that a call is starting and return how long to wait before hedging it or -1 to not hedge it */
+    synchronized long onCall() {
+        callCount++;
+        budget = Math.min(MAX_BUDGET, budget + maxExtraRatio);
+        return hedgeDelayMillis;
+    }
+
+    /** Take a hedge from the budget, returning false if none is left */
+    synchronized boolean tryHedge() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        hedgeCount++;
+        return true;
+    }
+
+    synchronized void onHedgeWon() {
+        hedgeWinCount++;
+    }
+
+    /** Record how long a single request took to get a response */
+    synchronized void onLatency(long latencyMillis) {
+        samples[nextSample] = latencyMillis;
+        nextSample = (nextSample + 1) % SAMPLE_SIZE;
+        sampleCount = Math.min(SAMPLE_SIZE, sampleCount + 1);
+        if (sampleCount >= MIN_SAMPLES && (hedgeDelayMillis == -1 || ++samplesSinceRecompute >= RECOMPUTE_INTERVAL)) {
+            samplesSinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sampleCount) - 1;
+            long delay = sorted[Math.max(0, Math.min(sampleCount - 1, index))];
+            hedgeDelayMillis = Math.max(minDelayMillis, Math.min(maxDelayMillis, delay));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingPolicy [percentile=" + percentile + ", minDelayMillis=" + minDelayMillis +
+            ", maxDelayMillis=" + maxDelayMillis + ", maxExtraRatio=" + maxExtraRatio + "]";
+    }
+}
@@ -0,0 +1,129 @@
+package com.softlayer.api;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Simple thread-safe cache that evicts approximately the least recently used entries once it grows past its maximum
+ * size. Reads take no lock, they only note the time of access on the entry. Once a put takes the cache over its size,
+ * a single thread evicts the entries used longest ago in one batch, so the cost of finding them is shared by several
+ * puts. Concurrent puts can take the cache slightly past its size until then.
+ */
+class LruCache<K, V> {
+
+    private final int maxSize;
+    /** The size the cache is brought down to once it goes past its maximum */
+    private final int evictToSize;
+    private final ConcurrentMap<K, Node<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    LruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        evictToSize = maxSize - maxSize / 16;
+    }
+
+    V get(K key) {
+        Node<V> node = entries.get(key);
+        if (node == null) {
+            return null;
+        }
+        // A racy write is fine, the order only has to be roughly right
+        node.accessNanos = System.nanoTime();
+        return node.value;
+    }
+
+    void put(K key, V value) {
+        entries.put(key, new Node<>(value));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    void remove(K key) {
+        entries.remove(key);
+    }
+
+    /** Remove the entry for the given key only if it still has the given value */
+    void remove(K key, V value) {
+        Node<V> node = entries.get(key);
+        if (node != null && node.value.equals(value)) {
+            entries.remove(key, node);
+        }
+    }
+
+    /** Remove every entry whose value matches the given filter, returning how many were removed */
+    int removeIf(Predicate<? super V> filter) {
+        int removed = 0;
+        for (Map.Entry<K, Node<V>> entry : entries.entrySet()) {
+            if (filter.test(entry.getValue().value) && entries.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /** Remove the entries used longest ago until the cache is down to its eviction size, unless already evicting */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Access times are copied first since gets keep changing them, which would break the sort
+            List<Access<K, V>> snapshot = new ArrayList<>(entries.size());
+            for (Map.Entry<K, Node<V>> entry : entries.entrySet()) {
+                snapshot.add(new Access<>(entry.getKey(), entry.getValue()));
+            }
+            int excess = snapshot.size() - evictToSize;
+            if (excess <= 0) {
+                return;
+            }
+            snapshot.sort(Comparator.comparingLong(access -> access.nanos));
+            for (int i = 0; i < excess; i++) {
+                // Leave entries that were replaced in the meantime
+                entries.remove(snapshot.get(i).key, snapshot.get(i).node);
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static class Access<K, V> {
+
+        final K key;
+        final Node<V> node;
+        final long nanos;
+
+        Access(K key, Node<V> node) {
+            this.key = key;
+            this.node = node;
+            nanos = node.accessNanos;
+        }
+    }
+
+    private static class Node<V> {
+
+        final V value;
+        long accessNanos = System.nanoTime();
+
+        Node(V value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.softlayer.api;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Caches the results of read calls to nearly static data, e.g. the product catalog or locations, so that repeating
+ * a call does not go over the wire. Only read calls, i.e. GET methods whose names start with "get", to methods given
+ * a time to live with {@link #withTtl(String, long, TimeUnit)} or {@link #withTtl(String, String, long, TimeUnit)}
+ * are cached. Calls are the same when they have the same credentials, URL, including the ID, mask, result limit and
+ * filter, and parameters. Once full, roughly the least recently used results are evicted. Looking up a result takes
+ * no lock. This class is thread-safe.
+ * <p>
+ * A write, i.e. createObject, editObject or deleteObject, made through the same client invalidates the cached results
+ * of its service for the same ID and those without an ID, e.g. getAllObjects. A write without an ID invalidates every
+ * result of its service. Results of other services that include the written object are not invalidated.
+ * <p>
+ * By default, calls get the very same cached result object, so it must not be modified. If results are to be copied,
+ * the cache keeps its own deep copy and every call gets another.
+ * <p>
+ * With {@link #withRefreshAhead(double, long, TimeUnit, int)}, a result that is still in use as it nears the end of
+ * its time to live is fetched again in the background while calls keep getting the current one. Once it has expired,
+ * calls can keep getting it for a while longer as long as it is being refreshed. So hot results are never fetched on
+ * the calling thread after the first time.
+ * <p>
+ * With {@link #withDiskCache(DiskCache)}, results are also kept on disk, and results not in memory are looked up
+ * there before going over the wire, so that a new process starts with the results of earlier ones.
+ *
+ * @see RestApiClient#setResponseCache(ResponseCache)
+ */
+public class ResponseCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final int DEFAULT_MAX_CONCURRENT_REFRESHES = 4;
+
+    private final int maxEntries;
+    private final boolean copyResults;
+    private final LruCache<String, Entry> entries;
+    private final ConcurrentMap<String, Long> ttlNanos = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong staleHitCount = new AtomicLong();
+    private final AtomicInteger refreshesInFlight = new AtomicInteger();
+    private volatile double refreshAfter;
+    private volatile long maxStaleNanos;
+    private volatile int maxConcurrentRefreshes = DEFAULT_MAX_CONCURRENT_REFRESHES;
+    private volatile DiskCache diskCache;
+
+    /** Cache of up to 1000 results sharing the same result objects between calls */
+    public ResponseCache() {
+        this(DEFAULT_MAX_ENTRIES, false);
+    }
+
+    /**
+     * @param maxEntries The most results kept at once.
+     * @param copyResults Whether each call gets its own deep copy of the cached result.
+     */
+    public ResponseCache(int maxEntries, boolean copyResults) {
+        this.maxEntries = maxEntries;
+        this.copyResults = copyResults;
+        entries = new LruCache<>(maxEntries);
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public boolean isCopyResults() {
+        return copyResults;
+    }
+
+    /** Cache the results of every read method of the given service for the given time, 0 to not cache them */
+    public ResponseCache withTtl(String serviceName, long ttl, TimeUnit unit) {
+        return withTtl(serviceName, null, ttl, unit);
+    }
+
+    /**
+     * Cache the results of the given read method for the given time, 0 to not cache them. This takes precedence over
+     * the time to live of the whole service.
+     */
+    public ResponseCache withTtl(String serviceName, String methodName, long ttl, TimeUnit unit) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Time to live cannot be negative");
+        }
+        ttlNanos.put(methodName == null ? serviceName : serviceName + "::" + methodName, unit.toNanos(ttl));
+        return this;
+    }
+
+    /**
+     * Refresh results in the background once they have been cached for the given fraction of their time to live and
+     * are looked up again, and keep serving expired results that are being refreshed for up to the given time.
+     *
+     * @param refreshAfter The fraction of the time to live after which a lookup refreshes the result, e.g. 0.8, or 0
+     *     to never refresh.
+     * @param maxStale How long after expiring a result that is being refreshed can still be used.
+     * @param unit The unit of the stale time.
+     * @param maxConcurrentRefreshes The most refreshes in flight at once. Results due for a refresh while this many
+     *     are in flight are refreshed by a later lookup, or fetched on the calling thread once expired.
+     */
+    public ResponseCache withRefreshAhead(double refreshAfter, long maxStale, TimeUnit unit,
+            int maxConcurrentRefreshes) {
+        if (refreshAfter < 0 || refreshAfter > 1) {
+            throw new IllegalArgumentException("Refresh after must be between 0 and 1");
+        }
+        if (maxStale < 0) {
+            throw new IllegalArgumentException("Max stale cannot be negative");
+        }
+        if (maxConcurrentRefreshes <= 0) {
+            throw new IllegalArgumentException("Max concurrent refreshes must be positive");
+        }
+        this.refreshAfter = refreshAfter;
+        this.maxStaleNanos = unit.toNanos(maxStale);
+        this.maxConcurrentRefreshes = maxConcurrentRefreshes;
+        return this;
+    }
+
+    public double getRefreshAfter() {
+        return refreshAfter;
+    }
+
+    public long getMaxStaleMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxStaleNanos);
+    }
+
+    public int getMaxConcurrentRefreshes() {
+        return maxConcurrentRefreshes;
+    }
+
+    /** Also keep results on the given disk cache, or null to only keep them in memory */
+    public ResponseCache withDiskCache(DiskCache diskCache) {
+        this.diskCache = diskCache;
+        return this;
+    }
+
+    public DiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    /** How long results of the given method are cached in milliseconds, 0 if they are not */
+    public long getTtlMillis(String serviceName, String methodName) {
+        return TimeUnit.NANOSECONDS.toMillis(getTtlNanos(serviceName, methodName));
+    }
+
+    /**
+     * Whether calls of an API method invoked with the given HTTP verb only read. By default, this is true for GET
+     * methods whose names start with "get".
+     *
+     * @param httpMethod The HTTP verb from {@link RestApiClient#getHttpMethodFromMethodName(String)}.
+     * @param methodName The API method name.
+     */
+    public boolean isCacheable(String httpMethod, String methodName) {
+        return "GET".equals(httpMethod) && methodName.startsWith("get");
+    }
+
+    /**
+     * Whether calls of an API method invoked with the given HTTP verb change their service's objects. By default,
+     * this is true for all but GET methods, i.e. createObject, createObjects, editObject, editObjects and
+     * deleteObject.
+     *
+     * @param httpMethod The HTTP verb from {@link RestApiClient#getHttpMethodFromMethodName(String)}.
+     * @param methodName The API method name.
+     */
+    public boolean isWrite(String httpMethod, String methodName) {
+        return !"GET".equals(httpMethod);
+    }
+
+    /**
+     * Remove the cached results of the given service for the given ID and those without an ID, or every result of
+     * the service if the ID is null. Results being fetched at the time are not cached either.
+     */
+    public void invalidate(String serviceName, String id) {
+        invalidationCount.incrementAndGet();
+        entries.removeIf(entry -> entry.serviceName.equals(serviceName) &&
+            (id == null || entry.id == null || entry.id.equals(id)));
+        DiskCache diskCache = this.diskCache;
+        if (diskCache != null) {
+            diskCache.invalidate(serviceName, id);
+        }
+    }
+
+    /** Remove every cached result, including those on disk */
+    public void invalidateAll() {
+        invalidationCount.incrementAndGet();
+        entries.clear();
+        DiskCache diskCache = this.diskCache;
+        if (diskCache != null) {
+            diskCache.clear();
+        }
+    }
+
+    /** The number of results cached, including those that expired but have not been looked up since */
+    public int size() {
+        return entries.size();
+    }
+
+    /** The total number of calls answered from the cache */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** The total number of cacheable calls that had to be sent */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /** The total number of invalidations, whether or not they removed anything */
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    /** The total number of background refreshes started */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /** The total number of calls answered with an expired result while it was being refreshed */
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
+    /** The number of background refreshes in flight */
+    public int getRefreshesInFlight() {
+        return refreshesInFlight.get();
+    }
+
+    /** How long results of the given method are cached in nanoseconds, 0 if they are not */
+    long getTtlNanos(String serviceName, String methodName) {
+        Long result = ttlNanos.get(serviceName + "::" + methodName);
+        if (result == null) {
+            result = ttlNanos.get(serviceName);
+        }
+        return result == null ? 0 : result;
+    }
+
+    /** A number that changes with every invalidation, taken before a call to know if it may be cached */
+    long getGeneration() {
+        return invalidationCount.get();
+    }
+
+    /** The result cached for the given key or null if there is none or it expired */
+    Entry get(String key) {
+        return get(key, null);
+    }
+
+    /**
+     * The result cached for the given key or null if there is none or it expired and is not being refreshed. A
+     * result due for a refresh is given to the refresher, if there is one, which must call
+     * {@link #onRefreshDone(Entry, boolean)} once it is done.
+     */
+    Entry get(String key, Consumer<Entry> refresher) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            long now = System.nanoTime();
+            long sinceExpiry = now - entry.expiresAtNanos;
+            double refreshAfter = this.refreshAfter;
+            boolean usable = sinceExpiry < 0;
+            if (refresher != null && refreshAfter > 0 && (usable || sinceExpiry < maxStaleNanos)) {
+                if (now - entry.createdAtNanos >= refreshAfter * entry.ttlNanos && tryStartRefresh(entry)) {
+                    refresher.accept(entry);
+                }
+                if (!usable && entry.refreshing.get()) {
+                    usable = true;
+                    staleHitCount.incrementAndGet();
+                }
+            }
+            if (!usable) {
+                entries.remove(key, entry);
+                entry = null;
+            }
+        }
+        (entry == null ? missCount : hitCount).incrementAndGet();
+        return entry;
+    }
+
+    /** Mark the given result as being refreshed if it is not already and there is room for another refresh */
+    private boolean tryStartRefresh(Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return false;
+        }
+        while (true) {
+            int inFlight = refreshesInFlight.get();
+            if (inFlight >= maxConcurrentRefreshes) {
+                entry.refreshing.set(false);
+                return false;
+            }
+            if (refreshesInFlight.compareAndSet(inFlight, inFlight + 1)) {
+                refreshCount.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Finish refreshing the given result. If the refresh failed or its result was not cached, the result can be
+     * refreshed again and, once it has expired, is no longer used.
+     */
+    void onRefreshDone(Entry entry, boolean success) {
+        refreshesInFlight.decrementAndGet();
+        if (!success) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Cache the given result unless there was an invalidation since the given generation was taken, returning
+     * whether it was cached
+     */
+    boolean put(String key, Entry entry, long generation) {
+        if (getGeneration() != generation) {
+            return false;
+        }
+        entries.put(key, entry);
+        // Invalidations that happened while putting may have missed it
+        if (getGeneration() != generation) {
+            entries.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache [maxEntries=" + maxEntries + ", copyResults=" + copyResults + ", ttlNanos=" +
+            ttlNanos + ", refreshAfter=" + refreshAfter + ", maxStaleNanos=" + maxStaleNanos + "]";
+    }
+
+    /** A cached result along with the response details given to the services that use it */
+    static class Entry {
+
+        final String serviceName;
+        final String id;
+        final Object value;
+        final Integer totalItemCount;
+        final Map<String, List<String>> headers;
+        final long ttlNanos;
+        final long createdAtNanos;
+        final long expiresAtNanos;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(String serviceName, String id, Object value, Integer totalItemCount,
+                Map<String, List<String>> headers, long ttlNanos) {
+            this.serviceName = serviceName;
+            this.id = id;
+            this.value = value;
+            this.totalItemCount = totalItemCount;
+            this.headers = headers;
+            this.ttlNanos = ttlNanos;
+            createdAtNanos = System.nanoTime();
+            expiresAtNanos = createdAtNanos + ttlNanos;
+        }
+
+        /** Give the response details to the given service. Nothing was transferred, so there are no stats. */
+        void applyTo(AbstractService service) {
+            service.lastResponseTotalItemCount = totalItemCount;
+            service.lastResponseHeaders = headers;
+            service.lastResponseTransferStats = null;
+        }
+    }
+}
@@ -7,23 +7,33 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import com.softlayer.api.annotation.ApiMethod;
 import com.softlayer.api.annotation.ApiService;
+import com.softlayer.api.http.ApiTimer;
 import com.softlayer.api.http.HttpCredentials;
 import com.softlayer.api.http.HttpBasicAuthCredentials;
 import com.softlayer.api.http.HttpBearerCredentials;
 import com.softlayer.api.http.HttpClient;
 import com.softlayer.api.http.HttpClientFactory;
 import com.softlayer.api.http.HttpResponse;
+import com.softlayer.api.http.HttpTimeouts;
+import com.softlayer.api.json.JsonMarshaller;
 import com.softlayer.api.json.JsonMarshallerFactory;
 import com.softlayer.api.service.Entity;
 
@@ -54,19 +64,38 @@ public class RestApiClient implements ApiClient {
      * A list of service methods that do not have to be added to the REST URL.
      * createObjects is supposed to work, but does not.
      */
-    private static final List<String> IMPLICIT_SERVICE_METHODS = Arrays.asList(
+    private static final Set<String> IMPLICIT_SERVICE_METHODS = new HashSet<>(Arrays.asList(
             "getObject",
             "deleteObject",
             "createObject",
             "editObject",
             "editObjects"
-    );
+    ));
+
+    /** The maximum number of URL-encoded masks kept by a client */
+    static final int ENCODED_MASK_CACHE_SIZE = 256;
+
+    /** How long requests wait for a connection by default */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 30 * 1000;
+
+    /** How long requests wait for data from the server by default. Some API calls legitimately take minutes. */
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10 * 60 * 1000;
 
     private final String baseUrl;
     private HttpClientFactory httpClientFactory;
     private JsonMarshallerFactory jsonMarshallerFactory;
     private boolean loggingEnabled = false;
     private HttpCredentials credentials;
+    private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+    private RetryPolicy retryPolicy;
+    private HedgingPolicy hedgingPolicy;
+    private CircuitBreakerPolicy circuitBreakerPolicy;
+    private SingleFlight singleFlight;
+    private ResponseCache responseCache;
+    private final ConcurrentMap<Class<?>, Map<Method, InvocationPlan>> invocationPlans = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Map<ServiceMethod, UrlTemplate>> urlTemplates = new ConcurrentHashMap<>();
+    private final LruCache<String, String> encodedMasks = new LruCache<>(ENCODED_MASK_CACHE_SIZE);
 
     /**
      * Create a Rest client that uses the publically available API.
@@ -137,6 +166,107 @@ public class RestApiClient implements ApiClient {
         setJsonMarshallerFactory(jsonMarshallerFactory);
         return this;
     }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * Set how long requests wait for a connection unless a service or call sets its own timeout. 0 means
+     * no timeout.
+     */
+    public void setConnectTimeout(long timeout, TimeUnit unit) {
+        connectTimeoutMillis = toTimeoutMillis(timeout, unit);
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    /**
+     * Set how long requests wait for data from the server at any point unless a service or call sets its own
+     * timeout. 0 means no timeout.
+     */
+    public void setReadTimeout(long timeout, TimeUnit unit) {
+        readTimeoutMillis = toTimeoutMillis(timeout, unit);
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /** Set the policy for retrying failed idempotent calls or null, the default, to never retry */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public RestApiClient withRetryPolicy(RetryPolicy retryPolicy) {
+        setRetryPolicy(retryPolicy);
+        return this;
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /** Set the policy for hedging slow read calls or null, the default, to never hedge */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    public RestApiClient withHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        setHedgingPolicy(hedgingPolicy);
+        return this;
+    }
+
+    public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return circuitBreakerPolicy;
+    }
+
+    /** Set the policy for failing fast on unhealthy services or null, the default, to never fail fast */
+    public void setCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+        this.circuitBreakerPolicy = circuitBreakerPolicy;
+    }
+
+    public RestApiClient withCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+        setCircuitBreakerPolicy(circuitBreakerPolicy);
+        return this;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    /** Set how identical concurrent read calls share a request or null, the default, to never share */
+    public void setSingleFlight(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public RestApiClient withSingleFlight(SingleFlight singleFlight) {
+        setSingleFlight(singleFlight);
+        return this;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /** Set the cache for the results of read calls or null, the default, to never cache */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public RestApiClient withResponseCache(ResponseCache responseCache) {
+        setResponseCache(responseCache);
+        return this;
+    }
+
+    private static int toTimeoutMillis(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+    }
     
     @Override
     public RestApiClient withCredentials(String username, String apiKey) {
@@ -188,32 +318,129 @@ public class RestApiClient implements ApiClient {
      */
     protected String getFullUrl(String serviceName, String methodName, String id,
             ResultLimit resultLimit, String maskString) {
-        StringBuilder url = new StringBuilder(baseUrl + serviceName);
-        // ID present? add it
-        if (id != null) {
-            url.append('/').append(id);
-        }
+        return getFullUrlWithMethodPath(serviceName, getMethodUrlPath(methodName), id, resultLimit, maskString,
+            null);
+    }
+
+    /**
+     * Get the portion of the REST URL that represents the method. This is appended after the service
+     * name and optional identifier and is empty for methods that are implied by the HTTP verb.
+     *
+     * @param methodName The name of the method on the service to call.
+     * @return String
+     */
+    protected String getMethodUrlPath(String methodName) {
         // Some method names are not included, others can have the "get" stripped
         if (methodName.startsWith("get") && !"getObject".equals(methodName)) {
-            url.append('/').append(methodName.substring(3));
+            return '/' + methodName.substring(3);
         } else if (!IMPLICIT_SERVICE_METHODS.contains(methodName)) {
-            url.append('/').append(methodName);
+            return '/' + methodName;
         }
+        return "";
+    }
+
+    /**
+     * Same as {@link #getFullUrl(String, String, String, ResultLimit, String)} but with the method already
+     * converted via {@link #getMethodUrlPath(String)} and with an optional object filter in JSON form.
+     */
+    protected String getFullUrlWithMethodPath(String serviceName, String methodPath, String id,
+            ResultLimit resultLimit, String maskString, String objectFilter) {
+        return buildUrl(baseUrl + serviceName, id, methodPath + ".json", resultLimit, maskString, objectFilter);
+    }
 
-        url.append(".json");
+    /** Build the URL from the precomputed portions before and after the optional ID and the query values */
+    String buildUrl(String prefix, String id, String suffix, ResultLimit resultLimit, String maskString,
+            String objectFilter) {
+        String encodedMask = maskString == null || maskString.isEmpty() ? null : getEncodedMask(maskString);
+        String encodedFilter = objectFilter == null || objectFilter.isEmpty() ? null : urlEncode(objectFilter);
+        StringBuilder url = new StringBuilder(prefix.length() + suffix.length() + 64 +
+            (encodedMask == null ? 0 : encodedMask.length()) + (encodedFilter == null ? 0 : encodedFilter.length()));
+        url.append(prefix);
+        // ID present? add it
+        if (id != null) {
+            url.append('/').append(id);
+        }
+        url.append(suffix);
+        char separator = '?';
         if (resultLimit != null) {
-            url.append("?resultLimit=").append(resultLimit.offset).append(',').append(resultLimit.limit);
+            url.append(separator).append("resultLimit=").append(resultLimit.offset).append(',')
+                .append(resultLimit.limit);
+            separator = '&';
         }
-        if (maskString != null && !maskString.isEmpty()) {
-            url.append(resultLimit == null ? '?' : '&');
-            try {
-                url.append("objectMask=").append(URLEncoder.encode(maskString, "UTF-8"));
-            } catch (UnsupportedEncodingException e) {
-                throw new RuntimeException(e);
-            }
+        if (encodedMask != null) {
+            url.append(separator).append("objectMask=").append(encodedMask);
+            separator = '&';
+        }
+        if (encodedFilter != null) {
+            url.append(separator).append("objectFilter=").append(encodedFilter);
         }
         return url.toString();
     }
+
+    /**
+     * Get the URL-encoded form of the given mask in its canonical form, reusing a previous encoding of the same
+     * canonical mask if present
+     */
+    String getEncodedMask(String maskString) {
+        String canonical = getCanonicalMask(maskString);
+        String encoded = encodedMasks.get(canonical);
+        if (encoded == null) {
+            encoded = urlEncode(canonical);
+            encodedMasks.put(canonical, encoded);
+        }
+        return encoded;
+    }
+
+    /**
+     * The given mask without the whitespace the API ignores, so masks only written differently share an encoding.
+     * The same string is returned if it has no whitespace, which is always the case for masks built from
+     * {@link Mask} objects.
+     */
+    static String getCanonicalMask(String maskString) {
+        int length = maskString.length();
+        int i = 0;
+        while (i < length && !Character.isWhitespace(maskString.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return maskString;
+        }
+        StringBuilder canonical = new StringBuilder(length).append(maskString, 0, i);
+        for (; i < length; i++) {
+            char c = maskString.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                canonical.append(c);
+            }
+        }
+        return canonical.toString();
+    }
+
+    private static String urlEncode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get the HTTP verb and URL portions for invoking the given method on the service with the given name. They are
+     * resolved through {@link #getHttpMethodFromMethodName(String)} and {@link #getMethodUrlPath(String)} the first
+     * time and reused after that.
+     */
+    UrlTemplate getUrlTemplate(String serviceName, ServiceMethod method) {
+        Map<ServiceMethod, UrlTemplate> templates = urlTemplates.get(serviceName);
+        if (templates == null) {
+            templates = urlTemplates.computeIfAbsent(serviceName, key -> new ConcurrentHashMap<>());
+        }
+        UrlTemplate template = templates.get(method);
+        if (template == null) {
+            template = new UrlTemplate(getHttpMethodFromMethodName(method.name), baseUrl + serviceName,
+                getMethodUrlPath(method.name) + ".json");
+            templates.put(method, template);
+        }
+        return template;
+    }
     
     protected void logRequest(String httpMethod, String url, Object[] params) {
         // Build JSON
@@ -242,293 +469,1300 @@ public class RestApiClient implements ApiClient {
                 new Class<?>[] { serviceClass }, new ServiceProxy<>(serviceClass, id));
     }
 
-    class ServiceProxy<S extends Service> implements InvocationHandler {
-        
-        final Class<S> serviceClass;
-        final String id;
-        Mask mask;
-        String maskString;
-        ResultLimit resultLimit;
-        Integer lastResponseTotalItemCount;
-        
-        public ServiceProxy(Class<S> serviceClass, String id) {
-            this.serviceClass = serviceClass;
-            this.id = id;
+    @Override
+    public <S extends Service> S createService(Class<S> serviceClass, String id,
+            BiFunction<RestApiClient, String, S> serviceImpl) {
+        return serviceImpl.apply(this, id);
+    }
+
+    void logRequestAndWriteBody(HttpClient client, String httpMethod, String url, Object[] args) {
+        if (loggingEnabled) {
+            logRequest(httpMethod, url, args);
         }
-        
-        public void logRequestAndWriteBody(HttpClient client, String httpMethod, String url, Object[] args) {
-            if (loggingEnabled) {
-                logRequest(httpMethod, url, args);
+        // If there are parameters write em
+        if (args != null && args.length > 0) {
+            OutputStream outStream = client.getBodyStream();
+            try {
+                writeParameterHttpBody(args, outStream);
+            } finally {
+                try { outStream.close(); } catch (Exception e) { }
             }
-            // If there are parameters write em
-            if (args != null && args.length > 0) {
-                OutputStream outStream = client.getBodyStream();
+        }
+    }
+
+    @SuppressWarnings("resource")
+    Object logAndHandleResponse(AbstractService service, HttpResponse response, String url,
+            java.lang.reflect.Type returnType) {
+        InputStream stream = response.getInputStream();
+        if (loggingEnabled && stream != null) {
+            InputStream newStream;
+            Scanner scanner = null;
+            try {
+                scanner = new Scanner(stream, "UTF-8").useDelimiter("\\A");
+                String body = scanner.hasNext() ? scanner.next() : "";
+                logResponse(url, response.getStatusCode(), body);
+                newStream = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+            } finally {
                 try {
-                    writeParameterHttpBody(args, outStream);
-                } finally {
-                    try { outStream.close(); } catch (Exception e) { }
-                }
+                    if (scanner != null) {
+                        scanner.close();
+                    }
+                } catch (Exception e) { }
+                try {
+                    stream.close();
+                } catch (Exception e) { }
             }
+            stream = newStream;
         }
-        
-        @SuppressWarnings("resource")
-        public Object logAndHandleResponse(HttpResponse response, String url,
-                java.lang.reflect.Type returnType) throws Exception {
-            InputStream stream = response.getInputStream();
-            if (loggingEnabled && stream != null) {
-                InputStream newStream;
-                Scanner scanner = null;
-                try {
-                    scanner = new Scanner(stream, "UTF-8").useDelimiter("\\A");
-                    String body = scanner.hasNext() ? scanner.next() : "";
-                    logResponse(url, response.getStatusCode(), body);
-                    newStream = new ByteArrayInputStream(body.getBytes("UTF-8"));
-                } finally {
-                    try {
-                        if (scanner != null) {
-                            scanner.close();
-                        }
-                    } catch (Exception e) { }
-                    try {
-                        stream.close();
-                    } catch (Exception e) { }
+        try {
+            // If it's not a 200, we have a problem
+            if (response.getStatusCode() < 200 || response.getStatusCode() >= 300) {
+                if (stream == null) {
+                    throw new ApiException("Unknown error", null, response.getStatusCode());
                 }
-                stream = newStream;
+                // Extract error and throw
+                Map<String, String> map = getJsonMarshallerFactory().getJsonMarshaller().
+                        fromJson(Map.class, stream);
+                throw ApiException.fromError(map.get("error"), map.get("code"), response.getStatusCode());
             }
-            try {
-                // If it's not a 200, we have a problem
-                if (response.getStatusCode() < 200 || response.getStatusCode() >= 300) {
-                    if (stream == null) {
-                        throw new ApiException("Unknown error", null, response.getStatusCode());
-                    }
-                    // Extract error and throw
-                    Map<String, String> map = getJsonMarshallerFactory().getJsonMarshaller().
-                            fromJson(Map.class, stream);
-                    throw ApiException.fromError(map.get("error"), map.get("code"), response.getStatusCode());
-                }
-                // Update total items
-                lastResponseTotalItemCount = null;
-                Map<String, List<String>> headers = response.getHeaders();
-                if (headers != null) {
-                    List<String> totalItems = headers.get("SoftLayer-Total-Items");
-                    if (totalItems != null && !totalItems.isEmpty()) {
-                        lastResponseTotalItemCount = Integer.valueOf(totalItems.get(0));
-                    }
+            // Update total items
+            service.lastResponseTotalItemCount = null;
+            Map<String, List<String>> headers = response.getHeaders();
+            service.lastResponseHeaders = headers;
+            // The counts are complete once the body below has been read
+            service.lastResponseTransferStats = response.getTransferStats();
+            if (headers != null) {
+                List<String> totalItems = headers.get("SoftLayer-Total-Items");
+                if (totalItems != null && !totalItems.isEmpty()) {
+                    service.lastResponseTotalItemCount = Integer.valueOf(totalItems.get(0));
                 }
-                // Just return the serialized response
-                return getJsonMarshallerFactory().getJsonMarshaller().fromJson(returnType, stream);
-            } finally {
+            }
+            JsonMarshaller marshaller = getJsonMarshallerFactory().getJsonMarshaller();
+            if (service.streaming) {
+                // The elements are read by the caller, which closes the body
+                service.lastResponseStream = new ResultStream<>(
+                    marshaller.fromJsonArray(getListElementType(returnType), stream), stream,
+                    service.lastResponseTotalItemCount, headers, service.lastResponseTransferStats);
+                stream = null;
+                return null;
+            }
+            // Just return the serialized response
+            return marshaller.fromJson(returnType, stream);
+        } finally {
+            if (stream != null) {
                 try {
                     stream.close();
                 } catch (Exception e) { }
             }
         }
-        
-        public Object invokeService(Method method, final Object[] args) throws Throwable {
-            ApiMethod methodInfo = method.getAnnotation(ApiMethod.class);
-            // Must have ID if instance is required
-            if (methodInfo.instanceRequired() && id == null) {
-                throw new IllegalStateException("ID is required to invoke " + method);
+    }
+
+    /** The element class of the given list type or null if it is not a list of a class */
+    static Class<?> getListElementType(java.lang.reflect.Type type) {
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == List.class) {
+            java.lang.reflect.Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (elementType instanceof Class) {
+                return (Class<?>) elementType;
+            }
+        }
+        return null;
+    }
+
+    private String getServiceUrl(AbstractService service, ServiceMethod method) {
+        // Must have ID if instance is required
+        if (method.instanceRequired && service.id == null) {
+            throw new IllegalStateException("ID is required to invoke " + service.serviceName + "::" + method);
+        }
+        UrlTemplate template = getUrlTemplate(service.serviceName, method);
+        return buildUrl(template.prefix, method.instanceRequired ? service.id : null, template.suffix,
+            service.resultLimit, service.getMaskString(), service.objectFilter);
+    }
+
+    /** The HTTP verb the given method is invoked with on the given service */
+    private String getHttpMethod(AbstractService service, ServiceMethod method) {
+        return getUrlTemplate(service.serviceName, method).httpMethod;
+    }
+
+    private HttpClient getHttpClient(AbstractService service, String httpMethod, String url) {
+        // A service or call timeout replaces both of the client's
+        int connectTimeout = service.timeoutMillis > 0 ? service.timeoutMillis : connectTimeoutMillis;
+        int readTimeout = service.timeoutMillis > 0 ? service.timeoutMillis : readTimeoutMillis;
+        if (connectTimeout == 0 && readTimeout == 0 && service.deadlineMillis == 0) {
+            return getHttpClientFactory().getHttpClient(credentials, httpMethod, url, HEADERS);
+        }
+        return getHttpClientFactory().getHttpClient(credentials, httpMethod, url, HEADERS,
+            new HttpTimeouts(connectTimeout, readTimeout, service.deadlineMillis));
+    }
+
+    /** Synchronously invoke the given method for the given service */
+    Object invokeService(AbstractService service, ServiceMethod method, final Object[] args) {
+        final String url = getServiceUrl(service, method);
+        if (service.streaming) {
+            if (getListElementType(method.returnType) == null) {
+                throw new IllegalArgumentException("Only methods returning a list can be streamed: " + method);
+            }
+            // The result is never held as a whole, so it can neither be cached nor shared
+            return invokeService(service, method, args, url);
+        }
+        CachedCall cachedCall = getCachedCall(service, method, url, args);
+        if (cachedCall == null) {
+            return invokeService(service, method, args, url, null);
+        }
+        ResponseCache.Entry entry = cachedCall.lookup();
+        if (entry != null) {
+            return cachedCall.getResult(entry);
+        }
+        Object result;
+        try {
+            result = invokeService(service, method, args, url, cachedCall.key);
+        } catch (RuntimeException | Error e) {
+            cachedCall.onFailure();
+            throw e;
+        }
+        cachedCall.onSuccess(result);
+        return result;
+    }
+
+    /**
+     * Same as {@link #invokeService(AbstractService, ServiceMethod, Object[])} with the URL already built, sharing
+     * the request with identical calls in flight if there is a single flight
+     *
+     * @param key The key of the call or null if it has not been made yet.
+     */
+    private Object invokeService(AbstractService service, ServiceMethod method, final Object[] args,
+            final String url, String key) {
+        SingleFlight singleFlight = getSingleFlight(service, method);
+        if (singleFlight == null) {
+            return invokeService(service, method, args, url);
+        }
+        if (key == null) {
+            key = getCallKey(service, method, url, args);
+        }
+        SingleFlight.Flight flight = new SingleFlight.Flight();
+        SingleFlight.Flight existing = singleFlight.join(key, flight);
+        if (existing != null) {
+            Object result = existing.await(service);
+            return singleFlight.isCopyResults() ? copy(result, method.returnType) : result;
+        }
+        try {
+            Object result = invokeService(service, method, args, url);
+            flight.succeed(service, result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            singleFlight.leave(key, flight);
+        }
+    }
+
+    /** The key telling the given call apart from those that would get another result */
+    private String getCallKey(AbstractService service, ServiceMethod method, String url, Object[] args) {
+        String body = null;
+        if (args != null && args.length > 0) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeParameterHttpBody(args, out);
+            body = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+        return SingleFlight.getKey(credentials, getHttpMethod(service, method), url, body);
+    }
+
+    /** How the response cache takes part in the given call or null if it does not */
+    private CachedCall getCachedCall(AbstractService service, ServiceMethod method, String url, Object[] args) {
+        ResponseCache cache = responseCache;
+        if (cache == null) {
+            return null;
+        }
+        String httpMethod = getHttpMethod(service, method);
+        if (cache.isWrite(httpMethod, method.name)) {
+            return new CachedCall(cache, service, method, url, args, null, 0);
+        }
+        long ttlNanos = cache.isCacheable(httpMethod, method.name) ?
+            cache.getTtlNanos(service.serviceName, method.name) : 0;
+        if (ttlNanos <= 0) {
+            return null;
+        }
+        return new CachedCall(cache, service, method, url, args, getCallKey(service, method, url, args), ttlNanos);
+    }
+
+    /**
+     * A call that is either a read answered from the response cache or added to it once sent, or a write that
+     * invalidates the cache once done
+     */
+    private class CachedCall {
+
+        final ResponseCache cache;
+        final AbstractService service;
+        final ServiceMethod method;
+        final String url;
+        final Object[] args;
+        /** Null for writes */
+        final String key;
+        final long ttlNanos;
+        final long generation;
+        /** Whether the result of the call was cached, which an invalidation during the call prevents */
+        volatile boolean stored;
+
+        CachedCall(ResponseCache cache, AbstractService service, ServiceMethod method, String url, Object[] args,
+                String key, long ttlNanos) {
+            this.cache = cache;
+            this.service = service;
+            this.method = method;
+            this.url = url;
+            this.args = args;
+            this.key = key;
+            this.ttlNanos = ttlNanos;
+            generation = cache.getGeneration();
+        }
+
+        /**
+         * The cached result of the call, giving its response details to the service, or null if there is none. A
+         * result due for a refresh is fetched again in the background.
+         */
+        ResponseCache.Entry lookup() {
+            if (key == null) {
+                return null;
+            }
+            ResponseCache.Entry entry = cache.get(key, this::refresh);
+            if (entry == null) {
+                entry = load();
+            }
+            if (entry != null) {
+                entry.applyTo(service);
+            }
+            return entry;
+        }
+
+        /** The result from the disk cache, which is then cached in memory, or null if there is none */
+        private ResponseCache.Entry load() {
+            DiskCache diskCache = cache.getDiskCache();
+            if (diskCache == null) {
+                return null;
+            }
+            String id = method.instanceRequired ? service.id : null;
+            DiskCache.Record record = diskCache.read(key, service.serviceName, id);
+            if (record == null) {
+                return null;
+            }
+            Object value;
+            try {
+                value = getJsonMarshallerFactory().getJsonMarshaller().fromJson(method.returnType,
+                    record.getBody());
+            } catch (RuntimeException e) {
+                // Not in the shape of the current types after all
+                diskCache.invalidate(service.serviceName, id);
+                return null;
+            }
+            ResponseCache.Entry entry = new ResponseCache.Entry(service.serviceName, id, value,
+                record.totalItemCount, null, record.getTtlNanos());
+            cache.put(key, entry, generation);
+            return entry;
+        }
+
+        /** Write the given result to the disk cache if there is one */
+        private void store(String id, Object result) {
+            DiskCache diskCache = cache.getDiskCache();
+            if (diskCache == null || cache.getGeneration() != generation) {
+                return;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                getJsonMarshallerFactory().getJsonMarshaller().toJson(result, out);
+            } catch (RuntimeException e) {
+                return;
+            }
+            diskCache.write(key, service.serviceName, id,
+                System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(ttlNanos),
+                service.lastResponseTotalItemCount, out.toByteArray());
+        }
+
+        /** Asynchronously fetch the result again to replace the given entry, which is being refreshed */
+        void refresh(final ResponseCache.Entry entry) {
+            AbstractService refreshService = service.copy();
+            // The refresh is not bound by the deadline of the call that happened to start it
+            refreshService.deadlineMillis = 0;
+            final CachedCall refreshCall = new CachedCall(cache, refreshService, method, url, args, key,
+                ttlNanos);
+            try {
+                invokeServiceAsync(refreshService, method, args, url, refreshCall, new ResponseHandler<Object>() {
+                    @Override
+                    public void onError(Exception ex) {
+                        cache.onRefreshDone(entry, false);
+                    }
+
+                    @Override
+                    public void onSuccess(Object value) {
+                        // A refresh whose result was not cached leaves the old entry, which must refresh again
+                        cache.onRefreshDone(entry, refreshCall.stored);
+                    }
+                });
+            } catch (RuntimeException e) {
+                cache.onRefreshDone(entry, false);
+            }
+        }
+
+        Object getResult(ResponseCache.Entry entry) {
+            return cache.isCopyResults() ? copy(entry.value, method.returnType) : entry.value;
+        }
+
+        /** Cache the result of a read or invalidate the results a write changed */
+        void onSuccess(Object result) {
+            if (key == null) {
+                cache.invalidate(service.serviceName, service.id);
+                return;
+            }
+            String id = method.instanceRequired ? service.id : null;
+            stored = cache.put(key, new ResponseCache.Entry(service.serviceName, id,
+                cache.isCopyResults() ? copy(result, method.returnType) : result,
+                service.lastResponseTotalItemCount, service.lastResponseHeaders, ttlNanos), generation);
+            store(id, result);
+        }
+
+        /** Invalidate the results a failed write may have changed anyway */
+        void onFailure() {
+            if (key == null) {
+                cache.invalidate(service.serviceName, service.id);
             }
-            String methodName = methodInfo.value().isEmpty() ? method.getName() : methodInfo.value();
-            final String httpMethod = getHttpMethodFromMethodName(methodName);
-            String methodId = methodInfo.instanceRequired() ? this.id : null;
-            final String url = getFullUrl(serviceClass.getAnnotation(ApiService.class).value(),
-                    methodName, methodId, resultLimit, mask == null ? maskString : mask.getMask());
-            final HttpClient client = getHttpClientFactory().getHttpClient(credentials, httpMethod, url, HEADERS);
+        }
+    }
+
+    /** The single flight for invoking the given method or null if its calls are not to be coalesced */
+    private SingleFlight getSingleFlight(AbstractService service, ServiceMethod method) {
+        SingleFlight result = singleFlight;
+        return result != null && result.isCoalescable(getHttpMethod(service, method), method.name) ? result : null;
+    }
+
+    /** Deep copy the given result by marshalling it to JSON and back */
+    private Object copy(Object result, java.lang.reflect.Type type) {
+        if (result == null) {
+            return null;
+        }
+        JsonMarshaller marshaller = getJsonMarshallerFactory().getJsonMarshaller();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.toJson(result, out);
+        return marshaller.fromJson(type, new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /** Same as {@link #invokeService(AbstractService, ServiceMethod, Object[])} with the URL already built */
+    private Object invokeService(AbstractService service, ServiceMethod method, final Object[] args,
+            final String url) {
+        final String httpMethod = getHttpMethod(service, method);
+        RetryPolicy retryPolicy = getRetryPolicy(service, method);
+        HedgingPolicy hedgingPolicy = getHedgingPolicy(service, method);
+        CircuitBreaker circuitBreaker = getCircuitBreaker(service, method);
+        if (retryPolicy != null || hedgingPolicy != null || circuitBreaker != null) {
+            return invokeServiceWithPolicies(service, method, args, url, retryPolicy, hedgingPolicy, circuitBreaker);
+        }
+        final HttpClient client = getHttpClient(service, httpMethod, url);
+
+        // Invoke with response
+        HttpResponse response = client.invokeSync(() -> {
+            logRequestAndWriteBody(client, httpMethod, url, args);
+            return null;
+        });
+
+        return logAndHandleResponse(service, response, url, method.returnType);
+    }
 
-            // Invoke with response
-            HttpResponse response = client.invokeSync(() -> {
+    /** The retry policy for invoking the given method or null if it is not to be retried */
+    private RetryPolicy getRetryPolicy(AbstractService service, ServiceMethod method) {
+        RetryPolicy result = retryPolicy;
+        return result != null && result.isIdempotent(getHttpMethod(service, method), method.name) ? result : null;
+    }
+
+    /** The hedging policy for invoking the given method or null if it is not to be hedged */
+    private HedgingPolicy getHedgingPolicy(AbstractService service, ServiceMethod method) {
+        HedgingPolicy result = hedgingPolicy;
+        return result != null && result.isHedgeable(getHttpMethod(service, method), method.name) ? result : null;
+    }
+
+    /** The circuit breaker guarding the given method or null if there is none */
+    private CircuitBreaker getCircuitBreaker(AbstractService service, ServiceMethod method) {
+        CircuitBreakerPolicy policy = circuitBreakerPolicy;
+        return policy == null ? null : policy.getCircuitBreaker(service.serviceName, method.name);
+    }
+
+    /**
+     * Same as {@link #invokeService(AbstractService, ServiceMethod, Object[])}, retrying, hedging and guarding
+     * according to the policies and breaker that are not null
+     */
+    private Object invokeServiceWithPolicies(AbstractService service, ServiceMethod method, final Object[] args,
+            final String url, RetryPolicy retryPolicy, HedgingPolicy hedgingPolicy, CircuitBreaker circuitBreaker) {
+        for (int attempt = 1; ; attempt++) {
+            if (retryPolicy != null) {
+                retryPolicy.onAttempt(attempt);
+            }
+            HttpResponse response = null;
+            long delay;
+            try {
+                response = send(service, method, args, url, hedgingPolicy, circuitBreaker);
+                delay = retryPolicy == null ? -1 :
+                    retryPolicy.getRetryDelayMillis(attempt, response, service.deadlineMillis);
+            } catch (RuntimeException e) {
+                delay = retryPolicy == null ? -1 : retryPolicy.getRetryDelayMillis(attempt, e, service.deadlineMillis);
+                if (delay < 0) {
+                    throw e;
+                }
+            }
+            if (delay < 0) {
+                return logAndHandleResponse(service, response, url, method.returnType);
+            }
+            discard(response);
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Synchronously send a single request for the given method, guarding it if the breaker is not null
+     *
+     * @throws ApiException.CircuitOpen If the breaker is open.
+     */
+    private HttpResponse send(AbstractService service, ServiceMethod method, final Object[] args, final String url,
+            HedgingPolicy hedgingPolicy, CircuitBreaker circuitBreaker) {
+        if (circuitBreaker == null) {
+            return send(service, method, args, url, hedgingPolicy);
+        }
+        boolean probe = circuitBreaker.acquirePermission();
+        long startNanos = System.nanoTime();
+        HttpResponse response;
+        try {
+            response = send(service, method, args, url, hedgingPolicy);
+            circuitBreaker.onResponse(probe, startNanos, response.getStatusCode());
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(probe, startNanos, e);
+            throw e;
+        }
+        return response;
+    }
+
+    /** Synchronously send a single request for the given method, hedging it if the policy is not null */
+    private HttpResponse send(AbstractService service, ServiceMethod method, final Object[] args, final String url,
+            HedgingPolicy hedgingPolicy) {
+        if (hedgingPolicy == null) {
+            final String httpMethod = getHttpMethod(service, method);
+            final HttpClient client = getHttpClient(service, httpMethod, url);
+            return client.invokeSync(() -> {
                 logRequestAndWriteBody(client, httpMethod, url, args);
                 return null;
             });
-            
-            return logAndHandleResponse(response, url, method.getGenericReturnType());
         }
-        
-        @SuppressWarnings("unchecked")
-        public Object invokeServiceAsync(final Method asyncMethod, final Object[] args) throws Throwable {
-            // If the last parameter is a callback, it is a different type of invocation
-            Class<?>[] parameterTypes = asyncMethod.getParameterTypes();
-            boolean lastParamCallback = parameterTypes.length > 0 &&
-                ResponseHandler.class.isAssignableFrom(parameterTypes[parameterTypes.length - 1]);
-            final Object[] trimmedArgs;
-            if (lastParamCallback) {
-                parameterTypes = Arrays.copyOfRange(parameterTypes, 0, parameterTypes.length - 1);
-                trimmedArgs = Arrays.copyOfRange(args, 0, args.length - 1);
-            } else {
-                trimmedArgs = args;
-            }
-            
-            final Method method = serviceClass.getMethod(asyncMethod.getName(), parameterTypes);
-            ApiMethod methodInfo = method.getAnnotation(ApiMethod.class);
-            // Must have ID if instance is required
-            if (methodInfo.instanceRequired() && id == null) {
-                throw new IllegalStateException("ID is required to invoke " + method);
-            }
-            String methodName = methodInfo.value().isEmpty() ? method.getName() : methodInfo.value();
-            final String httpMethod = getHttpMethodFromMethodName(methodName);
-            String methodId = methodInfo.instanceRequired() ? this.id : null;
-            final String url = getFullUrl(serviceClass.getAnnotation(ApiService.class).value(),
-                    methodName, methodId, resultLimit, mask == null ? maskString : mask.getMask());
-            final HttpClient client = getHttpClientFactory().getHttpClient(credentials, httpMethod, url, HEADERS);
-
-            Callable<Void> setupBody = () -> {
-                logRequestAndWriteBody(client, httpMethod, url, trimmedArgs);
+        HedgedInvocation invocation = new HedgedInvocation(service, method, args, url, hedgingPolicy, null).start();
+        try {
+            return invocation.get();
+        } catch (InterruptedException e) {
+            invocation.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            // Fail the same way as an unhedged request
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                : new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Asynchronously send a single request for the given method, guarding it if the breaker is not null. If the
+     * breaker is open, the handler is given {@link ApiException.CircuitOpen} right away.
+     */
+    private Future<?> sendAsync(AbstractService service, ServiceMethod method, final Object[] args,
+            final String url, HedgingPolicy hedgingPolicy, final CircuitBreaker circuitBreaker,
+            final ResponseHandler<HttpResponse> handler) {
+        if (circuitBreaker == null) {
+            return sendAsync(service, method, args, url, hedgingPolicy, handler);
+        }
+        final boolean probe;
+        try {
+            probe = circuitBreaker.acquirePermission();
+        } catch (ApiException.CircuitOpen e) {
+            handler.onError(e);
+            return CompletableFuture.completedFuture(null);
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            return sendAsync(service, method, args, url, hedgingPolicy, new ResponseHandler<HttpResponse>() {
+                @Override
+                public void onSuccess(HttpResponse value) {
+                    try {
+                        circuitBreaker.onResponse(probe, startNanos, value.getStatusCode());
+                    } catch (RuntimeException e) {
+                        circuitBreaker.onFailure(probe, startNanos, e);
+                    }
+                    handler.onSuccess(value);
+                }
+
+                @Override
+                public void onError(Exception ex) {
+                    circuitBreaker.onFailure(probe, startNanos, ex);
+                    handler.onError(ex);
+                }
+            });
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure(probe, startNanos, e);
+            throw e;
+        }
+    }
+
+    /** Asynchronously send a single request for the given method, hedging it if the policy is not null */
+    private Future<?> sendAsync(AbstractService service, ServiceMethod method, final Object[] args,
+            final String url, HedgingPolicy hedgingPolicy, ResponseHandler<HttpResponse> handler) {
+        if (hedgingPolicy != null) {
+            return new HedgedInvocation(service, method, args, url, hedgingPolicy, handler).start();
+        }
+        final String httpMethod = getHttpMethod(service, method);
+        final HttpClient client = getHttpClient(service, httpMethod, url);
+        return client.invokeAsync(() -> {
+            logRequestAndWriteBody(client, httpMethod, url, args);
+            return null;
+        }, handler);
+    }
+
+    /** Close the body of a response that will not be handled so its connection can be reused */
+    private static void discard(HttpResponse response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            InputStream stream = response.getInputStream();
+            if (stream != null) {
+                stream.close();
+            }
+        } catch (Exception e) { }
+    }
+
+    /** Asynchronously invoke the given method for the given service */
+    Future<Object> invokeServiceAsync(final AbstractService service, final ServiceMethod method,
+            final Object[] args) {
+        final String httpMethod = getHttpMethod(service, method);
+        final String url = getServiceUrl(service, method);
+        final CachedCall cachedCall = getCachedCall(service, method, url, args);
+        ResponseCache.Entry entry = cachedCall == null ? null : cachedCall.lookup();
+        if (entry != null) {
+            return CompletableFuture.completedFuture(cachedCall.getResult(entry));
+        }
+        RetryPolicy retryPolicy = getRetryPolicy(service, method);
+        HedgingPolicy hedgingPolicy = getHedgingPolicy(service, method);
+        CircuitBreaker circuitBreaker = getCircuitBreaker(service, method);
+        final Future<HttpResponse> future;
+        if (retryPolicy != null || circuitBreaker != null) {
+            future = new RetryingInvocation(service, method, args, url, retryPolicy, hedgingPolicy,
+                circuitBreaker, null).start();
+        } else if (hedgingPolicy != null) {
+            future = new HedgedInvocation(service, method, args, url, hedgingPolicy, null).start();
+        } else {
+            final HttpClient client = getHttpClient(service, httpMethod, url);
+            future = client.invokeAsync(() -> {
+                logRequestAndWriteBody(client, httpMethod, url, args);
                 return null;
-            };
-            
-            if (lastParamCallback) {
-                final ResponseHandler<Object> handler = (ResponseHandler<Object>) args[args.length - 1];
-                return client.invokeAsync(setupBody, new ResponseHandler<HttpResponse>() {
+            });
+        }
+        return new Future<Object>() {
+            private boolean responseAttempted;
+            private Object response;
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return future.cancel(mayInterruptIfRunning);
+            }
+
+            @Override
+            public synchronized Object get() throws InterruptedException, ExecutionException {
+                if (!responseAttempted) {
+                    responseAttempted = true;
+                    try {
+                        response = logAndHandleResponse(service, future.get(), url, method.returnType);
+                    } catch (Exception e) {
+                        if (cachedCall != null) {
+                            cachedCall.onFailure();
+                        }
+                        throw new ExecutionException(e);
+                    }
+                    if (cachedCall != null) {
+                        cachedCall.onSuccess(response);
+                    }
+                }
+                return response;
+            }
+
+            @Override
+            public synchronized Object get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                if (!responseAttempted) {
+                    responseAttempted = true;
+                    try {
+                        response = logAndHandleResponse(service, future.get(timeout, unit),
+                            url, method.returnType);
+                    } catch (Exception e) {
+                        if (cachedCall != null) {
+                            cachedCall.onFailure();
+                        }
+                        throw new RuntimeException(e);
+                    }
+                    if (cachedCall != null) {
+                        cachedCall.onSuccess(response);
+                    }
+                }
+                return response;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return future.isCancelled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return future.isDone();
+            }
+        };
+    }
+
+    /** Asynchronously invoke the given method for the given service, calling the handler upon completion */
+    Future<?> invokeServiceAsync(final AbstractService service, final ServiceMethod method,
+            final Object[] args, final ResponseHandler<Object> handler) {
+        final String url = getServiceUrl(service, method);
+        final CachedCall cachedCall = getCachedCall(service, method, url, args);
+        ResponseCache.Entry entry = cachedCall == null ? null : cachedCall.lookup();
+        if (entry != null) {
+            if (handler != null) {
+                if (handler instanceof ResponseHandlerWithHeaders) {
+                    ((ResponseHandlerWithHeaders<?>) handler).setLastResponseTotalItemCount(entry.totalItemCount);
+                }
+                handler.onSuccess(cachedCall.getResult(entry));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        return invokeServiceAsync(service, method, args, url, cachedCall, handler);
+    }
+
+    /**
+     * Same as {@link #invokeServiceAsync(AbstractService, ServiceMethod, Object[], ResponseHandler)} with the URL
+     * already built and the cache already looked up
+     *
+     * @param cachedCall How the response cache takes part in the call or null if it does not.
+     */
+    private Future<?> invokeServiceAsync(final AbstractService service, final ServiceMethod method,
+            final Object[] args, final String url, final CachedCall cachedCall,
+            final ResponseHandler<Object> handler) {
+        ResponseHandler<HttpResponse> responseHandler = new ResponseHandler<HttpResponse>() {
+            @Override
+            public void onSuccess(HttpResponse value) {
+                Object result;
+                try {
+                    result = logAndHandleResponse(service, value, url, method.returnType);
+                } catch (Exception e) {
+                    onError(e);
+                    return;
+                }
+                if (cachedCall != null) {
+                    cachedCall.onSuccess(result);
+                }
+                if (handler != null) {
+                    if (handler instanceof ResponseHandlerWithHeaders) {
+                        ((ResponseHandlerWithHeaders<?>) handler).setLastResponseTotalItemCount(
+                            service.lastResponseTotalItemCount);
+                    }
+                    handler.onSuccess(result);
+                }
+            }
+
+            @Override
+            public void onError(Exception ex) {
+                if (cachedCall != null) {
+                    cachedCall.onFailure();
+                }
+                if (handler != null) {
+                    handler.onError(ex);
+                }
+            }
+        };
+        RetryPolicy retryPolicy = getRetryPolicy(service, method);
+        HedgingPolicy hedgingPolicy = getHedgingPolicy(service, method);
+        CircuitBreaker circuitBreaker = getCircuitBreaker(service, method);
+        if (retryPolicy != null || circuitBreaker != null) {
+            return new RetryingInvocation(service, method, args, url, retryPolicy, hedgingPolicy, circuitBreaker,
+                responseHandler).start();
+        }
+        return sendAsync(service, method, args, url, hedgingPolicy, responseHandler);
+    }
+
+    /**
+     * An asynchronous invocation that is sent again according to the retry policy, if there is one, and guarded by
+     * the circuit breaker, if there is one. It completes with the last response or failure or, if there is a handler,
+     * with null once the handler has been given the last response or failure, the same as the HTTP client's
+     * callback invocations. Cancelling it cancels the attempt in flight or the wait for the next one.
+     */
+    class RetryingInvocation extends CompletableFuture<HttpResponse> {
+
+        final AbstractService service;
+        final ServiceMethod method;
+        final Object[] args;
+        final String url;
+        final RetryPolicy retryPolicy;
+        final HedgingPolicy hedgingPolicy;
+        final CircuitBreaker circuitBreaker;
+        final ResponseHandler<HttpResponse> handler;
+
+        // All guarded by this
+        private int attempt;
+        private int step;
+        private Future<?> current;
+        private boolean finished;
+
+        RetryingInvocation(AbstractService service, ServiceMethod method, Object[] args, String url,
+                RetryPolicy retryPolicy, HedgingPolicy hedgingPolicy, CircuitBreaker circuitBreaker,
+                ResponseHandler<HttpResponse> handler) {
+            this.service = service;
+            this.method = method;
+            this.args = args;
+            this.url = url;
+            this.retryPolicy = retryPolicy;
+            this.hedgingPolicy = hedgingPolicy;
+            this.circuitBreaker = circuitBreaker;
+            this.handler = handler;
+        }
+
+        RetryingInvocation start() {
+            send();
+            return this;
+        }
+
+        void send() {
+            if (isDone()) {
+                return;
+            }
+            final int attempt;
+            final int step;
+            synchronized (this) {
+                attempt = ++this.attempt;
+                step = ++this.step;
+            }
+            if (retryPolicy != null) {
+                retryPolicy.onAttempt(attempt);
+            }
+            Future<?> future;
+            try {
+                future = sendAsync(service, method, args, url, hedgingPolicy, circuitBreaker,
+                        new ResponseHandler<HttpResponse>() {
                     @Override
                     public void onSuccess(HttpResponse value) {
-                        Object result;
+                        long delay;
                         try {
-                            result = logAndHandleResponse(value, url, method.getGenericReturnType());
+                            delay = retryPolicy == null ? -1 :
+                                retryPolicy.getRetryDelayMillis(attempt, value, service.deadlineMillis);
                         } catch (Exception e) {
+                            discard(value);
                             onError(e);
                             return;
                         }
-                        if (handler != null) {
-                            if (handler instanceof ResponseHandlerWithHeaders) {
-                                ((ResponseHandlerWithHeaders<?>) handler).setLastResponseTotalItemCount(
-                                    lastResponseTotalItemCount);
-                            }
-                            handler.onSuccess(result);
+                        if (delay < 0) {
+                            succeed(value);
+                        } else {
+                            discard(value);
+                            retryAfter(delay);
                         }
                     }
-                    
+
                     @Override
                     public void onError(Exception ex) {
-                        if (handler != null) {
-                            handler.onError(ex);
+                        long delay = retryPolicy == null ? -1 :
+                            retryPolicy.getRetryDelayMillis(attempt, ex, service.deadlineMillis);
+                        if (delay < 0) {
+                            fail(ex);
+                        } else {
+                            retryAfter(delay);
                         }
                     }
                 });
-            } else {
-                final Future<HttpResponse> future = client.invokeAsync(setupBody);
-                return new Future<Object>() {
-                    private boolean responseAttempted;
-                    private Object response;
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            setCurrent(step, future);
+        }
 
-                    @Override
-                    public boolean cancel(boolean mayInterruptIfRunning) {
-                        return future.cancel(mayInterruptIfRunning);
-                    }
+        void retryAfter(long delayMillis) {
+            int step;
+            synchronized (this) {
+                step = ++this.step;
+            }
+            setCurrent(step, ApiTimer.schedule(this::send, delayMillis));
+        }
 
-                    @Override
-                    public synchronized Object get() throws InterruptedException, ExecutionException {
-                        if (!responseAttempted) {
-                            responseAttempted = true;
-                            try {
-                                response = logAndHandleResponse(future.get(), url, method.getGenericReturnType());
-                            } catch (Exception e) {
-                                throw new ExecutionException(e);
-                            }
-                        }
-                        return response;
-                    }
+        /** Track the given attempt or wait unless the invocation has moved on from it, e.g. it already failed */
+        private void setCurrent(int step, Future<?> future) {
+            synchronized (this) {
+                if (step == this.step) {
+                    current = future;
+                }
+            }
+            if (isCancelled()) {
+                future.cancel(true);
+            }
+        }
 
-                    @Override
-                    public synchronized Object get(long timeout, TimeUnit unit)
-                            throws InterruptedException, ExecutionException, TimeoutException {
-                        if (!responseAttempted) {
-                            responseAttempted = true;
-                            try {
-                                response = logAndHandleResponse(future.get(timeout, unit),
-                                    url, method.getGenericReturnType());
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
-                            }
-                        }
-                        return response;
+        void succeed(HttpResponse response) {
+            if (handler == null ? !complete(response) : !finish()) {
+                discard(response);
+            } else if (handler != null) {
+                handler.onSuccess(response);
+                complete(null);
+            }
+        }
+
+        void fail(Exception ex) {
+            if (handler == null) {
+                completeExceptionally(ex);
+            } else if (finish()) {
+                handler.onError(ex);
+                complete(null);
+            }
+        }
+
+        /** Claim the outcome for the handler, returning false if the invocation already has one or was cancelled */
+        private synchronized boolean finish() {
+            if (finished || isDone()) {
+                return false;
+            }
+            finished = true;
+            return true;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean result = super.cancel(mayInterruptIfRunning);
+            Future<?> future;
+            synchronized (this) {
+                future = current;
+            }
+            if (future != null) {
+                future.cancel(mayInterruptIfRunning);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * An asynchronous invocation that sends a second, identical request if the first has not completed after the
+     * hedging policy's delay. It completes with the first response and cancels the other request, or with null once
+     * the handler has been given the first response if there is a handler. It only fails once every request sent has
+     * failed.
+     */
+    class HedgedInvocation extends CompletableFuture<HttpResponse> {
+
+        static final int PRIMARY = 1;
+        static final int HEDGE = 2;
+
+        final AbstractService service;
+        final ServiceMethod method;
+        final Object[] args;
+        final String url;
+        final HedgingPolicy hedgingPolicy;
+        final ResponseHandler<HttpResponse> handler;
+
+        // All guarded by this
+        private int pending;
+        private boolean finished;
+        private int winner;
+        private Exception failure;
+        private Future<?> primary;
+        private Future<?> hedge;
+        private Future<?> timer;
+
+        HedgedInvocation(AbstractService service, ServiceMethod method, Object[] args, String url,
+                HedgingPolicy hedgingPolicy, ResponseHandler<HttpResponse> handler) {
+            this.service = service;
+            this.method = method;
+            this.args = args;
+            this.url = url;
+            this.hedgingPolicy = hedgingPolicy;
+            this.handler = handler;
+        }
+
+        HedgedInvocation start() {
+            long delay = hedgingPolicy.onCall();
+            synchronized (this) {
+                pending = 1;
+            }
+            send(PRIMARY);
+            if (delay >= 0) {
+                Future<?> scheduled = ApiTimer.schedule(this::sendHedge, delay);
+                synchronized (this) {
+                    timer = scheduled;
+                    if (!finished) {
+                        return this;
                     }
+                }
+                scheduled.cancel(false);
+            }
+            return this;
+        }
 
+        void sendHedge() {
+            synchronized (this) {
+                if (finished || !hedgingPolicy.tryHedge()) {
+                    return;
+                }
+                pending++;
+            }
+            send(HEDGE);
+        }
+
+        private void send(final int request) {
+            final long startNanos = System.nanoTime();
+            Future<?> future;
+            try {
+                future = sendAsync(service, method, args, url, null, new ResponseHandler<HttpResponse>() {
                     @Override
-                    public boolean isCancelled() {
-                        return future.isCancelled();
+                    public void onSuccess(HttpResponse value) {
+                        hedgingPolicy.onLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                        succeed(request, value);
                     }
 
                     @Override
-                    public boolean isDone() {
-                        return future.isDone();
+                    public void onError(Exception ex) {
+                        fail(ex);
                     }
-                };
+                });
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            boolean cancel;
+            synchronized (this) {
+                if (request == PRIMARY) {
+                    primary = future;
+                } else {
+                    hedge = future;
+                }
+                // The request may have lost before it was even tracked, but never cancel the winner's handler
+                cancel = isCancelled() || (winner != 0 && winner != request);
+            }
+            if (cancel) {
+                future.cancel(true);
+            }
+        }
+
+        private void succeed(int request, HttpResponse response) {
+            Future<?> loser = null;
+            Future<?> scheduled = null;
+            boolean won = false;
+            synchronized (this) {
+                if (winner == 0 && !isDone()) {
+                    winner = request;
+                    finished = true;
+                    loser = request == PRIMARY ? hedge : primary;
+                    scheduled = timer;
+                    won = true;
+                }
+            }
+            if (!won || (handler == null && !complete(response))) {
+                discard(response);
+                return;
+            }
+            if (request == HEDGE) {
+                hedgingPolicy.onHedgeWon();
+            }
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            if (loser != null) {
+                loser.cancel(true);
+            }
+            if (handler != null) {
+                handler.onSuccess(response);
+                complete(null);
+            }
+        }
+
+        private void fail(Exception ex) {
+            Future<?> scheduled;
+            Exception result;
+            synchronized (this) {
+                if (failure == null) {
+                    failure = ex;
+                }
+                // Wait for the other request unless this was the last one
+                if (--pending > 0 || winner != 0) {
+                    return;
+                }
+                finished = true;
+                scheduled = timer;
+                result = failure;
+            }
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            if (handler == null) {
+                completeExceptionally(result);
+            } else if (!isDone()) {
+                handler.onError(result);
+                complete(null);
             }
         }
 
         @Override
-        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            boolean noParams = args == null || args.length == 0;
-
-            if ("asAsync".equals(method.getName()) && noParams) {
-                ServiceProxy<S> asyncProxy = new ServiceProxy<>(serviceClass, id);
-                asyncProxy.mask = mask;
-                asyncProxy.maskString = maskString;
-                asyncProxy.resultLimit = resultLimit;
-                return Proxy.newProxyInstance(getClass().getClassLoader(),
-                    new Class<?>[] { method.getReturnType() }, asyncProxy);
-            } else if ("withNewMask".equals(method.getName()) && noParams) {
-                mask = (Mask) method.getReturnType().getDeclaredConstructor().newInstance();
-                maskString = null;
-                return mask;
-            } else if ("withMask".equals(method.getName()) && noParams) {
-                if (mask == null) {
-                    mask = (Mask) method.getReturnType().getDeclaredConstructor().newInstance();
-                    maskString = null;
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean result = super.cancel(mayInterruptIfRunning);
+            List<Future<?>> futures = new ArrayList<>(3);
+            synchronized (this) {
+                finished = true;
+                futures.add(timer);
+                futures.add(primary);
+                futures.add(hedge);
+            }
+            for (Future<?> future : futures) {
+                if (future != null) {
+                    future.cancel(mayInterruptIfRunning);
                 }
-                return mask;
-            } else if ("setMask".equals(method.getName()) && args != null
-                    && args.length == 1 && args[0] instanceof String) {
-                mask = null;
-                maskString = args[0].toString();
-                return null;
-            } else if ("setMask".equals(method.getName()) && args != null
-                    && args.length == 1 && args[0] instanceof Mask) {
-                mask = (Mask) args[0];
-                maskString = null;
-                return null;
-            } else if ("setMask".equals(method.getName()) && args != null
-                    && args.length == 1 && args[0] == null) {
-                throw new IllegalArgumentException("Cannot set null mask. Use clearMask to clear");
-            } else if ("clearMask".equals(method.getName())) {
-                mask = null;
-                maskString = null;
-                return null;
-            } else if ("setResultLimit".equals(method.getName()) &&
-                    method.getDeclaringClass() == ResultLimitable.class) {
-                resultLimit = (ResultLimit) args[0];
-                return null;
-            } else if ("getResultLimit".equals(method.getName()) &&
-                    method.getDeclaringClass() == ResultLimitable.class) {
-                return resultLimit;
-            } else if ("getLastResponseTotalItemCount".equals(method.getName()) &&
-                    method.getDeclaringClass() == ResultLimitable.class) {
-                return lastResponseTotalItemCount;
-            } else if (Service.class.isAssignableFrom(method.getDeclaringClass())) {
-                return invokeService(method, args);
-            } else if (ServiceAsync.class.isAssignableFrom(method.getDeclaringClass())) {
-                return invokeServiceAsync(method, args);
-            } else if (method.getDeclaringClass() == Object.class) {
-                return method.invoke(this, args);
-            } else {
-                // Should not be possible
-                throw new RuntimeException("Unrecognized method: " + method);
-            }
-        }
-        
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Get the invocation plans for the given service class. The resulting map is shared by all proxies
+     * of the service class created by this client.
+     */
+    Map<Method, InvocationPlan> getInvocationPlans(Class<?> serviceClass) {
+        Map<Method, InvocationPlan> plans = invocationPlans.get(serviceClass);
+        if (plans == null) {
+            plans = invocationPlans.computeIfAbsent(serviceClass, key -> new ConcurrentHashMap<>());
+        }
+        return plans;
+    }
+
+    /** Build the invocation plan for the given method as invoked on a proxy of the given service class */
+    InvocationPlan createInvocationPlan(Class<?> serviceClass, Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        boolean noParams = parameterTypes.length == 0;
+        String name = method.getName();
+        if ("asAsync".equals(name) && noParams) {
+            return new InvocationPlan(InvocationPlan.Kind.AS_ASYNC, method);
+        } else if ("withNewMask".equals(name) && noParams) {
+            return new InvocationPlan(InvocationPlan.Kind.WITH_NEW_MASK, method);
+        } else if ("withMask".equals(name) && noParams) {
+            return new InvocationPlan(InvocationPlan.Kind.WITH_MASK, method);
+        } else if ("setMask".equals(name) && parameterTypes.length == 1 && parameterTypes[0] == String.class) {
+            return new InvocationPlan(InvocationPlan.Kind.SET_MASK_STRING, method);
+        } else if ("setMask".equals(name) && parameterTypes.length == 1
+                && Mask.class.isAssignableFrom(parameterTypes[0])) {
+            return new InvocationPlan(InvocationPlan.Kind.SET_MASK, method);
+        } else if ("clearMask".equals(name)) {
+            return new InvocationPlan(InvocationPlan.Kind.CLEAR_MASK, method);
+        } else if ("setResultLimit".equals(name) && method.getDeclaringClass() == ResultLimitable.class) {
+            return new InvocationPlan(InvocationPlan.Kind.SET_RESULT_LIMIT, method);
+        } else if ("getResultLimit".equals(name) && method.getDeclaringClass() == ResultLimitable.class) {
+            return new InvocationPlan(InvocationPlan.Kind.GET_RESULT_LIMIT, method);
+        } else if ("getLastResponseTotalItemCount".equals(name)
+                && method.getDeclaringClass() == ResultLimitable.class) {
+            return new InvocationPlan(InvocationPlan.Kind.GET_LAST_RESPONSE_TOTAL_ITEM_COUNT, method);
+        } else if ("getTimeoutMillis".equals(name) && method.getDeclaringClass() == Timeoutable.class) {
+            return new InvocationPlan(InvocationPlan.Kind.GET_TIMEOUT_MILLIS, method);
+        } else if ("setTimeout".equals(name) && method.getDeclaringClass() == Timeoutable.class) {
+            return new InvocationPlan(InvocationPlan.Kind.SET_TIMEOUT, method);
+        } else if ("call".equals(name) && isWithOptions(parameterTypes)) {
+            return new InvocationPlan(ServiceAsync.class.isAssignableFrom(method.getDeclaringClass()) ?
+                InvocationPlan.Kind.CALL_ASYNC : InvocationPlan.Kind.CALL, method);
+        } else if ("stream".equals(name) && isWithOptions(parameterTypes)) {
+            return new InvocationPlan(InvocationPlan.Kind.STREAM, method);
+        } else if (Service.class.isAssignableFrom(method.getDeclaringClass())) {
+            return new InvocationPlan(InvocationPlan.Kind.SERVICE, method, createServiceMethod(method));
+        } else if (ServiceAsync.class.isAssignableFrom(method.getDeclaringClass())) {
+            // If the last parameter is a callback, it is a different type of invocation
+            boolean lastParamCallback = parameterTypes.length > 0 &&
+                ResponseHandler.class.isAssignableFrom(parameterTypes[parameterTypes.length - 1]);
+            if (lastParamCallback) {
+                parameterTypes = Arrays.copyOfRange(parameterTypes, 0, parameterTypes.length - 1);
+            }
+            Method syncMethod;
+            try {
+                syncMethod = serviceClass.getMethod(name, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException("Unable to find service method for " + method, e);
+            }
+            return new InvocationPlan(lastParamCallback ? InvocationPlan.Kind.SERVICE_ASYNC_CALLBACK :
+                InvocationPlan.Kind.SERVICE_ASYNC, syncMethod, createServiceMethod(syncMethod));
+        } else if (method.getDeclaringClass() == Object.class) {
+            return new InvocationPlan(InvocationPlan.Kind.OBJECT, method);
+        } else {
+            // Should not be possible
+            throw new RuntimeException("Unrecognized method: " + method);
+        }
+    }
+
+    /** Whether the given parameters are those of the call-with-options and streaming methods of every service */
+    private static boolean isWithOptions(Class<?>[] parameterTypes) {
+        return parameterTypes.length == 2 && parameterTypes[0] == CallOptions.class
+            && Function.class.isAssignableFrom(parameterTypes[1]);
+    }
+
+    private ServiceMethod createServiceMethod(Method method) {
+        ApiMethod methodInfo = method.getAnnotation(ApiMethod.class);
+        String methodName = methodInfo.value().isEmpty() ? method.getName() : methodInfo.value();
+        return new ServiceMethod(methodName, methodInfo.instanceRequired(), method.getGenericReturnType());
+    }
+
+    /** The HTTP verb of a method and the portions of its REST URL that come before and after the optional ID */
+    static class UrlTemplate {
+
+        final String httpMethod;
+        final String prefix;
+        final String suffix;
+
+        UrlTemplate(String httpMethod, String prefix, String suffix) {
+            this.httpMethod = httpMethod;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+    }
+
+    /**
+     * Everything needed to dispatch a single service interface method, resolved once from the method's
+     * reflective information and annotations.
+     */
+    static class InvocationPlan {
+
+        enum Kind {
+            AS_ASYNC,
+            WITH_NEW_MASK,
+            WITH_MASK,
+            SET_MASK_STRING,
+            SET_MASK,
+            CLEAR_MASK,
+            SET_RESULT_LIMIT,
+            GET_RESULT_LIMIT,
+            GET_LAST_RESPONSE_TOTAL_ITEM_COUNT,
+            GET_TIMEOUT_MILLIS,
+            SET_TIMEOUT,
+            CALL,
+            CALL_ASYNC,
+            STREAM,
+            SERVICE,
+            SERVICE_ASYNC,
+            SERVICE_ASYNC_CALLBACK,
+            OBJECT
+        }
+
+        final Kind kind;
+        /** The method invoked or, for async service methods, the sync service method it maps to */
+        final Method method;
+        /** The API method to call for service kinds, null otherwise */
+        final ServiceMethod serviceMethod;
+
+        InvocationPlan(Kind kind, Method method) {
+            this(kind, method, null);
+        }
+
+        InvocationPlan(Kind kind, Method method, ServiceMethod serviceMethod) {
+            this.kind = kind;
+            this.method = method;
+            this.serviceMethod = serviceMethod;
+        }
+    }
+
+    /** Dynamic proxy used for services that do not have a generated implementation */
+    class ServiceProxy<S extends Service> extends AbstractService implements InvocationHandler {
+
+        final Class<S> serviceClass;
+        final Map<Method, InvocationPlan> plans;
+
+        public ServiceProxy(Class<S> serviceClass, String id) {
+            super(RestApiClient.this, serviceClass.getAnnotation(ApiService.class).value(), id);
+            this.serviceClass = serviceClass;
+            this.plans = getInvocationPlans(serviceClass);
+        }
+
+        ServiceProxy(ServiceProxy<S> proxy) {
+            super(proxy);
+            this.serviceClass = proxy.serviceClass;
+            this.plans = proxy.plans;
+        }
+
         @Override
-        public boolean equals(Object obj) {
-            return Proxy.isProxyClass(obj.getClass()) && obj.hashCode() == hashCode();
+        protected ServiceProxy<S> copy() {
+            return new ServiceProxy<>(this);
         }
-        
+
         @Override
-        public String toString() {
-            if (id == null) {
-                return "Service: " + serviceClass.getAnnotation(ApiService.class).value();
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            InvocationPlan plan = plans.get(method);
+            if (plan == null) {
+                plan = createInvocationPlan(serviceClass, method);
+                plans.put(method, plan);
             }
-            return "Service: " + serviceClass.getAnnotation(ApiService.class).value() + " with ID " + id;
+
+            switch (plan.kind) {
+                case AS_ASYNC:
+                    return Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[] { method.getReturnType() }, copy());
+                case WITH_NEW_MASK:
+                    return withNewMask((Mask) method.getReturnType().getDeclaredConstructor().newInstance());
+                case WITH_MASK:
+                    if (mask == null) {
+                        return withNewMask((Mask) method.getReturnType().getDeclaredConstructor().newInstance());
+                    }
+                    return mask;
+                case SET_MASK_STRING:
+                    setMask((String) args[0]);
+                    return null;
+                case SET_MASK:
+                    setMask((Mask) args[0]);
+                    return null;
+                case CLEAR_MASK:
+                    clearMask();
+                    return null;
+                case SET_RESULT_LIMIT:
+                    return setResultLimit((ResultLimit) args[0]);
+                case GET_RESULT_LIMIT:
+                    return getResultLimit();
+                case GET_LAST_RESPONSE_TOTAL_ITEM_COUNT:
+                    return getLastResponseTotalItemCount();
+                case GET_TIMEOUT_MILLIS:
+                    return getTimeoutMillis();
+                case SET_TIMEOUT:
+                    setTimeout((Long) args[0], (TimeUnit) args[1]);
+                    return null;
+                case CALL:
+                case CALL_ASYNC:
+                    // Invoke on a new proxy of the same interfaces with the options applied
+                    ServiceProxy<S> callProxy = copy();
+                    callProxy.applyOptions((CallOptions) args[0]);
+                    Object result = ((Function<Object, Object>) args[1]).apply(
+                        Proxy.newProxyInstance(getClass().getClassLoader(), proxy.getClass().getInterfaces(),
+                            callProxy));
+                    return plan.kind == InvocationPlan.Kind.CALL ? callProxy.toResponse(result) :
+                        callProxy.toResponseFuture((Future<?>) result);
+                case STREAM:
+                    ServiceProxy<S> streamProxy = copy();
+                    streamProxy.applyOptions((CallOptions) args[0]);
+                    streamProxy.streaming = true;
+                    ((Function<Object, Object>) args[1]).apply(Proxy.newProxyInstance(getClass().getClassLoader(),
+                        proxy.getClass().getInterfaces(), streamProxy));
+                    return streamProxy.toStream();
+                case SERVICE:
+                    return invokeService(this, plan.serviceMethod, args);
+                case SERVICE_ASYNC:
+                    return invokeServiceAsync(this, plan.serviceMethod, args);
+                case SERVICE_ASYNC_CALLBACK:
+                    return invokeServiceAsync(this, plan.serviceMethod, Arrays.copyOfRange(args, 0, args.length - 1),
+                        (ResponseHandler<Object>) args[args.length - 1]);
+                case OBJECT:
+                    return method.invoke(this, args);
+                default:
+                    // Should not be possible
+                    throw new RuntimeException("Unrecognized method: " + method);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return Proxy.isProxyClass(obj.getClass()) && obj.hashCode() == hashCode();
         }
     }
 }
@@ -0,0 +1,120 @@
+package com.softlayer.api;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.softlayer.api.http.TransferStats;
+
+/**
+ * The elements of a list result decoded one at a time as they are read from the response, along with the metadata
+ * of the response. Only the element being decoded is held in memory, no matter how large the list is. The response
+ * stays open until every element has been read or this is closed, so this should be closed when done with, e.g.:
+ * <pre>
+ * try (ResultStream&lt;Hardware&gt; hardware = service.stream(options, Account.Service::getHardware)) {
+ *     hardware.stream().filter(...).forEach(...);
+ * }
+ * </pre>
+ * This is not thread-safe and its elements can only be iterated once.
+ *
+ * @see Service
+ */
+public class ResultStream<T> implements Iterator<T>, Closeable {
+
+    private final Iterator<T> elements;
+    private final InputStream in;
+    private final Integer totalItemCount;
+    private final Map<String, List<String>> headers;
+    private final TransferStats transferStats;
+    private boolean closed;
+
+    /**
+     * @param elements The elements as decoded from the given stream.
+     * @param in The response body, closed once the elements are exhausted or this is closed.
+     */
+    public ResultStream(Iterator<T> elements, InputStream in, Integer totalItemCount,
+            Map<String, List<String>> headers, TransferStats transferStats) {
+        this.elements = elements;
+        this.in = in;
+        this.totalItemCount = totalItemCount;
+        this.headers = headers == null ? Collections.<String, List<String>>emptyMap() : headers;
+        this.transferStats = transferStats;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        boolean result;
+        try {
+            result = elements.hasNext();
+        } catch (RuntimeException | Error e) {
+            close();
+            throw e;
+        }
+        if (!result) {
+            // Let the connection be reused as soon as possible
+            close();
+        }
+        return result;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return elements.next();
+        } catch (RuntimeException | Error e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** The remaining elements as a sequential stream, which closes this when closed */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+            .onClose(this::close);
+    }
+
+    /** The non-paginated total item count or null if the response did not contain one */
+    public Integer getTotalItemCount() {
+        return totalItemCount;
+    }
+
+    /** The HTTP headers of the response */
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * The compressed and decompressed size of the response body, or null if the HTTP client does not track them.
+     * The counts are only complete once every element has been read.
+     */
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+
+    /** Close the response, discarding the elements not yet read. This does nothing if already closed */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (Exception e) { }
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.softlayer.api;
+
+import java.net.SocketException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.softlayer.api.http.HttpResponse;
+
+/**
+ * Decides whether and when a failed API call is sent again. Only idempotent calls are retried, and only when the
+ * request failed in a way that is likely to be temporary: the connection was refused or reset, or the server
+ * answered with a 429, 502, 503 or 504 status. Retries wait for a capped exponential backoff with full jitter, or
+ * for as long as a Retry-After header asks if that is longer. A call is never retried past its deadline.
+ * <p>
+ * Retries are also limited by a budget shared by all calls using the policy so that an outage does not multiply
+ * the load on the API. Every first attempt adds a fraction of a token to the budget, up to a maximum, and every
+ * retry takes a whole token. By default, this allows bursts of 10 retries and about one retry for every 10 calls
+ * after that. This class is thread-safe, so one policy can be shared by several clients to share its budget.
+ *
+ * @see RestApiClient#setRetryPolicy(RetryPolicy)
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 4;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 100;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 10 * 1000;
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+    public static final int DEFAULT_MAX_BUDGET = 10;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final double budgetRatio;
+    private final int maxBudget;
+
+    // All guarded by this
+    private double budget;
+    private long attemptCount;
+    private long retryCount;
+    private long giveUpCount;
+    private long budgetExhaustedCount;
+
+    /** Policy with the default attempts, backoff and budget */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Policy with the default budget */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit) {
+        this(maxAttempts, baseDelay, maxDelay, unit, DEFAULT_BUDGET_RATIO, DEFAULT_MAX_BUDGET);
+    }
+
+    /**
+     * @param maxAttempts The most times a single call is sent, including the first attempt.
+     * @param baseDelay The most to wait before the first retry. It doubles for every retry after that.
+     * @param maxDelay The most to wait before any retry.
+     * @param unit The unit of the delays.
+     * @param budgetRatio The part of a retry earned by every first attempt, i.e. the ratio of retries to calls
+     *     allowed over time.
+     * @param maxBudget The most retries that can be saved up, which is also what the budget starts with.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit,
+            double budgetRatio, int maxBudget) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Maximum attempts must be positive");
+        }
+        if (baseDelay < 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("Delays cannot be negative and the maximum cannot be below the base");
+        }
+        if (budgetRatio < 0 || maxBudget < 0) {
+            throw new IllegalArgumentException("Budget cannot be negative");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = unit.toMillis(baseDelay);
+        this.maxDelayMillis = unit.toMillis(maxDelay);
+        this.budgetRatio = budgetRatio;
+        this.maxBudget = maxBudget;
+        budget = maxBudget;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Whether an API method invoked with the given HTTP verb can safely be sent more than once. By default, this is
+     * true for PUT and for GET methods whose names start with "get". Other methods are also sent with GET, e.g.
+     * "powerOff" or "placeOrder", but they change things and may not be safe to repeat.
+     *
+     * @param httpMethod The HTTP verb from {@link RestApiClient#getHttpMethodFromMethodName(String)}.
+     * @param methodName The API method name.
+     */
+    public boolean isIdempotent(String httpMethod, String methodName) {
+        return "PUT".equals(httpMethod) || ("GET".equals(httpMethod) && methodName.startsWith("get"));
+    }
+
+    /** Whether a response with the given status is worth retrying */
+    public boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    /**
+     * Whether a request that failed with the given exception is worth retrying. By default, this is true when it was
+     * caused by a refused, reset or otherwise broken connection. Timeouts are not retried since they already took as
+     * long as the caller was willing to wait.
+     */
+    public boolean isRetryable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The milliseconds to wait before the given retry, where 1 is the first. By default, this is a random time up to
+     * the base delay doubled for every retry after the first, capped at the maximum delay.
+     */
+    protected long getBackoffMillis(int retry) {
+        long ceiling = baseDelayMillis << Math.min(retry - 1, 30);
+        ceiling = ceiling < 0 ? maxDelayMillis : Math.min(ceiling, maxDelayMillis);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /** The total number of requests sent, including retries */
+    public synchronized long getAttemptCount() {
+        return attemptCount;
+    }
+
+    /** The total number of requests sent again after a retryable failure */
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    /** The total number of retryable failures that were not retried, including when the budget ran out */
+    public synchronized long getGiveUpCount() {
+        return giveUpCount;
+    }
+
+    /** The total number of retryable failures that were not retried because the budget ran out */
+    public synchronized long getBudgetExhaustedCount() {
+        return budgetExhaustedCount;
+    }
+
+    /** The number of retries, possibly fractional, currently available in the budget */
+    public synchronized double getBudget() {
+        return budget;
+    }
+
+    /** Record that the given attempt at a call, where 1 is the first, is about to be sent */
+    synchronized void onAttempt(int attempt) {
+        attemptCount++;
+        if (attempt == 1) {
+            budget = Math.min(maxBudget, budget + budgetRatio);
+        }
+    }
+
+    /**
+     * The milliseconds to wait before retrying after the given response to the given attempt, or -1 to not retry.
+     * A retry is taken from the budget when one is allowed.
+     */
+    long getRetryDelayMillis(int attempt, HttpResponse response, long deadlineMillis) {
+        if (!isRetryable(response.getStatusCode())) {
+            return -1;
+        }
+        return getRetryDelayMillis(attempt, response.getRetryAfterMillis(), deadlineMillis);
+    }
+
+    /** Same as {@link #getRetryDelayMillis(int, HttpResponse, long)} for a failure instead of a response */
+    long getRetryDelayMillis(int attempt, Throwable failure, long deadlineMillis) {
+        return isRetryable(failure) ? getRetryDelayMillis(attempt, 0, deadlineMillis) : -1;
+    }
+
+    private long getRetryDelayMillis(int attempt, long retryAfterMillis, long deadlineMillis) {
+        long delay = Math.max(getBackoffMillis(attempt), retryAfterMillis);
+        synchronized (this) {
+            // Waiting longer than the maximum, even if the server asks for it, is giving up
+            if (attempt >= maxAttempts || delay > maxDelayMillis ||
+                    (deadlineMillis != 0 && System.currentTimeMillis() + delay >= deadlineMillis)) {
+                giveUpCount++;
+                return -1;
+            }
+            if (budget < 1) {
+                giveUpCount++;
+                budgetExhaustedCount++;
+                return -1;
+            }
+            budget--;
+            retryCount++;
+        }
+        return delay;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy [maxAttempts=" + maxAttempts + ", baseDelayMillis=" + baseDelayMillis +
+            ", maxDelayMillis=" + maxDelayMillis + ", budgetRatio=" + budgetRatio + ", maxBudget=" + maxBudget + "]";
+    }
+}
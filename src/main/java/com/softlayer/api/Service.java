@@ -1,7 +1,30 @@
 package com.softlayer.api;
 
-/** Interface extended by individual service interfaces on types */
-public interface Service extends Maskable, ResultLimitable {
+/**
+ * Interface extended by individual service interfaces on types.
+ * <p>
+ * Each service interface also has a {@code call} method which invokes a method on a copy of the service with the
+ * given options applied. The service is not altered which means a single service can be shared by any number of
+ * threads as long as its own mask and result limit are not changed. The given function should invoke exactly one
+ * API method of that service, for example:
+ * <pre>
+ * ApiResponse&lt;List&lt;Ticket&gt;&gt; tickets = service.call(options, Account.Service::getTickets);
+ * </pre>
+ * Its {@code stream} method does the same for a method returning a list, and decodes the elements one at a time as
+ * they are read instead of all at once. The function should not use the return value of the method, which is null:
+ * <pre>
+ * try (ResultStream&lt;Ticket&gt; tickets = service.stream(options, Account.Service::getTickets)) {
+ *     while (tickets.hasNext()) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * The response is read as the elements are, so the result must be closed unless every element is read. Streamed
+ * calls are neither answered from nor added to the response cache, nor shared with identical calls in flight.
+ * <p>
+ * The functions are typed by the service they are given to, so a method of another service does not compile.
+ */
+public interface Service extends Maskable, ResultLimitable, Timeoutable {
     
     /** Get an async version of this service */
     ServiceAsync asAsync();
@@ -1,5 +1,8 @@
 package com.softlayer.api;
 
-/** Asynchronous service interface extended by individual async service interfaces */
-public interface ServiceAsync extends Maskable, ResultLimitable {
+/**
+ * Asynchronous service interface extended by individual async service interfaces. Each has an asynchronous version
+ * of the {@code call} method described on {@link Service}.
+ */
+public interface ServiceAsync extends Maskable, ResultLimitable, Timeoutable {
 }
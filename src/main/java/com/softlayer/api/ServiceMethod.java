@@ -0,0 +1,82 @@
+package com.softlayer.api;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Precomputed information about a single service method. Generated service implementations hold one of these
+ * per method so that invoking it requires no reflection or annotation lookups. The HTTP verb and URL path are
+ * not part of it, they are resolved once per method by the client that invokes it.
+ */
+public class ServiceMethod {
+
+    /** Get the generic type of a list of the given element type */
+    public static Type listOf(Class<?> elementType) {
+        return new ListType(elementType);
+    }
+
+    /** The API method name */
+    public final String name;
+    /** If true, this method can only be invoked on a service with an identifier */
+    public final boolean instanceRequired;
+    /** The generic type the response is deserialized into */
+    public final Type returnType;
+
+    public ServiceMethod(String name, boolean instanceRequired, Type returnType) {
+        this.name = name;
+        this.instanceRequired = instanceRequired;
+        this.returnType = returnType;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    static class ListType implements ParameterizedType {
+
+        final Type[] typeArguments;
+
+        ListType(Class<?> elementType) {
+            typeArguments = new Type[] { elementType };
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return typeArguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return List.class;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ParameterizedType)) {
+                return false;
+            }
+            ParameterizedType other = (ParameterizedType) obj;
+            return other.getRawType() == List.class && other.getOwnerType() == null &&
+                Arrays.equals(typeArguments, other.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            // Same as the JDK's implementation so these can be mixed
+            return Arrays.hashCode(typeArguments) ^ List.class.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return List.class.getName() + '<' + typeArguments[0].getTypeName() + '>';
+        }
+    }
+}
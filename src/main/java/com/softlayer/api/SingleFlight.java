@@ -0,0 +1,153 @@
+package com.softlayer.api;
+
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.softlayer.api.http.HttpCredentials;
+import com.softlayer.api.http.TransferStats;
+
+/**
+ * Lets identical read calls made at the same time share a single request. A call is identical to one in flight when
+ * it has the same credentials, URL, including the ID, mask, result limit and filter, and parameters. The first call
+ * sends the request and the others wait for it and get the same decoded result, or failure, instead of sending their
+ * own. Calls that wait are still bound by their deadline. Only read calls, i.e. GET methods whose names start with
+ * "get", are coalesced, and only synchronous ones. This class is thread-safe.
+ * <p>
+ * By default, the calls sharing a request get the very same result object, so it must not be modified. If results
+ * are to be copied, every call but the first gets its own deep copy.
+ *
+ * @see RestApiClient#setSingleFlight(SingleFlight)
+ */
+public class SingleFlight {
+
+    private final boolean copyResults;
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /** Single flight sharing the same result objects between calls */
+    public SingleFlight() {
+        this(false);
+    }
+
+    /**
+     * @param copyResults Whether calls that waited for another's request get a deep copy of its result.
+     */
+    public SingleFlight(boolean copyResults) {
+        this.copyResults = copyResults;
+    }
+
+    public boolean isCopyResults() {
+        return copyResults;
+    }
+
+    /**
+     * Whether calls of an API method invoked with the given HTTP verb can share a request. By default, this is true
+     * for GET methods whose names start with "get". Other methods are also sent with GET, e.g. "powerOff", but they
+     * change things and must be sent for every call.
+     *
+     * @param httpMethod The HTTP verb from {@link RestApiClient#getHttpMethodFromMethodName(String)}.
+     * @param methodName The API method name.
+     */
+    public boolean isCoalescable(String httpMethod, String methodName) {
+        return "GET".equals(httpMethod) && methodName.startsWith("get");
+    }
+
+    /** The total number of calls that could have been coalesced */
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    /** The total number of calls that waited for another's request instead of sending their own */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /** The number of requests currently in flight */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    /** The key identifying the given call, which includes the secret in the credentials */
+    static String getKey(HttpCredentials credentials, String httpMethod, String url, String body) {
+        String authorization = credentials == null ? "" : credentials.getHeader();
+        return httpMethod + '\n' + url + '\n' + authorization + '\n' + (body == null ? "" : body);
+    }
+
+    /**
+     * Join the flight in progress for the given key or, if there is none, start the given one. The caller starting
+     * a flight must complete it and then {@link #leave(String, Flight)}.
+     *
+     * @return The flight in progress or null if the given one was started.
+     */
+    Flight join(String key, Flight flight) {
+        callCount.incrementAndGet();
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalescedCount.incrementAndGet();
+        }
+        return existing;
+    }
+
+    /** Stop letting calls join the given flight */
+    void leave(String key, Flight flight) {
+        flights.remove(key, flight);
+    }
+
+    @Override
+    public String toString() {
+        return "SingleFlight [copyResults=" + copyResults + "]";
+    }
+
+    /** The outcome of a shared request along with the response details callers copy to their service */
+    static class Flight extends CompletableFuture<Object> {
+
+        volatile Integer totalItemCount;
+        volatile Map<String, List<String>> headers;
+        volatile TransferStats transferStats;
+
+        /** Complete with the result decoded by the given service */
+        void succeed(AbstractService service, Object result) {
+            totalItemCount = service.lastResponseTotalItemCount;
+            headers = service.lastResponseHeaders;
+            transferStats = service.lastResponseTransferStats;
+            complete(result);
+        }
+
+        /**
+         * Wait for the result, giving the response details to the given service, and fail the same way as the
+         * request did
+         */
+        Object await(AbstractService service) {
+            Object result;
+            try {
+                if (service.deadlineMillis == 0) {
+                    result = get();
+                } else {
+                    result = get(Math.max(0, service.deadlineMillis - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (TimeoutException e) {
+                throw new RuntimeException(new SocketTimeoutException("Request deadline exceeded"));
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                    : new RuntimeException(e.getCause());
+            }
+            service.lastResponseTotalItemCount = totalItemCount;
+            service.lastResponseHeaders = headers;
+            service.lastResponseTransferStats = transferStats;
+            return result;
+        }
+    }
+}
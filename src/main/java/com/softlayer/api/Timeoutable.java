@@ -0,0 +1,13 @@
+package com.softlayer.api;
+
+import java.util.concurrent.TimeUnit;
+
+/** Interface implemented by services to limit how long their calls may take */
+public interface Timeoutable {
+
+    /** The connect and read timeout of this service's calls in milliseconds or 0 to use the client's */
+    int getTimeoutMillis();
+
+    /** Set the connect and read timeout of this service's calls, overriding the client's. 0 reverts to it. */
+    void setTimeout(long timeout, TimeUnit unit);
+}
@@ -6,6 +6,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import com.softlayer.api.json.EntityJsonAdapter;
+
 @Documented
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
@@ -13,4 +15,10 @@ public @interface ApiType {
     
     /** The API type name as visible at http://sldn.softlayer.com/reference/datatypes/ */
     String value();
+    
+    /**
+     * The adapter reading and writing the type's properties as JSON without reflection. This defaults to
+     * {@link EntityJsonAdapter} itself, meaning there is none and the properties are found by reflection.
+     */
+    Class<? extends EntityJsonAdapter> jsonAdapter() default EntityJsonAdapter.class;
 }
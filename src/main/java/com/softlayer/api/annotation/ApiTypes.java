@@ -13,6 +13,21 @@ import com.softlayer.api.service.Entity;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ApiTypes {
     
-    /** Collection of every type that extends {@link Entity} no matter how deep. */
-    Class<? extends Entity>[] value();
+    /**
+     * Collection of every type that extends {@link Entity} no matter how deep. Reading this loads every one of them,
+     * so the generator leaves it empty and fills {@link #index()} instead.
+     */
+    Class<? extends Entity>[] value() default {};
+    
+    /**
+     * Every API type name with the fully qualified name of its class, as "SoftLayer_Account=com.softlayer...Account"
+     * sorted by type name. Unlike {@link #value()}, this can be read without loading the classes.
+     */
+    String[] index() default {};
+    
+    /**
+     * Hash of the generated types, which changes whenever any of them may have. Older generated code leaves this
+     * empty.
+     */
+    String version() default "";
 }
@@ -0,0 +1,53 @@
+package com.softlayer.api.http;
+
+/**
+ * {@link ConcurrencyLimiter} whose limit is adjusted after every request by a {@link LimitAlgorithm} based on the
+ * request's round-trip time and whether the server responded, responded that it is overloaded, or could not be
+ * reached. This lets bulk callers go as fast as the API allows at the time without tuning a fixed limit. The
+ * current limit is available from {@link #getLimit()}.
+ * <p>
+ * The limiter only sees requests made through a {@link LimitedHttpClientFactory}, e.g.:
+ * <pre>
+ * client.setHttpClientFactory(new LimitedHttpClientFactory(client.getHttpClientFactory(),
+ *     new AdaptiveConcurrencyLimiter(new VegasLimitAlgorithm(10, 1, 200))));
+ * </pre>
+ */
+public class AdaptiveConcurrencyLimiter extends ConcurrencyLimiter {
+
+    private final LimitAlgorithm algorithm;
+    private final Object algorithmLock = new Object();
+
+    /** Limiter that waits for a permit for as long as it takes */
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm) {
+        this(algorithm, QueuePolicy.BLOCK, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param algorithm The algorithm computing the limit.
+     * @param queuePolicy What to do with requests over the limit.
+     * @param maxQueueLength The maximum number of requests waiting for a permit. Only used for
+     *     {@link QueuePolicy#QUEUE}.
+     */
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm, QueuePolicy queuePolicy, int maxQueueLength) {
+        super(algorithm.getInitialLimit(), queuePolicy, maxQueueLength);
+        this.algorithm = algorithm;
+    }
+
+    public LimitAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    protected void onSample(long rttNanos, int inFlight, Outcome outcome) {
+        if (outcome == Outcome.IGNORED) {
+            return;
+        }
+        synchronized (algorithmLock) {
+            int limit = getLimit();
+            int newLimit = Math.max(1, algorithm.update(limit, rttNanos, inFlight, outcome));
+            if (newLimit != limit) {
+                setLimit(newLimit);
+            }
+        }
+    }
+}
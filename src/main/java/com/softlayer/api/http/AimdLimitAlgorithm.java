@@ -0,0 +1,64 @@
+package com.softlayer.api.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Additive increase, multiplicative decrease. The limit grows by one for each successful request made while at
+ * least half the limit is in use and is multiplied by the backoff ratio for each request that was rejected as
+ * overloaded, failed, or took longer than the latency threshold. This reacts quickly to errors but does not notice
+ * latency growing until it reaches the threshold.
+ */
+public class AimdLimitAlgorithm implements LimitAlgorithm {
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    /** AIMD with a backoff ratio of 0.9 and no latency threshold */
+    public AimdLimitAlgorithm(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 0.9, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param initialLimit The limit to start with.
+     * @param minLimit The lowest the limit can go.
+     * @param maxLimit The highest the limit can go.
+     * @param backoffRatio What the limit is multiplied by on a failure, between 0 and 1 exclusive.
+     * @param latencyThreshold Successful requests slower than this are treated as failures, or 0 for none.
+     * @param unit The unit of the latency threshold.
+     */
+    public AimdLimitAlgorithm(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+            long latencyThreshold, TimeUnit unit) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must be positive with min <= initial <= max");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+    }
+
+    @Override
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    @Override
+    public int update(int limit, long rttNanos, int inFlight, ConcurrencyLimiter.Outcome outcome) {
+        if (outcome != ConcurrencyLimiter.Outcome.SUCCESS ||
+                (latencyThresholdNanos > 0 && rttNanos > latencyThresholdNanos)) {
+            return Math.max(minLimit, (int) (limit * backoffRatio));
+        }
+        // Only grow when the limit is actually being used, otherwise a quiet period would inflate it
+        if (inFlight * 2 >= limit) {
+            return Math.min(maxLimit, limit + 1);
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,37 @@
+package com.softlayer.api.http;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared timer for delayed work on API calls, e.g. aborting requests at their deadline and asynchronous retries and
+ * hedges. Its single daemon thread is only started once something is first scheduled. This is only public so that
+ * {@link com.softlayer.api.RestApiClient} can share it, it is not meant to be used by applications.
+ */
+public final class ApiTimer {
+
+    private ApiTimer() { }
+
+    /** Run the given task after the given number of milliseconds unless the result is cancelled first */
+    public static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return Holder.TIMER.schedule(task, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /** Holds the timer so it is created when first used rather than when the class is loaded */
+    private static class Holder {
+
+        static final ScheduledThreadPoolExecutor TIMER;
+
+        static {
+            // A daemon thread like the default pool's so the timer does not hold a process open
+            TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "softlayer-api-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Most deadlines and hedges are never reached, so their cancelled tasks should not pile up
+            TIMER.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.softlayer.api.http;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
@@ -12,14 +14,22 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
 import com.softlayer.api.ResponseHandler;
 
 /**
  * Default implementation of {@link HttpClientFactory} that only supports simple {@link HttpURLConnection}.
+ * Requests ask for gzip or deflate compressed responses, which are decompressed as they are read. Requests with a
+ * deadline are disconnected if they are not done by then, whether writing the body or reading the response.
+ * Response bodies closed before their end are read to it, up to a bound, so the JVM can keep their connection alive,
+ * and HTTPS connections are counted to confirm it does.
  */
 class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
 
@@ -27,13 +37,46 @@ class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
     ExecutorService threadPool;
     boolean threadPoolUserDefined;
     final ReadWriteLock threadPoolLock = new ReentrantReadWriteLock();
+    final ConnectionStats connectionStats = new ConnectionStats();
+    volatile CountingSSLSocketFactory sslSocketFactory;
     
     @Override
     public BuiltInHttpClient getHttpClient(HttpCredentials credentials, String method,
             String fullUrl, Map<String, List<String>> headers) {
         return new BuiltInHttpClient(credentials, method, fullUrl, headers);
     }
+
+    @Override
+    public BuiltInHttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, int timeoutMillis) {
+        return getHttpClient(credentials, method, fullUrl, headers,
+            new HttpTimeouts(timeoutMillis, timeoutMillis, 0));
+    }
+
+    @Override
+    public BuiltInHttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, HttpTimeouts timeouts) {
+        BuiltInHttpClient client = new BuiltInHttpClient(credentials, method, fullUrl, headers);
+        client.timeouts = timeouts;
+        return client;
+    }
     
+    @Override
+    public ConnectionStats getConnectionStats() {
+        return connectionStats;
+    }
+
+    /** The counting factory wrapping the given one, which is kept so kept alive connections can be reused */
+    SSLSocketFactory getSSLSocketFactory(SSLSocketFactory delegate) {
+        CountingSSLSocketFactory result = sslSocketFactory;
+        if (result == null || result.delegate != delegate) {
+            // Only changes when the JVM's default factory does, so the race is harmless
+            result = new CountingSSLSocketFactory(delegate, connectionStats);
+            sslSocketFactory = result;
+        }
+        return result;
+    }
+
     public ExecutorService getThreadPool() {
         // We support lazy loading in this method and we guarantee it's thread safe, but we do not
         //  synchronize on it to prevent lock down on the entire class during lots of contention
@@ -48,6 +91,11 @@ class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
         }
         threadPoolLock.writeLock().lock();
         try {
+            if (threadPool == null && isVirtualThreadsPreferred()) {
+                // Virtual threads are always daemon threads. This is null if they are not supported.
+                threadPool = newVirtualThreadPerTaskExecutor();
+                threadPoolUserDefined = false;
+            }
             if (threadPool == null) {
                 // Here, we want to use a cached thread pool by default, but we need a custom thread
                 //  factory to make the threads daemon threads. This default can be overridden by users,
@@ -87,13 +135,36 @@ class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
         }
     }
 
+    @Override
+    public void setVirtualThreadsPreferred(boolean virtualThreadsPreferred) {
+        threadPoolLock.writeLock().lock();
+        try {
+            super.setVirtualThreadsPreferred(virtualThreadsPreferred);
+            // The default pool is recreated on next use. Unlike when a pool is given, calls already
+            //  running on it are allowed to finish.
+            if (threadPool != null && !threadPoolUserDefined) {
+                threadPool.shutdown();
+                threadPool = null;
+            }
+        } finally {
+            threadPoolLock.writeLock().unlock();
+        }
+    }
+
     class BuiltInHttpClient implements HttpClient, HttpResponse {
 
         final HttpCredentials credentials;
         final String method;
         final String fullUrl;
         final Map<String, List<String>> headers;
+        HttpTimeouts timeouts = HttpTimeouts.NONE;
         HttpURLConnection connection;
+        TransferStats transferStats;
+        /** Disconnects the connection at the deadline, null if there is none */
+        ScheduledFuture<?> deadlineTask;
+        // Guarded by this
+        boolean aborted;
+        boolean finished;
         
         public BuiltInHttpClient(
             HttpCredentials credentials,
@@ -120,11 +191,62 @@ class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
         void openConnection() {
             try {
                 connection = (HttpURLConnection) new URL(fullUrl).openConnection();
+                if (connection instanceof HttpsURLConnection) {
+                    HttpsURLConnection https = (HttpsURLConnection) connection;
+                    https.setSSLSocketFactory(getSSLSocketFactory(https.getSSLSocketFactory()));
+                    connectionStats.onRequest();
+                }
+                int connectTimeoutMillis = timeouts.getEffectiveConnectTimeoutMillis();
+                if (connectTimeoutMillis > 0) {
+                    connection.setConnectTimeout(connectTimeoutMillis);
+                }
+                int readTimeoutMillis = timeouts.getEffectiveReadTimeoutMillis();
+                if (readTimeoutMillis > 0) {
+                    connection.setReadTimeout(readTimeoutMillis);
+                }
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         }
 
+        /** Disconnect, failing whatever is using the connection, unless the response has already been read */
+        synchronized void abort() {
+            if (!finished) {
+                aborted = true;
+                connection.disconnect();
+            }
+        }
+
+        /** Stop the deadline from aborting the request. Called before the connection may be reused. */
+        void finish() {
+            synchronized (this) {
+                finished = true;
+            }
+            if (deadlineTask != null) {
+                deadlineTask.cancel(false);
+            }
+        }
+
+        /** Wrap the given exception, replacing it with a timeout if the request was aborted at its deadline */
+        synchronized RuntimeException failure(Exception e) {
+            return new RuntimeException(isDeadlineExceeded(e) ? Deadlines.exceeded(e) : e);
+        }
+
+        /**
+         * Whether the given failure is due to the deadline, either because it aborted the request or because the
+         * read timeout, which is shortened to the deadline, fired just before it did
+         */
+        synchronized boolean isDeadlineExceeded(Exception e) {
+            return aborted || (e instanceof SocketTimeoutException && timeouts.getRemainingMillis() <= 0);
+        }
+
+        /** Fail if the request was aborted so a disconnected connection is not silently reopened */
+        synchronized void checkNotAborted() {
+            if (aborted) {
+                throw new RuntimeException(Deadlines.exceeded(null));
+            }
+        }
+
         @Override
         public HttpResponse invokeSync(Callable<?> setupBody) {
             // We let HTTP URL connection do its invocation when it wants. The built-in HTTP connection
@@ -134,6 +256,9 @@ class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
             //  closed and internally the JVM is allowed to pool connections to common hosts which makes this
             //  fairly fast and safe.
             openConnection();
+            if (timeouts.getDeadlineMillis() > 0) {
+                deadlineTask = ApiTimer.schedule(this::abort, timeouts.getRemainingMillis());
+            }
             if (credentials != null) {
                 connection.addRequestProperty(
                     "Authorization",
@@ -145,18 +270,31 @@ class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
                     connection.addRequestProperty(headerEntry.getKey(), headerValue);
                 }
             }
+            if (!ContentEncodings.hasHeader(headers.keySet(), "Accept-Encoding")) {
+                connection.setRequestProperty("Accept-Encoding", ContentEncodings.ACCEPT_ENCODING);
+            }
             try {
                 connection.setRequestMethod(method);
                 setupBody.call();
             } catch (Exception e) {
-                throw new RuntimeException(e);
+                throw failure(e);
             }
             return this;
         }
 
+        /**
+         * Same as {@link #invokeSync(Callable)} but also waits for the response status so the whole round trip
+         * happens on the calling thread instead of whichever thread first reads the response.
+         */
+        HttpResponse invokeAndAwaitResponse(Callable<?> setupBody) {
+            HttpResponse response = invokeSync(setupBody);
+            response.getStatusCode();
+            return response;
+        }
+
         @Override
         public Future<HttpResponse> invokeAsync(final Callable<?> setupBody) {
-            return getThreadPool().submit(() -> invokeSync(setupBody));
+            return getThreadPool().submit(() -> invokeAndAwaitResponse(setupBody));
         }
 
         @Override
@@ -164,7 +302,7 @@ class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
             return getThreadPool().submit(() -> {
                 HttpResponse response;
                 try {
-                    response = invokeSync(setupBody);
+                    response = invokeAndAwaitResponse(setupBody);
                 } catch (Exception e) {
                     callback.onError(e);
                     return null;
@@ -181,10 +319,11 @@ class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
 
         @Override
         public int getStatusCode() {
+            checkNotAborted();
             try {
                 return connection.getResponseCode();
             } catch (IOException e) {
-                throw new RuntimeException(e);
+                throw failure(e);
             }
         }
 
@@ -195,15 +334,123 @@ class BuiltInHttpClientFactory extends ThreadPooledHttpClientFactory {
 
         @Override
         public InputStream getInputStream() {
+            checkNotAborted();
             try {
                 // Asking for the input stream on non-success will fail
+                InputStream body;
                 if (connection.getResponseCode() >= 200 && connection.getResponseCode() < 300) {
-                    return connection.getInputStream();
+                    body = connection.getInputStream();
                 } else {
-                    return connection.getErrorStream();
+                    body = connection.getErrorStream();
                 }
+                transferStats = new TransferStats(connection.getContentEncoding());
+                if (body == null) {
+                    finish();
+                    return null;
+                }
+                InputStream decoded = ContentEncodings.decode(new DrainingInputStream(body),
+                    transferStats.getContentEncoding(), transferStats);
+                return deadlineTask == null ? decoded : new DeadlineInputStream(decoded);
             } catch (IOException e) {
-                throw new RuntimeException(e);
+                throw failure(e);
+            }
+        }
+
+        @Override
+        public TransferStats getTransferStats() {
+            return transferStats;
+        }
+
+        /**
+         * Raw response body that, when closed before its end, reads up to the max drain bytes to reach it so the
+         * connection goes back to the JVM's keep-alive cache, or closes the connection if there is more
+         */
+        class DrainingInputStream extends FilterInputStream {
+
+            boolean closed;
+
+            DrainingInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                boolean aborted;
+                synchronized (BuiltInHttpClient.this) {
+                    aborted = BuiltInHttpClient.this.aborted;
+                }
+                if (aborted || drain()) {
+                    super.close();
+                } else {
+                    connectionStats.onDisconnect();
+                    connection.disconnect();
+                }
+            }
+
+            /** Read to the end of the body, returning false if it is too far or cannot be reached */
+            boolean drain() {
+                int maxBytes = getMaxDrainBytes();
+                long drained = 0;
+                byte[] buffer = new byte[Math.min(ContentEncodings.BUFFER_SIZE, maxBytes + 1)];
+                try {
+                    while (true) {
+                        int count = in.read(buffer);
+                        if (count == -1) {
+                            break;
+                        }
+                        drained += count;
+                        if (drained > maxBytes) {
+                            return false;
+                        }
+                    }
+                } catch (IOException e) {
+                    return false;
+                }
+                if (drained > 0) {
+                    connectionStats.onDrained(drained);
+                }
+                return true;
+            }
+        }
+
+        /** Response body that reports reads failed by the deadline as timeouts and stops the deadline on close */
+        class DeadlineInputStream extends FilterInputStream {
+
+            DeadlineInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    return super.read();
+                } catch (IOException e) {
+                    throw exceeded(e);
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    return super.read(b, off, len);
+                } catch (IOException e) {
+                    throw exceeded(e);
+                }
+            }
+
+            IOException exceeded(IOException e) {
+                return isDeadlineExceeded(e) ? Deadlines.exceeded(e) : e;
+            }
+
+            @Override
+            public void close() throws IOException {
+                // The connection must not be disconnected once it is back in the JVM's keep-alive cache
+                finish();
+                super.close();
             }
         }
     }
@@ -0,0 +1,274 @@
+package com.softlayer.api.http;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of HTTP requests in flight at once. When the limit is reached, the {@link QueuePolicy} decides
+ * whether callers wait for a permit or are rejected with a {@link RejectedExecutionException}. Waiting happens on
+ * the invoking thread, including for asynchronous invocations, which gives back-pressure to callers submitting
+ * requests faster than they complete. This class is thread-safe.
+ * <p>
+ * The limit is fixed unless changed with {@link #setLimit(int)}. Subclasses can adjust it as requests complete by
+ * overriding {@link #onSample(long, int, Outcome)}, as {@link AdaptiveConcurrencyLimiter} does.
+ *
+ * @see LimitedHttpClientFactory
+ */
+public class ConcurrencyLimiter {
+
+    /** What to do with a request when the limit has been reached */
+    public enum QueuePolicy {
+        /** Wait for as long as it takes to get a permit */
+        BLOCK,
+        /** Reject immediately */
+        FAIL_FAST,
+        /** Wait for a permit unless the maximum number of requests are already waiting, then reject */
+        QUEUE
+    }
+
+    /** How a request that held a permit ended */
+    public enum Outcome {
+        /** A response was received */
+        SUCCESS,
+        /** The server responded that it is overloaded, i.e. a 429 or 503 status */
+        OVERLOADED,
+        /** No response was received, e.g. the connection failed or timed out */
+        FAILED,
+        /** The request did not run to completion, e.g. it was cancelled, so it says nothing about the server */
+        IGNORED;
+
+        /** The outcome of a request that received the given status */
+        public static Outcome fromStatusCode(int statusCode) {
+            return statusCode == 429 || statusCode == 503 ? OVERLOADED : SUCCESS;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private final QueuePolicy queuePolicy;
+    private final int maxQueueLength;
+
+    // All guarded by the lock
+    private int limit;
+    private int inFlight;
+    private int queueLength;
+    private long acquiredCount;
+    private long queuedCount;
+    private long rejectedCount;
+    private long totalQueueNanos;
+    private long maxQueueNanos;
+
+    /** Limiter that waits for a permit for as long as it takes */
+    public ConcurrencyLimiter(int limit) {
+        this(limit, QueuePolicy.BLOCK, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param limit The maximum number of requests in flight.
+     * @param queuePolicy What to do with requests over the limit.
+     * @param maxQueueLength The maximum number of requests waiting for a permit. Only used for
+     *     {@link QueuePolicy#QUEUE}.
+     */
+    public ConcurrencyLimiter(int limit, QueuePolicy queuePolicy, int maxQueueLength) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (maxQueueLength < 0) {
+            throw new IllegalArgumentException("Maximum queue length cannot be negative");
+        }
+        this.limit = limit;
+        this.queuePolicy = queuePolicy;
+        this.maxQueueLength = maxQueueLength;
+    }
+
+    public QueuePolicy getQueuePolicy() {
+        return queuePolicy;
+    }
+
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    /** The maximum number of requests currently allowed in flight */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Change the limit. Requests already in flight over a lowered limit are allowed to finish. */
+    public void setLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        lock.lock();
+        try {
+            this.limit = limit;
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The number of requests holding a permit */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The number of requests waiting for a permit */
+    public int getQueueLength() {
+        lock.lock();
+        try {
+            return queueLength;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The total number of permits given out */
+    public long getAcquiredCount() {
+        lock.lock();
+        try {
+            return acquiredCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The total number of requests that had to wait for a permit */
+    public long getQueuedCount() {
+        lock.lock();
+        try {
+            return queuedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The total number of requests rejected */
+    public long getRejectedCount() {
+        lock.lock();
+        try {
+            return rejectedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The total time requests spent waiting for a permit */
+    public long getTotalQueueTime(TimeUnit unit) {
+        lock.lock();
+        try {
+            return unit.convert(totalQueueNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The longest time a single request spent waiting for a permit */
+    public long getMaxQueueTime(TimeUnit unit) {
+        lock.lock();
+        try {
+            return unit.convert(maxQueueNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get a permit to make a request, waiting if necessary according to the queue policy. The permit must be
+     * released when the request completes.
+     *
+     * @throws RejectedExecutionException If the request is rejected or the thread is interrupted while waiting.
+     */
+    public Permit acquire() {
+        lock.lock();
+        try {
+            if (inFlight >= limit) {
+                if (queuePolicy == QueuePolicy.FAIL_FAST ||
+                        (queuePolicy == QueuePolicy.QUEUE && queueLength >= maxQueueLength)) {
+                    rejectedCount++;
+                    throw new RejectedExecutionException("Too many concurrent requests, limit is " + limit);
+                }
+                long start = System.nanoTime();
+                queueLength++;
+                queuedCount++;
+                try {
+                    while (inFlight >= limit) {
+                        permitAvailable.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejectedCount++;
+                    throw new RejectedExecutionException("Interrupted waiting for a request permit", e);
+                } finally {
+                    queueLength--;
+                    long queueNanos = System.nanoTime() - start;
+                    totalQueueNanos += queueNanos;
+                    maxQueueNanos = Math.max(maxQueueNanos, queueNanos);
+                }
+            }
+            inFlight++;
+            acquiredCount++;
+        } finally {
+            lock.unlock();
+        }
+        return new Permit(System.nanoTime());
+    }
+
+    void release(long rttNanos, Outcome outcome) {
+        int inFlightBefore;
+        lock.lock();
+        try {
+            inFlightBefore = inFlight--;
+            permitAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        onSample(rttNanos, inFlightBefore, outcome);
+    }
+
+    /**
+     * Called after each permit is released. This does nothing by default, subclasses may override it to adjust
+     * the limit. It is called without holding the lock, possibly from many threads at once.
+     *
+     * @param rttNanos The time between the permit being acquired and released.
+     * @param inFlight The number of requests that held a permit, including this one, when it was released.
+     * @param outcome How the request ended.
+     */
+    protected void onSample(long rttNanos, int inFlight, Outcome outcome) {
+    }
+
+    /** Permission to have a request in flight. Releasing more than once has no effect. */
+    public class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final long startNanos;
+
+        Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /** Release with an {@link Outcome#IGNORED} outcome */
+        public void release() {
+            release(Outcome.IGNORED);
+        }
+
+        public void release(Outcome outcome) {
+            if (released.compareAndSet(false, true)) {
+                ConcurrencyLimiter.this.release(System.nanoTime() - startNanos, outcome);
+            }
+        }
+    }
+}
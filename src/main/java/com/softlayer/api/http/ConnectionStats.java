@@ -0,0 +1,82 @@
+package com.softlayer.api.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts of the connections behind the requests of an HTTP client factory, to confirm connections are kept alive
+ * and reused under load. Connections are counted for HTTPS requests, which all API requests are, as they are opened
+ * through a socket factory the client controls. Response bodies left partly unread are counted for all requests.
+ * This class is thread-safe.
+ */
+public class ConnectionStats {
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong newConnectionCount = new AtomicLong();
+    private final AtomicLong tlsHandshakeCount = new AtomicLong();
+    private final AtomicLong drainedCount = new AtomicLong();
+    private final AtomicLong drainedBytes = new AtomicLong();
+    private final AtomicLong disconnectCount = new AtomicLong();
+
+    /** The total number of HTTPS requests sent */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /** The total number of HTTPS connections opened */
+    public long getNewConnectionCount() {
+        return newConnectionCount.get();
+    }
+
+    /** The total number of HTTPS requests sent over a connection kept alive from an earlier request */
+    public long getReusedConnectionCount() {
+        return Math.max(0, requestCount.get() - newConnectionCount.get());
+    }
+
+    /** The total number of TLS handshakes completed, including those resuming an earlier session */
+    public long getTlsHandshakeCount() {
+        return tlsHandshakeCount.get();
+    }
+
+    /** The total number of response bodies closed before their end that were read to it to reuse the connection */
+    public long getDrainedCount() {
+        return drainedCount.get();
+    }
+
+    /** The total number of unread response bytes read to make connections reusable */
+    public long getDrainedBytes() {
+        return drainedBytes.get();
+    }
+
+    /** The total number of connections closed on purpose because too much of the response was left unread */
+    public long getDisconnectCount() {
+        return disconnectCount.get();
+    }
+
+    void onRequest() {
+        requestCount.incrementAndGet();
+    }
+
+    void onNewConnection() {
+        newConnectionCount.incrementAndGet();
+    }
+
+    void onTlsHandshake() {
+        tlsHandshakeCount.incrementAndGet();
+    }
+
+    void onDrained(long bytes) {
+        drainedCount.incrementAndGet();
+        drainedBytes.addAndGet(bytes);
+    }
+
+    void onDisconnect() {
+        disconnectCount.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionStats [requestCount=" + requestCount + ", newConnectionCount=" + newConnectionCount +
+            ", tlsHandshakeCount=" + tlsHandshakeCount + ", drainedCount=" + drainedCount + ", drainedBytes=" +
+            drainedBytes + ", disconnectCount=" + disconnectCount + "]";
+    }
+}
@@ -0,0 +1,133 @@
+package com.softlayer.api.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Locale;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** Helpers for negotiating and decoding compressed response bodies */
+final class ContentEncodings {
+
+    /** The value of the Accept-Encoding header sent with requests */
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    static final int BUFFER_SIZE = 8192;
+
+    private ContentEncodings() { }
+
+    /** Whether the given headers already contain one with the given name, ignoring case */
+    static boolean hasHeader(Iterable<String> headerNames, String name) {
+        for (String headerName : headerNames) {
+            if (name.equalsIgnoreCase(headerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wrap the given raw body so it is decompressed as it is read according to the given content encoding, counting
+     * bytes read before and after decompression in the given stats. Unknown encodings are passed through as is. The
+     * body is never buffered beyond what the decompressor needs.
+     *
+     * @return The decoded body or null if the given body is null.
+     */
+    static InputStream decode(InputStream body, String contentEncoding, TransferStats stats) throws IOException {
+        if (body == null) {
+            return null;
+        }
+        InputStream result = new CountingInputStream(body, stats::addCompressedBytes);
+        String encoding = contentEncoding == null ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+        boolean gzip = encoding.equals("gzip") || encoding.equals("x-gzip");
+        if (gzip || encoding.equals("deflate")) {
+            // Peek at the start so an empty body (e.g. for a 204) is not an error and so deflate can be told apart
+            //  from raw deflate, which some servers send even though the spec says it is wrapped in zlib
+            PushbackInputStream pushback = new PushbackInputStream(result, 2);
+            byte[] start = new byte[2];
+            int read = 0;
+            while (read < 2) {
+                int count = pushback.read(start, read, 2 - read);
+                if (count == -1) {
+                    break;
+                }
+                read += count;
+            }
+            if (read == 0) {
+                return new CountingInputStream(pushback, stats::addDecompressedBytes);
+            }
+            pushback.unread(start, 0, read);
+            if (gzip) {
+                result = new GZIPInputStream(pushback, BUFFER_SIZE);
+            } else {
+                int header = ((start[0] & 0xff) << 8) | (start[1] & 0xff);
+                boolean zlib = read == 2 && (start[0] & 0x0f) == 8 && header % 31 == 0;
+                result = new OwnedInflaterInputStream(pushback, new Inflater(!zlib));
+            }
+        }
+        return new CountingInputStream(result, stats::addDecompressedBytes);
+    }
+
+    /** Stream reporting how many bytes were read or skipped through it */
+    static class CountingInputStream extends FilterInputStream {
+
+        final LongConsumer counter;
+
+        CountingInputStream(InputStream in, LongConsumer counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1) {
+                counter.accept(1);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result > 0) {
+                counter.accept(result);
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            counter.accept(result);
+            return result;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // Rereading would count bytes twice
+            return false;
+        }
+    }
+
+    /** Inflater stream that releases its inflater's native memory when closed */
+    static class OwnedInflaterInputStream extends InflaterInputStream {
+
+        OwnedInflaterInputStream(InputStream in, Inflater inflater) {
+            super(in, inflater, BUFFER_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.softlayer.api.http;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Socket factory counting the TLS connections opened through another and the handshakes completed on them. The JVM
+ * only reuses a kept alive connection for a request using the same socket factory, so one instance must be shared.
+ */
+class CountingSSLSocketFactory extends SSLSocketFactory {
+
+    final SSLSocketFactory delegate;
+    final ConnectionStats stats;
+
+    CountingSSLSocketFactory(SSLSocketFactory delegate, ConnectionStats stats) {
+        this.delegate = delegate;
+        this.stats = stats;
+    }
+
+    private Socket count(Socket socket) {
+        stats.onNewConnection();
+        if (socket instanceof SSLSocket) {
+            ((SSLSocket) socket).addHandshakeCompletedListener(event -> stats.onTlsHandshake());
+        }
+        return socket;
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return count(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        return count(delegate.createSocket(socket, host, port, autoClose));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return count(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return count(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return count(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+        return count(delegate.createSocket(address, port, localAddress, localPort));
+    }
+}
@@ -0,0 +1,18 @@
+package com.softlayer.api.http;
+
+import java.net.SocketTimeoutException;
+
+/** Helpers for requests aborted at their deadline, which are scheduled on the {@link ApiTimer} */
+final class Deadlines {
+
+    private Deadlines() { }
+
+    /** The exception for a request aborted at its deadline, caused by the given exception if not null */
+    static SocketTimeoutException exceeded(Throwable cause) {
+        SocketTimeoutException result = new SocketTimeoutException("Request deadline exceeded");
+        if (cause != null) {
+            result.initCause(cause);
+        }
+        return result;
+    }
+}
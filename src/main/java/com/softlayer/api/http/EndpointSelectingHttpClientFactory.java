@@ -0,0 +1,252 @@
+package com.softlayer.api.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import com.softlayer.api.ResponseHandler;
+
+/**
+ * {@link HttpClientFactory} that wraps another and sends each request to the best endpoint of an
+ * {@link EndpointSelector}. Requests to a URL under any of the selector's base URLs are sent under the selected one
+ * instead, and other requests are left alone. When a request cannot connect, it is sent to the next best endpoint,
+ * which is safe whatever the method since the first never reached the API. Endpoints due for a probe are probed
+ * asynchronously when a request is made.
+ */
+public class EndpointSelectingHttpClientFactory extends HttpClientFactory {
+
+    /** How long a probe waits for a response */
+    public static final int PROBE_TIMEOUT_MILLIS = 10 * 1000;
+
+    private final HttpClientFactory delegate;
+    private final EndpointSelector selector;
+
+    public EndpointSelectingHttpClientFactory(HttpClientFactory delegate, EndpointSelector selector) {
+        this.delegate = delegate;
+        this.selector = selector;
+    }
+
+    public HttpClientFactory getDelegate() {
+        return delegate;
+    }
+
+    public EndpointSelector getSelector() {
+        return selector;
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers) {
+        return getHttpClient(fullUrl, url -> delegate.getHttpClient(credentials, method, url, headers));
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, int timeoutMillis) {
+        return getHttpClient(fullUrl, url ->
+            delegate.getHttpClient(credentials, method, url, headers, timeoutMillis));
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, HttpTimeouts timeouts) {
+        return getHttpClient(fullUrl, url -> delegate.getHttpClient(credentials, method, url, headers, timeouts));
+    }
+
+    private HttpClient getHttpClient(String fullUrl, Function<String, HttpClient> clients) {
+        probeIfDue();
+        EndpointSelector.Endpoint endpoint = selector.getEndpoint(fullUrl);
+        if (endpoint == null) {
+            return clients.apply(fullUrl);
+        }
+        return new EndpointSelectingHttpClient(fullUrl.substring(endpoint.baseUrl.length()), clients);
+    }
+
+    /** Probe every endpoint that is due for one in the background */
+    void probeIfDue() {
+        for (EndpointSelector.Endpoint endpoint : selector.getEndpoints()) {
+            if (selector.tryStartProbe(endpoint)) {
+                probe(endpoint);
+            }
+        }
+    }
+
+    private void probe(final EndpointSelector.Endpoint endpoint) {
+        final long startNanos = System.nanoTime();
+        try {
+            HttpClient client = delegate.getHttpClient(null, "GET", selector.getProbeUrl(endpoint),
+                Collections.emptyMap(), PROBE_TIMEOUT_MILLIS);
+            client.invokeAsync(() -> null, new ResponseHandler<HttpResponse>() {
+                @Override
+                public void onError(Exception ex) {
+                    onFailure(endpoint, ex);
+                    endpoint.onProbeDone();
+                }
+
+                @Override
+                public void onSuccess(HttpResponse value) {
+                    // Any response means the endpoint can be reached
+                    try {
+                        endpoint.onResponse(System.nanoTime() - startNanos, value.getStatusCode() >= 500);
+                    } catch (RuntimeException e) {
+                        onFailure(endpoint, e);
+                    }
+                    endpoint.onProbeDone();
+                    try {
+                        InputStream stream = value.getInputStream();
+                        if (stream != null) {
+                            stream.close();
+                        }
+                    } catch (Exception e) { }
+                }
+            });
+        } catch (RuntimeException e) {
+            onFailure(endpoint, e);
+            endpoint.onProbeDone();
+        }
+    }
+
+    /** Record a failed request to the endpoint, returning whether it can be sent to another one */
+    boolean onFailure(EndpointSelector.Endpoint endpoint, Exception failure) {
+        if (selector.isConnectionFailure(failure)) {
+            endpoint.onConnectionFailure();
+            return true;
+        }
+        endpoint.onError();
+        return false;
+    }
+
+    class EndpointSelectingHttpClient implements HttpClient {
+
+        final String path;
+        final Function<String, HttpClient> clients;
+        final List<EndpointSelector.Endpoint> tried = new ArrayList<>(2);
+        volatile HttpClient client;
+        volatile EndpointSelector.Endpoint endpoint;
+
+        EndpointSelectingHttpClient(String path, Function<String, HttpClient> clients) {
+            this.path = path;
+            this.clients = clients;
+        }
+
+        /** Switch to the best endpoint not tried yet, returning false if there is none */
+        synchronized boolean next() {
+            EndpointSelector.Endpoint next = selector.select(tried);
+            if (next == null) {
+                return false;
+            }
+            if (client != null) {
+                try {
+                    client.close();
+                } catch (IOException e) { }
+            }
+            tried.add(next);
+            endpoint = next;
+            client = clients.apply(next.baseUrl + path);
+            return true;
+        }
+
+        @Override
+        public OutputStream getBodyStream() {
+            return client.getBodyStream();
+        }
+
+        @Override
+        public HttpResponse invokeSync(Callable<?> setupBody) {
+            next();
+            while (true) {
+                EndpointSelector.Endpoint endpoint = this.endpoint;
+                long startNanos = System.nanoTime();
+                HttpResponse response;
+                int statusCode;
+                try {
+                    response = client.invokeSync(setupBody);
+                    // Clients may only connect once the status is asked for
+                    statusCode = response.getStatusCode();
+                } catch (RuntimeException e) {
+                    if (onFailure(endpoint, e) && next()) {
+                        continue;
+                    }
+                    throw e;
+                }
+                endpoint.onResponse(System.nanoTime() - startNanos, statusCode >= 500);
+                return response;
+            }
+        }
+
+        @Override
+        public Future<HttpResponse> invokeAsync(Callable<?> setupBody) {
+            final LimitedHttpClientFactory.CancellableFuture<HttpResponse> result =
+                new LimitedHttpClientFactory.CancellableFuture<>();
+            result.inner = invokeAsync(setupBody, new ResponseHandler<HttpResponse>() {
+                @Override
+                public void onError(Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+
+                @Override
+                public void onSuccess(HttpResponse value) {
+                    result.complete(value);
+                }
+            });
+            return result;
+        }
+
+        @Override
+        public Future<?> invokeAsync(Callable<?> setupBody, ResponseHandler<HttpResponse> callback) {
+            LimitedHttpClientFactory.CancellableFuture<Void> result =
+                new LimitedHttpClientFactory.CancellableFuture<>();
+            next();
+            send(setupBody, callback, result);
+            return result;
+        }
+
+        /** Send to the current endpoint, sending again to the next one if it cannot connect */
+        void send(final Callable<?> setupBody, final ResponseHandler<HttpResponse> callback,
+                final LimitedHttpClientFactory.CancellableFuture<Void> result) {
+            final EndpointSelector.Endpoint endpoint = this.endpoint;
+            final long startNanos = System.nanoTime();
+            Future<?> inner = client.invokeAsync(setupBody, new ResponseHandler<HttpResponse>() {
+                @Override
+                public void onError(Exception ex) {
+                    if (onFailure(endpoint, ex) && !result.isCancelled() && next()) {
+                        send(setupBody, callback, result);
+                        return;
+                    }
+                    callback.onError(ex);
+                    result.complete(null);
+                }
+
+                @Override
+                public void onSuccess(HttpResponse value) {
+                    int statusCode;
+                    try {
+                        statusCode = value.getStatusCode();
+                    } catch (RuntimeException e) {
+                        onError(e);
+                        return;
+                    }
+                    endpoint.onResponse(System.nanoTime() - startNanos, statusCode >= 500);
+                    callback.onSuccess(value);
+                    result.complete(null);
+                }
+            });
+            result.inner = inner;
+            if (result.isCancelled()) {
+                inner.cancel(true);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            client.close();
+        }
+    }
+}
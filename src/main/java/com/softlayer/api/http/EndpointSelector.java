@@ -0,0 +1,258 @@
+package com.softlayer.api.http;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the best of several equivalent API base URLs, e.g. {@link com.softlayer.api.RestApiClient#BASE_URL} and
+ * {@link com.softlayer.api.RestApiClient#BASE_SERVICE_URL}. Each endpoint keeps exponentially weighted moving
+ * averages of its latency and error rate, and the endpoint with the lowest latency, penalized by its error rate, is
+ * picked. An endpoint that could not be connected to is not picked again until a probe reaches it. This class is
+ * thread-safe.
+ * <p>
+ * The first endpoint is used until the others have been probed. Endpoints that have not been used for the probe
+ * interval, one minute by default, are probed in the background so that a faster or recovered endpoint is picked up.
+ *
+ * @see EndpointSelectingHttpClientFactory
+ */
+public class EndpointSelector {
+
+    public static final long DEFAULT_PROBE_INTERVAL_MILLIS = 60 * 1000;
+
+    /** The weight of the newest sample in the moving averages */
+    static final double SMOOTHING = 0.2;
+    /** How many times its latency an endpoint that always fails is considered to take */
+    static final double ERROR_PENALTY = 10;
+
+    private final List<Endpoint> endpoints;
+    private final long probeIntervalNanos;
+    private final AtomicLong failoverCount = new AtomicLong();
+    private final AtomicLong probeCount = new AtomicLong();
+
+    /** Selector with the default probe interval */
+    public EndpointSelector(String... baseUrls) {
+        this(Arrays.asList(baseUrls), DEFAULT_PROBE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param baseUrls The base URLs in order of preference before any have been measured.
+     * @param probeInterval How long an endpoint goes unused before it is probed.
+     * @param unit The unit of the interval.
+     */
+    public EndpointSelector(List<String> baseUrls, long probeInterval, TimeUnit unit) {
+        if (baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one base URL is required");
+        }
+        if (probeInterval <= 0) {
+            throw new IllegalArgumentException("Probe interval must be positive");
+        }
+        probeIntervalNanos = unit.toNanos(probeInterval);
+        List<Endpoint> endpoints = new ArrayList<>(baseUrls.size());
+        long now = System.nanoTime();
+        for (String baseUrl : baseUrls) {
+            // Add trailing slash if not present, the same as the API client
+            if (!baseUrl.endsWith("/")) {
+                baseUrl += '/';
+            }
+            boolean primary = endpoints.isEmpty();
+            endpoints.add(new Endpoint(baseUrl, primary, primary ? now : now - probeIntervalNanos));
+        }
+        this.endpoints = Collections.unmodifiableList(endpoints);
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /** The total number of requests sent to another endpoint after failing to connect */
+    public long getFailoverCount() {
+        return failoverCount.get();
+    }
+
+    /** The total number of probes sent */
+    public long getProbeCount() {
+        return probeCount.get();
+    }
+
+    /** The endpoint whose base URL the given URL starts with or null if there is none */
+    public Endpoint getEndpoint(String url) {
+        for (Endpoint endpoint : endpoints) {
+            if (url.startsWith(endpoint.baseUrl)) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The best endpoint that is not among the given ones, or null if there is none. Endpoints that could not be
+     * connected to are only picked when no other is left.
+     */
+    public Endpoint select(Collection<Endpoint> excluded) {
+        Endpoint best = null;
+        double bestScore = 0;
+        boolean bestAvailable = false;
+        for (Endpoint endpoint : endpoints) {
+            if (excluded.contains(endpoint)) {
+                continue;
+            }
+            double score;
+            boolean available;
+            synchronized (endpoint) {
+                score = endpoint.getScore();
+                available = endpoint.available;
+            }
+            if (best == null || (available && !bestAvailable) || (available == bestAvailable && score < bestScore)) {
+                best = endpoint;
+                bestScore = score;
+                bestAvailable = available;
+            }
+        }
+        if (best != null && !excluded.isEmpty()) {
+            failoverCount.incrementAndGet();
+        }
+        return best;
+    }
+
+    /**
+     * Whether a request that failed with the given exception never reached the endpoint, so it can safely be sent
+     * to another one whatever its method. By default, this is true when the connection was refused, the host was
+     * unknown or there was no route to it.
+     */
+    public boolean isConnectionFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException ||
+                    cause instanceof NoRouteToHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The URL requested to probe the given endpoint. By default, this is the base URL itself. */
+    protected String getProbeUrl(Endpoint endpoint) {
+        return endpoint.baseUrl;
+    }
+
+    /** Mark the endpoint as being probed if it is due for one, returning false if it is not */
+    boolean tryStartProbe(Endpoint endpoint) {
+        long now = System.nanoTime();
+        synchronized (endpoint) {
+            if (endpoint.probing || now - endpoint.lastUsedNanos < probeIntervalNanos) {
+                return false;
+            }
+            endpoint.probing = true;
+            endpoint.lastUsedNanos = now;
+        }
+        probeCount.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointSelector [endpoints=" + endpoints + "]";
+    }
+
+    /** A single base URL and its measurements */
+    public static class Endpoint {
+
+        final String baseUrl;
+
+        // All guarded by this
+        private double latencyNanos = -1;
+        private double errorRate;
+        private boolean available;
+        private boolean probing;
+        private long lastUsedNanos;
+        private long requestCount;
+        private long errorCount;
+
+        Endpoint(String baseUrl, boolean available, long lastUsedNanos) {
+            this.baseUrl = baseUrl;
+            this.available = available;
+            this.lastUsedNanos = lastUsedNanos;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        /** The moving average of the time to a response in milliseconds or -1 if there has been no response yet */
+        public synchronized double getLatencyMillis() {
+            return latencyNanos < 0 ? -1 : latencyNanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        /** The moving average of the ratio of requests that failed, between 0 and 1 */
+        public synchronized double getErrorRate() {
+            return errorRate;
+        }
+
+        /** Whether the endpoint can currently be picked ahead of those that could not be connected to */
+        public synchronized boolean isAvailable() {
+            return available;
+        }
+
+        /** The total number of requests and probes sent to the endpoint */
+        public synchronized long getRequestCount() {
+            return requestCount;
+        }
+
+        /** The total number of requests and probes to the endpoint that failed or got a 5xx status */
+        public synchronized long getErrorCount() {
+            return errorCount;
+        }
+
+        /** The latency penalized by the error rate, lower being better */
+        synchronized double getScore() {
+            return Math.max(0, latencyNanos) * (1 + ERROR_PENALTY * errorRate);
+        }
+
+        /** Record a response that took the given time, which is an error if the server failed */
+        synchronized void onResponse(long latencyNanos, boolean error) {
+            this.latencyNanos = this.latencyNanos < 0 ? latencyNanos :
+                this.latencyNanos + SMOOTHING * (latencyNanos - this.latencyNanos);
+            onOutcome(error);
+            available = true;
+        }
+
+        /** Record a request that failed without a response, e.g. it timed out */
+        synchronized void onError() {
+            onOutcome(true);
+        }
+
+        /** Record a request that could not connect, so the endpoint is not picked again until a probe reaches it */
+        synchronized void onConnectionFailure() {
+            onOutcome(true);
+            available = false;
+        }
+
+        synchronized boolean isProbing() {
+            return probing;
+        }
+
+        synchronized void onProbeDone() {
+            probing = false;
+        }
+
+        private void onOutcome(boolean error) {
+            requestCount++;
+            errorCount += error ? 1 : 0;
+            errorRate += SMOOTHING * ((error ? 1 : 0) - errorRate);
+            lastUsedNanos = System.nanoTime();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "Endpoint [baseUrl=" + baseUrl + ", latencyMillis=" + getLatencyMillis() + ", errorRate=" +
+                errorRate + ", available=" + available + "]";
+        }
+    }
+}
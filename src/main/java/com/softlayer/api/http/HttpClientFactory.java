@@ -46,4 +46,31 @@ public abstract class HttpClientFactory {
      */
     public abstract HttpClient getHttpClient(HttpCredentials credentials, String method,
             String fullUrl, Map<String, List<String>> headers);
+
+    /**
+     * Same as {@link #getHttpClient(HttpCredentials, String, String, Map)} but the resulting client should give
+     * up on connecting or reading after the given number of milliseconds. By default the timeout is ignored.
+     */
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, int timeoutMillis) {
+        return getHttpClient(credentials, method, fullUrl, headers);
+    }
+
+    /**
+     * Same as {@link #getHttpClient(HttpCredentials, String, String, Map)} but the resulting client should apply
+     * the given timeouts and give up on the request once its deadline passes. By default the connect and read
+     * timeouts, shortened to the time left until the deadline, are given to
+     * {@link #getHttpClient(HttpCredentials, String, String, Map, int)} as a single timeout.
+     */
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, HttpTimeouts timeouts) {
+        int connectTimeoutMillis = timeouts.getEffectiveConnectTimeoutMillis();
+        int readTimeoutMillis = timeouts.getEffectiveReadTimeoutMillis();
+        // Without both there is no single timeout that would not cut one of them short
+        if (connectTimeoutMillis == 0 || readTimeoutMillis == 0) {
+            return getHttpClient(credentials, method, fullUrl, headers);
+        }
+        return getHttpClient(credentials, method, fullUrl, headers, Math.max(connectTimeoutMillis,
+            readTimeoutMillis));
+    }
 }
@@ -3,6 +3,7 @@ package com.softlayer.api.http;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /** Interface representing an HTTP response from the HTTP client */
 public interface HttpResponse {
@@ -13,4 +14,34 @@ public interface HttpResponse {
     
     /** When this is used by the caller, he is expected to close it */
     InputStream getInputStream();
+
+    /**
+     * Byte counts of the body returned by {@link #getInputStream()}, or null if the client does not track them or
+     * the body has not been requested yet.
+     */
+    default TransferStats getTransferStats() {
+        return null;
+    }
+
+    /**
+     * The delay the server asked for in a Retry-After header given in seconds, or 0 if there is none. HTTP dates
+     * are ignored.
+     */
+    default long getRetryAfterMillis() {
+        Map<String, List<String>> headers = getHeaders();
+        if (headers == null) {
+            return 0;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey()) && header.getValue() != null
+                    && !header.getValue().isEmpty()) {
+                try {
+                    return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(header.getValue().get(0).trim())));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
 }
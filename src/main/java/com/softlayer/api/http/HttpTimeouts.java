@@ -0,0 +1,73 @@
+package com.softlayer.api.http;
+
+/**
+ * Immutable timeouts for a single HTTP request. The connect and read timeouts limit each step of the request while
+ * the deadline limits the whole request, including writing the body and reading the response. Zero means none.
+ */
+public class HttpTimeouts {
+
+    /** No timeouts and no deadline */
+    public static final HttpTimeouts NONE = new HttpTimeouts(0, 0, 0);
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long deadlineMillis;
+
+    /**
+     * @param connectTimeoutMillis How long to wait for a connection in milliseconds.
+     * @param readTimeoutMillis How long to wait for data from the server at any point in milliseconds.
+     * @param deadlineMillis The time, in milliseconds since the epoch, by which the request must be done.
+     */
+    public HttpTimeouts(int connectTimeoutMillis, int readTimeoutMillis, long deadlineMillis) {
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0 || deadlineMillis < 0) {
+            throw new IllegalArgumentException("Timeouts cannot be negative");
+        }
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    /** The time in milliseconds since the epoch by which the request must be done or 0 for no deadline */
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /** The milliseconds left until the deadline, which is not positive once it has passed, or Long.MAX_VALUE */
+    public long getRemainingMillis() {
+        return deadlineMillis == 0 ? Long.MAX_VALUE : deadlineMillis - System.currentTimeMillis();
+    }
+
+    /** The connect timeout shortened to the time left until the deadline or 0 if there is neither */
+    public int getEffectiveConnectTimeoutMillis() {
+        return effective(connectTimeoutMillis);
+    }
+
+    /** The read timeout shortened to the time left until the deadline or 0 if there is neither */
+    public int getEffectiveReadTimeoutMillis() {
+        return effective(readTimeoutMillis);
+    }
+
+    private int effective(int timeoutMillis) {
+        long remaining = getRemainingMillis();
+        if (remaining == Long.MAX_VALUE) {
+            return timeoutMillis;
+        }
+        // A timeout of 0 means none, so a passed deadline still gets the shortest possible one
+        int remainingMillis = (int) Math.max(1, Math.min(Integer.MAX_VALUE, remaining));
+        return timeoutMillis == 0 ? remainingMillis : Math.min(timeoutMillis, remainingMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "HttpTimeouts [connectTimeoutMillis=" + connectTimeoutMillis + ", readTimeoutMillis=" +
+            readTimeoutMillis + ", deadlineMillis=" + deadlineMillis + "]";
+    }
+}
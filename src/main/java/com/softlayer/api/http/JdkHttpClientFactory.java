@@ -0,0 +1,72 @@
+package com.softlayer.api.http;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Implementation of {@link HttpClientFactory} using the JDK's {@code java.net.http.HttpClient}. Unlike the
+ * {@link BuiltInHttpClientFactory}, concurrent requests share a few connections (multiplexed over HTTP/2 when the
+ * server supports it) and asynchronous invocations do not hold a thread while waiting on the response.
+ * <p>
+ * This requires Java 11 or newer at runtime. The implementation is only present in the Java 11 portion of the
+ * multi-release jar, so {@link #isSupported()} should be checked when running on older JVMs. It is not used by
+ * default and must be set on the client, e.g. with
+ * {@link com.softlayer.api.RestApiClient#setHttpClientFactory(HttpClientFactory)}.
+ */
+public class JdkHttpClientFactory extends HttpClientFactory {
+
+    static final String IMPL_CLASS_NAME = "com.softlayer.api.http.JdkHttpClientFactoryImpl";
+
+    /** Whether the running JVM supports this factory */
+    public static boolean isSupported() {
+        try {
+            Class.forName(IMPL_CLASS_NAME);
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private final HttpClientFactory impl;
+
+    public JdkHttpClientFactory() {
+        this(null);
+    }
+
+    /**
+     * @param executor The executor the JDK client runs asynchronous tasks on or null to use its default. It
+     *     should not be single-threaded since async response bodies are read on it.
+     */
+    public JdkHttpClientFactory(Executor executor) {
+        try {
+            impl = (HttpClientFactory) Class.forName(IMPL_CLASS_NAME).
+                getDeclaredConstructor(Executor.class).newInstance(executor);
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new UnsupportedOperationException("The JDK HTTP client requires Java 11 or newer", e);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers) {
+        return impl.getHttpClient(credentials, method, fullUrl, headers);
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, int timeoutMillis) {
+        return impl.getHttpClient(credentials, method, fullUrl, headers, timeoutMillis);
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, HttpTimeouts timeouts) {
+        return impl.getHttpClient(credentials, method, fullUrl, headers, timeouts);
+    }
+}
@@ -0,0 +1,27 @@
+package com.softlayer.api.http;
+
+/**
+ * Computes the limit of an {@link AdaptiveConcurrencyLimiter} from the requests it completes. Implementations are
+ * only called by one limiter, one sample at a time, so they do not need to be thread-safe but they should not be
+ * shared between limiters.
+ *
+ * @see AimdLimitAlgorithm
+ * @see VegasLimitAlgorithm
+ */
+public interface LimitAlgorithm {
+
+    /** The limit to start with */
+    int getInitialLimit();
+
+    /**
+     * Compute the new limit after a request completed. Samples with an {@link ConcurrencyLimiter.Outcome#IGNORED}
+     * outcome are not given to the algorithm.
+     *
+     * @param limit The current limit.
+     * @param rttNanos The round-trip time of the request, from getting its permit to receiving its status.
+     * @param inFlight The number of requests in flight, including this one, when it completed.
+     * @param outcome How the request ended.
+     * @return The new limit, which must be positive.
+     */
+    int update(int limit, long rttNanos, int inFlight, ConcurrencyLimiter.Outcome outcome);
+}
@@ -0,0 +1,224 @@
+package com.softlayer.api.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+
+import com.softlayer.api.ResponseHandler;
+
+/**
+ * {@link HttpClientFactory} that wraps another and limits how many requests it has in flight using a
+ * {@link ConcurrencyLimiter}. A request holds its permit from the time it is invoked until its response status
+ * is received or it fails. This applies to synchronous and asynchronous invocations alike. For asynchronous
+ * invocations, the permit is acquired on the invoking thread. Permits are released with the
+ * {@link ConcurrencyLimiter.Outcome} of the request, so an {@link AdaptiveConcurrencyLimiter} can be used here.
+ */
+public class LimitedHttpClientFactory extends HttpClientFactory {
+
+    private final HttpClientFactory delegate;
+    private final ConcurrencyLimiter limiter;
+
+    public LimitedHttpClientFactory(HttpClientFactory delegate, ConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    public HttpClientFactory getDelegate() {
+        return delegate;
+    }
+
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers) {
+        return new LimitedHttpClient(delegate.getHttpClient(credentials, method, fullUrl, headers));
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, int timeoutMillis) {
+        return new LimitedHttpClient(delegate.getHttpClient(credentials, method, fullUrl, headers, timeoutMillis));
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, HttpTimeouts timeouts) {
+        return new LimitedHttpClient(delegate.getHttpClient(credentials, method, fullUrl, headers, timeouts));
+    }
+
+    class LimitedHttpClient implements HttpClient {
+
+        final HttpClient client;
+
+        LimitedHttpClient(HttpClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public OutputStream getBodyStream() {
+            return client.getBodyStream();
+        }
+
+        @Override
+        public HttpResponse invokeSync(Callable<?> setupBody) {
+            ConcurrencyLimiter.Permit permit = limiter.acquire();
+            HttpResponse response;
+            try {
+                response = client.invokeSync(setupBody);
+            } catch (RuntimeException e) {
+                permit.release(ConcurrencyLimiter.Outcome.FAILED);
+                throw e;
+            }
+            return new LimitedHttpResponse(response, permit);
+        }
+
+        @Override
+        public Future<HttpResponse> invokeAsync(Callable<?> setupBody) {
+            return invokeLimitedAsync(setupBody);
+        }
+
+        @Override
+        public Future<?> invokeAsync(Callable<?> setupBody, final ResponseHandler<HttpResponse> callback) {
+            final CancellableFuture<HttpResponse> response = invokeLimitedAsync(setupBody);
+            final CancellableFuture<Void> result = new CancellableFuture<>();
+            result.inner = response;
+            response.whenComplete((value, ex) -> {
+                try {
+                    if (ex == null) {
+                        callback.onSuccess(value);
+                    } else {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ?
+                            ex.getCause() : ex;
+                        callback.onError(cause instanceof Exception ? (Exception) cause :
+                            new RuntimeException(cause));
+                    }
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                result.complete(null);
+            });
+            return result;
+        }
+
+        /** Acquire a permit and invoke, completing the result once the response status is received */
+        CancellableFuture<HttpResponse> invokeLimitedAsync(Callable<?> setupBody) {
+            final CancellableFuture<HttpResponse> result = new CancellableFuture<>();
+            final ConcurrencyLimiter.Permit permit;
+            try {
+                permit = limiter.acquire();
+            } catch (RuntimeException e) {
+                // All errors are expected to be in the future
+                result.completeExceptionally(e);
+                return result;
+            }
+            result.permit = permit;
+            try {
+                result.inner = client.invokeAsync(setupBody, new ResponseHandler<HttpResponse>() {
+                    @Override
+                    public void onError(Exception ex) {
+                        permit.release(ConcurrencyLimiter.Outcome.FAILED);
+                        result.completeExceptionally(ex);
+                    }
+
+                    @Override
+                    public void onSuccess(HttpResponse value) {
+                        LimitedHttpResponse response = new LimitedHttpResponse(value, permit);
+                        try {
+                            response.awaitStatus();
+                        } catch (RuntimeException e) {
+                            result.completeExceptionally(e);
+                            return;
+                        }
+                        result.complete(response);
+                    }
+                });
+            } catch (RuntimeException e) {
+                permit.release();
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            client.close();
+        }
+    }
+
+    /** Response that releases its permit once the status has been received */
+    static class LimitedHttpResponse implements HttpResponse {
+
+        final HttpResponse response;
+        final ConcurrencyLimiter.Permit permit;
+
+        LimitedHttpResponse(HttpResponse response, ConcurrencyLimiter.Permit permit) {
+            this.response = response;
+            this.permit = permit;
+        }
+
+        /** Wait for the response status if the transport has not already, then release the permit */
+        int awaitStatus() {
+            int statusCode;
+            try {
+                statusCode = response.getStatusCode();
+            } catch (RuntimeException e) {
+                permit.release(ConcurrencyLimiter.Outcome.FAILED);
+                throw e;
+            }
+            permit.release(ConcurrencyLimiter.Outcome.fromStatusCode(statusCode));
+            return statusCode;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return awaitStatus();
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaders() {
+            awaitStatus();
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            awaitStatus();
+            return response.getInputStream();
+        }
+
+        @Override
+        public TransferStats getTransferStats() {
+            return response.getTransferStats();
+        }
+    }
+
+    /** Future that also cancels the transport's future and gives up its permit when cancelled */
+    static class CancellableFuture<T> extends CompletableFuture<T> {
+
+        volatile Future<?> inner;
+        volatile ConcurrencyLimiter.Permit permit;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            Future<?> future = inner;
+            if (future != null) {
+                future.cancel(mayInterruptIfRunning);
+            }
+            ConcurrencyLimiter.Permit permit = this.permit;
+            if (permit != null) {
+                permit.release();
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.softlayer.api.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import com.softlayer.api.ResponseHandler;
+
+/**
+ * {@link HttpClientFactory} that wraps another and limits the rate of requests per credential using a
+ * {@link RateLimiter}. A token is taken before a request is invoked, on the invoking thread for asynchronous
+ * invocations too. When the server throttles a request with a 429 or 503 status, the bucket it came from slows
+ * down and waits out any Retry-After delay, so every client sharing the limiter backs off together.
+ */
+public class RateLimitedHttpClientFactory extends HttpClientFactory {
+
+    private final HttpClientFactory delegate;
+    private final RateLimiter limiter;
+
+    public RateLimitedHttpClientFactory(HttpClientFactory delegate, RateLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    public HttpClientFactory getDelegate() {
+        return delegate;
+    }
+
+    public RateLimiter getLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers) {
+        return new RateLimitedHttpClient(delegate.getHttpClient(credentials, method, fullUrl, headers),
+            credentials, method);
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, int timeoutMillis) {
+        return new RateLimitedHttpClient(delegate.getHttpClient(credentials, method, fullUrl, headers, timeoutMillis),
+            credentials, method);
+    }
+
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, HttpTimeouts timeouts) {
+        return new RateLimitedHttpClient(delegate.getHttpClient(credentials, method, fullUrl, headers, timeouts),
+            credentials, method);
+    }
+
+    /** Tell the bucket whether the server throttled the request with the given response */
+    static void observe(TokenBucket bucket, HttpResponse response) {
+        int statusCode;
+        try {
+            statusCode = response.getStatusCode();
+        } catch (RuntimeException e) {
+            // The caller gets the same error when it reads the response
+            return;
+        }
+        if (ConcurrencyLimiter.Outcome.fromStatusCode(statusCode) == ConcurrencyLimiter.Outcome.OVERLOADED) {
+            bucket.onThrottled(response.getRetryAfterMillis());
+        } else {
+            bucket.onSuccess();
+        }
+    }
+
+    class RateLimitedHttpClient implements HttpClient {
+
+        final HttpClient client;
+        final HttpCredentials credentials;
+        final String method;
+
+        RateLimitedHttpClient(HttpClient client, HttpCredentials credentials, String method) {
+            this.client = client;
+            this.credentials = credentials;
+            this.method = method;
+        }
+
+        @Override
+        public OutputStream getBodyStream() {
+            return client.getBodyStream();
+        }
+
+        @Override
+        public HttpResponse invokeSync(Callable<?> setupBody) {
+            TokenBucket bucket = limiter.acquire(credentials, method);
+            HttpResponse response = client.invokeSync(setupBody);
+            observe(bucket, response);
+            return response;
+        }
+
+        @Override
+        public Future<HttpResponse> invokeAsync(Callable<?> setupBody) {
+            final LimitedHttpClientFactory.CancellableFuture<HttpResponse> result =
+                new LimitedHttpClientFactory.CancellableFuture<>();
+            result.inner = invokeAsync(setupBody, new ResponseHandler<HttpResponse>() {
+                @Override
+                public void onError(Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+
+                @Override
+                public void onSuccess(HttpResponse value) {
+                    result.complete(value);
+                }
+            });
+            return result;
+        }
+
+        @Override
+        public Future<?> invokeAsync(Callable<?> setupBody, final ResponseHandler<HttpResponse> callback) {
+            final TokenBucket bucket;
+            try {
+                bucket = limiter.acquire(credentials, method);
+            } catch (RuntimeException e) {
+                // All errors are expected to go to the callback
+                callback.onError(e);
+                return CompletableFuture.completedFuture(null);
+            }
+            return client.invokeAsync(setupBody, new ResponseHandler<HttpResponse>() {
+                @Override
+                public void onError(Exception ex) {
+                    callback.onError(ex);
+                }
+
+                @Override
+                public void onSuccess(HttpResponse value) {
+                    observe(bucket, value);
+                    callback.onSuccess(value);
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.softlayer.api.http;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Limits the rate of requests per credential with a {@link TokenBucket} for reads, i.e. GET requests, and another
+ * for writes. The API throttles by user, so basic auth credentials are keyed by username and bearer credentials by
+ * token. A single limiter can be shared by the HTTP client factories of several clients so that together they stay
+ * under the API's limits. This class is thread-safe.
+ *
+ * @see RateLimitedHttpClientFactory
+ */
+public class RateLimiter {
+
+    private final double readsPerSecond;
+    private final double writesPerSecond;
+    private final int burst;
+    private final boolean blocking;
+    private final ConcurrentMap<Object, TokenBucket[]> buckets = new ConcurrentHashMap<>();
+
+    /** Limiter that waits for a token for as long as it takes */
+    public RateLimiter(double readsPerSecond, double writesPerSecond, int burst) {
+        this(readsPerSecond, writesPerSecond, burst, true);
+    }
+
+    /**
+     * @param readsPerSecond The steady rate of GET requests allowed per credential.
+     * @param writesPerSecond The steady rate of other requests allowed per credential.
+     * @param burst The most requests of each kind allowed at once per credential after a quiet period.
+     * @param blocking If true, requests over the rate wait for a token. Otherwise, they are rejected with a
+     *     {@link RejectedExecutionException}.
+     */
+    public RateLimiter(double readsPerSecond, double writesPerSecond, int burst, boolean blocking) {
+        if (!(readsPerSecond > 0) || !(writesPerSecond > 0)) {
+            throw new IllegalArgumentException("Rates must be positive");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("Burst must be positive");
+        }
+        this.readsPerSecond = readsPerSecond;
+        this.writesPerSecond = writesPerSecond;
+        this.burst = burst;
+        this.blocking = blocking;
+    }
+
+    public double getReadsPerSecond() {
+        return readsPerSecond;
+    }
+
+    public double getWritesPerSecond() {
+        return writesPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /** Get the bucket for requests with the given HTTP method made with the given credentials, which may be null */
+    public TokenBucket getBucket(HttpCredentials credentials, String method) {
+        Object key = getKey(credentials);
+        TokenBucket[] result = buckets.get(key);
+        if (result == null) {
+            result = buckets.computeIfAbsent(key, k -> new TokenBucket[] {
+                new TokenBucket(readsPerSecond, burst), new TokenBucket(writesPerSecond, burst)
+            });
+        }
+        return "GET".equals(method) ? result[0] : result[1];
+    }
+
+    /**
+     * Take a token for a request with the given HTTP method made with the given credentials, waiting for one if the
+     * limiter is blocking.
+     *
+     * @return The bucket the token was taken from.
+     * @throws RejectedExecutionException If the limiter is not blocking and no token is available, or if the thread
+     *     is interrupted while waiting.
+     */
+    public TokenBucket acquire(HttpCredentials credentials, String method) {
+        TokenBucket bucket = getBucket(credentials, method);
+        if (blocking) {
+            bucket.acquire();
+        } else if (!bucket.tryAcquire()) {
+            throw new RejectedExecutionException("Rate limit reached for " + method + " requests");
+        }
+        return bucket;
+    }
+
+    /** The identity the API throttles the given credentials by */
+    static Object getKey(HttpCredentials credentials) {
+        if (credentials instanceof HttpBasicAuthCredentials) {
+            return "user:" + ((HttpBasicAuthCredentials) credentials).username;
+        }
+        return credentials == null ? "" : credentials.getHeader();
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter [readsPerSecond=" + readsPerSecond + ", writesPerSecond=" + writesPerSecond +
+            ", burst=" + burst + ", blocking=" + blocking + "]";
+    }
+}
@@ -1,10 +1,51 @@
 package com.softlayer.api.http;
 
+import java.lang.reflect.Method;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /** Class implemented by HTTP client factories that use a Java thread pool */
 public abstract class ThreadPooledHttpClientFactory extends HttpClientFactory {
 
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = getNewVirtualThreadExecutorMethod();
+
+    private static Method getNewVirtualThreadExecutorMethod() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // Before Java 21 this may exist as a preview that throws when previews are not enabled
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    /** Whether the running JVM supports virtual threads (Java 21 or newer) */
+    public static boolean isVirtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task or return null if virtual threads are
+     * not supported by the running JVM.
+     */
+    protected static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** The default for {@link #setMaxDrainBytes(int)} */
+    public static final int DEFAULT_MAX_DRAIN_BYTES = 64 * 1024;
+
+    private volatile boolean virtualThreadsPreferred;
+    private volatile int maxDrainBytes = DEFAULT_MAX_DRAIN_BYTES;
+
     /**
      * By default the thread pool is a cached thread pool (using daemon threads) that is shutdown immediately
      * when it is overwritten by this method or the factory is finalized. Callers who supply a thread pool are
@@ -13,4 +54,38 @@ public abstract class ThreadPooledHttpClientFactory extends HttpClientFactory {
      * @param threadPool
      */
     public abstract void setThreadPool(ExecutorService threadPool);
+
+    public boolean isVirtualThreadsPreferred() {
+        return virtualThreadsPreferred;
+    }
+
+    /**
+     * When true and the JVM supports virtual threads, the default thread pool is replaced by one that runs each
+     * asynchronous invocation on its own virtual thread. On older JVMs the regular default pool is still used.
+     * This has no effect on a thread pool supplied with {@link #setThreadPool(ExecutorService)}.
+     */
+    public void setVirtualThreadsPreferred(boolean virtualThreadsPreferred) {
+        this.virtualThreadsPreferred = virtualThreadsPreferred;
+    }
+
+    public int getMaxDrainBytes() {
+        return maxDrainBytes;
+    }
+
+    /**
+     * When a response body is closed before its end, e.g. because only part of an error was parsed, up to this many
+     * bytes are read to reach its end so the connection can be kept alive for another request. Past this, the
+     * connection is closed instead, which is cheaper than reading a large body nobody needs. 64 KB by default.
+     */
+    public void setMaxDrainBytes(int maxDrainBytes) {
+        if (maxDrainBytes < 0) {
+            throw new IllegalArgumentException("Max drain bytes cannot be negative");
+        }
+        this.maxDrainBytes = maxDrainBytes;
+    }
+
+    /** Counts of the connections behind this factory's requests, or null if it does not track them */
+    public ConnectionStats getConnectionStats() {
+        return null;
+    }
 }
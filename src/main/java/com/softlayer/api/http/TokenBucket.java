@@ -0,0 +1,161 @@
+package com.softlayer.api.http;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free token bucket limiting the rate of requests. Tokens are added at a steady rate up to the burst size and
+ * every request takes one. Rather than counting tokens, the bucket tracks the time by which every token given out so
+ * far will have been paid back, i.e. the generic cell rate algorithm, which can be updated with a single
+ * compare-and-set. This class is thread-safe.
+ * <p>
+ * The bucket adapts to throttling by the server. When told a request was throttled, the rate is halved, down to a
+ * sixteenth of the configured rate, and no token is given out until any Retry-After delay has passed. Every request
+ * that is not throttled then brings the rate back up a little, up to the configured rate.
+ *
+ * @see RateLimiter
+ */
+public class TokenBucket {
+
+    /** How far below the configured rate throttling can push the bucket */
+    static final int MAX_SLOWDOWN = 16;
+    /** The fraction of the gap to the configured rate recovered by every request that is not throttled */
+    static final int RECOVERY_DIVISOR = 16;
+
+    private final long baseIntervalNanos;
+    private final int burst;
+
+    /** The time between tokens at the current rate */
+    private final AtomicLong intervalNanos;
+    /** The time by which the tokens given out will have been paid back, i.e. the theoretical arrival time */
+    private final AtomicLong arrivalNanos;
+
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    /**
+     * @param permitsPerSecond The steady rate of requests allowed.
+     * @param burst The most requests allowed at once after a quiet period.
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("Burst must be positive");
+        }
+        this.baseIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burst = burst;
+        intervalNanos = new AtomicLong(baseIntervalNanos);
+        // Start full
+        arrivalNanos = new AtomicLong(System.nanoTime());
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /** The rate of requests currently allowed, which is below the configured one after throttling */
+    public double getPermitsPerSecond() {
+        return (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos.get();
+    }
+
+    /** The total number of tokens given out */
+    public long getAcquiredCount() {
+        return acquiredCount.get();
+    }
+
+    /** The total number of tokens refused by {@link #tryAcquire()} */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /** The total number of requests the server throttled */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /** The total time spent waiting for tokens by {@link #acquire()} */
+    public long getTotalWaitTime(TimeUnit unit) {
+        return unit.convert(totalWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /** Take a token if one is available without waiting */
+    public boolean tryAcquire() {
+        while (true) {
+            long arrival = arrivalNanos.get();
+            long interval = intervalNanos.get();
+            long now = System.nanoTime();
+            long next = Math.max(arrival - now, 0) + now + interval;
+            if (next - now > burst * interval) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            if (arrivalNanos.compareAndSet(arrival, next)) {
+                acquiredCount.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Take a token, waiting for one if necessary. Waiting callers are served in the order they arrived since each
+     * reserves its token before waiting.
+     *
+     * @throws RejectedExecutionException If the thread is interrupted while waiting.
+     */
+    public void acquire() {
+        long waitNanos;
+        while (true) {
+            long arrival = arrivalNanos.get();
+            long interval = intervalNanos.get();
+            long now = System.nanoTime();
+            long next = Math.max(arrival - now, 0) + now + interval;
+            if (arrivalNanos.compareAndSet(arrival, next)) {
+                waitNanos = next - now - burst * interval;
+                break;
+            }
+        }
+        acquiredCount.incrementAndGet();
+        if (waitNanos <= 0) {
+            return;
+        }
+        totalWaitNanos.addAndGet(waitNanos);
+        long deadline = System.nanoTime() + waitNanos;
+        for (long remaining = waitNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for a token");
+            }
+        }
+    }
+
+    /**
+     * Slow down after the server throttled a request, waiting at least the given delay before giving out another
+     * token.
+     */
+    public void onThrottled(long retryAfterMillis) {
+        throttledCount.incrementAndGet();
+        long interval = intervalNanos.updateAndGet(current ->
+            Math.min(baseIntervalNanos * MAX_SLOWDOWN, current * 2));
+        // Empty the bucket so that the next token is not given out before the delay has passed
+        long arrival = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis) + (burst - 1) * interval;
+        arrivalNanos.accumulateAndGet(arrival, (current, given) -> current - given > 0 ? current : given);
+    }
+
+    /** Speed back up towards the configured rate after a request the server did not throttle */
+    public void onSuccess() {
+        intervalNanos.updateAndGet(current -> current == baseIntervalNanos ? current :
+            Math.max(baseIntervalNanos, current - Math.max(1, (current - baseIntervalNanos) / RECOVERY_DIVISOR)));
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket [permitsPerSecond=" + getPermitsPerSecond() + ", burst=" + burst + "]";
+    }
+}
@@ -0,0 +1,53 @@
+package com.softlayer.api.http;
+
+/**
+ * Byte counts of a response body, both as received and after it is decompressed. The counts grow as the body is
+ * read, so they are only complete once it has been read to the end. When the body was not compressed, the counts
+ * are the same.
+ */
+public class TransferStats {
+
+    private final String contentEncoding;
+    // Only written by the thread reading the body
+    private volatile long compressedBytes;
+    private volatile long decompressedBytes;
+
+    public TransferStats(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    /** The content encoding of the response, or null if it was not encoded */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /** The number of body bytes read from the connection */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /** The number of body bytes read after decompression */
+    public long getDecompressedBytes() {
+        return decompressedBytes;
+    }
+
+    /** The decompressed size divided by the compressed size, or 1 if nothing has been read */
+    public double getCompressionRatio() {
+        long compressed = compressedBytes;
+        return compressed == 0 ? 1 : (double) decompressedBytes / compressed;
+    }
+
+    void addCompressedBytes(long count) {
+        compressedBytes += count;
+    }
+
+    void addDecompressedBytes(long count) {
+        decompressedBytes += count;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferStats [contentEncoding=" + contentEncoding + ", compressedBytes=" + compressedBytes +
+            ", decompressedBytes=" + decompressedBytes + "]";
+    }
+}
@@ -0,0 +1,78 @@
+package com.softlayer.api.http;
+
+/**
+ * Latency based, after TCP Vegas. The lowest round-trip time seen is taken as the time a request takes with no
+ * queueing at the server. Each sample estimates how many requests are queued as
+ * {@code limit * (1 - minRtt / rtt)}. The limit grows while that estimate is small and shrinks once it is large,
+ * so it backs off as soon as the API starts slowing down rather than waiting for errors. Requests that were
+ * rejected as overloaded or failed also shrink the limit.
+ * <p>
+ * Since the API's baseline latency changes over the day, the lowest round-trip time is forgotten periodically
+ * and measured again.
+ */
+public class VegasLimitAlgorithm implements LimitAlgorithm {
+
+    /** Samples between resets of the lowest round-trip time, as a multiple of the limit */
+    static final int PROBE_MULTIPLIER = 30;
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private long minRttNanos;
+    private long samplesSinceProbe;
+
+    /**
+     * @param initialLimit The limit to start with.
+     * @param minLimit The lowest the limit can go.
+     * @param maxLimit The highest the limit can go.
+     */
+    public VegasLimitAlgorithm(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must be positive with min <= initial <= max");
+        }
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    /** The lowest round-trip time since the last probe, or 0 if there has not been a successful request since */
+    public long getMinRttNanos() {
+        return minRttNanos;
+    }
+
+    @Override
+    public int update(int limit, long rttNanos, int inFlight, ConcurrencyLimiter.Outcome outcome) {
+        int step = Math.max(1, (int) Math.ceil(Math.log10(limit)));
+        if (outcome != ConcurrencyLimiter.Outcome.SUCCESS) {
+            return clamp(limit - step);
+        }
+        if (++samplesSinceProbe >= (long) PROBE_MULTIPLIER * limit) {
+            samplesSinceProbe = 0;
+            minRttNanos = 0;
+        }
+        if (minRttNanos == 0 || rttNanos < minRttNanos) {
+            minRttNanos = Math.max(1, rttNanos);
+            return limit;
+        }
+        int queueSize = (int) Math.ceil(limit * (1 - (double) minRttNanos / rttNanos));
+        // Only grow when the limit is actually being used, otherwise a quiet period would inflate it
+        if (queueSize <= step) {
+            return inFlight * 2 >= limit ? clamp(limit + 6 * step) : limit;
+        } else if (queueSize < 3 * step) {
+            return inFlight * 2 >= limit ? clamp(limit + step) : limit;
+        } else if (queueSize > 6 * step) {
+            return clamp(limit - step);
+        }
+        return limit;
+    }
+
+    int clamp(int limit) {
+        return Math.min(maxLimit, Math.max(minLimit, limit));
+    }
+}
@@ -0,0 +1,72 @@
+package com.softlayer.api.json;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.softlayer.api.annotation.ApiType;
+import com.softlayer.api.service.Entity;
+
+/**
+ * Reads and writes the properties of one entity type without reflection. The generator emits a subclass named
+ * JsonAdapter in every entity class, extending that of the entity's base class, and names it in the class's
+ * {@link ApiType#jsonAdapter()}. The Gson marshaller uses it instead of finding the properties by reflection, which
+ * it still does for types without one. The "complexType" property and unknown properties are handled by the
+ * marshaller.
+ */
+public abstract class EntityJsonAdapter {
+
+    /** A new, empty entity of the type */
+    public abstract Entity newInstance();
+
+    /**
+     * Read the value of the named property into the entity and mark it as set.
+     *
+     * @return False if the type has no such property, in which case the value is left to be read.
+     */
+    public boolean readProperty(Entity entity, String name, JsonReader in) throws IOException {
+        return false;
+    }
+
+    /** Write the name and value of every property of the entity that is not null or is set to null */
+    public void writeProperties(Entity entity, JsonWriter out) throws IOException {
+    }
+
+    /**
+     * The value of one property, which reads and writes it with the Gson adapter for its type. The adapter is looked
+     * up on first use since the type may be, or contain, the entity being adapted.
+     */
+    public static class Property<T> {
+
+        private final Type type;
+        private volatile TypeAdapter<T> adapter;
+
+        /** @param type The property's type, e.g. from {@link com.softlayer.api.ServiceMethod#listOf(Class)}. */
+        public Property(Type type) {
+            this.type = type;
+        }
+
+        public T read(JsonReader in) throws IOException {
+            return getAdapter().read(in);
+        }
+
+        /** Write the property's name followed by the given value */
+        public void write(JsonWriter out, String name, T value) throws IOException {
+            out.name(name);
+            getAdapter().write(out, value);
+        }
+
+        @SuppressWarnings("unchecked")
+        TypeAdapter<T> getAdapter() {
+            TypeAdapter<T> result = adapter;
+            if (result == null) {
+                result = (TypeAdapter<T>) GsonJsonMarshallerFactory.gson.getAdapter(TypeToken.get(type));
+                adapter = result;
+            }
+            return result;
+        }
+    }
+}
@@ -6,6 +6,9 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -14,17 +17,25 @@ import java.math.BigInteger;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
 import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 import com.softlayer.api.annotation.ApiProperty;
 import com.softlayer.api.annotation.ApiType;
 import com.softlayer.api.annotation.ApiTypes;
@@ -33,29 +44,56 @@ import com.softlayer.api.service.Entity;
 class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMarshaller {
 
     protected final static Gson gson;
-    final static Map<String, Class<? extends Entity>> typeClasses;
+    // The classes of API types that have been seen, loaded from the names in the index on first sight
+    final static Map<String, Class<? extends Entity>> typeClasses = new ConcurrentHashMap<>();
+    final static Map<String, String> typeClassNames;
     
     static {
         gson = new GsonBuilder().
             disableHtmlEscaping().
             disableInnerClassSerialization().
-            // Three types need special attention:
-            //  Entity (all non-scalars basically), GregorianCalendar, and BigIntegers
+            // A few types need special attention:
+            //  Entity (all non-scalars basically), dates, BigIntegers, and void results
             registerTypeAdapterFactory(new EntityTypeAdapterFactory()).
             registerTypeAdapter(GregorianCalendar.class, new GregorianCalendarTypeAdapter()).
+            registerTypeAdapter(OffsetDateTime.class, new OffsetDateTimeTypeAdapter()).
             registerTypeAdapter(BigInteger.class, new BigIntegerTypeAdapter()).
             registerTypeAdapter(byte[].class, new ByteArrayTypeAdapter()).
+            registerTypeAdapter(Void.class, new VoidTypeAdapter()).
             // Sometimes, when a result limit is set to 1 value, REST sends it back as
             //  a single object instead of an array
             registerTypeAdapterFactory(new ListOrSingleObjectTypeFactory()).
             serializeNulls().
             create();
         
+        // Older generated code lists the classes themselves, which are all loaded here
         ApiTypes types = Entity.class.getPackage().getAnnotation(ApiTypes.class);
-        typeClasses = new HashMap<>(types.value().length);
         for (Class<? extends Entity> clazz : types.value()) {
             typeClasses.put(clazz.getAnnotation(ApiType.class).value(), clazz);
         }
+        typeClassNames = new HashMap<>(types.index().length);
+        for (String entry : types.index()) {
+            int separator = entry.indexOf('=');
+            typeClassNames.put(entry.substring(0, separator), entry.substring(separator + 1));
+        }
+    }
+    
+    /** The class of the given API type, loading it the first time, or null if there is none */
+    static Class<? extends Entity> getTypeClass(String apiTypeName) {
+        Class<? extends Entity> result = typeClasses.get(apiTypeName);
+        if (result == null) {
+            String className = typeClassNames.get(apiTypeName);
+            if (className == null) {
+                return null;
+            }
+            try {
+                result = Class.forName(className, false, Entity.class.getClassLoader()).asSubclass(Entity.class);
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("Cannot load class of " + apiTypeName, e);
+            }
+            typeClasses.put(apiTypeName, result);
+        }
+        return result;
     }
     
     @Override
@@ -79,6 +117,82 @@ class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMar
     public <T> T fromJson(Type type, InputStream in) {
         return gson.fromJson(new InputStreamReader(in), type);
     }
+
+    @Override
+    public <T> Iterator<T> fromJsonArray(Class<T> elementType, InputStream in) {
+        return new JsonArrayIterator<>(gson.getAdapter(elementType), new JsonReader(new InputStreamReader(in)));
+    }
+    
+    /**
+     * Reads the elements of a JSON array one at a time. Like {@link ListOrSingleObjectTypeAdapter}, a single object
+     * is taken as a list of one, and null as an empty list.
+     */
+    static class JsonArrayIterator<T> implements Iterator<T> {
+
+        private final TypeAdapter<T> adapter;
+        private final JsonReader in;
+        private boolean started;
+        private boolean single;
+        private boolean done;
+
+        JsonArrayIterator(TypeAdapter<T> adapter, JsonReader in) {
+            this.adapter = adapter;
+            this.in = in;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (done) {
+                return false;
+            }
+            try {
+                if (!started) {
+                    started = true;
+                    JsonToken token = in.peek();
+                    if (token == JsonToken.NULL) {
+                        in.nextNull();
+                        done = true;
+                        return false;
+                    } else if (token == JsonToken.BEGIN_OBJECT) {
+                        single = true;
+                        return true;
+                    }
+                    in.beginArray();
+                } else if (single) {
+                    // Done once the object has been read
+                    return true;
+                }
+                if (in.hasNext()) {
+                    return true;
+                }
+                in.endArray();
+                done = true;
+                return false;
+            } catch (MalformedJsonException | IllegalStateException e) {
+                throw new JsonSyntaxException(e);
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                T result = adapter.read(in);
+                if (single) {
+                    done = true;
+                }
+                return result;
+            } catch (MalformedJsonException | IllegalStateException e) {
+                throw new JsonSyntaxException(e);
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+        }
+    }
     
     static class EntityTypeAdapterFactory implements TypeAdapterFactory {
 
@@ -89,10 +203,29 @@ class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMar
             if (!Entity.class.isAssignableFrom(typeClass)) {
                 return null;
             }
-            // Obtain all ApiProperty fields and make them accessible...
+            // Prefer the generated adapter, otherwise obtain all ApiProperty fields and make them accessible...
+            EntityJsonAdapter generated = getGeneratedAdapter(typeClass);
             Map<String, EntityJsonField> fields = new HashMap<>();
-            loadFields(typeClass, fields);
-            return (TypeAdapter<T>) new EntityTypeAdapter((Class<? extends Entity>) typeClass, fields);
+            if (generated == null) {
+                loadFields(typeClass, fields);
+            }
+            return (TypeAdapter<T>) new EntityTypeAdapter((Class<? extends Entity>) typeClass, fields, generated);
+        }
+        
+        /** The adapter generated for exactly the given type or null if it has none */
+        protected EntityJsonAdapter getGeneratedAdapter(Class<?> clazz) {
+            ApiType type = clazz.getAnnotation(ApiType.class);
+            if (type == null || type.jsonAdapter() == EntityJsonAdapter.class) {
+                return null;
+            }
+            EntityJsonAdapter adapter;
+            try {
+                adapter = type.jsonAdapter().getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+            // A subclass naming its parent's adapter would otherwise be read as the parent
+            return adapter.newInstance().getClass() == clazz ? adapter : null;
         }
         
         protected void loadFields(Class<?> clazz, Map<String, EntityJsonField> fields) {
@@ -126,10 +259,86 @@ class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMar
     static class EntityJsonField {
         public final Field field;
         public final Field specifiedField;
+        // Accessors for the fields above, typed so they can be invoked exactly
+        final MethodHandle getter;
+        final MethodHandle setter;
+        final MethodHandle specifiedGetter;
+        final MethodHandle specifiedSetter;
+        final EntityJsonAdapter.Property<Object> value;
         
         public EntityJsonField(Field field, Field specifiedField) {
             this.field = field;
             this.specifiedField = specifiedField;
+            value = new EntityJsonAdapter.Property<>(field.getGenericType());
+            // The fields were made accessible so the lookup does not need access to them
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            try {
+                getter = lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Entity.class));
+                setter = lookup.unreflectSetter(field).asType(
+                    MethodType.methodType(void.class, Entity.class, Object.class));
+                if (specifiedField == null) {
+                    specifiedGetter = null;
+                    specifiedSetter = null;
+                } else {
+                    specifiedGetter = lookup.unreflectGetter(specifiedField).asType(
+                        MethodType.methodType(boolean.class, Entity.class));
+                    specifiedSetter = lookup.unreflectSetter(specifiedField).asType(
+                        MethodType.methodType(void.class, Entity.class, boolean.class));
+                }
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        
+        Object get(Entity entity) {
+            try {
+                return (Object) getter.invokeExact(entity);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        }
+        
+        void set(Entity entity, Object value) {
+            try {
+                setter.invokeExact(entity, value);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        }
+        
+        /** Whether the value was set, even if to null, which is always false without a specified field */
+        boolean isSpecified(Entity entity) {
+            if (specifiedGetter == null) {
+                return false;
+            }
+            try {
+                return (boolean) specifiedGetter.invokeExact(entity);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        }
+        
+        void setSpecified(Entity entity) {
+            if (specifiedSetter == null) {
+                return;
+            }
+            try {
+                specifiedSetter.invokeExact(entity, true);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        }
+        
+        private static RuntimeException propagate(Throwable e) {
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+        }
+        
+        /** The adapter for the field's declared type, the same one gson would look up for it on every use */
+        TypeAdapter<Object> getAdapter() {
+            return value.getAdapter();
         }
     }
     
@@ -138,11 +347,20 @@ class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMar
         final Class<? extends Entity> typeClass;
         final String typeName;
         final Map<String, EntityJsonField> fields;
+        // Null if the fields are used instead
+        final EntityJsonAdapter generated;
+        private volatile TypeAdapter<Object> objectAdapter;
         
         public EntityTypeAdapter(Class<? extends Entity> typeClass, Map<String, EntityJsonField> fields) {
+            this(typeClass, fields, null);
+        }
+        
+        public EntityTypeAdapter(Class<? extends Entity> typeClass, Map<String, EntityJsonField> fields,
+                EntityJsonAdapter generated) {
             this.typeClass = typeClass;
             this.typeName = typeClass.getAnnotation(ApiType.class).value();
             this.fields = fields;
+            this.generated = generated;
         }
 
         @Override
@@ -154,17 +372,17 @@ class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMar
             out.beginObject();
             // Every type will include the "complexType" field
             out.name("complexType").value(typeName);
+            if (generated != null) {
+                generated.writeProperties(value, out);
+                out.endObject();
+                return;
+            }
             for (Map.Entry<String, EntityJsonField> fieldEntry : fields.entrySet()) {
                 EntityJsonField field = fieldEntry.getValue();
-                try {
-                    Object fieldValue = field.field.get(value);
-                    if (fieldValue != null ||
-                            (field.specifiedField != null && field.specifiedField.getBoolean(value))) {
-                        out.name(fieldEntry.getKey());
-                        gson.toJson(fieldValue, field.field.getGenericType(), out);
-                    }
-                } catch (IllegalAccessException e) {
-                    throw new RuntimeException(e);
+                Object fieldValue = field.get(value);
+                if (fieldValue != null || field.isSpecified(value)) {
+                    out.name(fieldEntry.getKey());
+                    field.getAdapter().write(out, fieldValue);
                 }
             }
             out.endObject();
@@ -189,9 +407,9 @@ class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMar
             //  properly serialized to a SoftLayer_Something.
             // If the API returns a type that isn't the same or a subtype of the type class,
             //  try as best we can to fit the data within the type class.
-            Class<? extends Entity> clazz = typeClasses.get(apiTypeName);
+            Class<? extends Entity> clazz = getTypeClass(apiTypeName);
             Entity result;
-            if (clazz == null || !typeClass.isAssignableFrom(clazz)) {
+            if (clazz == null || clazz == typeClass || !typeClass.isAssignableFrom(clazz)) {
                 result = readForThisType(in);
             } else {
                 result = ((EntityTypeAdapter) gson.getAdapter(clazz)).readForThisType(in);
@@ -200,56 +418,161 @@ class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMar
             return result;
         }
         
+        /** The adapter for unknown properties, resolved on first use like those of the fields */
+        private TypeAdapter<Object> getObjectAdapter() {
+            TypeAdapter<Object> result = objectAdapter;
+            if (result == null) {
+                result = gson.getAdapter(Object.class);
+                objectAdapter = result;
+            }
+            return result;
+        }
+        
         private Entity readForThisType(JsonReader in) throws IOException {
             // Begin/end object (and the first "complexType" property) are done outside of here
             Entity entity;
-            try {
-                entity = typeClass.getDeclaredConstructor().newInstance();
-            } catch (ReflectiveOperationException e) {
-                throw new RuntimeException(e);
+            if (generated != null) {
+                entity = generated.newInstance();
+            } else {
+                try {
+                    entity = typeClass.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new RuntimeException(e);
+                }
             }
-            Map<String, Object> unknownProperties = new HashMap<>();
+            Map<String, Object> unknownProperties = null;
             while (in.hasNext()) {
                 String propertyName = in.nextName();
-                EntityJsonField field = fields.get(propertyName);
-                // No field means we just add the object to the unknown set
-                if (field == null) {
-                    unknownProperties.put(propertyName, gson.fromJson(in, Object.class));
+                if (generated != null) {
+                    if (generated.readProperty(entity, propertyName, in)) {
+                        continue;
+                    }
                 } else {
-                    try {
-                        field.field.set(entity, gson.fromJson(in, field.field.getGenericType()));
-                        if (field.specifiedField != null) {
-                            field.specifiedField.setBoolean(entity, true);
-                        }
-                    } catch (IllegalAccessException e) {
-                        throw new RuntimeException(e);
+                    EntityJsonField field = fields.get(propertyName);
+                    if (field != null) {
+                        field.set(entity, field.getAdapter().read(in));
+                        field.setSpecified(entity);
+                        continue;
                     }
                 }
+                // No property means we just add the object to the unknown set
+                if (unknownProperties == null) {
+                    unknownProperties = new HashMap<>();
+                }
+                unknownProperties.put(propertyName, getObjectAdapter().read(in));
             }
-            if (!unknownProperties.isEmpty()) {
+            if (unknownProperties != null) {
                 entity.setUnknownProperties(unknownProperties);
             }
             return entity;
         }
     }
     
+    /**
+     * The fields of an API date, parsed by hand since every entity has some and this is much faster than a date
+     * format. All API dates look like 1984-02-25T20:15:25-06:00, sometimes with fractions of a second down to 6
+     * digits, which may even have no digits at all. Offsets of "Z" and without a colon are also accepted. Digits
+     * past nanoseconds are ignored.
+     */
+    static final class ApiDate {
+
+        final int year;
+        final int month;
+        final int day;
+        final int hour;
+        final int minute;
+        final int second;
+        final int nanos;
+        final int offsetSeconds;
+
+        ApiDate(String date) {
+            int length = date.length();
+            if (length < 20 || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != 'T'
+                    || date.charAt(13) != ':' || date.charAt(16) != ':') {
+                throw invalid(date);
+            }
+            year = parseDigits(date, 0, 4);
+            month = parseDigits(date, 5, 2);
+            day = parseDigits(date, 8, 2);
+            hour = parseDigits(date, 11, 2);
+            minute = parseDigits(date, 14, 2);
+            second = parseDigits(date, 17, 2);
+            if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 59) {
+                throw invalid(date);
+            }
+            int index = 19;
+            int fraction = 0;
+            if (date.charAt(index) == '.') {
+                int digits = 0;
+                char c;
+                for (index++; index < length && (c = date.charAt(index)) >= '0' && c <= '9'; index++) {
+                    if (digits < 9) {
+                        fraction = fraction * 10 + c - '0';
+                        digits++;
+                    }
+                }
+                for (; digits < 9; digits++) {
+                    fraction *= 10;
+                }
+            }
+            nanos = fraction;
+            char sign = index < length ? date.charAt(index) : 0;
+            if (sign == 'Z' && index == length - 1) {
+                offsetSeconds = 0;
+            } else if ((sign == '+' || sign == '-') && (index == length - 6 && date.charAt(index + 3) == ':'
+                    || index == length - 5)) {
+                int offset = parseDigits(date, index + 1, 2) * 3600 + parseDigits(date, length - 2, 2) * 60;
+                offsetSeconds = sign == '-' ? -offset : offset;
+            } else {
+                throw invalid(date);
+            }
+        }
+
+        private static int parseDigits(String date, int index, int count) {
+            int result = 0;
+            for (int end = index + count; index < end; index++) {
+                char c = date.charAt(index);
+                if (c < '0' || c > '9') {
+                    throw invalid(date);
+                }
+                result = result * 10 + c - '0';
+            }
+            return result;
+        }
+
+        private static RuntimeException invalid(String date) {
+            return new RuntimeException(new ParseException("Unparseable date: \"" + date + '"', 0));
+        }
+
+        long toEpochMillis() {
+            // Days since 1970-01-01 in the proleptic Gregorian calendar, counting years from March so February's
+            //  leap day comes last. Out of range days roll over into the next month like a lenient date format.
+            int y = month <= 2 ? year - 1 : year;
+            int era = (y >= 0 ? y : y - 399) / 400;
+            int yearOfEra = y - era * 400;
+            int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+            int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+            long epochDay = era * 146097L + dayOfEra - 719468;
+            long epochSecond = epochDay * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+            return epochSecond * 1000 + nanos / 1000000;
+        }
+
+        OffsetDateTime toOffsetDateTime() {
+            return OffsetDateTime.of(year, month, day, hour, minute, second, nanos,
+                ZoneOffset.ofTotalSeconds(offsetSeconds));
+        }
+    }
+
     static class GregorianCalendarTypeAdapter extends TypeAdapter<GregorianCalendar> {
         
         // Although this is ISO-8601, Java 6 does not allow a colon in the timestamp. All API
         //  dates look like this: 1984-02-25T20:15:25-06:00. Since we can guarantee that, we
-        //  can just remove/add the colon as necessary. This is a better solution than using
+        //  can just add the colon as necessary. This is a better solution than using
         //  JAXB libraries.
         // Ref: http://stackoverflow.com/questions/2201925/converting-iso-8601-compliant-string-to-java-util-date
         final ThreadLocal<DateFormat> secondFormat = ThreadLocal.withInitial(
                 () -> new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ")
         );
-        
-        // Some times come back with fractions of a second all the way down to 6 digits.
-        //  Luckily we can just use the presence of a decimal point as a discriminator between
-        //  this format and the one above.
-        final ThreadLocal<DateFormat> subSecondFormat = ThreadLocal.withInitial(
-                () -> new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
-        );
 
         @Override
         public void write(JsonWriter out, GregorianCalendar value) throws IOException {
@@ -269,54 +592,37 @@ class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMar
                 in.nextNull();
                 return null;
             }
-            String date = in.nextString();
-            // Remove the colon
-            date = date.substring(0, date.length() - 3) + date.substring(date.length() - 2);
-            // Use decimal presence to determine format and trim to ms precision
-            DateFormat format;
-            int decimalIndex = date.indexOf('.');
-            if (decimalIndex != -1) {
-                date = trimToMillisecondPrecision(date, decimalIndex);
-                format = subSecondFormat.get();
-            } else {
-                format = secondFormat.get();
-            }
-            
+            // Calendars are in the default time zone and only keep milliseconds
             GregorianCalendar calendar = new GregorianCalendar();
-            try {
-                calendar.setTime(format.parse(date));
-            } catch (ParseException e) {
-                throw new RuntimeException(e);
-            }
+            calendar.setTimeInMillis(new ApiDate(in.nextString()).toEpochMillis());
             return calendar;
         }
-        
-        private String trimToMillisecondPrecision(String date, int decimalIndex) {
-            // If there is a decimal we have to only keep the first three numeric characters
-            //  after it (and pad with 0's if fewer than three)
-            StringBuilder newDate = new StringBuilder(date);
-            int offset = 1;
-            do {
-                if (!Character.isDigit(newDate.charAt(decimalIndex + offset))) {
-                    switch (offset) {
-                        case 1:
-                            newDate.insert(decimalIndex + offset, "000");
-                            break;
-                        case 2:
-                            newDate.insert(decimalIndex + offset, "00");
-                            break;
-                        case 3:
-                            newDate.insert(decimalIndex + offset, "0");
-                            break;
-                    }
-                    break;
-                } else if (offset > 3) {
-                    newDate.deleteCharAt(decimalIndex + offset);
-                } else {
-                    offset++;
-                }
-            } while (true);
-            return newDate.toString();
+    }
+    
+    static class OffsetDateTimeTypeAdapter extends TypeAdapter<OffsetDateTime> {
+
+        // Unlike ISO_OFFSET_DATE_TIME, this writes +00:00 instead of Z like the calendar adapter
+        static final DateTimeFormatter FORMAT = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+            .appendOffset("+HH:MM", "+00:00")
+            .toFormatter();
+
+        @Override
+        public void write(JsonWriter out, OffsetDateTime value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(FORMAT.format(value));
+            }
+        }
+
+        @Override
+        public OffsetDateTime read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return new ApiDate(in.nextString()).toOffsetDateTime();
         }
     }
     
@@ -359,6 +665,22 @@ class GsonJsonMarshallerFactory extends JsonMarshallerFactory implements JsonMar
         }
     }
     
+    static class VoidTypeAdapter extends TypeAdapter<Void> {
+
+        @Override
+        public void write(JsonWriter out, Void value) throws IOException {
+            out.nullValue();
+        }
+
+        @Override
+        public Void read(JsonReader in) throws IOException {
+            // Gson would otherwise reflect on Void's private constructor, which newer JVMs refuse. Whatever
+            //  a void method sends back is just skipped.
+            in.skipValue();
+            return null;
+        }
+    }
+    
     static class ListOrSingleObjectTypeFactory implements TypeAdapterFactory {
 
         @Override
@@ -3,6 +3,11 @@ package com.softlayer.api.json;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.softlayer.api.ServiceMethod;
 
 /** 
  * Interface that must be implemented by all JSON marshallers. This instance is not reused unless
@@ -15,4 +20,14 @@ public interface JsonMarshaller {
     
     /** Convert the JSON stream to the given type. The input stream is closed by this marshaller */
     <T> T fromJson(Type type, InputStream in);
+    
+    /**
+     * Convert the JSON array on the stream to elements of the given type, decoding each one as it is reached. The
+     * input stream is closed by the caller, which may do so before every element has been read. By default, the
+     * whole array is converted at once.
+     */
+    default <T> Iterator<T> fromJsonArray(Class<T> elementType, InputStream in) {
+        List<T> result = fromJson(ServiceMethod.listOf(elementType), in);
+        return result == null ? Collections.<T>emptyIterator() : result.iterator();
+    }
 }
@@ -0,0 +1,346 @@
+package com.softlayer.api.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+
+import com.softlayer.api.ResponseHandler;
+
+/**
+ * Java 11 implementation behind {@link JdkHttpClientFactory}. This is only in the versioned portion of the
+ * multi-release jar so it must not be referenced directly from the rest of the library.
+ * <p>
+ * The JDK client only takes a connect timeout when it is built, so requests with one use a client built for it.
+ * The request timeout bounds the wait for the response headers, and requests with a deadline have their response
+ * body closed once it passes, failing a read in progress.
+ */
+class JdkHttpClientFactoryImpl extends HttpClientFactory {
+
+    /** The most clients built for distinct connect timeouts, beyond which requests use the one without */
+    static final int MAX_CONNECT_TIMEOUT_CLIENTS = 8;
+
+    final Executor executor;
+    /** The client for requests without a connect timeout */
+    final java.net.http.HttpClient client;
+    final ConcurrentMap<Integer, java.net.http.HttpClient> connectTimeoutClients = new ConcurrentHashMap<>();
+
+    JdkHttpClientFactoryImpl(Executor executor) {
+        this.executor = executor;
+        client = newClient(0);
+    }
+
+    java.net.http.HttpClient newClient(int connectTimeoutMillis) {
+        // HTTP/2 is preferred and the client falls back to HTTP/1.1 when the server does not support it
+        java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder().
+            version(java.net.http.HttpClient.Version.HTTP_2).
+            followRedirects(java.net.http.HttpClient.Redirect.NEVER);
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        if (connectTimeoutMillis > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+        }
+        return builder.build();
+    }
+
+    /**
+     * The client for requests with the given connect timeout. Connections are only shared by requests using the
+     * same client, so there are few of them and the deadline still limits requests beyond them.
+     */
+    java.net.http.HttpClient getClient(int connectTimeoutMillis) {
+        if (connectTimeoutMillis == 0) {
+            return client;
+        }
+        java.net.http.HttpClient result = connectTimeoutClients.get(connectTimeoutMillis);
+        if (result == null) {
+            if (connectTimeoutClients.size() >= MAX_CONNECT_TIMEOUT_CLIENTS) {
+                return client;
+            }
+            result = connectTimeoutClients.computeIfAbsent(connectTimeoutMillis, this::newClient);
+        }
+        return result;
+    }
+
+    @Override
+    public JdkHttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers) {
+        return new JdkHttpClient(credentials, method, fullUrl, headers, HttpTimeouts.NONE);
+    }
+
+    @Override
+    public JdkHttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, int timeoutMillis) {
+        return getHttpClient(credentials, method, fullUrl, headers,
+            new HttpTimeouts(timeoutMillis, timeoutMillis, 0));
+    }
+
+    @Override
+    public JdkHttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, HttpTimeouts timeouts) {
+        return new JdkHttpClient(credentials, method, fullUrl, headers, timeouts);
+    }
+
+    class JdkHttpClient implements HttpClient, HttpResponse {
+
+        final HttpCredentials credentials;
+        final String method;
+        final String fullUrl;
+        final Map<String, List<String>> headers;
+        final HttpTimeouts timeouts;
+        ByteArrayOutputStream body;
+        /** Closes the response body at the deadline, null if there is none */
+        ScheduledFuture<?> deadlineTask;
+        // Guarded by this
+        java.net.http.HttpResponse<InputStream> response;
+        boolean aborted;
+        boolean finished;
+
+        JdkHttpClient(HttpCredentials credentials, String method, String fullUrl,
+                Map<String, List<String>> headers, HttpTimeouts timeouts) {
+            this.credentials = credentials;
+            this.method = method;
+            this.fullUrl = fullUrl;
+            this.headers = headers;
+            this.timeouts = timeouts;
+        }
+
+        @Override
+        public OutputStream getBodyStream() {
+            // Parameter bodies are small, so they are buffered and sent with the request
+            if (body == null) {
+                body = new ByteArrayOutputStream();
+            }
+            return body;
+        }
+
+        HttpRequest buildRequest(Callable<?> setupBody) throws Exception {
+            setupBody.call();
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(fullUrl));
+            if (credentials != null) {
+                builder.header("Authorization", credentials.getHeader());
+            }
+            for (Map.Entry<String, List<String>> headerEntry : headers.entrySet()) {
+                for (String headerValue : headerEntry.getValue()) {
+                    builder.header(headerEntry.getKey(), headerValue);
+                }
+            }
+            long requestTimeoutMillis = getRequestTimeoutMillis();
+            if (requestTimeoutMillis > 0) {
+                builder.timeout(Duration.ofMillis(requestTimeoutMillis));
+            }
+            return builder.method(method, body == null ? HttpRequest.BodyPublishers.noBody() :
+                HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())).build();
+        }
+
+        /**
+         * How long to wait for the response headers or 0 for no limit. The JDK's request timeout runs from sending
+         * the request, so it includes connecting, and it is shortened to the time left until the deadline.
+         */
+        long getRequestTimeoutMillis() {
+            int readTimeoutMillis = timeouts.getEffectiveReadTimeoutMillis();
+            if (readTimeoutMillis == 0) {
+                return 0;
+            }
+            return Math.min(readTimeoutMillis + (long) timeouts.getConnectTimeoutMillis(),
+                Math.max(1, timeouts.getRemainingMillis()));
+        }
+
+        /** Start the deadline, if there is one, for a request about to be sent */
+        void startDeadline() {
+            if (timeouts.getDeadlineMillis() > 0) {
+                deadlineTask = ApiTimer.schedule(this::abort, timeouts.getRemainingMillis());
+            }
+        }
+
+        /** Close the response body, failing whatever is reading it, unless it has already been read */
+        void abort() {
+            InputStream stream;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                aborted = true;
+                // Without a response yet, the request timeout is what stops the wait for it
+                stream = response == null ? null : response.body();
+            }
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) { }
+            }
+        }
+
+        /** Stop the deadline from aborting the request */
+        void finish() {
+            synchronized (this) {
+                finished = true;
+            }
+            if (deadlineTask != null) {
+                deadlineTask.cancel(false);
+            }
+        }
+
+        /** Take the given response, closing its body right away if the deadline passed while waiting for it */
+        void setResponse(java.net.http.HttpResponse<InputStream> value) {
+            boolean aborted;
+            synchronized (this) {
+                response = value;
+                aborted = this.aborted;
+            }
+            if (aborted) {
+                try {
+                    value.body().close();
+                } catch (IOException e) { }
+            }
+        }
+
+        /** Replace the given exception with a timeout if the request failed due to its deadline */
+        Exception failure(Exception e) {
+            return isDeadlineExceeded(e) ? Deadlines.exceeded(e) : e;
+        }
+
+        /**
+         * Whether the given failure is due to the deadline, either because it aborted the request or because the
+         * request timeout, which is shortened to the deadline, fired
+         */
+        synchronized boolean isDeadlineExceeded(Exception e) {
+            return aborted || (e instanceof HttpTimeoutException && timeouts.getDeadlineMillis() > 0 &&
+                timeouts.getRemainingMillis() <= 0);
+        }
+
+        @Override
+        public HttpResponse invokeSync(Callable<?> setupBody) {
+            try {
+                HttpRequest request = buildRequest(setupBody);
+                startDeadline();
+                setResponse(getClient(timeouts.getConnectTimeoutMillis()).send(request,
+                    java.net.http.HttpResponse.BodyHandlers.ofInputStream()));
+            } catch (InterruptedException e) {
+                finish();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                finish();
+                throw e;
+            } catch (Exception e) {
+                finish();
+                throw new RuntimeException(failure(e));
+            }
+            return this;
+        }
+
+        @Override
+        public CompletableFuture<HttpResponse> invokeAsync(Callable<?> setupBody) {
+            HttpRequest request;
+            try {
+                request = buildRequest(setupBody);
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            startDeadline();
+            // No thread waits on the response, the future is completed by the client
+            CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+            getClient(timeouts.getConnectTimeoutMillis()).sendAsync(request,
+                java.net.http.HttpResponse.BodyHandlers.ofInputStream()).whenComplete((value, ex) -> {
+                    if (ex == null) {
+                        setResponse(value);
+                        result.complete(this);
+                        return;
+                    }
+                    finish();
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ?
+                        ex.getCause() : ex;
+                    result.completeExceptionally(cause instanceof Exception ? failure((Exception) cause) : cause);
+                });
+            return result;
+        }
+
+        @Override
+        public Future<?> invokeAsync(Callable<?> setupBody, final ResponseHandler<HttpResponse> callback) {
+            return invokeAsync(setupBody).whenComplete((value, ex) -> {
+                if (ex == null) {
+                    callback.onSuccess(value);
+                    return;
+                }
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                callback.onError(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Nothing to do, callers are expected to close streams they use
+        }
+
+        @Override
+        public synchronized int getStatusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public synchronized Map<String, List<String>> getHeaders() {
+            // HTTP/2 header names are lower case, so lookups must ignore case
+            Map<String, List<String>> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            result.putAll(response.headers().map());
+            return result;
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() {
+            return deadlineTask == null ? response.body() : new DeadlineInputStream(response.body());
+        }
+
+        /** Response body that reports reads failed by the deadline as timeouts and stops the deadline on close */
+        class DeadlineInputStream extends FilterInputStream {
+
+            DeadlineInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    return super.read();
+                } catch (IOException e) {
+                    throw exceeded(e);
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    return super.read(b, off, len);
+                } catch (IOException e) {
+                    throw exceeded(e);
+                }
+            }
+
+            IOException exceeded(IOException e) {
+                return isDeadlineExceeded(e) ? Deadlines.exceeded(e) : e;
+            }
+
+            @Override
+            public void close() throws IOException {
+                finish();
+                super.close();
+            }
+        }
+    }
+}
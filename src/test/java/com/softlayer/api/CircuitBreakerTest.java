@@ -0,0 +1,159 @@
+package com.softlayer.api;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private static CircuitBreakerPolicy policy(long openDurationMillis) {
+        return new CircuitBreakerPolicy(4, 2, 0.5, 1, 1000, openDurationMillis, TimeUnit.MILLISECONDS, 2, false);
+    }
+
+    private static void call(CircuitBreaker breaker, boolean failure) {
+        breaker.onResult(breaker.acquirePermission(), 0, failure);
+    }
+
+    private static void assertRejected(CircuitBreaker breaker) {
+        try {
+            breaker.acquirePermission();
+            fail();
+        } catch (ApiException.CircuitOpen e) {
+            assertEquals(breaker.getName(), e.circuitBreakerName);
+            assertEquals(503, e.status);
+        }
+    }
+
+    @Test
+    public void testOpensOnFailureRate() {
+        CircuitBreaker breaker = policy(60000).getCircuitBreaker("SoftLayer_Account", "getObject");
+        assertEquals("SoftLayer_Account", breaker.getName());
+        call(breaker, false);
+        call(breaker, false);
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1.0 / 3, breaker.getFailureRate(), 0.001);
+
+        // Old calls drop out of the window
+        call(breaker, false);
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getOpenCount());
+        assertRejected(breaker);
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    @Test
+    public void testMinimumCalls() {
+        CircuitBreaker breaker = policy(60000).getCircuitBreaker("SoftLayer_Account", "getObject");
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() {
+        CircuitBreaker breaker = policy(60000).getCircuitBreaker("SoftLayer_Account", "getObject");
+        breaker.onResult(breaker.acquirePermission(), TimeUnit.SECONDS.toNanos(2), false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onResult(breaker.acquirePermission(), TimeUnit.SECONDS.toNanos(2), false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(0, breaker.getFailureRate(), 0);
+    }
+
+    @Test
+    public void testHalfOpenProbes() throws Exception {
+        CircuitBreaker breaker = policy(100).getCircuitBreaker("SoftLayer_Account", "getObject");
+        call(breaker, true);
+        call(breaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertRejected(breaker);
+        Thread.sleep(150);
+
+        // Only as many probes as needed to close are let through
+        assertTrue(breaker.acquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.acquirePermission());
+        assertRejected(breaker);
+        breaker.onResult(true, 0, false);
+        breaker.onResult(true, 0, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate(), 0);
+        assertFalse(breaker.acquirePermission());
+
+        // A failed probe opens it again
+        call(breaker, true);
+        call(breaker, true);
+        Thread.sleep(150);
+        assertTrue(breaker.acquirePermission());
+        breaker.onResult(true, 0, true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(3, breaker.getOpenCount());
+    }
+
+    @Test
+    public void testIgnoredProbes() throws Exception {
+        CircuitBreaker breaker = new CircuitBreakerPolicy(4, 2, 0.5, 1, 1, 100, TimeUnit.MILLISECONDS, 1, false)
+            .getCircuitBreaker("SoftLayer_Account", "getObject");
+        call(breaker, true);
+        call(breaker, true);
+        Thread.sleep(150);
+        assertTrue(breaker.acquirePermission());
+        assertRejected(breaker);
+        breaker.onIgnored(true);
+        assertTrue(breaker.acquirePermission());
+
+        // A probe that never reports back is given up on after the open duration
+        assertRejected(breaker);
+        Thread.sleep(150);
+        assertTrue(breaker.acquirePermission());
+        breaker.onResult(true, 0, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailures() {
+        CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+        assertTrue(policy.isFailure(500));
+        assertTrue(policy.isFailure(503));
+        assertTrue(policy.isFailure(429));
+        assertFalse(policy.isFailure(200));
+        assertFalse(policy.isFailure(404));
+        assertTrue(policy.isFailure(new RuntimeException("Connection reset")));
+        assertFalse(policy.isFailure(new RejectedExecutionException("Rate limit reached")));
+        assertFalse(policy.isFailure(new ApiException.CircuitOpen("SoftLayer_Account")));
+
+        // Failures not caused by the API neither count nor use up a probe
+        CircuitBreaker breaker = new CircuitBreakerPolicy(4, 2, 0.5, 1, 1, 0, TimeUnit.SECONDS, 1, false)
+            .getCircuitBreaker("SoftLayer_Account", "getObject");
+        call(breaker, true);
+        call(breaker, true);
+        boolean probe = breaker.acquirePermission();
+        assertTrue(probe);
+        breaker.onFailure(probe, System.nanoTime(), new RejectedExecutionException("Rate limit reached"));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        probe = breaker.acquirePermission();
+        assertTrue(probe);
+        breaker.onResponse(probe, System.nanoTime(), 200);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testPerMethod() {
+        CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+        assertSame(policy.getCircuitBreaker("SoftLayer_Account", "getObject"),
+            policy.getCircuitBreaker("SoftLayer_Account", "getHardware"));
+        assertNotSame(policy.getCircuitBreaker("SoftLayer_Account", "getObject"),
+            policy.getCircuitBreaker("SoftLayer_Location", "getObject"));
+
+        policy = new CircuitBreakerPolicy(20, 10, 0.5, 1, 60, 30, TimeUnit.SECONDS, 3, true);
+        CircuitBreaker breaker = policy.getCircuitBreaker("SoftLayer_Account", "getObject");
+        assertEquals("SoftLayer_Account::getObject", breaker.getName());
+        assertSame(breaker, policy.getCircuitBreaker("SoftLayer_Account", "getObject"));
+        assertNotSame(breaker, policy.getCircuitBreaker("SoftLayer_Account", "getHardware"));
+    }
+}
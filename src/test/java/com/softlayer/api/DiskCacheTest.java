@@ -0,0 +1,137 @@
+package com.softlayer.api;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.softlayer.api.annotation.ApiTypes;
+import com.softlayer.api.service.Entity;
+
+public class DiskCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String read(DiskCache.Record record) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = record.getBody()) {
+            byte[] buffer = new byte[4];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void write(DiskCache cache, String key, String serviceName, String id, String body) {
+        cache.write(key, serviceName, id, System.currentTimeMillis() + 60000, null,
+            body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("cache");
+        DiskCache cache = new DiskCache(directory, 1024 * 1024, "1.0");
+        assertTrue(Files.isDirectory(directory));
+        assertNull(cache.read("key", "SoftLayer_Location", null));
+        cache.write("key", "SoftLayer_Location", null, System.currentTimeMillis() + 60000, 12,
+            "[{\"id\":1}]".getBytes(StandardCharsets.UTF_8));
+        DiskCache.Record record = cache.read("key", "SoftLayer_Location", null);
+        assertEquals("[{\"id\":1}]", read(record));
+        assertEquals(Integer.valueOf(12), record.totalItemCount);
+        assertTrue(record.getTtlNanos() > 0);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getErrorCount());
+
+        // Another process sees the same files and sizes
+        cache = new DiskCache(directory, 1024 * 1024, "1.0");
+        assertEquals(Files.size(cache.getFile("key", "SoftLayer_Location", null)), cache.getSize());
+        assertEquals("[{\"id\":1}]", read(cache.read("key", "SoftLayer_Location", null)));
+
+        // The credentials in the key never make it to disk
+        assertFalse(cache.getFile("user:secret", "SoftLayer_Location", null).toString().contains("secret"));
+    }
+
+    @Test
+    public void testIgnoresOtherVersionsAndExpired() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        write(new DiskCache(directory, 1024 * 1024, "1.0"), "key", "SoftLayer_Location", "1", "[]");
+        DiskCache cache = new DiskCache(directory, 1024 * 1024, "2.0");
+        assertNull(cache.read("key", "SoftLayer_Location", "1"));
+        assertFalse(Files.exists(cache.getFile("key", "SoftLayer_Location", "1")));
+        assertEquals(0, cache.getSize());
+
+        cache.write("key", "SoftLayer_Location", "1", System.currentTimeMillis() - 1, null, new byte[0]);
+        assertNull(cache.read("key", "SoftLayer_Location", "1"));
+
+        // Files that were cut short are deleted
+        byte[] header = { 0x53, 0x4C, 0x52, 0x43, 0, 1, 0, 5, 0 };
+        Files.write(cache.getFile("key", "SoftLayer_Location", "1"), header);
+        assertNull(cache.read("key", "SoftLayer_Location", "1"));
+        assertFalse(Files.exists(cache.getFile("key", "SoftLayer_Location", "1")));
+        assertEquals(1, cache.getErrorCount());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        DiskCache cache = new DiskCache(folder.getRoot().toPath(), 1024 * 1024, "1.0");
+        write(cache, "1", "SoftLayer_Virtual_Guest", "1", "{}");
+        write(cache, "2", "SoftLayer_Virtual_Guest", "2", "{}");
+        write(cache, "all", "SoftLayer_Virtual_Guest", null, "[]");
+        write(cache, "other", "SoftLayer_Location", "1", "{}");
+        cache.invalidate("SoftLayer_Virtual_Guest", "1");
+        assertNull(cache.read("1", "SoftLayer_Virtual_Guest", "1"));
+        assertNotNull(cache.read("2", "SoftLayer_Virtual_Guest", "2"));
+        assertNull(cache.read("all", "SoftLayer_Virtual_Guest", null));
+        assertNotNull(cache.read("other", "SoftLayer_Location", "1"));
+        cache.invalidate("SoftLayer_Virtual_Guest", null);
+        assertNull(cache.read("2", "SoftLayer_Virtual_Guest", "2"));
+        assertNotNull(cache.read("other", "SoftLayer_Location", "1"));
+        cache.clear();
+        assertNull(cache.read("other", "SoftLayer_Location", "1"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        DiskCache cache = new DiskCache(folder.getRoot().toPath(), 250, "1.0");
+        char[] chars = new char[80];
+        Arrays.fill(chars, 'x');
+        String body = new String(chars);
+        write(cache, "a", "SoftLayer_Location", "1", body);
+        write(cache, "b", "SoftLayer_Location", "2", body);
+        // Make "b" the least recently used whatever the file time resolution
+        Files.setLastModifiedTime(cache.getFile("b", "SoftLayer_Location", "2"),
+            FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        write(cache, "c", "SoftLayer_Location", "3", body);
+        assertTrue(cache.getSize() <= 250);
+        assertNull(cache.read("b", "SoftLayer_Location", "2"));
+        assertNotNull(cache.read("a", "SoftLayer_Location", "1"));
+        assertNotNull(cache.read("c", "SoftLayer_Location", "3"));
+    }
+
+    @Test
+    public void testDefaultVersionFromGeneratedTypes() {
+        String version = Entity.class.getPackage().getAnnotation(ApiTypes.class).version();
+        assertEquals(32, version.length());
+        assertEquals(version, DiskCache.getClientVersion());
+        assertEquals(version, new DiskCache(folder.getRoot().toPath()).getVersion());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveSize() {
+        new DiskCache(folder.getRoot().toPath(), 0, "1.0");
+    }
+}
@@ -0,0 +1,68 @@
+package com.softlayer.api;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class HedgingPolicyTest {
+
+    @Test
+    public void testIsHedgeable() {
+        HedgingPolicy hedgingPolicy = new HedgingPolicy();
+        assertTrue(hedgingPolicy.isHedgeable("GET", "getObject"));
+        assertFalse(hedgingPolicy.isHedgeable("GET", "powerOff"));
+        assertFalse(hedgingPolicy.isHedgeable("PUT", "editObject"));
+        assertFalse(hedgingPolicy.isHedgeable("POST", "createObject"));
+    }
+
+    @Test
+    public void testDelayIsPercentileOfLatencies() {
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(90, 5, 500, TimeUnit.MILLISECONDS, 0.05);
+        for (int i = 1; i < HedgingPolicy.MIN_SAMPLES; i++) {
+            hedgingPolicy.onLatency(i * 10);
+        }
+        assertEquals(-1, hedgingPolicy.getHedgeDelayMillis());
+        assertEquals(-1, hedgingPolicy.onCall());
+        hedgingPolicy.onLatency(200);
+        assertEquals(180, hedgingPolicy.getHedgeDelayMillis());
+
+        // Only recomputed every so often and always within the bounds
+        for (int i = 0; i < HedgingPolicy.RECOMPUTE_INTERVAL - 1; i++) {
+            hedgingPolicy.onLatency(10000);
+        }
+        assertEquals(180, hedgingPolicy.getHedgeDelayMillis());
+        hedgingPolicy.onLatency(10000);
+        assertEquals(500, hedgingPolicy.getHedgeDelayMillis());
+        for (int i = 0; i < HedgingPolicy.SAMPLE_SIZE; i++) {
+            hedgingPolicy.onLatency(1);
+        }
+        assertEquals(5, hedgingPolicy.onCall());
+    }
+
+    @Test
+    public void testExtraLoadIsCapped() {
+        HedgingPolicy hedgingPolicy = new HedgingPolicy();
+        int hedges = 0;
+        for (int i = 0; i < 1000; i++) {
+            hedgingPolicy.onCall();
+            if (hedgingPolicy.tryHedge()) {
+                hedges++;
+            }
+        }
+        assertEquals(50, hedges);
+        assertEquals(50, hedgingPolicy.getHedgeCount());
+        assertEquals(1000, hedgingPolicy.getCallCount());
+
+        // Saved up hedges are capped
+        for (int i = 0; i < 1000; i++) {
+            hedgingPolicy.onCall();
+        }
+        hedges = 0;
+        while (hedgingPolicy.tryHedge()) {
+            hedges++;
+        }
+        assertEquals(HedgingPolicy.MAX_BUDGET, hedges);
+    }
+}
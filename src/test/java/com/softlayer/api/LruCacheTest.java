@@ -0,0 +1,76 @@
+package com.softlayer.api;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LruCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        // Touch "a" so "b" is the eldest
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+    }
+
+    @Test
+    public void testRemove() {
+        LruCache<String, String> cache = new LruCache<>(3);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "1");
+        cache.remove("b");
+        assertNull(cache.get("b"));
+        assertEquals(2, cache.removeIf("1"::equals));
+        assertEquals(0, cache.size());
+        cache.put("a", "1");
+        cache.clear();
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testEvictsInBatches() throws Exception {
+        LruCache<Integer, String> cache = new LruCache<>(32);
+        for (int i = 0; i < 32; i++) {
+            cache.put(i, "value");
+        }
+        assertEquals(32, cache.size());
+        // Keep the first half in use, later than the clock could have ticked for the puts
+        Thread.sleep(1);
+        for (int i = 0; i < 16; i++) {
+            assertEquals("value", cache.get(i));
+        }
+        cache.put(32, "value");
+        // Down to 30 at once, evicting the entries used longest ago
+        assertEquals(30, cache.size());
+        for (int i = 0; i < 16; i++) {
+            assertEquals("value", cache.get(i));
+        }
+        assertNull(cache.get(16));
+        assertNull(cache.get(17));
+        assertNull(cache.get(18));
+        assertEquals("value", cache.get(32));
+    }
+
+    @Test
+    public void testRemoveOnlyMatchingValue() {
+        LruCache<String, String> cache = new LruCache<>(2);
+        cache.put("a", "1");
+        cache.remove("a", "2");
+        assertEquals("1", cache.get("a"));
+        cache.remove("a", "1");
+        assertNull(cache.get("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveSize() {
+        new LruCache<String, String>(0);
+    }
+}
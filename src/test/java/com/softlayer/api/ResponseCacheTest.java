@@ -0,0 +1,156 @@
+package com.softlayer.api;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ResponseCacheTest {
+
+    private static ResponseCache.Entry entry(String serviceName, String id, long ttlNanos) {
+        return new ResponseCache.Entry(serviceName, id, serviceName + id, null, null, ttlNanos);
+    }
+
+    @Test
+    public void testTtl() {
+        ResponseCache cache = new ResponseCache()
+            .withTtl("SoftLayer_Product_Package", 1, TimeUnit.HOURS)
+            .withTtl("SoftLayer_Product_Package", "getItemPrices", 5, TimeUnit.MINUTES)
+            .withTtl("SoftLayer_Location", "getDatacenters", 1, TimeUnit.DAYS);
+        assertEquals(TimeUnit.HOURS.toMillis(1), cache.getTtlMillis("SoftLayer_Product_Package", "getAllObjects"));
+        assertEquals(TimeUnit.MINUTES.toMillis(5), cache.getTtlMillis("SoftLayer_Product_Package", "getItemPrices"));
+        assertEquals(TimeUnit.DAYS.toMillis(1), cache.getTtlMillis("SoftLayer_Location", "getDatacenters"));
+        assertEquals(0, cache.getTtlMillis("SoftLayer_Location", "getObject"));
+        assertEquals(0, cache.getTtlMillis("SoftLayer_Account", "getObject"));
+    }
+
+    @Test
+    public void testCacheableAndWrites() {
+        ResponseCache cache = new ResponseCache();
+        assertTrue(cache.isCacheable("GET", "getObject"));
+        assertFalse(cache.isCacheable("GET", "powerOff"));
+        assertFalse(cache.isCacheable("PUT", "editObject"));
+        assertFalse(cache.isWrite("GET", "getObject"));
+        assertTrue(cache.isWrite("POST", "createObject"));
+        assertTrue(cache.isWrite("PUT", "editObject"));
+        assertTrue(cache.isWrite("DELETE", "deleteObject"));
+    }
+
+    @Test
+    public void testExpiry() {
+        ResponseCache cache = new ResponseCache();
+        cache.put("a", entry("SoftLayer_Location", "1", TimeUnit.MINUTES.toNanos(1)), cache.getGeneration());
+        cache.put("b", entry("SoftLayer_Location", "2", -1), cache.getGeneration());
+        assertEquals("SoftLayer_Location1", cache.get("a").value);
+        assertNull(cache.get("b"));
+        assertNull(cache.get("c"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        ResponseCache cache = new ResponseCache(2, false);
+        long ttlNanos = TimeUnit.MINUTES.toNanos(1);
+        cache.put("a", entry("SoftLayer_Location", "1", ttlNanos), cache.getGeneration());
+        cache.put("b", entry("SoftLayer_Location", "2", ttlNanos), cache.getGeneration());
+        assertNotNull(cache.get("a"));
+        cache.put("c", entry("SoftLayer_Location", "3", ttlNanos), cache.getGeneration());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        ResponseCache cache = new ResponseCache();
+        long ttlNanos = TimeUnit.MINUTES.toNanos(1);
+        cache.put("1", entry("SoftLayer_Virtual_Guest", "1", ttlNanos), cache.getGeneration());
+        cache.put("2", entry("SoftLayer_Virtual_Guest", "2", ttlNanos), cache.getGeneration());
+        cache.put("all", entry("SoftLayer_Virtual_Guest", null, ttlNanos), cache.getGeneration());
+        cache.put("other", entry("SoftLayer_Location", "1", ttlNanos), cache.getGeneration());
+
+        // A write to one object leaves others of the service alone
+        cache.invalidate("SoftLayer_Virtual_Guest", "1");
+        assertNull(cache.get("1"));
+        assertNotNull(cache.get("2"));
+        assertNull(cache.get("all"));
+        assertNotNull(cache.get("other"));
+
+        // A write without an ID could change anything in the service
+        cache.invalidate("SoftLayer_Virtual_Guest", null);
+        assertNull(cache.get("2"));
+        assertNotNull(cache.get("other"));
+        assertEquals(2, cache.getInvalidationCount());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testNotCachedAfterInvalidation() {
+        ResponseCache cache = new ResponseCache();
+        long generation = cache.getGeneration();
+        cache.invalidate("SoftLayer_Location", null);
+        assertFalse(cache.put("a", entry("SoftLayer_Location", "1", TimeUnit.MINUTES.toNanos(1)), generation));
+        assertNull(cache.get("a"));
+        assertTrue(cache.put("a", entry("SoftLayer_Location", "1", TimeUnit.MINUTES.toNanos(1)),
+            cache.getGeneration()));
+        assertNotNull(cache.get("a"));
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        ResponseCache cache = new ResponseCache().withRefreshAhead(0.5, 1, TimeUnit.MINUTES, 1);
+        List<ResponseCache.Entry> refreshed = new ArrayList<>();
+        cache.put("a", entry("SoftLayer_Location", "1", TimeUnit.MILLISECONDS.toNanos(100)), cache.getGeneration());
+        cache.put("b", entry("SoftLayer_Location", "2", TimeUnit.MILLISECONDS.toNanos(100)), cache.getGeneration());
+        ResponseCache.Entry a = cache.get("a", refreshed::add);
+        assertTrue(refreshed.isEmpty());
+        Thread.sleep(60);
+
+        // Only one refresh at a time per result and overall
+        assertSame(a, cache.get("a", refreshed::add));
+        assertSame(a, cache.get("a", refreshed::add));
+        assertNotNull(cache.get("b", refreshed::add));
+        assertEquals(Collections.singletonList(a), refreshed);
+        assertEquals(1, cache.getRefreshesInFlight());
+
+        // Expired results are used while being refreshed
+        Thread.sleep(60);
+        assertSame(a, cache.get("a", refreshed::add));
+        assertEquals(1, cache.getStaleHitCount());
+        assertNull(cache.get("b", refreshed::add));
+
+        // Once a refresh fails, an expired result is dropped
+        cache.onRefreshDone(a, false);
+        assertEquals(0, cache.getRefreshesInFlight());
+        cache.withRefreshAhead(0.5, 0, TimeUnit.MINUTES, 1);
+        assertNull(cache.get("a", refreshed::add));
+        assertEquals(1, cache.getRefreshCount());
+    }
+
+    @Test
+    public void testNoRefreshWithoutRefresher() throws Exception {
+        ResponseCache cache = new ResponseCache().withRefreshAhead(0.5, 1, TimeUnit.MINUTES, 1);
+        cache.put("a", entry("SoftLayer_Location", "1", TimeUnit.MILLISECONDS.toNanos(50)), cache.getGeneration());
+        Thread.sleep(60);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getRefreshCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvalidRefreshAfter() {
+        new ResponseCache().withRefreshAhead(1.5, 0, TimeUnit.SECONDS, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNegativeTtl() {
+        new ResponseCache().withTtl("SoftLayer_Location", -1, TimeUnit.SECONDS);
+    }
+}
@@ -4,19 +4,38 @@ import static org.junit.Assert.*;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
 
 import com.softlayer.api.http.FakeHttpClientFactory;
 import com.softlayer.api.http.HttpBasicAuthCredentials;
+import com.softlayer.api.http.StubHttpServer;
 import com.softlayer.api.json.GsonJsonMarshallerFactoryTest;
+import com.softlayer.api.service.Location;
 import com.softlayer.api.service.TestEntity;
+import com.softlayer.api.service.TestThing;
+import com.softlayer.api.service.location.Datacenter;
 
 public class RestApiClientTest {
     
@@ -408,4 +427,812 @@ public class RestApiClientTest {
         assertEquals(service.hashCode(), service.hashCode());
         assertTrue(service.equals(service));
     }
+
+    @Test
+    public void testInvocationPlansSharedAcrossProxies() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200,
+            Collections.emptyMap(), "[]");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+
+        TestEntity.service(client).fakeName();
+        TestEntity.service(client, 5L).asAsync().fakeName().get();
+        Map<Method, RestApiClient.InvocationPlan> plans = client.getInvocationPlans(TestEntity.Service.class);
+        RestApiClient.InvocationPlan plan = plans.get(TestEntity.Service.class.getMethod("fakeName"));
+        assertEquals(RestApiClient.InvocationPlan.Kind.SERVICE, plan.kind);
+        assertEquals("actualName", plan.serviceMethod.name);
+        assertFalse(plan.serviceMethod.instanceRequired);
+        RestApiClient.InvocationPlan asyncPlan = plans.get(TestEntity.ServiceAsync.class.getMethod("fakeName"));
+        assertEquals(RestApiClient.InvocationPlan.Kind.SERVICE_ASYNC, asyncPlan.kind);
+        assertEquals(TestEntity.Service.class.getMethod("fakeName"), asyncPlan.method);
+        assertSame(plans, client.getInvocationPlans(TestEntity.Service.class));
+    }
+
+    @Test
+    public void testGeneratedServiceImplementation() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200,
+            Collections.singletonMap("SoftLayer-Total-Items", Collections.singletonList("1")),
+            "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"some string\"}]");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+
+        TestThing.Service service = TestThing.service(client, 5L);
+        assertFalse(Proxy.isProxyClass(service.getClass()));
+        assertEquals("Service: SoftLayer_TestThing with ID 5", service.toString());
+        service.withMask().first();
+        service.setResultLimit(new ResultLimit(1, 2));
+        List<TestEntity> entities = service.getTestEntity();
+        assertEquals(1, entities.size());
+        assertEquals("some string", entities.get(0).getFoo());
+        assertEquals("http://example.com/SoftLayer_TestThing/5/TestEntity.json?resultLimit=1,2"
+            + "&objectMask=mask%5Bfirst%5D", http.fullUrl);
+        assertEquals("GET", http.method);
+        assertEquals(1, service.getLastResponseTotalItemCount().intValue());
+        assertTrue(http.invokeSyncCalled);
+
+        // Async keeps the mask and result limit
+        assertEquals(1, service.asAsync().getTestEntity().get().size());
+        assertEquals("http://example.com/SoftLayer_TestThing/5/TestEntity.json?resultLimit=1,2"
+            + "&objectMask=mask%5Bfirst%5D", http.fullUrl);
+        assertTrue(http.invokeAsyncFutureCalled);
+    }
+
+    @Test
+    public void testGeneratedServiceImplementationUsesClientMethodMapping() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200, Collections.emptyMap(), "[]");
+        RestApiClient client = new RestApiClient("http://example.com/") {
+            @Override
+            protected String getHttpMethodFromMethodName(String methodName) {
+                return "getTestEntity".equals(methodName) ? "POST" : super.getHttpMethodFromMethodName(methodName);
+            }
+
+            @Override
+            protected String getMethodUrlPath(String methodName) {
+                return "getTestEntity".equals(methodName) ? "/testEntities" : super.getMethodUrlPath(methodName);
+            }
+        };
+        client.setHttpClientFactory(http);
+
+        TestThing.service(client, 5L).getTestEntity();
+        assertEquals("http://example.com/SoftLayer_TestThing/5/testEntities.json", http.fullUrl);
+        assertEquals("POST", http.method);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGeneratedServiceImplementationFailsWithoutId() {
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(new FakeHttpClientFactory(200, Collections.emptyMap(), "null"));
+        TestThing.service(client).getObject();
+    }
+
+    @Test
+    public void testCallWithOptionsOnServiceWithBaseService() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200, Collections.emptyMap(),
+            "{\"complexType\": \"SoftLayer_Location_Datacenter\"}");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+
+        // Lambdas get the service they are given to, methods of the base service can be given too
+        Datacenter.Service service = Datacenter.service(client, 5L);
+        ApiResponse<Datacenter> datacenter = service.call(CallOptions.DEFAULT.withMask("id"),
+            svc -> svc.getObjectForDatacenter());
+        assertNotNull(datacenter.getValue());
+        assertEquals("http://example.com/SoftLayer_Location_Datacenter/5.json?objectMask=id",
+            http.fullUrl);
+        ApiResponse<Location> location = service.call(CallOptions.DEFAULT, Location.Service::getObject);
+        assertNotNull(location.getValue());
+        assertEquals("http://example.com/SoftLayer_Location_Datacenter/5.json", http.fullUrl);
+        Location.Service.Call<Location> call = Location.Service::getObject;
+        assertNotNull(service.call(CallOptions.DEFAULT, call).getValue());
+
+        Future<ApiResponse<Datacenter>> async = service.asAsync().call(CallOptions.DEFAULT.withMask("id"),
+            svc -> svc.getObjectForDatacenter());
+        assertNotNull(async.get().getValue());
+        assertEquals("http://example.com/SoftLayer_Location_Datacenter/5.json?objectMask=id",
+            http.fullUrl);
+    }
+
+    @Test
+    public void testCallWithOptionsLeavesServiceUnchanged() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200,
+            Collections.singletonMap("SoftLayer-Total-Items", Collections.singletonList("12")), "[]");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+
+        TestThing.Service service = TestThing.service(client, 5L);
+        service.setResultLimit(new ResultLimit(0, 10));
+        service.setMask("id");
+        CallOptions options = CallOptions.DEFAULT.withResultLimit(new ResultLimit(10, 10))
+            .withMask(new TestThing.Mask().first()).withObjectFilter("{\"id\":1}");
+        ApiResponse<List<TestEntity>> response = service.call(options, TestThing.Service::getTestEntity);
+        assertTrue(response.getValue().isEmpty());
+        assertEquals(12, response.getTotalItemCount().intValue());
+        assertEquals(Collections.singletonList("12"), response.getHeaders().get("SoftLayer-Total-Items"));
+        assertEquals("http://example.com/SoftLayer_TestThing/5/TestEntity.json?resultLimit=10,10"
+            + "&objectMask=mask%5Bfirst%5D&objectFilter=%7B%22id%22%3A1%7D", http.fullUrl);
+
+        // The shared service is untouched
+        assertEquals(0, service.getResultLimit().offset);
+        assertNull(service.getLastResponseTotalItemCount());
+        service.getTestEntity();
+        assertEquals("http://example.com/SoftLayer_TestThing/5/TestEntity.json?resultLimit=0,10"
+            + "&objectMask=id", http.fullUrl);
+
+        // Options without values use the service's
+        service.call(CallOptions.DEFAULT.withObjectFilter("{}"), TestThing.Service::getTestEntity);
+        assertEquals("http://example.com/SoftLayer_TestThing/5/TestEntity.json?resultLimit=0,10"
+            + "&objectMask=id&objectFilter=%7B%7D", http.fullUrl);
+    }
+
+    @Test
+    public void testCallWithOptionsAsync() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200,
+            Collections.singletonMap("SoftLayer-Total-Items", Collections.singletonList("3")), "[]");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+
+        TestThing.ServiceAsync service = TestThing.service(client, 5L).asAsync();
+        Future<ApiResponse<List<TestEntity>>> response = service.call(
+            CallOptions.DEFAULT.withResultLimit(new ResultLimit(2)),
+            (TestThing.ServiceAsync svc) -> svc.getTestEntity());
+        assertEquals(3, response.get().getTotalItemCount().intValue());
+        assertEquals("http://example.com/SoftLayer_TestThing/5/TestEntity.json?resultLimit=0,2", http.fullUrl);
+        assertTrue(http.invokeAsyncFutureCalled);
+        assertNull(service.getResultLimit());
+        assertNull(service.getLastResponseTotalItemCount());
+    }
+
+    @Test
+    public void testCallWithOptionsOnProxy() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200,
+            Collections.singletonMap("SoftLayer-Total-Items", Collections.singletonList("7")),
+            "\"some response\"");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+
+        TestEntity.Service service = TestEntity.service(client, 5L);
+        ApiResponse<String> response = service.call(CallOptions.DEFAULT.withMask("foo"),
+            (TestEntity.Service svc) -> svc.getRecursiveProperty());
+        assertEquals("some response", response.getValue());
+        assertEquals(7, response.getTotalItemCount().intValue());
+        assertEquals("http://example.com/SoftLayer_TestEntity/RecursiveProperty.json?objectMask=foo",
+            http.fullUrl);
+        assertNull(service.getLastResponseTotalItemCount());
+
+        ApiResponse<String> asyncResponse = service.asAsync().call(CallOptions.DEFAULT,
+            (TestEntity.ServiceAsync svc) -> svc.doSomethingStatic(123L, new TestEntity())).get();
+        assertEquals("some response", asyncResponse.getValue());
+        assertEquals(7, asyncResponse.getTotalItemCount().intValue());
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200,
+            Collections.singletonMap("SoftLayer-Total-Items", Collections.singletonList("20")),
+            "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"first\"},"
+                + "{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"second\"}]");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+        // Streamed calls bypass the cache
+        client.setResponseCache(new ResponseCache().withTtl("SoftLayer_TestThing", 1, TimeUnit.MINUTES));
+
+        TestThing.Service service = TestThing.service(client, 5L);
+        service.setMask("id");
+        try (ResultStream<TestEntity> entities = service.stream(
+                CallOptions.DEFAULT.withResultLimit(new ResultLimit(2)), TestThing.Service::getTestEntity)) {
+            assertEquals(20, entities.getTotalItemCount().intValue());
+            assertEquals(Collections.singletonList("20"), entities.getHeaders().get("SoftLayer-Total-Items"));
+            assertTrue(entities.hasNext());
+            assertEquals("first", entities.next().getFoo());
+            assertEquals("second", entities.next().getFoo());
+            assertFalse(entities.hasNext());
+        }
+        assertEquals("http://example.com/SoftLayer_TestThing/5/TestEntity.json?resultLimit=0,2&objectMask=id",
+            http.fullUrl);
+        assertNull(service.getResultLimit());
+        assertNull(service.getLastResponseTotalItemCount());
+        assertEquals(0, client.getResponseCache().size());
+    }
+
+    @Test
+    public void testStreamOnProxy() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200, Collections.emptyMap(),
+            "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"first\"},"
+                + "{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"second\"}]");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+
+        TestEntity.Service service = TestEntity.service(client);
+        List<String> foos;
+        try (ResultStream<TestEntity> entities = service.stream(CallOptions.DEFAULT.withMask("foo"),
+                TestEntity.Service::fakeName)) {
+            assertNull(entities.getTotalItemCount());
+            foos = entities.stream().map(TestEntity::getFoo).collect(java.util.stream.Collectors.toList());
+        }
+        assertEquals(Arrays.asList("first", "second"), foos);
+        assertEquals("http://example.com/SoftLayer_TestEntity/actualName.json?objectMask=foo", http.fullUrl);
+
+        // A single object is a list of one
+        http = new FakeHttpClientFactory(200, Collections.emptyMap(),
+            "{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"only\"}");
+        client.setHttpClientFactory(http);
+        try (ResultStream<TestEntity> entities = service.stream(CallOptions.DEFAULT, TestEntity.Service::fakeName)) {
+            assertEquals("only", entities.next().getFoo());
+            assertFalse(entities.hasNext());
+        }
+    }
+
+    @Test
+    public void testStreamFailures() throws Exception {
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(new FakeHttpClientFactory(200, Collections.emptyMap(), "\"some response\""));
+        TestEntity.Service service = TestEntity.service(client);
+        try {
+            service.<String>stream(CallOptions.DEFAULT, svc -> {
+                svc.getRecursiveProperty();
+                return null;
+            });
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Only methods returning a list can be streamed: getRecursiveProperty", e.getMessage());
+        }
+        try {
+            service.<String>stream(CallOptions.DEFAULT, svc -> null);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("No API method was invoked to stream", e.getMessage());
+        }
+
+        client.setHttpClientFactory(new FakeHttpClientFactory(500, Collections.emptyMap(),
+            "{\"error\": \"some error\", \"code\": \"some code\"}"));
+        try {
+            service.stream(CallOptions.DEFAULT, TestEntity.Service::fakeName);
+            fail();
+        } catch (ApiException e) {
+            assertEquals("some error", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testUrlTemplatesAndEncodedMasksAreReused() {
+        RestApiClient client = new RestApiClient("http://example.com/");
+        ServiceMethod method = new ServiceMethod("getThings", true, String.class);
+        RestApiClient.UrlTemplate template = client.getUrlTemplate("SomeService", method);
+        assertEquals("GET", template.httpMethod);
+        assertEquals("http://example.com/SomeService", template.prefix);
+        assertEquals("/Things.json", template.suffix);
+        assertSame(template, client.getUrlTemplate("SomeService", method));
+        assertNotSame(template, client.getUrlTemplate("OtherService", method));
+
+        String encoded = client.getEncodedMask("mask[id,name]");
+        assertEquals("mask%5Bid%2Cname%5D", encoded);
+        assertSame(encoded, client.getEncodedMask(new String("mask[id,name]")));
+        // Masks only written differently share the encoding of their canonical form
+        assertSame(encoded, client.getEncodedMask("mask[id, name]"));
+        assertSame(encoded, client.getEncodedMask(" mask[\n  id,\n  name\n]"));
+        String canonical = "mask[id,name]";
+        assertSame(canonical, RestApiClient.getCanonicalMask(canonical));
+
+        assertEquals("http://example.com/SomeService/12/Things.json?objectMask=mask%5Bid%2Cname%5D"
+            + "&objectFilter=%7B%7D",
+            client.buildUrl(template.prefix, "12", template.suffix, null, "mask[id,name]", "{}"));
+        assertEquals("http://example.com/SomeService/Things.json?resultLimit=0,5&objectFilter=%7B%7D",
+            client.buildUrl(template.prefix, null, template.suffix, new ResultLimit(5), "", "{}"));
+    }
+
+    @Test
+    public void testTimeouts() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200, Collections.emptyMap(), "[]");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+        TestThing.Service service = TestThing.service(client, 5L);
+
+        // Client defaults
+        service.getTestEntity();
+        assertEquals(RestApiClient.DEFAULT_CONNECT_TIMEOUT_MILLIS, http.timeouts.getConnectTimeoutMillis());
+        assertEquals(RestApiClient.DEFAULT_READ_TIMEOUT_MILLIS, http.timeouts.getReadTimeoutMillis());
+        assertEquals(0, http.timeouts.getDeadlineMillis());
+
+        client.setConnectTimeout(5, TimeUnit.SECONDS);
+        client.setReadTimeout(1, TimeUnit.MINUTES);
+        service.getTestEntity();
+        assertEquals(5000, http.timeouts.getConnectTimeoutMillis());
+        assertEquals(60000, http.timeouts.getReadTimeoutMillis());
+
+        // The service's replaces both and carries over to the async service
+        service.setTimeout(2, TimeUnit.SECONDS);
+        service.asAsync().getTestEntity().get();
+        assertEquals(2000, http.timeouts.getConnectTimeoutMillis());
+        assertEquals(2000, http.timeouts.getReadTimeoutMillis());
+
+        // The call's replaces the service's
+        Instant deadline = Instant.now().plusSeconds(30);
+        service.call(CallOptions.DEFAULT.withTimeout(1, TimeUnit.SECONDS).withDeadline(deadline),
+            TestThing.Service::getTestEntity);
+        assertEquals(1000, http.timeouts.getReadTimeoutMillis());
+        assertEquals(deadline.toEpochMilli(), http.timeouts.getDeadlineMillis());
+        assertEquals(2000, service.getTimeoutMillis());
+
+        // No timeouts at all skips them
+        service.setTimeout(0, TimeUnit.SECONDS);
+        client.setConnectTimeout(0, TimeUnit.SECONDS);
+        client.setReadTimeout(0, TimeUnit.SECONDS);
+        http.timeouts = null;
+        service.getTestEntity();
+        assertNull(http.timeouts);
+    }
+
+    @Test
+    public void testTimeoutOnProxy() throws Exception {
+        FakeHttpClientFactory http = new FakeHttpClientFactory(200, Collections.emptyMap(), "\"some response\"");
+        RestApiClient client = new RestApiClient("http://example.com/");
+        client.setHttpClientFactory(http);
+        TestEntity.Service service = TestEntity.service(client, 5L);
+        service.setTimeout(3, TimeUnit.SECONDS);
+        assertEquals(3000, service.getTimeoutMillis());
+        service.getRecursiveProperty();
+        assertEquals(3000, http.timeouts.getConnectTimeoutMillis());
+        assertEquals(3000, service.asAsync().getTimeoutMillis());
+    }
+
+    @Test
+    public void testRetryPolicyRetriesIdempotentCalls() throws Exception {
+        try (StubHttpServer server = new StubHttpServer().withResponse(200, "[]")) {
+            RetryPolicy retryPolicy = new RetryPolicy(4, 1, 5, TimeUnit.MILLISECONDS);
+            RestApiClient client = new RestApiClient(server.getBaseUrl()).withRetryPolicy(retryPolicy);
+            TestThing.Service service = TestThing.service(client, 5L);
+
+            server.statusCodes.addAll(Arrays.asList(503, 429));
+            assertEquals(0, service.getTestEntity().size());
+            assertEquals(3, server.requestCount.get());
+            assertEquals(3, retryPolicy.getAttemptCount());
+            assertEquals(2, retryPolicy.getRetryCount());
+            assertEquals(0, retryPolicy.getGiveUpCount());
+
+            // Both async forms retry too
+            server.statusCodes.addAll(Arrays.asList(502, 504));
+            assertEquals(0, service.asAsync().getTestEntity().get(5, TimeUnit.SECONDS).size());
+            assertEquals(6, server.requestCount.get());
+            server.statusCodes.add(503);
+            CompletableFuture<List<TestEntity>> result = new CompletableFuture<>();
+            service.asAsync().getTestEntity(new ResponseHandler<List<TestEntity>>() {
+                @Override
+                public void onError(Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+
+                @Override
+                public void onSuccess(List<TestEntity> value) {
+                    result.complete(value);
+                }
+            });
+            assertEquals(0, result.get(5, TimeUnit.SECONDS).size());
+            assertEquals(8, server.requestCount.get());
+            assertEquals(5, retryPolicy.getRetryCount());
+        }
+    }
+
+    @Test
+    public void testRetryPolicyGivesUp() throws Exception {
+        try (StubHttpServer server = new StubHttpServer()
+                .withResponse(503, "{\"error\": \"busy\", \"code\": \"SoftLayer_Exception\"}")) {
+            RetryPolicy retryPolicy = new RetryPolicy(2, 1, 5, TimeUnit.MILLISECONDS);
+            RestApiClient client = new RestApiClient(server.getBaseUrl()).withRetryPolicy(retryPolicy);
+            try {
+                TestThing.service(client, 5L).getTestEntity();
+                fail();
+            } catch (ApiException e) {
+                assertEquals(503, e.status);
+            }
+            assertEquals(2, server.requestCount.get());
+            assertEquals(1, retryPolicy.getRetryCount());
+            assertEquals(1, retryPolicy.getGiveUpCount());
+
+            // Methods that may change something are not retried
+            try {
+                TestEntity.service(client, 5L).doSomethingNonStatic(new GregorianCalendar());
+                fail();
+            } catch (ApiException e) {
+                assertEquals(503, e.status);
+            }
+            assertEquals(3, server.requestCount.get());
+            assertEquals(1, retryPolicy.getGiveUpCount());
+
+            // Nor are calls that would retry past their deadline
+            retryPolicy = new RetryPolicy(2, 1, 5, TimeUnit.SECONDS);
+            client.setRetryPolicy(retryPolicy);
+            server.responseHeaders = Collections.singletonMap("Retry-After", Collections.singletonList("2"));
+            TestThing.Service service = TestThing.service(client, 5L);
+            try {
+                service.call(CallOptions.DEFAULT.withDeadline(Instant.now().plusSeconds(1)),
+                    TestThing.Service::getTestEntity);
+                fail();
+            } catch (ApiException e) {
+                assertEquals(503, e.status);
+            }
+            assertEquals(4, server.requestCount.get());
+            assertEquals(0, retryPolicy.getRetryCount());
+            assertEquals(1, retryPolicy.getGiveUpCount());
+        }
+    }
+
+    @Test
+    public void testHedgingPolicy() throws Exception {
+        try (StubHttpServer server = new StubHttpServer().withResponse(200, "[]")) {
+            HedgingPolicy hedgingPolicy = new HedgingPolicy(50, 1, 2, TimeUnit.SECONDS, 0.5);
+            RestApiClient client = new RestApiClient(server.getBaseUrl()).withHedgingPolicy(hedgingPolicy);
+            TestThing.Service service = TestThing.service(client, 5L);
+            for (int i = 0; i < HedgingPolicy.MIN_SAMPLES; i++) {
+                service.getTestEntity();
+            }
+            assertEquals(0, hedgingPolicy.getHedgeCount());
+            assertEquals(1000, hedgingPolicy.getHedgeDelayMillis());
+            assertEquals(HedgingPolicy.MIN_SAMPLES, server.requestCount.get());
+
+            // A slow first request is overtaken by the hedge
+            server.delays.add(5000L);
+            long start = System.nanoTime();
+            assertEquals(0, service.getTestEntity().size());
+            assertEquals(0, service.asAsync().getTestEntity().get(5, TimeUnit.SECONDS).size());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+            assertEquals(HedgingPolicy.MIN_SAMPLES + 3, server.requestCount.get());
+            assertEquals(1, hedgingPolicy.getHedgeCount());
+            assertEquals(1, hedgingPolicy.getHedgeWinCount());
+            assertEquals(HedgingPolicy.MIN_SAMPLES + 2, hedgingPolicy.getCallCount());
+
+            // Methods that may change something are never hedged
+            server.withResponse(200, "\"done\"").delays.add(200L);
+            assertEquals("done", TestEntity.service(client).doSomethingStatic(1L, null));
+            assertEquals(HedgingPolicy.MIN_SAMPLES + 4, server.requestCount.get());
+            assertEquals(1, hedgingPolicy.getHedgeCount());
+        }
+    }
+
+    @Test
+    public void testCircuitBreakerPolicy() throws Exception {
+        try (StubHttpServer server = new StubHttpServer()
+                .withResponse(503, "{\"error\": \"busy\", \"code\": \"SoftLayer_Exception\"}")) {
+            CircuitBreakerPolicy policy = new CircuitBreakerPolicy(4, 2, 0.5, 1, 60, 200, TimeUnit.MILLISECONDS,
+                1, false);
+            RestApiClient client = new RestApiClient(server.getBaseUrl()).withCircuitBreakerPolicy(policy);
+            TestThing.Service service = TestThing.service(client, 5L);
+            for (int i = 0; i < 2; i++) {
+                try {
+                    service.getTestEntity();
+                    fail();
+                } catch (ApiException e) {
+                    assertEquals(503, e.status);
+                    assertFalse(e instanceof ApiException.CircuitOpen);
+                }
+            }
+            CircuitBreaker breaker = policy.getCircuitBreaker("SoftLayer_TestThing", "getTestEntity");
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+            // Calls to the service now fail fast while other services are still called
+            try {
+                service.getTestEntity();
+                fail();
+            } catch (ApiException.CircuitOpen e) {
+                assertEquals("SoftLayer_TestThing", e.circuitBreakerName);
+            }
+            final AtomicBoolean errorCalled = new AtomicBoolean();
+            service.asAsync().getTestEntity(new ResponseHandler<List<TestEntity>>() {
+                @Override
+                public void onError(Exception ex) {
+                    errorCalled.set(ex instanceof ApiException.CircuitOpen);
+                }
+
+                @Override
+                public void onSuccess(List<TestEntity> value) {
+                    fail();
+                }
+            }).get();
+            assertTrue(errorCalled.get());
+            try {
+                TestEntity.service(client, 5L).doSomethingNonStatic(new GregorianCalendar());
+                fail();
+            } catch (ApiException e) {
+                assertFalse(e instanceof ApiException.CircuitOpen);
+            }
+            assertEquals(3, server.requestCount.get());
+            assertEquals(2, breaker.getRejectedCount());
+
+            // Until a probe succeeds
+            Thread.sleep(250);
+            server.withResponse(200, "[]");
+            assertEquals(0, service.asAsync().getTestEntity().get(5, TimeUnit.SECONDS).size());
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertEquals(0, service.getTestEntity().size());
+            assertEquals(5, server.requestCount.get());
+        }
+    }
+
+    /** Make the given calls of the service at the same time */
+    private static List<ApiResponse<List<TestEntity>>> callConcurrently(List<TestThing.Service> services)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(services.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<ApiResponse<List<TestEntity>>>> futures = new ArrayList<>();
+            for (TestThing.Service service : services) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return service.call(CallOptions.DEFAULT, TestThing.Service::getTestEntity);
+                }));
+            }
+            start.countDown();
+            List<ApiResponse<List<TestEntity>>> result = new ArrayList<>();
+            for (Future<ApiResponse<List<TestEntity>>> future : futures) {
+                result.add(future.get(5, TimeUnit.SECONDS));
+            }
+            return result;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        try (StubHttpServer server = new StubHttpServer()
+                .withResponse(200, "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"blah\"}]")) {
+            server.delayMillis = 500;
+            SingleFlight singleFlight = new SingleFlight();
+            RestApiClient client = new RestApiClient(server.getBaseUrl()).withSingleFlight(singleFlight);
+            TestThing.Service service = TestThing.service(client, 5L);
+            List<ApiResponse<List<TestEntity>>> responses = callConcurrently(Arrays.asList(service, service,
+                service, TestThing.service(client, 6L)));
+            assertEquals(2, server.requestCount.get());
+            assertEquals(4, singleFlight.getCallCount());
+            assertEquals(2, singleFlight.getCoalescedCount());
+            assertEquals(0, singleFlight.getInFlightCount());
+            assertSame(responses.get(0).getValue(), responses.get(1).getValue());
+            assertSame(responses.get(0).getValue(), responses.get(2).getValue());
+            assertNotSame(responses.get(0).getValue(), responses.get(3).getValue());
+            for (ApiResponse<List<TestEntity>> response : responses) {
+                assertNotNull(response.getHeaders());
+                assertNotNull(response.getTransferStats());
+                assertEquals("blah", response.getValue().get(0).getFoo());
+            }
+            // Calls sharing a request get its response details
+            assertSame(responses.get(0).getHeaders(), responses.get(1).getHeaders());
+            assertSame(responses.get(0).getHeaders(), responses.get(2).getHeaders());
+
+            // Calls that are not concurrent each send a request
+            server.delayMillis = 0;
+            service.getTestEntity();
+            service.getTestEntity();
+            assertEquals(4, server.requestCount.get());
+
+            // Results can be copied for each call
+            server.delayMillis = 500;
+            client.setSingleFlight(new SingleFlight(true));
+            responses = callConcurrently(Arrays.asList(service, service));
+            assertEquals(5, server.requestCount.get());
+            assertNotSame(responses.get(0).getValue(), responses.get(1).getValue());
+            assertEquals("blah", responses.get(0).getValue().get(0).getFoo());
+            assertEquals("blah", responses.get(1).getValue().get(0).getFoo());
+
+            // Failures are shared too
+            server.statusCode = 500;
+            server.responseBody = "{\"error\": \"Oops\", \"code\": \"SoftLayer_Exception\"}"
+                .getBytes(StandardCharsets.UTF_8);
+            try {
+                callConcurrently(Arrays.asList(service, service));
+                fail();
+            } catch (ExecutionException e) {
+                assertEquals(500, ((ApiException) e.getCause()).status);
+            }
+            assertEquals(6, server.requestCount.get());
+        }
+    }
+
+    @Test
+    public void testResponseCache() throws Exception {
+        try (StubHttpServer server = new StubHttpServer()
+                .withResponse(200, "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"blah\"}]")) {
+            ResponseCache cache = new ResponseCache()
+                .withTtl("SoftLayer_TestThing", 1, TimeUnit.MINUTES)
+                .withTtl("SoftLayer_TestEntity", 1, TimeUnit.MINUTES);
+            RestApiClient client = new RestApiClient(server.getBaseUrl()) {
+                @Override
+                protected String getHttpMethodFromMethodName(String methodName) {
+                    return "doSomethingNonStatic".equals(methodName) ? "PUT" :
+                        super.getHttpMethodFromMethodName(methodName);
+                }
+            }.withResponseCache(cache);
+            TestThing.Service service = TestThing.service(client, 5L);
+            List<TestEntity> entities = service.getTestEntity();
+            assertEquals("blah", entities.get(0).getFoo());
+            assertSame(entities, service.getTestEntity());
+            assertSame(entities, TestThing.service(client, 5L).asAsync().getTestEntity().get());
+            AtomicBoolean handled = new AtomicBoolean();
+            TestThing.service(client, 5L).asAsync().getTestEntity(new ResponseHandler<List<TestEntity>>() {
+                @Override
+                public void onError(Exception ex) {
+                }
+
+                @Override
+                public void onSuccess(List<TestEntity> value) {
+                    handled.set(value == entities);
+                }
+            });
+            assertTrue(handled.get());
+            assertEquals(1, server.requestCount.get());
+            assertEquals(3, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+
+            // Another ID or mask is another call
+            TestThing.service(client, 6L).getTestEntity();
+            assertEquals(2, server.requestCount.get());
+            service.withMask().first();
+            service.getTestEntity();
+            assertEquals(3, server.requestCount.get());
+            service.clearMask();
+            assertSame(entities, service.getTestEntity());
+            assertEquals(3, server.requestCount.get());
+
+            // Writes invalidate the results of their service only
+            server.withResponse(200, "{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"blah\"}");
+            TestEntity.Service entityService = TestEntity.service(client, 5L);
+            TestEntity entity = entityService.getObject();
+            assertSame(entity, entityService.getObject());
+            assertEquals(4, server.requestCount.get());
+            server.withResponse(200, "null");
+            entityService.doSomethingNonStatic(new GregorianCalendar());
+            assertEquals(5, server.requestCount.get());
+            assertEquals(1, cache.getInvalidationCount());
+            server.withResponse(200, "{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"blah\"}");
+            assertNotSame(entity, entityService.getObject());
+            assertEquals(6, server.requestCount.get());
+            assertSame(entities, service.getTestEntity());
+            assertEquals(6, server.requestCount.get());
+
+            // Failures are not cached
+            server.withResponse(500, "{\"error\": \"Oops\", \"code\": \"SoftLayer_Exception\"}");
+            try {
+                TestThing.service(client, 7L).getTestEntity();
+                fail();
+            } catch (ApiException e) {
+                assertEquals(500, e.status);
+            }
+            server.withResponse(200, "[]");
+            assertTrue(TestThing.service(client, 7L).getTestEntity().isEmpty());
+            assertEquals(8, server.requestCount.get());
+
+            // Results can be copied for each call
+            client.setResponseCache(new ResponseCache(10, true).withTtl("SoftLayer_TestThing", 1, TimeUnit.MINUTES));
+            server.withResponse(200, "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"blah\"}]");
+            List<TestEntity> first = service.getTestEntity();
+            first.get(0).setFoo("changed");
+            List<TestEntity> second = service.getTestEntity();
+            assertNotSame(first, second);
+            assertEquals("blah", second.get(0).getFoo());
+            assertEquals(9, server.requestCount.get());
+        }
+    }
+
+    @Test
+    public void testResponseCacheRefreshAhead() throws Exception {
+        try (StubHttpServer server = new StubHttpServer()
+                .withResponse(200, "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"blah\"}]")) {
+            ResponseCache cache = new ResponseCache()
+                .withTtl("SoftLayer_TestThing", 300, TimeUnit.MILLISECONDS)
+                .withRefreshAhead(0.5, 1, TimeUnit.MINUTES, 4);
+            RestApiClient client = new RestApiClient(server.getBaseUrl()).withResponseCache(cache);
+            TestThing.Service service = TestThing.service(client, 5L);
+            List<TestEntity> entities = service.getTestEntity();
+            assertSame(entities, service.getTestEntity());
+            assertEquals(1, server.requestCount.get());
+
+            // Near the end of its time to live, the result is refreshed in the background
+            server.withResponse(200, "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"new\"}]");
+            Thread.sleep(200);
+            assertSame(entities, service.getTestEntity());
+            awaitRefreshes(cache);
+            assertEquals(2, server.requestCount.get());
+            List<TestEntity> refreshed = service.getTestEntity();
+            assertEquals("new", refreshed.get(0).getFoo());
+            assertEquals(2, server.requestCount.get());
+
+            // Once expired, the result is still used while being refreshed
+            server.delayMillis = 300;
+            Thread.sleep(400);
+            long startNanos = System.nanoTime();
+            assertSame(refreshed, service.getTestEntity());
+            assertSame(refreshed, service.getTestEntity());
+            assertTrue(System.nanoTime() - startNanos < TimeUnit.MILLISECONDS.toNanos(250));
+            awaitRefreshes(cache);
+            assertEquals(3, server.requestCount.get());
+            assertEquals(2, cache.getRefreshCount());
+            assertEquals(2, cache.getStaleHitCount());
+            assertNotSame(refreshed, service.getTestEntity());
+            assertEquals(3, server.requestCount.get());
+        }
+    }
+
+    @Test
+    public void testResponseCacheRefreshAfterUnrelatedInvalidation() throws Exception {
+        try (StubHttpServer server = new StubHttpServer()
+                .withResponse(200, "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"blah\"}]")) {
+            ResponseCache cache = new ResponseCache()
+                .withTtl("SoftLayer_TestThing", 300, TimeUnit.MILLISECONDS)
+                .withRefreshAhead(0.5, 1, TimeUnit.MINUTES, 4);
+            RestApiClient client = new RestApiClient(server.getBaseUrl()).withResponseCache(cache);
+            TestThing.Service service = TestThing.service(client, 5L);
+            List<TestEntity> entities = service.getTestEntity();
+
+            // A write to another service during the refresh keeps its result from being cached
+            server.withResponse(200, "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"new\"}]");
+            server.delayMillis = 200;
+            Thread.sleep(200);
+            assertSame(entities, service.getTestEntity());
+            cache.invalidate("SoftLayer_Account", null);
+            awaitRefreshes(cache);
+            assertEquals(2, server.requestCount.get());
+
+            // The old result is then refreshed again instead of being served stale until it is dropped
+            server.delayMillis = 0;
+            assertSame(entities, service.getTestEntity());
+            awaitRefreshes(cache);
+            assertEquals(3, server.requestCount.get());
+            assertEquals(2, cache.getRefreshCount());
+            assertEquals("new", service.getTestEntity().get(0).getFoo());
+            assertEquals(3, server.requestCount.get());
+        }
+    }
+
+    private static void awaitRefreshes(ResponseCache cache) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getRefreshesInFlight() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, cache.getRefreshesInFlight());
+    }
+
+    @Test
+    public void testResponseCacheOnDisk() throws Exception {
+        Path directory = Files.createTempDirectory("softlayer-cache");
+        try (StubHttpServer server = new StubHttpServer()
+                .withResponse(200, "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"blah\"}]")) {
+            RestApiClient client = new RestApiClient(server.getBaseUrl()).withResponseCache(new ResponseCache()
+                .withTtl("SoftLayer_TestThing", 1, TimeUnit.MINUTES)
+                .withDiskCache(new DiskCache(directory)));
+            assertEquals("blah", TestThing.service(client, 5L).getTestEntity().get(0).getFoo());
+            assertEquals(1, server.requestCount.get());
+
+            // A new process is answered from disk
+            DiskCache diskCache = new DiskCache(directory);
+            ResponseCache cache = new ResponseCache()
+                .withTtl("SoftLayer_TestThing", 1, TimeUnit.MINUTES)
+                .withDiskCache(diskCache);
+            client = new RestApiClient(server.getBaseUrl()).withResponseCache(cache);
+            List<TestEntity> entities = TestThing.service(client, 5L).getTestEntity();
+            assertEquals("blah", entities.get(0).getFoo());
+            assertSame(entities, TestThing.service(client, 5L).getTestEntity());
+            assertEquals(1, server.requestCount.get());
+            assertEquals(1, diskCache.getHitCount());
+
+            // Other calls and other versions are not
+            TestThing.service(client, 6L).getTestEntity();
+            assertEquals(2, server.requestCount.get());
+            client = new RestApiClient(server.getBaseUrl()).withResponseCache(new ResponseCache()
+                .withTtl("SoftLayer_TestThing", 1, TimeUnit.MINUTES)
+                .withDiskCache(new DiskCache(directory, DiskCache.DEFAULT_MAX_BYTES, "other")));
+            TestThing.service(client, 5L).getTestEntity();
+            assertEquals(3, server.requestCount.get());
+
+            // Invalidation removes results from disk too
+            cache.invalidate("SoftLayer_TestThing", "6");
+            client = new RestApiClient(server.getBaseUrl()).withResponseCache(new ResponseCache()
+                .withTtl("SoftLayer_TestThing", 1, TimeUnit.MINUTES)
+                .withDiskCache(new DiskCache(directory)));
+            TestThing.service(client, 6L).getTestEntity();
+            assertEquals(4, server.requestCount.get());
+        } finally {
+            for (Path file : Files.newDirectoryStream(directory)) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
 }
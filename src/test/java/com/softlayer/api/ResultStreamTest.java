@@ -0,0 +1,82 @@
+package com.softlayer.api;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class ResultStreamTest {
+
+    static class CountingInputStream extends ByteArrayInputStream {
+
+        final AtomicInteger closeCount = new AtomicInteger();
+
+        CountingInputStream() {
+            super(new byte[0]);
+        }
+
+        @Override
+        public void close() {
+            closeCount.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testClosedOnceExhausted() {
+        CountingInputStream in = new CountingInputStream();
+        ResultStream<String> result = new ResultStream<>(Arrays.asList("a", "b").iterator(), in, 2, null, null);
+        assertEquals(2, result.getTotalItemCount().intValue());
+        assertTrue(result.getHeaders().isEmpty());
+        assertEquals("a", result.next());
+        assertEquals(0, in.closeCount.get());
+        assertEquals("b", result.next());
+        assertFalse(result.hasNext());
+        assertEquals(1, in.closeCount.get());
+        result.close();
+        assertEquals(1, in.closeCount.get());
+    }
+
+    @Test
+    public void testClosedEarly() {
+        CountingInputStream in = new CountingInputStream();
+        ResultStream<String> result = new ResultStream<>(Arrays.asList("a", "b").iterator(), in, null, null, null);
+        try (Stream<String> stream = result.stream()) {
+            assertEquals("a", stream.findFirst().get());
+        }
+        assertEquals(1, in.closeCount.get());
+        // Nothing is read once closed
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    public void testClosedOnFailure() {
+        CountingInputStream in = new CountingInputStream();
+        Iterator<String> elements = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                throw new IllegalStateException("broken");
+            }
+        };
+        ResultStream<String> result = new ResultStream<>(elements, in, null, null, null);
+        try {
+            result.next();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        assertEquals(1, in.closeCount.get());
+        assertEquals(Collections.emptyList(), result.stream().collect(Collectors.toList()));
+    }
+}
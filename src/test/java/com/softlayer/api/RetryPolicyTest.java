@@ -0,0 +1,113 @@
+package com.softlayer.api;
+
+import static org.junit.Assert.*;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.softlayer.api.http.FakeHttpClientFactory;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testIsIdempotent() {
+        RetryPolicy retryPolicy = new RetryPolicy();
+        assertTrue(retryPolicy.isIdempotent("GET", "getObject"));
+        assertTrue(retryPolicy.isIdempotent("GET", "getVirtualGuests"));
+        assertTrue(retryPolicy.isIdempotent("PUT", "editObject"));
+        assertFalse(retryPolicy.isIdempotent("GET", "powerOff"));
+        assertFalse(retryPolicy.isIdempotent("POST", "createObject"));
+        assertFalse(retryPolicy.isIdempotent("DELETE", "deleteObject"));
+    }
+
+    @Test
+    public void testIsRetryable() {
+        RetryPolicy retryPolicy = new RetryPolicy();
+        assertTrue(retryPolicy.isRetryable(429));
+        assertTrue(retryPolicy.isRetryable(502));
+        assertTrue(retryPolicy.isRetryable(503));
+        assertTrue(retryPolicy.isRetryable(504));
+        assertFalse(retryPolicy.isRetryable(200));
+        assertFalse(retryPolicy.isRetryable(500));
+        assertTrue(retryPolicy.isRetryable(new RuntimeException(new SocketException("Connection reset"))));
+        assertTrue(retryPolicy.isRetryable(new RuntimeException(new ConnectException("Connection refused"))));
+        assertFalse(retryPolicy.isRetryable(new RuntimeException(new SocketTimeoutException("Read timed out"))));
+        assertFalse(retryPolicy.isRetryable(new ApiException("Oops", null, 503)));
+    }
+
+    @Test
+    public void testBackoffIsCapped() {
+        RetryPolicy retryPolicy = new RetryPolicy(100, 10, 50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(retryPolicy.getBackoffMillis(1) <= 10);
+            assertTrue(retryPolicy.getBackoffMillis(2) <= 20);
+            assertTrue(retryPolicy.getBackoffMillis(3) <= 40);
+            assertTrue(retryPolicy.getBackoffMillis(99) <= 50);
+        }
+    }
+
+    @Test
+    public void testMaxAttempts() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 0, 0, TimeUnit.MILLISECONDS);
+        FakeHttpClientFactory response = new FakeHttpClientFactory(503, Collections.emptyMap(), "");
+        assertEquals(0, retryPolicy.getRetryDelayMillis(1, response, 0));
+        assertEquals(0, retryPolicy.getRetryDelayMillis(2, response, 0));
+        assertEquals(-1, retryPolicy.getRetryDelayMillis(3, response, 0));
+        assertEquals(2, retryPolicy.getRetryCount());
+        assertEquals(1, retryPolicy.getGiveUpCount());
+
+        // Successes and other errors are neither retries nor give-ups
+        assertEquals(-1, retryPolicy.getRetryDelayMillis(1,
+            new FakeHttpClientFactory(500, Collections.emptyMap(), ""), 0));
+        assertEquals(1, retryPolicy.getGiveUpCount());
+    }
+
+    @Test
+    public void testRetryAfter() {
+        RetryPolicy retryPolicy = new RetryPolicy(3, 0, 5, TimeUnit.SECONDS);
+        FakeHttpClientFactory response = new FakeHttpClientFactory(429,
+            Collections.singletonMap("retry-after", Collections.singletonList(" 2")), "");
+        assertEquals(2000, retryPolicy.getRetryDelayMillis(1, response, 0));
+
+        // Not when it is longer than the maximum delay or the deadline
+        response = new FakeHttpClientFactory(429,
+            Collections.singletonMap("Retry-After", Collections.singletonList("10")), "");
+        assertEquals(-1, retryPolicy.getRetryDelayMillis(1, response, 0));
+        assertEquals(0, new FakeHttpClientFactory(429, Collections.singletonMap("Retry-After",
+            Collections.singletonList("Wed, 21 Oct 2015 07:28:00 GMT")), "").getRetryAfterMillis());
+        assertEquals(-1, retryPolicy.getRetryDelayMillis(1, new FakeHttpClientFactory(429,
+            Collections.singletonMap("Retry-After", Collections.singletonList("1")), ""),
+            System.currentTimeMillis() + 500));
+    }
+
+    @Test
+    public void testBudget() {
+        RetryPolicy retryPolicy = new RetryPolicy(10, 0, 0, TimeUnit.MILLISECONDS, 0.5, 2);
+        Exception failure = new RuntimeException(new SocketException("Connection reset"));
+        assertEquals(2, retryPolicy.getBudget(), 0);
+        assertEquals(0, retryPolicy.getRetryDelayMillis(1, failure, 0));
+        assertEquals(0, retryPolicy.getRetryDelayMillis(2, failure, 0));
+        assertEquals(-1, retryPolicy.getRetryDelayMillis(3, failure, 0));
+        assertEquals(1, retryPolicy.getBudgetExhaustedCount());
+
+        // First attempts earn part of a retry, up to the maximum
+        retryPolicy.onAttempt(1);
+        assertEquals(-1, retryPolicy.getRetryDelayMillis(1, failure, 0));
+        retryPolicy.onAttempt(1);
+        retryPolicy.onAttempt(2);
+        assertEquals(1, retryPolicy.getBudget(), 0);
+        assertEquals(0, retryPolicy.getRetryDelayMillis(1, failure, 0));
+        for (int i = 0; i < 10; i++) {
+            retryPolicy.onAttempt(1);
+        }
+        assertEquals(2, retryPolicy.getBudget(), 0);
+        assertEquals(13, retryPolicy.getAttemptCount());
+        assertEquals(3, retryPolicy.getRetryCount());
+        assertEquals(2, retryPolicy.getGiveUpCount());
+    }
+}
@@ -0,0 +1,53 @@
+package com.softlayer.api;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.softlayer.api.http.HttpBasicAuthCredentials;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testIsCoalescable() {
+        SingleFlight singleFlight = new SingleFlight();
+        assertTrue(singleFlight.isCoalescable("GET", "getObject"));
+        assertFalse(singleFlight.isCoalescable("GET", "powerOff"));
+        assertFalse(singleFlight.isCoalescable("POST", "getObject"));
+        assertFalse(singleFlight.isCoalescable("DELETE", "deleteObject"));
+    }
+
+    @Test
+    public void testKey() {
+        HttpBasicAuthCredentials credentials = new HttpBasicAuthCredentials("user", "key");
+        String key = SingleFlight.getKey(credentials, "GET", "http://example.com/SoftLayer_Account.json", null);
+        assertEquals(key, SingleFlight.getKey(new HttpBasicAuthCredentials("user", "key"), "GET",
+            "http://example.com/SoftLayer_Account.json", null));
+        assertNotEquals(key, SingleFlight.getKey(new HttpBasicAuthCredentials("user", "other"), "GET",
+            "http://example.com/SoftLayer_Account.json", null));
+        assertNotEquals(key, SingleFlight.getKey(credentials, "GET",
+            "http://example.com/SoftLayer_Account.json?objectMask=id", null));
+        assertNotEquals(key, SingleFlight.getKey(credentials, "GET",
+            "http://example.com/SoftLayer_Account.json", "{\"parameters\":[1]}"));
+        assertNotEquals(key, SingleFlight.getKey(null, "GET", "http://example.com/SoftLayer_Account.json", null));
+    }
+
+    @Test
+    public void testJoinAndLeave() {
+        SingleFlight singleFlight = new SingleFlight();
+        SingleFlight.Flight first = new SingleFlight.Flight();
+        assertNull(singleFlight.join("key", first));
+        assertSame(first, singleFlight.join("key", new SingleFlight.Flight()));
+        assertNull(singleFlight.join("other", new SingleFlight.Flight()));
+        assertEquals(2, singleFlight.getInFlightCount());
+        assertEquals(3, singleFlight.getCallCount());
+        assertEquals(1, singleFlight.getCoalescedCount());
+
+        // Once left, the next call starts a new flight
+        singleFlight.leave("key", new SingleFlight.Flight());
+        assertEquals(2, singleFlight.getInFlightCount());
+        singleFlight.leave("key", first);
+        assertEquals(1, singleFlight.getInFlightCount());
+        assertNull(singleFlight.join("key", new SingleFlight.Flight()));
+    }
+}
@@ -0,0 +1,86 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.softlayer.api.http.ConcurrencyLimiter.Outcome;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testAimdGrowsWhenLimitIsUsed() {
+        AimdLimitAlgorithm algorithm = new AimdLimitAlgorithm(10, 1, 11);
+        assertEquals(11, algorithm.update(10, 50 * MILLI, 5, Outcome.SUCCESS));
+        assertEquals(11, algorithm.update(11, 50 * MILLI, 11, Outcome.SUCCESS));
+        // Not enough in flight to tell whether more would help
+        assertEquals(10, algorithm.update(10, 50 * MILLI, 4, Outcome.SUCCESS));
+    }
+
+    @Test
+    public void testAimdBacksOff() {
+        AimdLimitAlgorithm algorithm = new AimdLimitAlgorithm(10, 2, 100, 0.5, 1, TimeUnit.SECONDS);
+        assertEquals(5, algorithm.update(10, 50 * MILLI, 10, Outcome.OVERLOADED));
+        assertEquals(5, algorithm.update(10, 50 * MILLI, 10, Outcome.FAILED));
+        assertEquals(5, algorithm.update(10, 2000 * MILLI, 10, Outcome.SUCCESS));
+        assertEquals(2, algorithm.update(3, 50 * MILLI, 3, Outcome.OVERLOADED));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAimdRejectsBadLimits() {
+        new AimdLimitAlgorithm(10, 20, 100);
+    }
+
+    @Test
+    public void testVegasGrowsWithoutQueueing() {
+        VegasLimitAlgorithm algorithm = new VegasLimitAlgorithm(10, 1, 100);
+        // The first sample only sets the baseline
+        assertEquals(10, algorithm.update(10, 50 * MILLI, 10, Outcome.SUCCESS));
+        assertEquals(50 * MILLI, algorithm.getMinRttNanos());
+        assertEquals(16, algorithm.update(10, 50 * MILLI, 10, Outcome.SUCCESS));
+        // Some queueing grows by less
+        assertEquals(18, algorithm.update(16, 60 * MILLI, 16, Outcome.SUCCESS));
+        // Not enough in flight to tell whether more would help
+        assertEquals(18, algorithm.update(18, 50 * MILLI, 2, Outcome.SUCCESS));
+    }
+
+    @Test
+    public void testVegasShrinksWhenLatencyGrows() {
+        VegasLimitAlgorithm algorithm = new VegasLimitAlgorithm(50, 1, 100);
+        algorithm.update(50, 50 * MILLI, 50, Outcome.SUCCESS);
+        // Double the latency means about half the requests are queued
+        assertEquals(48, algorithm.update(50, 100 * MILLI, 50, Outcome.SUCCESS));
+        assertEquals(48, algorithm.update(50, 50 * MILLI, 50, Outcome.OVERLOADED));
+        assertEquals(1, new VegasLimitAlgorithm(1, 1, 100).update(1, 50 * MILLI, 1, Outcome.FAILED));
+    }
+
+    @Test
+    public void testVegasProbesForNewMinRtt() {
+        VegasLimitAlgorithm algorithm = new VegasLimitAlgorithm(1, 1, 1);
+        algorithm.update(1, 10 * MILLI, 1, Outcome.SUCCESS);
+        for (int i = 2; i < VegasLimitAlgorithm.PROBE_MULTIPLIER; i++) {
+            algorithm.update(1, 50 * MILLI, 1, Outcome.SUCCESS);
+        }
+        assertEquals(10 * MILLI, algorithm.getMinRttNanos());
+        algorithm.update(1, 50 * MILLI, 1, Outcome.SUCCESS);
+        assertEquals(50 * MILLI, algorithm.getMinRttNanos());
+    }
+
+    @Test
+    public void testLimiterAppliesAlgorithm() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(new AimdLimitAlgorithm(2, 1, 10));
+        assertEquals(2, limiter.getLimit());
+        limiter.acquire().release(Outcome.SUCCESS);
+        assertEquals(3, limiter.getLimit());
+        limiter.acquire().release(Outcome.OVERLOADED);
+        assertEquals(2, limiter.getLimit());
+        // Ignored outcomes say nothing about the server
+        limiter.acquire().release();
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
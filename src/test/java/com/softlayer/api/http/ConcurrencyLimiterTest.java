@@ -0,0 +1,160 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+    static Thread acquireInBackground(ConcurrencyLimiter limiter, AtomicReference<Object> result,
+            CountDownLatch done) {
+        Thread thread = new Thread(() -> {
+            try {
+                result.set(limiter.acquire());
+            } catch (RuntimeException e) {
+                result.set(e);
+            }
+            done.countDown();
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    static void awaitQueueLength(ConcurrencyLimiter limiter, int queueLength) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getQueueLength() != queueLength) {
+            assertTrue("Timed out waiting for queue", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLimitMustBePositive() {
+        new ConcurrencyLimiter(0);
+    }
+
+    @Test
+    public void testAcquireAndRelease() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+        ConcurrencyLimiter.Permit first = limiter.acquire();
+        ConcurrencyLimiter.Permit second = limiter.acquire();
+        assertEquals(2, limiter.getInFlight());
+        first.release();
+        // Releasing twice does not give back another permit
+        first.release();
+        assertEquals(1, limiter.getInFlight());
+        second.release();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(2, limiter.getAcquiredCount());
+        assertEquals(0, limiter.getQueuedCount());
+    }
+
+    @Test
+    public void testFailFastRejects() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, ConcurrencyLimiter.QueuePolicy.FAIL_FAST, 0);
+        ConcurrencyLimiter.Permit permit = limiter.acquire();
+        try {
+            limiter.acquire();
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertTrue(e.getMessage().contains("limit is 1"));
+        }
+        assertEquals(1, limiter.getRejectedCount());
+        permit.release();
+        limiter.acquire().release();
+        assertEquals(2, limiter.getAcquiredCount());
+    }
+
+    @Test
+    public void testBlockWaitsForRelease() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+        ConcurrencyLimiter.Permit permit = limiter.acquire();
+        AtomicReference<Object> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        acquireInBackground(limiter, result, done);
+        awaitQueueLength(limiter, 1);
+        assertNull(result.get());
+        Thread.sleep(10);
+        permit.release();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(result.get() instanceof ConcurrencyLimiter.Permit);
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueLength());
+        assertEquals(1, limiter.getQueuedCount());
+        assertTrue(limiter.getMaxQueueTime(TimeUnit.MILLISECONDS) >= 10);
+        assertEquals(limiter.getMaxQueueTime(TimeUnit.NANOSECONDS), limiter.getTotalQueueTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testQueueRejectsWhenFull() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, ConcurrencyLimiter.QueuePolicy.QUEUE, 1);
+        ConcurrencyLimiter.Permit permit = limiter.acquire();
+        AtomicReference<Object> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        acquireInBackground(limiter, result, done);
+        awaitQueueLength(limiter, 1);
+        try {
+            limiter.acquire();
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertEquals(1, limiter.getRejectedCount());
+        }
+        permit.release();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(result.get() instanceof ConcurrencyLimiter.Permit);
+    }
+
+    @Test
+    public void testInterruptWhileWaitingRejects() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+        limiter.acquire();
+        AtomicReference<Object> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread thread = acquireInBackground(limiter, result, done);
+        awaitQueueLength(limiter, 1);
+        thread.interrupt();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(result.get() instanceof RejectedExecutionException);
+        assertEquals(0, limiter.getQueueLength());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void testRaisingLimitWakesWaiters() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+        limiter.acquire();
+        AtomicReference<Object> result = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        acquireInBackground(limiter, result, done);
+        awaitQueueLength(limiter, 1);
+        limiter.setLimit(2);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(result.get() instanceof ConcurrencyLimiter.Permit);
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void testLoweringLimitLetsInFlightFinish() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, ConcurrencyLimiter.QueuePolicy.FAIL_FAST, 0);
+        ConcurrencyLimiter.Permit first = limiter.acquire();
+        ConcurrencyLimiter.Permit second = limiter.acquire();
+        limiter.setLimit(1);
+        assertEquals(2, limiter.getInFlight());
+        first.release();
+        try {
+            limiter.acquire();
+            fail();
+        } catch (RejectedExecutionException e) {
+            // Still at the new limit
+        }
+        second.release();
+        limiter.acquire();
+        assertEquals(1, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,106 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class ContentEncodingsTest {
+
+    static final String BODY = "{\"some\": \"value\", \"other\": \"value\", \"another\": \"value\"}";
+
+    static byte[] gzip(String value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] deflate(String value, boolean nowrap) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out,
+                new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap))) {
+            deflate.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    static String read(InputStream stream) {
+        try (Scanner scanner = new Scanner(stream, "UTF-8").useDelimiter("\\A")) {
+            return scanner.hasNext() ? scanner.next() : "";
+        }
+    }
+
+    static String decode(byte[] body, String contentEncoding, TransferStats stats) throws IOException {
+        return read(ContentEncodings.decode(new ByteArrayInputStream(body), contentEncoding, stats));
+    }
+
+    @Test
+    public void testDecodeGzip() throws Exception {
+        byte[] body = gzip(BODY);
+        TransferStats stats = new TransferStats("gzip");
+        assertEquals(BODY, decode(body, "GZIP ", stats));
+        assertEquals(body.length, stats.getCompressedBytes());
+        assertEquals(BODY.length(), stats.getDecompressedBytes());
+    }
+
+    @Test
+    public void testDecodeDeflate() throws Exception {
+        TransferStats stats = new TransferStats("deflate");
+        assertEquals(BODY, decode(deflate(BODY, false), "deflate", stats));
+        assertEquals(BODY.length(), stats.getDecompressedBytes());
+    }
+
+    @Test
+    public void testDecodeRawDeflate() throws Exception {
+        assertEquals(BODY, decode(deflate(BODY, true), "deflate", new TransferStats("deflate")));
+    }
+
+    @Test
+    public void testDecodeIdentity() throws Exception {
+        TransferStats stats = new TransferStats(null);
+        assertEquals(BODY, decode(BODY.getBytes(StandardCharsets.UTF_8), null, stats));
+        assertEquals(BODY.length(), stats.getCompressedBytes());
+        assertEquals(BODY.length(), stats.getDecompressedBytes());
+        assertEquals(1, stats.getCompressionRatio(), 0);
+    }
+
+    @Test
+    public void testDecodeEmptyCompressedBody() throws Exception {
+        TransferStats stats = new TransferStats("gzip");
+        assertEquals("", decode(new byte[0], "gzip", stats));
+        assertEquals(0, stats.getCompressedBytes());
+    }
+
+    @Test
+    public void testDecodeNull() throws Exception {
+        assertNull(ContentEncodings.decode(null, "gzip", new TransferStats("gzip")));
+    }
+
+    @Test
+    public void testDecodeStreamsLargeBody() throws Exception {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            value.append("{\"id\": ").append(i).append(", \"hostname\": \"some-host\"},");
+        }
+        byte[] body = gzip(value.toString());
+        TransferStats stats = new TransferStats("gzip");
+        InputStream stream = ContentEncodings.decode(new ByteArrayInputStream(body), "gzip", stats);
+        assertEquals('{', stream.read());
+        // Only what the decompressor needed has been read so far
+        assertTrue(stats.getCompressedBytes() <= 2 * ContentEncodings.BUFFER_SIZE);
+        assertEquals(value.length() - 1, read(stream).length());
+        assertEquals(body.length, stats.getCompressedBytes());
+        assertTrue(stats.getCompressionRatio() > 10);
+    }
+}
@@ -0,0 +1,124 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class EndpointSelectingHttpClientFactoryTest {
+
+    /** A base URL that refuses connections */
+    static String getClosedBaseUrl() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return "http://127.0.0.1:" + socket.getLocalPort() + '/';
+        }
+    }
+
+    static HttpResponse get(HttpClientFactory factory, String url) throws Exception {
+        HttpResponse response = factory.getHttpClient(null, "GET", url, Collections.emptyMap())
+            .invokeSync(() -> null);
+        response.getInputStream().close();
+        return response;
+    }
+
+    static void awaitProbes(EndpointSelector selector) throws Exception {
+        for (EndpointSelector.Endpoint endpoint : selector.getEndpoints()) {
+            for (int i = 0; i < 100 && endpoint.isProbing(); i++) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    public void testFailover() throws Exception {
+        try (StubHttpServer server = new StubHttpServer()) {
+            String closedBaseUrl = getClosedBaseUrl();
+            EndpointSelector selector = new EndpointSelector(closedBaseUrl, server.getBaseUrl());
+            EndpointSelectingHttpClientFactory factory =
+                new EndpointSelectingHttpClientFactory(new BuiltInHttpClientFactory(), selector);
+            assertEquals(200, get(factory, closedBaseUrl + "SoftLayer_Account.json").getStatusCode());
+            assertEquals(1, selector.getFailoverCount());
+            awaitProbes(selector);
+            assertFalse(selector.getEndpoints().get(0).isAvailable());
+            assertTrue(selector.getEndpoints().get(1).isAvailable());
+
+            // The endpoint that failed is no longer tried, asynchronously either
+            assertEquals(200, factory.getHttpClient(null, "GET", closedBaseUrl + "SoftLayer_Location.json",
+                Collections.emptyMap()).invokeAsync(() -> null).get(5, TimeUnit.SECONDS).getStatusCode());
+            assertEquals("/SoftLayer_Location.json", server.lastUri);
+            assertEquals(1, selector.getFailoverCount());
+            assertEquals(1, selector.getEndpoints().get(0).getErrorCount());
+
+            // URLs under no endpoint are left alone
+            assertEquals(200, get(factory, server.getBaseUrl() + "other.json").getStatusCode());
+            assertEquals("/other.json", server.lastUri);
+        }
+    }
+
+    @Test
+    public void testAsyncFailover() throws Exception {
+        try (StubHttpServer server = new StubHttpServer()) {
+            String closedBaseUrl = getClosedBaseUrl();
+            EndpointSelector selector = new EndpointSelector(closedBaseUrl, server.getBaseUrl());
+            EndpointSelectingHttpClientFactory factory =
+                new EndpointSelectingHttpClientFactory(new BuiltInHttpClientFactory(), selector);
+            assertEquals(200, factory.getHttpClient(null, "GET", closedBaseUrl + "SoftLayer_Account.json",
+                Collections.emptyMap()).invokeAsync(() -> null).get(5, TimeUnit.SECONDS).getStatusCode());
+            assertEquals(1, selector.getFailoverCount());
+        }
+    }
+
+    @Test
+    public void testSelectsFastest() throws Exception {
+        try (StubHttpServer slow = new StubHttpServer(); StubHttpServer fast = new StubHttpServer()) {
+            slow.delayMillis = 200;
+            EndpointSelector selector = new EndpointSelector(slow.getBaseUrl(), fast.getBaseUrl());
+            EndpointSelectingHttpClientFactory factory =
+                new EndpointSelectingHttpClientFactory(new BuiltInHttpClientFactory(), selector);
+
+            // The first request goes to the first endpoint while the other is probed
+            get(factory, slow.getBaseUrl() + "SoftLayer_Account.json");
+            awaitProbes(selector);
+            assertEquals(1, selector.getProbeCount());
+            assertEquals("/", fast.lastUri);
+            assertEquals(1, fast.requestCount.get());
+
+            get(factory, slow.getBaseUrl() + "SoftLayer_Account.json");
+            assertEquals(1, slow.requestCount.get());
+            assertEquals(2, fast.requestCount.get());
+            assertTrue(selector.getEndpoints().get(0).getLatencyMillis() >
+                selector.getEndpoints().get(1).getLatencyMillis());
+        }
+    }
+
+    @Test
+    public void testProbesPickUpRecoveredEndpoint() throws Exception {
+        try (StubHttpServer first = new StubHttpServer(); StubHttpServer second = new StubHttpServer()) {
+            first.delayMillis = 100;
+            EndpointSelector selector = new EndpointSelector(Arrays.asList(first.getBaseUrl(),
+                second.getBaseUrl()), 200, TimeUnit.MILLISECONDS);
+            EndpointSelectingHttpClientFactory factory =
+                new EndpointSelectingHttpClientFactory(new BuiltInHttpClientFactory(), selector);
+            selector.getEndpoints().get(1).onConnectionFailure();
+            get(factory, first.getBaseUrl() + "SoftLayer_Account.json");
+            get(factory, first.getBaseUrl() + "SoftLayer_Account.json");
+            assertEquals(2, first.requestCount.get());
+            assertEquals(0, second.requestCount.get());
+
+            // Once the probe interval has passed, the next request probes it
+            Thread.sleep(250);
+            get(factory, first.getBaseUrl() + "SoftLayer_Account.json");
+            for (int i = 0; i < 100 && !selector.getEndpoints().get(1).isAvailable(); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals("/", second.lastUri);
+            get(factory, first.getBaseUrl() + "SoftLayer_Account.json");
+            assertEquals("/SoftLayer_Account.json", second.lastUri);
+            assertEquals(2, second.requestCount.get());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class EndpointSelectorTest {
+
+    @Test
+    public void testGetEndpoint() {
+        EndpointSelector selector = new EndpointSelector("http://public/rest", "http://private/rest/");
+        assertEquals("http://public/rest/", selector.getEndpoints().get(0).getBaseUrl());
+        assertSame(selector.getEndpoints().get(0), selector.getEndpoint("http://public/rest/SoftLayer_Account.json"));
+        assertSame(selector.getEndpoints().get(1), selector.getEndpoint("http://private/rest/SoftLayer_Account.json"));
+        assertNull(selector.getEndpoint("http://other/rest/SoftLayer_Account.json"));
+    }
+
+    @Test
+    public void testSelectsFastestAvailable() {
+        EndpointSelector selector = new EndpointSelector("http://public/", "http://private/");
+        EndpointSelector.Endpoint publicEndpoint = selector.getEndpoints().get(0);
+        EndpointSelector.Endpoint privateEndpoint = selector.getEndpoints().get(1);
+
+        // Only the first can be picked until the others respond
+        assertTrue(publicEndpoint.isAvailable());
+        assertFalse(privateEndpoint.isAvailable());
+        assertSame(publicEndpoint, selector.select(Collections.emptyList()));
+        publicEndpoint.onResponse(TimeUnit.MILLISECONDS.toNanos(100), false);
+        assertSame(publicEndpoint, selector.select(Collections.emptyList()));
+
+        privateEndpoint.onResponse(TimeUnit.MILLISECONDS.toNanos(20), false);
+        assertSame(privateEndpoint, selector.select(Collections.emptyList()));
+        assertEquals(20, privateEndpoint.getLatencyMillis(), 0.001);
+
+        // The averages move towards new samples
+        privateEndpoint.onResponse(TimeUnit.MILLISECONDS.toNanos(120), false);
+        assertEquals(40, privateEndpoint.getLatencyMillis(), 0.001);
+        assertSame(privateEndpoint, selector.select(Collections.emptyList()));
+
+        // Errors make an endpoint look slower
+        privateEndpoint.onError();
+        assertEquals(0.2, privateEndpoint.getErrorRate(), 0.001);
+        assertSame(publicEndpoint, selector.select(Collections.emptyList()));
+        assertEquals(3, privateEndpoint.getRequestCount());
+        assertEquals(1, privateEndpoint.getErrorCount());
+    }
+
+    @Test
+    public void testFailover() {
+        EndpointSelector selector = new EndpointSelector("http://public/", "http://private/");
+        EndpointSelector.Endpoint publicEndpoint = selector.getEndpoints().get(0);
+        EndpointSelector.Endpoint privateEndpoint = selector.getEndpoints().get(1);
+        publicEndpoint.onResponse(TimeUnit.MILLISECONDS.toNanos(100), false);
+        privateEndpoint.onResponse(TimeUnit.MILLISECONDS.toNanos(20), false);
+
+        // An endpoint that cannot be connected to is only picked when no other is left
+        privateEndpoint.onConnectionFailure();
+        assertFalse(privateEndpoint.isAvailable());
+        assertSame(publicEndpoint, selector.select(Collections.emptyList()));
+        assertEquals(0, selector.getFailoverCount());
+        assertSame(privateEndpoint, selector.select(Collections.singletonList(publicEndpoint)));
+        assertEquals(1, selector.getFailoverCount());
+        assertNull(selector.select(Arrays.asList(publicEndpoint, privateEndpoint)));
+
+        // Until it responds again
+        privateEndpoint.onResponse(TimeUnit.MILLISECONDS.toNanos(20), false);
+        assertTrue(privateEndpoint.isAvailable());
+    }
+
+    @Test
+    public void testProbes() throws Exception {
+        EndpointSelector selector = new EndpointSelector(Arrays.asList("http://public/", "http://private/"), 50,
+            TimeUnit.MILLISECONDS);
+        EndpointSelector.Endpoint publicEndpoint = selector.getEndpoints().get(0);
+        EndpointSelector.Endpoint privateEndpoint = selector.getEndpoints().get(1);
+        assertFalse(selector.tryStartProbe(publicEndpoint));
+        assertTrue(selector.tryStartProbe(privateEndpoint));
+        assertFalse(selector.tryStartProbe(privateEndpoint));
+        assertEquals("http://private/", selector.getProbeUrl(privateEndpoint));
+
+        // Not probed again until the probe is done and the interval has passed
+        Thread.sleep(100);
+        assertFalse(selector.tryStartProbe(privateEndpoint));
+        privateEndpoint.onProbeDone();
+        assertTrue(selector.tryStartProbe(privateEndpoint));
+        assertTrue(selector.tryStartProbe(publicEndpoint));
+        assertEquals(3, selector.getProbeCount());
+    }
+
+    @Test
+    public void testIsConnectionFailure() {
+        EndpointSelector selector = new EndpointSelector("http://public/");
+        assertTrue(selector.isConnectionFailure(new RuntimeException(new ConnectException("Connection refused"))));
+        assertTrue(selector.isConnectionFailure(new RuntimeException(new UnknownHostException("private"))));
+        assertFalse(selector.isConnectionFailure(new RuntimeException(new SocketTimeoutException("Read timed out"))));
+        assertFalse(selector.isConnectionFailure(new RuntimeException("Oops")));
+    }
+}
@@ -26,6 +26,7 @@ public class FakeHttpClientFactory extends HttpClientFactory implements HttpClie
     public String method;
     public String fullUrl;
     public Map<String, List<String>> headers;
+    public HttpTimeouts timeouts;
     public boolean closeCalled;
     public ByteArrayOutputStream outStream;
     public boolean invokeSyncCalled;
@@ -67,6 +68,13 @@ public class FakeHttpClientFactory extends HttpClientFactory implements HttpClie
         return this;
     }
 
+    @Override
+    public HttpClient getHttpClient(HttpCredentials credentials, String method,
+            String fullUrl, Map<String, List<String>> headers, HttpTimeouts timeouts) {
+        this.timeouts = timeouts;
+        return getHttpClient(credentials, method, fullUrl, headers);
+    }
+
     @Override
     public void close() throws IOException {
         closeCalled = true;
@@ -0,0 +1,107 @@
+package com.softlayer.api.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.softlayer.api.RestApiClient;
+import com.softlayer.api.json.GsonJsonMarshallerFactoryTest;
+import com.softlayer.api.service.TestThing;
+
+/**
+ * Compares HTTP client factories by making many concurrent async calls against a local {@link StubHttpServer}
+ * that waits a fixed time before responding. It reports throughput along with the peak number of client threads
+ * and peak heap used. The built-in factory is run with its regular pool and, on Java 21 or newer, with virtual
+ * threads. This is not run as part of the tests. Run it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.softlayer.api.http.HttpClientFactoryBenchmark -Dexec.args="500 20"
+ * </pre>
+ * The arguments are the number of calls and the server delay in milliseconds, e.g. "10000 20" for 10k concurrent
+ * calls. The JDK's stub server only
+ * speaks HTTP/1.1 so this measures client threads and throughput, not HTTP/2 connection reuse.
+ */
+public class HttpClientFactoryBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        long delayMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+
+        GsonJsonMarshallerFactoryTest.addTestEntityToGson();
+        ThreadPoolExecutor serverPool = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        try (StubHttpServer server = new StubHttpServer(serverPool)) {
+            server.withResponse(200, "{\"complexType\": \"SoftLayer_TestThing\", \"id\": 1}").delayMillis =
+                delayMillis;
+            System.out.format("%d async calls, %d ms server delay%n", calls, delayMillis);
+            System.out.format("%-12s %10s %12s %14s %14s%n", "factory", "millis", "calls/sec", "peak threads",
+                "peak heap MB");
+            // Each is run twice, the first as warm up
+            for (int i = 0; i < 2; i++) {
+                run("built-in", new BuiltInHttpClientFactory(), server, serverPool, calls, i == 1);
+                if (ThreadPooledHttpClientFactory.isVirtualThreadsSupported()) {
+                    BuiltInHttpClientFactory factory = new BuiltInHttpClientFactory();
+                    factory.setVirtualThreadsPreferred(true);
+                    run("built-in-vt", factory, server, serverPool, calls, i == 1);
+                }
+                if (JdkHttpClientFactory.isSupported()) {
+                    run("jdk", new JdkHttpClientFactory(), server, serverPool, calls, i == 1);
+                }
+            }
+        }
+    }
+
+    static void run(String name, HttpClientFactory factory, StubHttpServer server, ThreadPoolExecutor serverPool,
+            int calls, boolean print) throws Exception {
+        RestApiClient client = new RestApiClient(server.getBaseUrl()).withHttpClientFactory(factory);
+        TestThing.ServiceAsync service = TestThing.service(client, 1L).asAsync();
+
+        // Sample the number of threads that are not the server's and the heap used while the calls run. Virtual
+        //  threads are not counted as active threads.
+        System.gc();
+        final Runtime runtime = Runtime.getRuntime();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger peakThreads = new AtomicInteger();
+        final AtomicLong peakHeap = new AtomicLong();
+        final int baseThreads = Thread.activeCount() - serverPool.getPoolSize();
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peakThreads.accumulateAndGet(Thread.activeCount() - serverPool.getPoolSize() - baseThreads,
+                    Math::max);
+                peakHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+
+        long start = System.nanoTime();
+        List<Future<TestThing>> results = new ArrayList<>(calls);
+        for (int i = 0; i < calls; i++) {
+            results.add(service.getObject());
+        }
+        for (Future<TestThing> result : results) {
+            result.get(5, TimeUnit.MINUTES);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        running.set(false);
+        sampler.join();
+
+        if (factory instanceof ThreadPooledHttpClientFactory) {
+            // Do not leave the default pool's threads around for the next run
+            ((ThreadPooledHttpClientFactory) factory).setThreadPool(null);
+        }
+        if (print) {
+            System.out.format("%-12s %10d %12.0f %14d %14d%n", name, millis, calls * 1000.0 / Math.max(1, millis),
+                peakThreads.get(), peakHeap.get() / (1024 * 1024));
+        }
+    }
+}
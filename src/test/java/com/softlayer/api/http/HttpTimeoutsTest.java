@@ -0,0 +1,39 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class HttpTimeoutsTest {
+
+    @Test
+    public void testWithoutDeadline() {
+        HttpTimeouts timeouts = new HttpTimeouts(1000, 0, 0);
+        assertEquals(Long.MAX_VALUE, timeouts.getRemainingMillis());
+        assertEquals(1000, timeouts.getEffectiveConnectTimeoutMillis());
+        assertEquals(0, timeouts.getEffectiveReadTimeoutMillis());
+    }
+
+    @Test
+    public void testDeadlineShortensTimeouts() {
+        HttpTimeouts timeouts = new HttpTimeouts(1000, 0, System.currentTimeMillis() + 500);
+        assertTrue(timeouts.getEffectiveConnectTimeoutMillis() <= 500);
+        assertTrue(timeouts.getEffectiveReadTimeoutMillis() <= 500);
+        assertTrue(timeouts.getEffectiveReadTimeoutMillis() > 0);
+        assertEquals(1000, new HttpTimeouts(1000, 0, System.currentTimeMillis() + 60000)
+            .getEffectiveConnectTimeoutMillis());
+    }
+
+    @Test
+    public void testPassedDeadline() {
+        HttpTimeouts timeouts = new HttpTimeouts(1000, 1000, System.currentTimeMillis() - 10);
+        assertTrue(timeouts.getRemainingMillis() < 0);
+        assertEquals(1, timeouts.getEffectiveConnectTimeoutMillis());
+        assertEquals(1, timeouts.getEffectiveReadTimeoutMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegative() {
+        new HttpTimeouts(-1, 0, 0);
+    }
+}
@@ -0,0 +1,191 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.softlayer.api.ResponseHandler;
+import com.softlayer.api.RestApiClient;
+import com.softlayer.api.json.GsonJsonMarshallerFactoryTest;
+import com.softlayer.api.service.TestEntity;
+import com.softlayer.api.service.TestThing;
+
+public class JdkHttpClientFactoryTest {
+
+    StubHttpServer server;
+    JdkHttpClientFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(JdkHttpClientFactory.isSupported());
+        server = new StubHttpServer();
+        factory = new JdkHttpClientFactory();
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    static String read(InputStream stream) {
+        try (Scanner scanner = new Scanner(stream, "UTF-8").useDelimiter("\\A")) {
+            return scanner.hasNext() ? scanner.next() : "";
+        }
+    }
+
+    @Test
+    public void testInvokeSync() throws Exception {
+        server.withResponse(200, "\"some response\"").responseHeaders =
+            Collections.singletonMap("SoftLayer-Total-Items", Collections.singletonList("12"));
+        HttpClient client = factory.getHttpClient(new HttpBasicAuthCredentials("some user", "some key"), "POST",
+            server.getBaseUrl() + "SomeService/1.json",
+            Collections.singletonMap("header", Collections.singletonList("some header value")));
+        HttpResponse response = client.invokeSync(() -> {
+            try (OutputStream out = client.getBodyStream()) {
+                out.write("some body".getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        assertEquals(200, response.getStatusCode());
+        assertEquals(Collections.singletonList("12"), response.getHeaders().get("SoftLayer-Total-Items"));
+        assertEquals(Collections.singletonList("12"), response.getHeaders().get("softlayer-total-items"));
+        assertEquals("\"some response\"", read(response.getInputStream()));
+        assertEquals("POST", server.lastMethod);
+        assertEquals("/SomeService/1.json", server.lastUri);
+        assertEquals("some body", server.lastBody);
+        assertEquals("Basic c29tZSB1c2VyOnNvbWUga2V5", server.lastHeaders.getFirst("Authorization"));
+        assertEquals("some header value", server.lastHeaders.getFirst("header"));
+    }
+
+    @Test
+    public void testInvokeAsync() throws Exception {
+        server.withResponse(500, "{\"error\": \"bad\"}");
+        HttpClient client = factory.getHttpClient(null, "GET", server.getBaseUrl() + "SomeService.json",
+            Collections.<String, List<String>>emptyMap());
+        HttpResponse response = client.invokeAsync(() -> null).get(10, TimeUnit.SECONDS);
+        assertEquals(500, response.getStatusCode());
+        assertEquals("{\"error\": \"bad\"}", read(response.getInputStream()));
+        assertEquals("GET", server.lastMethod);
+    }
+
+    @Test
+    public void testInvokeAsyncCallback() throws Exception {
+        server.withResponse(200, "true");
+        HttpClient client = factory.getHttpClient(null, "GET", server.getBaseUrl() + "SomeService.json",
+            Collections.<String, List<String>>emptyMap());
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> body = new AtomicReference<>();
+        client.invokeAsync(() -> null, new ResponseHandler<HttpResponse>() {
+            @Override
+            public void onError(Exception ex) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onSuccess(HttpResponse value) {
+                body.set(read(value.getInputStream()));
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals("true", body.get());
+    }
+
+    @Test
+    public void testInvokeAsyncSetupFailureIsInFuture() throws Exception {
+        HttpClient client = factory.getHttpClient(null, "GET", server.getBaseUrl() + "SomeService.json",
+            Collections.<String, List<String>>emptyMap());
+        try {
+            client.invokeAsync(() -> {
+                throw new IllegalStateException("setup failed");
+            }).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(0, server.requestCount.get());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        server.delayMillis = 2000;
+        HttpClient client = factory.getHttpClient(null, "GET", server.getBaseUrl() + "SomeService.json",
+            Collections.<String, List<String>>emptyMap(), 100);
+        try {
+            client.invokeSync(() -> null);
+            fail();
+        } catch (RuntimeException e) {
+            // The JDK client reports it as an HttpTimeoutException
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testDeadlineAbortsSlowResponse() throws Exception {
+        server.withResponse(200, "\"some response\"").delayMillis = 5000;
+        HttpClient client = factory.getHttpClient(null, "GET", server.getBaseUrl() + "SomeService.json",
+            Collections.<String, List<String>>emptyMap(), new HttpTimeouts(0, 0, System.currentTimeMillis() + 200));
+        long start = System.nanoTime();
+        try {
+            client.invokeSync(() -> null);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof SocketTimeoutException);
+            assertEquals("Request deadline exceeded", e.getCause().getMessage());
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+    }
+
+    @Test
+    public void testDeadlineAbortsSlowBody() throws Exception {
+        server.withResponse(200, "\"some response\"").bodyDelayMillis = 5000;
+        server.chunked = true;
+        HttpClient client = factory.getHttpClient(null, "GET", server.getBaseUrl() + "SomeService.json",
+            Collections.<String, List<String>>emptyMap(),
+            new HttpTimeouts(1000, 60000, System.currentTimeMillis() + 500));
+        long start = System.nanoTime();
+        HttpResponse response = client.invokeAsync(() -> null).get(10, TimeUnit.SECONDS);
+        assertEquals(200, response.getStatusCode());
+        try (InputStream stream = response.getInputStream()) {
+            assertEquals('"', stream.read());
+            // The read timeout is far off, only the deadline stops the read
+            stream.read();
+            fail();
+        } catch (SocketTimeoutException e) {
+            assertEquals("Request deadline exceeded", e.getMessage());
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+    }
+
+    @Test
+    public void testWithRestApiClient() throws Exception {
+        GsonJsonMarshallerFactoryTest.addTestEntityToGson();
+        server.withResponse(200, "[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"some string\"}]")
+            .responseHeaders = Collections.singletonMap("SoftLayer-Total-Items", Collections.singletonList("1"));
+        RestApiClient client = new RestApiClient(server.getBaseUrl()).withHttpClientFactory(factory);
+        TestThing.Service service = TestThing.service(client, 5L);
+        List<TestEntity> entities = service.getTestEntity();
+        assertEquals("some string", entities.get(0).getFoo());
+        assertEquals(1, service.getLastResponseTotalItemCount().intValue());
+        assertEquals(1, service.asAsync().getTestEntity().get(10, TimeUnit.SECONDS).size());
+        assertEquals("/SoftLayer_TestThing/5/TestEntity.json", server.lastUri);
+    }
+}
@@ -0,0 +1,168 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.softlayer.api.ResponseHandler;
+import com.softlayer.api.RestApiClient;
+import com.softlayer.api.json.GsonJsonMarshallerFactoryTest;
+import com.softlayer.api.service.TestThing;
+
+public class LimitedHttpClientFactoryTest {
+
+    static HttpClient mockClient(LimitedHttpClientFactory factory, HttpClient delegateClient) {
+        when(factory.getDelegate().getHttpClient(any(), any(), any(), any(), anyInt())).thenReturn(delegateClient);
+        return factory.getHttpClient(null, "GET", "http://example.com", Collections.emptyMap(), 0);
+    }
+
+    @Test
+    public void testInvokeSyncReleasesOnStatus() {
+        LimitedHttpClientFactory factory = new LimitedHttpClientFactory(mock(HttpClientFactory.class),
+            new ConcurrencyLimiter(1));
+        HttpClient delegateClient = mock(HttpClient.class);
+        HttpResponse delegateResponse = mock(HttpResponse.class);
+        when(delegateClient.invokeSync(any())).thenReturn(delegateResponse);
+        when(delegateResponse.getStatusCode()).thenReturn(200);
+
+        HttpResponse response = mockClient(factory, delegateClient).invokeSync(() -> null);
+        assertEquals(1, factory.getLimiter().getInFlight());
+        assertEquals(200, response.getStatusCode());
+        assertEquals(0, factory.getLimiter().getInFlight());
+    }
+
+    @Test
+    public void testInvokeSyncReleasesOnError() {
+        LimitedHttpClientFactory factory = new LimitedHttpClientFactory(mock(HttpClientFactory.class),
+            new ConcurrencyLimiter(1));
+        HttpClient delegateClient = mock(HttpClient.class);
+        when(delegateClient.invokeSync(any())).thenThrow(new RuntimeException("some error"));
+
+        try {
+            mockClient(factory, delegateClient).invokeSync(() -> null);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("some error", e.getMessage());
+        }
+        assertEquals(0, factory.getLimiter().getInFlight());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInvokeAsyncRejectedInFuture() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, ConcurrencyLimiter.QueuePolicy.FAIL_FAST, 0);
+        LimitedHttpClientFactory factory = new LimitedHttpClientFactory(mock(HttpClientFactory.class), limiter);
+        HttpClient delegateClient = mock(HttpClient.class);
+        HttpClient client = mockClient(factory, delegateClient);
+        limiter.acquire();
+
+        Future<HttpResponse> future = client.invokeAsync(() -> null);
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        ResponseHandler<HttpResponse> callback = mock(ResponseHandler.class);
+        client.invokeAsync(() -> null, callback);
+        verify(callback).onError(any(RejectedExecutionException.class));
+        verify(delegateClient, never()).invokeAsync(any(Callable.class), any(ResponseHandler.class));
+        assertEquals(2, limiter.getRejectedCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInvokeAsyncReleasesOnError() throws Exception {
+        LimitedHttpClientFactory factory = new LimitedHttpClientFactory(mock(HttpClientFactory.class),
+            new ConcurrencyLimiter(1));
+        HttpClient delegateClient = mock(HttpClient.class);
+        doAnswer(invocation -> {
+            ((ResponseHandler<HttpResponse>) invocation.getArgument(1)).onError(new Exception("some error"));
+            return CompletableFuture.completedFuture(null);
+        }).when(delegateClient).invokeAsync(any(Callable.class), any(ResponseHandler.class));
+
+        AtomicReference<Exception> error = new AtomicReference<>();
+        mockClient(factory, delegateClient).invokeAsync(() -> null, new ResponseHandler<HttpResponse>() {
+            @Override
+            public void onError(Exception ex) {
+                error.set(ex);
+            }
+
+            @Override
+            public void onSuccess(HttpResponse value) {
+                fail();
+            }
+        }).get();
+        assertEquals("some error", error.get().getMessage());
+        assertEquals(0, factory.getLimiter().getInFlight());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCancelReleases() {
+        LimitedHttpClientFactory factory = new LimitedHttpClientFactory(mock(HttpClientFactory.class),
+            new ConcurrencyLimiter(1));
+        HttpClient delegateClient = mock(HttpClient.class);
+        Future<?> delegateFuture = mock(Future.class);
+        doReturn(delegateFuture).when(delegateClient).invokeAsync(any(Callable.class), any(ResponseHandler.class));
+
+        Future<HttpResponse> future = mockClient(factory, delegateClient).invokeAsync(() -> null);
+        assertEquals(1, factory.getLimiter().getInFlight());
+        assertTrue(future.cancel(true));
+        verify(delegateFuture).cancel(true);
+        assertEquals(0, factory.getLimiter().getInFlight());
+    }
+
+    @Test
+    public void testLimitsConcurrentAsyncCalls() throws Exception {
+        GsonJsonMarshallerFactoryTest.addTestEntityToGson();
+        LimitedHttpClientFactory factory = new LimitedHttpClientFactory(new BuiltInHttpClientFactory(),
+            new ConcurrencyLimiter(2));
+        try (StubHttpServer server = new StubHttpServer()) {
+            server.withResponse(200, "{\"complexType\": \"SoftLayer_TestThing\", \"id\": 1}").delayMillis = 20;
+            RestApiClient client = new RestApiClient(server.getBaseUrl()).withHttpClientFactory(factory);
+            TestThing.ServiceAsync service = TestThing.service(client, 1L).asAsync();
+            List<Future<TestThing>> results = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                results.add(service.getObject());
+            }
+            for (Future<TestThing> result : results) {
+                assertEquals(1L, result.get(10, TimeUnit.SECONDS).getId().longValue());
+            }
+            assertEquals(10, server.requestCount.get());
+            assertEquals(2, server.maxInFlight.get());
+        }
+        assertEquals(0, factory.getLimiter().getInFlight());
+        assertEquals(10, factory.getLimiter().getAcquiredCount());
+        assertTrue(factory.getLimiter().getQueuedCount() > 0);
+    }
+
+    @Test
+    public void testOverloadedResponsesLowerAdaptiveLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(new AimdLimitAlgorithm(10, 1, 100));
+        LimitedHttpClientFactory factory = new LimitedHttpClientFactory(new BuiltInHttpClientFactory(), limiter);
+        try (StubHttpServer server = new StubHttpServer()) {
+            server.withResponse(429, "{\"error\": \"Too many requests\", \"code\": \"SoftLayer_Exception\"}");
+            HttpClient client = factory.getHttpClient(null, "GET", server.getBaseUrl(), Collections.emptyMap());
+            assertEquals(429, client.invokeSync(() -> null).getStatusCode());
+            assertEquals(9, limiter.getLimit());
+            server.statusCode = 200;
+            client = factory.getHttpClient(null, "GET", server.getBaseUrl(), Collections.emptyMap());
+            assertEquals(200, client.invokeSync(() -> null).getStatusCode());
+            // Only one in flight, so it does not grow
+            assertEquals(9, limiter.getLimit());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import com.softlayer.api.ResponseHandler;
+
+public class RateLimitedHttpClientFactoryTest {
+
+    static final HttpCredentials ALICE = new HttpBasicAuthCredentials("alice", "key1");
+
+    @Test
+    public void testBucketsPerCredentialAndKind() {
+        RateLimiter limiter = new RateLimiter(10, 1, 2);
+        assertSame(limiter.getBucket(ALICE, "GET"),
+            limiter.getBucket(new HttpBasicAuthCredentials("alice", "key2"), "GET"));
+        assertNotSame(limiter.getBucket(ALICE, "GET"), limiter.getBucket(ALICE, "PUT"));
+        assertSame(limiter.getBucket(ALICE, "PUT"), limiter.getBucket(ALICE, "POST"));
+        assertNotSame(limiter.getBucket(ALICE, "GET"),
+            limiter.getBucket(new HttpBasicAuthCredentials("bob", "key1"), "GET"));
+        assertSame(limiter.getBucket(new HttpBearerCredentials("token"), "GET"),
+            limiter.getBucket(new HttpBearerCredentials("token"), "GET"));
+        assertSame(limiter.getBucket(null, "GET"), limiter.getBucket(null, "GET"));
+        assertEquals(10, limiter.getBucket(ALICE, "GET").getPermitsPerSecond(), 0.001);
+        assertEquals(1, limiter.getBucket(ALICE, "DELETE").getPermitsPerSecond(), 0.001);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNonBlockingRejects() throws Exception {
+        FakeHttpClientFactory delegate = new FakeHttpClientFactory(200, Collections.emptyMap(), "");
+        RateLimitedHttpClientFactory factory = new RateLimitedHttpClientFactory(delegate,
+            new RateLimiter(0.001, 0.001, 1, false));
+        factory.getHttpClient(ALICE, "GET", "http://example.com", Collections.emptyMap()).invokeSync(() -> null);
+        try {
+            factory.getHttpClient(ALICE, "GET", "http://example.com", Collections.emptyMap()).invokeSync(() -> null);
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertEquals("Rate limit reached for GET requests", e.getMessage());
+        }
+        // Writes and other users have their own buckets
+        factory.getHttpClient(ALICE, "PUT", "http://example.com", Collections.emptyMap()).invokeSync(() -> null);
+        factory.getHttpClient(new HttpBasicAuthCredentials("bob", "key"), "GET", "http://example.com",
+            Collections.emptyMap()).invokeSync(() -> null);
+
+        // Asynchronous rejections go to the future or callback
+        HttpClient client = factory.getHttpClient(ALICE, "GET", "http://example.com", Collections.emptyMap());
+        Future<HttpResponse> future = client.invokeAsync(() -> null);
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        ResponseHandler<HttpResponse> callback = mock(ResponseHandler.class);
+        client.invokeAsync(() -> null, callback);
+        verify(callback).onError(any(RejectedExecutionException.class));
+        assertEquals(3, factory.getLimiter().getBucket(ALICE, "GET").getRejectedCount());
+    }
+
+    @Test
+    public void testThrottledResponsesSlowDown() {
+        FakeHttpClientFactory delegate = new FakeHttpClientFactory(429,
+            Collections.singletonMap("Retry-After", Collections.singletonList("30")), "");
+        RateLimitedHttpClientFactory factory = new RateLimitedHttpClientFactory(delegate,
+            new RateLimiter(100, 100, 10, false));
+        TokenBucket bucket = factory.getLimiter().getBucket(ALICE, "GET");
+
+        HttpResponse response = factory.getHttpClient(ALICE, "GET", "http://example.com", Collections.emptyMap())
+            .invokeSync(() -> null);
+        assertEquals(429, response.getStatusCode());
+        assertEquals(1, bucket.getThrottledCount());
+        assertEquals(50, bucket.getPermitsPerSecond(), 0.001);
+        // The bucket waits out the Retry-After even though it had tokens left
+        assertFalse(bucket.tryAcquire());
+        assertTrue(factory.getLimiter().getBucket(ALICE, "PUT").tryAcquire());
+    }
+}
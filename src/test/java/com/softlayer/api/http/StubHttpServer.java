@@ -0,0 +1,132 @@
+package com.softlayer.api.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/** Local HTTP server returning a fixed response, used to exercise HTTP client factories without the API */
+public class StubHttpServer implements AutoCloseable {
+
+    final HttpServer server;
+    final ExecutorService executor;
+
+    public volatile int statusCode = 200;
+    /** Statuses to respond with, one per request, before falling back to the fixed one */
+    public final Queue<Integer> statusCodes = new ConcurrentLinkedQueue<>();
+    public volatile Map<String, List<String>> responseHeaders = Collections.emptyMap();
+    public volatile byte[] responseBody = "null".getBytes(StandardCharsets.UTF_8);
+    public volatile long delayMillis;
+    /** Whether to send the body in chunks instead of with a content length */
+    public volatile boolean chunked;
+    /** Delays to respond with, one per request, before falling back to the fixed one */
+    public final Queue<Long> delays = new ConcurrentLinkedQueue<>();
+    /** How long to stall after sending the first byte of the body */
+    public volatile long bodyDelayMillis;
+
+    public final AtomicInteger requestCount = new AtomicInteger();
+    public final AtomicInteger inFlight = new AtomicInteger();
+    public final AtomicInteger maxInFlight = new AtomicInteger();
+    public volatile String lastMethod;
+    public volatile String lastUri;
+    public volatile Headers lastHeaders;
+    public volatile String lastBody;
+    /** The client addresses requests came from, one per connection */
+    public final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    public StubHttpServer() throws IOException {
+        this(Executors.newCachedThreadPool());
+    }
+
+    public StubHttpServer(ExecutorService executor) throws IOException {
+        this.executor = executor;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1000);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public StubHttpServer withResponse(int statusCode, String body) {
+        this.statusCode = statusCode;
+        this.responseBody = body.getBytes(StandardCharsets.UTF_8);
+        return this;
+    }
+
+    /** The base URL to give the API client */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ':' + server.getAddress().getPort() + '/';
+    }
+
+    void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        connections.add(exchange.getRemoteAddress());
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        lastMethod = exchange.getRequestMethod();
+        lastUri = exchange.getRequestURI().toString();
+        lastHeaders = exchange.getRequestHeaders();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                body.write(buffer, 0, read);
+            }
+        }
+        lastBody = new String(body.toByteArray(), StandardCharsets.UTF_8);
+        Long queuedDelayMillis = delays.poll();
+        long delayMillis = queuedDelayMillis == null ? this.delayMillis : queuedDelayMillis;
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // No longer in flight once the client can see the status
+        inFlight.decrementAndGet();
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            exchange.getResponseHeaders().put(header.getKey(), header.getValue());
+        }
+        byte[] response = responseBody;
+        Integer queuedStatusCode = statusCodes.poll();
+        exchange.sendResponseHeaders(queuedStatusCode == null ? statusCode : queuedStatusCode,
+            chunked ? 0 : response.length == 0 ? -1 : response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            long bodyDelayMillis = this.bodyDelayMillis;
+            if (bodyDelayMillis > 0 && response.length > 1) {
+                out.write(response, 0, 1);
+                out.flush();
+                try {
+                    Thread.sleep(bodyDelayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                out.write(response, 1, response.length - 1);
+            } else {
+                out.write(response);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package com.softlayer.api.http;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    @Test
+    public void testTryAcquireAllowsBurst() {
+        TokenBucket bucket = new TokenBucket(0.001, 3);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(3, bucket.getAcquiredCount());
+        assertEquals(1, bucket.getRejectedCount());
+    }
+
+    @Test
+    public void testTokensRefill() throws Exception {
+        TokenBucket bucket = new TokenBucket(100, 1);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        Thread.sleep(30);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    public void testAcquireWaits() {
+        TokenBucket bucket = new TokenBucket(20, 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            bucket.acquire();
+        }
+        // The first is free, the other three wait 50ms each
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(140));
+        assertTrue(bucket.getTotalWaitTime(TimeUnit.MILLISECONDS) >= 140);
+    }
+
+    @Test
+    public void testAcquireInterrupted() {
+        TokenBucket bucket = new TokenBucket(0.001, 1);
+        bucket.acquire();
+        Thread.currentThread().interrupt();
+        try {
+            bucket.acquire();
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    public void testConcurrentTryAcquireNeverExceedsBurst() throws Exception {
+        TokenBucket bucket = new TokenBucket(0.001, 50);
+        AtomicInteger acquired = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    if (bucket.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(50, acquired.get());
+        assertEquals(750, bucket.getRejectedCount());
+    }
+
+    @Test
+    public void testThrottlingSlowsDownAndRecovers() throws Exception {
+        TokenBucket bucket = new TokenBucket(1000, 5);
+        bucket.onThrottled(100);
+        assertEquals(1, bucket.getThrottledCount());
+        assertEquals(500, bucket.getPermitsPerSecond(), 1);
+        // Nothing until the delay has passed, even with a full bucket
+        assertFalse(bucket.tryAcquire());
+        Thread.sleep(120);
+        assertTrue(bucket.tryAcquire());
+
+        for (int i = 0; i < 10; i++) {
+            bucket.onThrottled(0);
+        }
+        assertEquals(1000 / TokenBucket.MAX_SLOWDOWN, bucket.getPermitsPerSecond(), 1);
+        for (int i = 0; i < 1000; i++) {
+            bucket.onSuccess();
+        }
+        assertEquals(1000, bucket.getPermitsPerSecond(), 1);
+    }
+}
@@ -0,0 +1,179 @@
+package com.softlayer.api.json;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Measures how fast API dates are read by the date format based parsing the calendar adapter used to do, by the
+ * calendar adapter and by the {@link java.time.OffsetDateTime} adapter. Half the dates have fractions of a second.
+ * This is not run as part of the tests. Run it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.softlayer.api.json.DateParsingBenchmark -Dexec.args="200000 10"
+ * </pre>
+ * The arguments are the number of dates and the number of measured rounds, which follow as many rounds of warm up.
+ * The bytes allocated per date are shown when the JVM can count them.
+ */
+public class DateParsingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int dates = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        String json = getJson(dates);
+        System.out.format("%d dates, %d KB of JSON%n", dates, json.length() / 1024);
+        System.out.format("%-20s %10s %14s %14s%n", "", "millis", "dates/sec", "bytes/date");
+        String[] names = { "date format", "calendar", "offset date time" };
+        TypeAdapter<?>[] adapters = {
+            new DateFormatCalendarTypeAdapter(),
+            new GsonJsonMarshallerFactory.GregorianCalendarTypeAdapter(),
+            new GsonJsonMarshallerFactory.OffsetDateTimeTypeAdapter()
+        };
+        long[] nanos = new long[adapters.length];
+        long[] bytes = new long[adapters.length];
+        for (int i = 0; i < rounds * 2; i++) {
+            for (int j = 0; j < adapters.length; j++) {
+                // Rotate which goes first so none always pays for the others' garbage
+                int index = (i + j) % adapters.length;
+                long startBytes = getAllocatedBytes();
+                long start = System.nanoTime();
+                read(adapters[index], json, dates);
+                long elapsed = System.nanoTime() - start;
+                long allocated = getAllocatedBytes() - startBytes;
+                // The first half of the rounds are warm up
+                if (i >= rounds) {
+                    nanos[index] += elapsed;
+                    bytes[index] += allocated;
+                }
+            }
+        }
+        for (int i = 0; i < adapters.length; i++) {
+            long roundNanos = nanos[i] / rounds;
+            System.out.format("%-20s %10d %14.0f %14s%n", names[i], TimeUnit.NANOSECONDS.toMillis(roundNanos),
+                dates * 1e9 / Math.max(1, roundNanos),
+                bytes[i] < 0 ? "?" : String.valueOf(bytes[i] / rounds / dates));
+        }
+    }
+
+    static void read(TypeAdapter<?> adapter, String json, int dates) throws IOException {
+        JsonReader in = new JsonReader(new StringReader(json));
+        in.beginArray();
+        int count = 0;
+        while (in.hasNext()) {
+            if (adapter.read(in) == null) {
+                throw new IllegalStateException("Unexpected result");
+            }
+            count++;
+        }
+        in.endArray();
+        if (count != dates) {
+            throw new IllegalStateException("Unexpected result");
+        }
+    }
+
+    /** The bytes allocated by this thread so far or a negative number if the JVM cannot count them */
+    static long getAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+        }
+        return Long.MIN_VALUE;
+    }
+
+    static String getJson(int dates) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < dates; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(String.format("\"20%02d-%02d-%02dT%02d:%02d:%02d", i % 25, i % 12 + 1, i % 28 + 1,
+                i % 24, i % 60, (i / 60) % 60));
+            if (i % 2 == 1) {
+                json.append('.').append(String.format("%06d", i % 1000000));
+            }
+            json.append(i % 3 == 0 ? "-06:00\"" : "+00:00\"");
+        }
+        return json.append(']').toString();
+    }
+
+    /** How the calendar adapter used to read dates, kept here to compare against */
+    static class DateFormatCalendarTypeAdapter extends TypeAdapter<GregorianCalendar> {
+
+        final ThreadLocal<DateFormat> secondFormat = ThreadLocal.withInitial(
+                () -> new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ")
+        );
+
+        final ThreadLocal<DateFormat> subSecondFormat = ThreadLocal.withInitial(
+                () -> new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
+        );
+
+        @Override
+        public void write(JsonWriter out, GregorianCalendar value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public GregorianCalendar read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String date = in.nextString();
+            date = date.substring(0, date.length() - 3) + date.substring(date.length() - 2);
+            DateFormat format;
+            int decimalIndex = date.indexOf('.');
+            if (decimalIndex != -1) {
+                date = trimToMillisecondPrecision(date, decimalIndex);
+                format = subSecondFormat.get();
+            } else {
+                format = secondFormat.get();
+            }
+            GregorianCalendar calendar = new GregorianCalendar();
+            try {
+                calendar.setTime(format.parse(date));
+            } catch (ParseException e) {
+                throw new RuntimeException(e);
+            }
+            return calendar;
+        }
+
+        private String trimToMillisecondPrecision(String date, int decimalIndex) {
+            StringBuilder newDate = new StringBuilder(date);
+            int offset = 1;
+            do {
+                if (!Character.isDigit(newDate.charAt(decimalIndex + offset))) {
+                    switch (offset) {
+                        case 1:
+                            newDate.insert(decimalIndex + offset, "000");
+                            break;
+                        case 2:
+                            newDate.insert(decimalIndex + offset, "00");
+                            break;
+                        case 3:
+                            newDate.insert(decimalIndex + offset, "0");
+                            break;
+                    }
+                    break;
+                } else if (offset > 3) {
+                    newDate.deleteCharAt(decimalIndex + offset);
+                } else {
+                    offset++;
+                }
+            } while (true);
+            return newDate.toString();
+        }
+    }
+}
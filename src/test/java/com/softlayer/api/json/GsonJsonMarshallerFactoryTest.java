@@ -7,21 +7,30 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.math.BigInteger;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.TimeZone;
 
 import org.junit.Test;
 
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.softlayer.api.annotation.ApiType;
 import com.softlayer.api.service.Entity;
 import com.softlayer.api.service.TestEntity;
 import com.softlayer.api.service.TestThing;
+import com.softlayer.api.service.location.Datacenter;
 
 public class GsonJsonMarshallerFactoryTest {
     
@@ -31,6 +40,7 @@ public class GsonJsonMarshallerFactoryTest {
     
     public static void addTestEntityToGson() {
         GsonJsonMarshallerFactory.typeClasses.put("SoftLayer_TestEntity", TestEntity.class);
+        GsonJsonMarshallerFactory.typeClasses.put("SoftLayer_TestThing", TestThing.class);
     }
 
     private <T> T fromJson(Type type, String json) throws Exception {
@@ -235,12 +245,65 @@ public class GsonJsonMarshallerFactoryTest {
             fromJson(GregorianCalendar.class, subSecondTenDigits).getTimeInMillis());
     }
     
+    @Test
+    public void testReadDateOffsets() throws Exception {
+        long expected = Instant.parse("1984-02-25T20:15:25.123Z").toEpochMilli();
+        assertEquals(expected, fromJson(GregorianCalendar.class, "\"1984-02-25T20:15:25.123Z\"").getTimeInMillis());
+        assertEquals(expected,
+            fromJson(GregorianCalendar.class, "\"1984-02-25T20:15:25.123+00:00\"").getTimeInMillis());
+        assertEquals(expected,
+            fromJson(GregorianCalendar.class, "\"1984-02-26T01:45:25.123+05:30\"").getTimeInMillis());
+        assertEquals(expected,
+            fromJson(GregorianCalendar.class, "\"1984-02-25T14:15:25.123-0600\"").getTimeInMillis());
+        // Leap days and years before the epoch
+        assertEquals(Instant.parse("2000-02-29T00:00:00Z").toEpochMilli(),
+            fromJson(GregorianCalendar.class, "\"2000-02-29T00:00:00Z\"").getTimeInMillis());
+        assertEquals(Instant.parse("1899-12-31T23:59:59Z").toEpochMilli(),
+            fromJson(GregorianCalendar.class, "\"1899-12-31T23:59:59Z\"").getTimeInMillis());
+        assertNull(fromJson(GregorianCalendar.class, "null"));
+    }
+    
+    @Test
+    public void testReadInvalidDates() throws Exception {
+        for (String date : Arrays.asList("1984-02-25", "1984-02-25 20:15:25-06:00", "1984-13-25T20:15:25-06:00",
+                "1984-02-25T20:15:25", "1984-02-25T20:15:25-06", "1984-02-25T20:15:2x-06:00")) {
+            try {
+                fromJson(GregorianCalendar.class, '"' + date + '"');
+                fail(date);
+            } catch (RuntimeException e) {
+                assertEquals("Unparseable date: \"" + date + '"', e.getCause().getMessage());
+            }
+        }
+    }
+    
+    @Test
+    public void testOffsetDateTime() throws Exception {
+        OffsetDateTime expected = OffsetDateTime.of(1984, 2, 25, 20, 15, 25, 123987000, ZoneOffset.ofHours(-6));
+        assertEquals(expected, fromJson(OffsetDateTime.class, "\"1984-02-25T20:15:25.123987-06:00\""));
+        assertEquals(expected.withNano(0), fromJson(OffsetDateTime.class, "\"1984-02-25T20:15:25.-06:00\""));
+        assertEquals(expected.withNano(123456789),
+            fromJson(OffsetDateTime.class, "\"1984-02-25T20:15:25.1234567891-06:00\""));
+        assertNull(fromJson(OffsetDateTime.class, "null"));
+
+        assertEquals("\"1984-02-25T20:15:25-06:00\"", toJson(expected.withNano(0)));
+        assertEquals("\"1984-02-25T20:15:25.123987-06:00\"", toJson(expected));
+        assertEquals("\"1984-02-25T20:15:25+00:00\"",
+            toJson(expected.withNano(0).withOffsetSameLocal(ZoneOffset.UTC)));
+    }
+    
     @Test
     public void testBigIntegerWithExponents() throws Exception {
         assertEquals(BigInteger.valueOf(123), fromJson(BigInteger.class, "123"));
         assertEquals(new BigInteger("18446744073710000000"), fromJson(BigInteger.class, "1.844674407371e+19"));
     }
     
+    @Test
+    public void testVoidResults() throws Exception {
+        assertNull(fromJson(Void.class, "null"));
+        assertNull(fromJson(Void.class, "true"));
+        assertNull(fromJson(Void.class, "{\"foo\": [1, 2]}"));
+    }
+    
     @Test
     public void testBase64ByteArrays() throws Exception {
         // Read entire logo into byte array (sigh, have to be Java 6 compatible w/ no extra libs)
@@ -284,4 +347,120 @@ public class GsonJsonMarshallerFactoryTest {
         assertEquals(1, entities.size());
         assertEquals(123, entities.get(0).getId().intValue());
     }
+    
+    @Test
+    public void testEntityJsonFieldAccessors() throws Exception {
+        GsonJsonMarshallerFactory.EntityTypeAdapter adapter = (GsonJsonMarshallerFactory.EntityTypeAdapter)
+            (TypeAdapter<?>) GsonJsonMarshallerFactory.gson.getAdapter(TestEntity.class);
+        GsonJsonMarshallerFactory.EntityJsonField baz = adapter.fields.get("baz");
+        TestEntity entity = new TestEntity();
+        assertFalse(baz.isSpecified(entity));
+        baz.set(entity, "value");
+        assertEquals("value", entity.getBaz());
+        assertFalse(baz.isSpecified(entity));
+        baz.setSpecified(entity);
+        assertTrue(entity.isBazSpecified());
+        assertEquals("value", baz.get(entity));
+        
+        // Fields without a specified field are never specified
+        GsonJsonMarshallerFactory.EntityJsonField child = adapter.fields.get("child");
+        child.setSpecified(entity);
+        assertFalse(child.isSpecified(entity));
+        
+        // Adapters are looked up once, including the one for the entity's own type
+        assertSame(adapter, child.getAdapter());
+        assertSame(child.getAdapter(), child.getAdapter());
+        assertSame(GsonJsonMarshallerFactory.gson.getAdapter(new TypeToken<List<TestEntity>>(){}),
+            adapter.fields.get("moreChildren").getAdapter());
+    }
+    
+    @Test
+    public void testGeneratedAdapter() throws Exception {
+        GsonJsonMarshallerFactory.EntityTypeAdapter adapter = (GsonJsonMarshallerFactory.EntityTypeAdapter)
+            (TypeAdapter<?>) GsonJsonMarshallerFactory.gson.getAdapter(TestThing.class);
+        assertTrue(adapter.generated instanceof TestThing.JsonAdapter);
+        assertTrue(adapter.fields.isEmpty());
+        
+        // Generated adapters read their type when it is reached through the base type
+        Entity entity = fromJson(Entity.class,
+            "{"
+                + "\"complexType\": \"SoftLayer_TestThing\","
+                + "\"id\": null,"
+                + "\"first\": \"one\","
+                + "\"unknown\": \"value\","
+                + "\"testEntity\": [{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"child\"}]"
+                + "}");
+        assertEquals(TestThing.class, entity.getClass());
+        TestThing thing = (TestThing) entity;
+        assertNull(thing.getId());
+        assertTrue(thing.isIdSpecified());
+        assertEquals("one", thing.getFirst());
+        assertNull(thing.getSecond());
+        assertEquals(Collections.singletonMap("unknown", "value"), thing.getUnknownProperties());
+        assertEquals("child", thing.getTestEntity().get(0).getFoo());
+        
+        // Only properties that are set are written, local ones even when null
+        assertEquals("{\"complexType\":\"SoftLayer_TestThing\",\"id\":null,\"first\":\"one\","
+            + "\"testEntity\":[{\"complexType\":\"SoftLayer_TestEntity\",\"bar\":\"child\"}]}", toJson(thing));
+        thing.unsetId();
+        thing.getTestEntity().clear();
+        assertEquals("{\"complexType\":\"SoftLayer_TestThing\",\"first\":\"one\",\"testEntity\":[]}",
+            toJson(thing));
+    }
+    
+    @ApiType(value = "SoftLayer_TestThingSubclass", jsonAdapter = TestThing.JsonAdapter.class)
+    static class TestThingSubclass extends TestThing {
+    }
+    
+    @Test
+    public void testGeneratedAdapterOfAnotherTypeIsIgnored() {
+        GsonJsonMarshallerFactory.EntityTypeAdapterFactory factory =
+            new GsonJsonMarshallerFactory.EntityTypeAdapterFactory();
+        assertNotNull(factory.getGeneratedAdapter(TestThing.class));
+        assertNull(factory.getGeneratedAdapter(TestThingSubclass.class));
+        assertNull(factory.getGeneratedAdapter(TestEntity.class));
+        assertNull(((GsonJsonMarshallerFactory.EntityTypeAdapter) (TypeAdapter<?>)
+            GsonJsonMarshallerFactory.gson.getAdapter(TestThingSubclass.class)).generated);
+    }
+    
+    @Test
+    public void testTypeClassesAreLoadedFromTheIndex() {
+        assertEquals("com.softlayer.api.service.location.Datacenter",
+            GsonJsonMarshallerFactory.typeClassNames.get("SoftLayer_Location_Datacenter"));
+        GsonJsonMarshallerFactory.typeClasses.remove("SoftLayer_Location_Datacenter");
+        assertEquals(Datacenter.class, GsonJsonMarshallerFactory.getTypeClass("SoftLayer_Location_Datacenter"));
+        assertEquals(Datacenter.class, GsonJsonMarshallerFactory.typeClasses.get("SoftLayer_Location_Datacenter"));
+        assertNull(GsonJsonMarshallerFactory.getTypeClass("SoftLayer_Unknown"));
+        assertFalse(GsonJsonMarshallerFactory.typeClasses.containsKey("SoftLayer_Unknown"));
+    }
+    
+    @Test
+    public void testFromJsonArray() throws Exception {
+        JsonMarshaller marshaller = new GsonJsonMarshallerFactory().getJsonMarshaller();
+        // Elements are decoded as they are reached, so the broken end is not read until then
+        Iterator<TestEntity> entities = marshaller.fromJsonArray(TestEntity.class, new ByteArrayInputStream(
+            ("[{\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"first\"},"
+                + " {\"complexType\": \"SoftLayer_TestEntity\", \"bar\": }").getBytes("UTF-8")));
+        assertTrue(entities.hasNext());
+        assertEquals("first", entities.next().getFoo());
+        try {
+            entities.hasNext();
+            entities.next();
+            fail();
+        } catch (JsonParseException e) {
+        }
+
+        Iterator<Long> ids = marshaller.fromJsonArray(Long.class,
+            new ByteArrayInputStream("[1, 2]".getBytes("UTF-8")));
+        assertEquals(1L, ids.next().longValue());
+        assertEquals(2L, ids.next().longValue());
+        assertFalse(ids.hasNext());
+        try {
+            ids.next();
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+        assertFalse(marshaller.fromJsonArray(Long.class, new ByteArrayInputStream("null".getBytes("UTF-8")))
+            .hasNext());
+    }
 }
@@ -0,0 +1,171 @@
+package com.softlayer.api.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.softlayer.api.service.Entity;
+import com.softlayer.api.service.TestEntity;
+import com.softlayer.api.service.TestThing;
+
+/**
+ * Measures how fast the Gson marshaller decodes and encodes a large list of entities, each with scalar properties,
+ * a child entity, a list of child entities and an entity of another type. Dates are left out so the time is spent
+ * on the entities themselves. It then compares the generated adapter of an entity type with the reflective one on
+ * a list of entities with only scalar properties. This is not run as part of the tests. Run it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.softlayer.api.json.JsonMarshallerBenchmark -Dexec.args="50000 10"
+ * </pre>
+ * The arguments are the number of entities in the list and the number of measured rounds, which follow as many
+ * rounds of warm up.
+ */
+public class JsonMarshallerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        GsonJsonMarshallerFactoryTest.addTestEntityToGson();
+        JsonMarshaller marshaller = new GsonJsonMarshallerFactory().getJsonMarshaller();
+        Type type = new TypeToken<List<TestEntity>>() { }.getType();
+        byte[] json = getJson(entities);
+        System.out.format("%d entities, %d KB of JSON%n", entities, json.length / 1024);
+        System.out.format("%-20s %10s %14s%n", "", "millis", "entities/sec");
+
+        long decodeNanos = 0;
+        long encodeNanos = 0;
+        for (int i = 0; i < rounds * 2; i++) {
+            long start = System.nanoTime();
+            List<TestEntity> decoded = marshaller.fromJson(type, new ByteArrayInputStream(json));
+            long decoding = System.nanoTime() - start;
+            start = System.nanoTime();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+            marshaller.toJson(decoded, out);
+            long encoding = System.nanoTime() - start;
+            if (decoded.size() != entities || out.size() == 0) {
+                throw new IllegalStateException("Unexpected result");
+            }
+            // The first half of the rounds are warm up
+            if (i >= rounds) {
+                decodeNanos += decoding;
+                encodeNanos += encoding;
+            }
+        }
+        print("decode", entities, decodeNanos / rounds);
+        print("encode", entities, encodeNanos / rounds);
+
+        // The same type read and written by its generated adapter and by reflection
+        GsonJsonMarshallerFactory.EntityTypeAdapterFactory factory =
+            new GsonJsonMarshallerFactory.EntityTypeAdapterFactory();
+        Map<String, GsonJsonMarshallerFactory.EntityJsonField> fields = new HashMap<>();
+        factory.loadFields(TestThing.class, fields);
+        GsonJsonMarshallerFactory.EntityTypeAdapter reflective =
+            new GsonJsonMarshallerFactory.EntityTypeAdapter(TestThing.class, fields);
+        GsonJsonMarshallerFactory.EntityTypeAdapter generated = new GsonJsonMarshallerFactory.EntityTypeAdapter(
+            TestThing.class, Collections.emptyMap(), factory.getGeneratedAdapter(TestThing.class));
+        json = getThingJson(entities);
+        System.out.format("%n%d scalar entities, %d KB of JSON%n", entities, json.length / 1024);
+        System.out.format("%-20s %10s %14s%n", "", "millis", "entities/sec");
+        long[] reflectiveNanos = new long[2];
+        long[] generatedNanos = new long[2];
+        for (int i = 0; i < rounds * 2; i++) {
+            // Alternate which goes first so neither always pays for the other's garbage
+            long[] reflectiveRound;
+            long[] generatedRound;
+            if (i % 2 == 0) {
+                reflectiveRound = readAndWrite(reflective, json, entities);
+                generatedRound = readAndWrite(generated, json, entities);
+            } else {
+                generatedRound = readAndWrite(generated, json, entities);
+                reflectiveRound = readAndWrite(reflective, json, entities);
+            }
+            if (i >= rounds) {
+                for (int j = 0; j < 2; j++) {
+                    reflectiveNanos[j] += reflectiveRound[j];
+                    generatedNanos[j] += generatedRound[j];
+                }
+            }
+        }
+        print("decode reflection", entities, reflectiveNanos[0] / rounds);
+        print("decode generated", entities, generatedNanos[0] / rounds);
+        print("encode reflection", entities, reflectiveNanos[1] / rounds);
+        print("encode generated", entities, generatedNanos[1] / rounds);
+    }
+
+    /** Read the JSON list of entities and write them back, returning the nanoseconds each took */
+    static long[] readAndWrite(TypeAdapter<Entity> adapter, byte[] json, int entities) throws IOException {
+        long start = System.nanoTime();
+        List<Entity> decoded = new ArrayList<>(entities);
+        JsonReader in = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8));
+        in.beginArray();
+        while (in.hasNext()) {
+            decoded.add(adapter.read(in));
+        }
+        in.endArray();
+        long decoding = System.nanoTime() - start;
+        start = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.beginArray();
+        for (Entity entity : decoded) {
+            adapter.write(writer, entity);
+        }
+        writer.endArray().flush();
+        long encoding = System.nanoTime() - start;
+        if (decoded.size() != entities || out.size() == 0) {
+            throw new IllegalStateException("Unexpected result");
+        }
+        return new long[] { decoding, encoding };
+    }
+
+    static byte[] getJson(int entities) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < entities; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"complexType\": \"SoftLayer_TestEntity\", \"id\": ").append(i)
+                .append(", \"bar\": \"entity ").append(i).append("\", \"baz\": null")
+                .append(", \"child\": {\"complexType\": \"SoftLayer_TestEntity\", \"bar\": \"child\"}")
+                .append(", \"moreChildren\": [")
+                .append("{\"complexType\": \"SoftLayer_TestEntity\", \"id\": 1, \"bar\": \"child 1\"},")
+                .append("{\"complexType\": \"SoftLayer_TestEntity\", \"id\": 2, \"bar\": \"child 2\"}]")
+                .append(", \"testThing\": {\"complexType\": \"SoftLayer_TestThing\", \"id\": ").append(i)
+                .append("}}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] getThingJson(int entities) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < entities; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"complexType\": \"SoftLayer_TestThing\", \"id\": ").append(i)
+                .append(", \"first\": \"first ").append(i).append("\", \"second\": \"second ").append(i)
+                .append("\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void print(String name, int entities, long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        System.out.format("%-20s %10d %14.0f%n", name, millis, entities * 1e9 / Math.max(1, nanos));
+    }
+}
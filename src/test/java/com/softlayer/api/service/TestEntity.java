@@ -4,13 +4,17 @@ import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import com.softlayer.api.annotation.ApiMethod;
 import com.softlayer.api.annotation.ApiProperty;
 import com.softlayer.api.annotation.ApiService;
 import com.softlayer.api.annotation.ApiType;
 import com.softlayer.api.ApiClient;
+import com.softlayer.api.ApiResponse;
+import com.softlayer.api.CallOptions;
 import com.softlayer.api.ResponseHandler;
+import com.softlayer.api.ResultStream;
 
 @ApiType("SoftLayer_TestEntity")
 public class TestEntity extends Entity {
@@ -156,6 +160,13 @@ public class TestEntity extends Entity {
 
         public void setMask(Mask mask);
 
+        public static interface Call<T> extends Function<Service, T> {
+        }
+
+        public <T> ApiResponse<T> call(CallOptions options, Service.Call<T> method);
+
+        public <T> ResultStream<T> stream(CallOptions options, Service.Call<List<T>> method);
+
         @ApiMethod
         public String doSomethingStatic(Long param1, TestEntity param2);
 
@@ -183,6 +194,11 @@ public class TestEntity extends Entity {
 
         public void setMask(Mask mask);
 
+        public static interface Call<T> extends Function<ServiceAsync, T> {
+        }
+
+        public <T> Future<ApiResponse<T>> call(CallOptions options, ServiceAsync.Call<Future<T>> method);
+
         public Future<String> doSomethingStatic(Long param1, TestEntity param2);
 
         public Future<?> doSomethingStatic(Long param1, TestEntity param2, ResponseHandler<String> handler);
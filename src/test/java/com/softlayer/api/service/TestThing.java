@@ -1,18 +1,28 @@
 package com.softlayer.api.service;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Future;
+import java.util.function.Function;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.softlayer.api.ApiClient;
+import com.softlayer.api.ApiResponse;
+import com.softlayer.api.CallOptions;
 import com.softlayer.api.ResponseHandler;
+import com.softlayer.api.RestApiClient;
 import com.softlayer.api.ResultLimit;
+import com.softlayer.api.ResultStream;
+import com.softlayer.api.ServiceMethod;
 import com.softlayer.api.annotation.ApiMethod;
 import com.softlayer.api.annotation.ApiProperty;
 import com.softlayer.api.annotation.ApiService;
 import com.softlayer.api.annotation.ApiType;
+import com.softlayer.api.json.EntityJsonAdapter;
 
-@ApiType("SoftLayer_TestThing")
+@ApiType(value = "SoftLayer_TestThing", jsonAdapter = TestThing.JsonAdapter.class)
 public class TestThing extends Entity {
 
     @ApiProperty(canBeNullOrNotSet = true)
@@ -75,11 +85,11 @@ public class TestThing extends Entity {
     }
 
     public static Service service(ApiClient client) {
-        return client.createService(Service.class, null);
+        return client.createService(Service.class, null, ServiceImpl::new);
     }
 
     public static Service service(ApiClient client, Long id) {
-        return client.createService(Service.class, id == null ? null : id.toString());
+        return client.createService(Service.class, id == null ? null : id.toString(), ServiceImpl::new);
     }
 
     @ApiService("SoftLayer_TestThing")
@@ -92,6 +102,13 @@ public class TestThing extends Entity {
 
         public void setMask(Mask mask);
 
+        public static interface Call<T> extends Function<Service, T> {
+        }
+
+        public <T> ApiResponse<T> call(CallOptions options, Service.Call<T> method);
+
+        public <T> ResultStream<T> stream(CallOptions options, Service.Call<List<T>> method);
+
         @ApiMethod("getObject")
         public TestThing getObject();
 
@@ -106,6 +123,11 @@ public class TestThing extends Entity {
 
         public void setMask(Mask mask);
 
+        public static interface Call<T> extends Function<ServiceAsync, T> {
+        }
+
+        public <T> Future<ApiResponse<T>> call(CallOptions options, ServiceAsync.Call<Future<T>> method);
+
         public Future<TestThing> getObject();
 
         public Future<?> getObject(ResponseHandler<TestThing> handler);
@@ -115,6 +137,183 @@ public class TestThing extends Entity {
         public Future<?> getTestEntity(ResponseHandler<List<TestEntity>> handler);
     }
 
+    public static class ServiceImpl extends com.softlayer.api.AbstractService implements Service {
+
+        private static final ServiceMethod GET_OBJECT = new ServiceMethod("getObject", true, TestThing.class);
+        private static final ServiceMethod GET_TEST_ENTITY = new ServiceMethod("getTestEntity", true,
+            ServiceMethod.listOf(TestEntity.class));
+
+        public ServiceImpl(RestApiClient client, String id) {
+            super(client, "SoftLayer_TestThing", id);
+        }
+
+        protected ServiceImpl(RestApiClient client, String serviceName, String id) {
+            super(client, serviceName, id);
+        }
+
+        protected ServiceImpl(com.softlayer.api.AbstractService service) {
+            super(service);
+        }
+
+        @Override
+        public ServiceAsync asAsync() {
+            return new ServiceAsyncImpl(this);
+        }
+
+        @Override
+        protected ServiceImpl copy() {
+            return new ServiceImpl(this);
+        }
+
+        @Override
+        public <T> ApiResponse<T> call(CallOptions options, Service.Call<T> method) {
+            return invokeWithOptions(options, method);
+        }
+
+        @Override
+        public <T> ResultStream<T> stream(CallOptions options, Service.Call<List<T>> method) {
+            return invokeStreaming(options, method);
+        }
+
+        @Override
+        public Mask withNewMask() {
+            return withNewMask(new Mask());
+        }
+
+        @Override
+        public Mask withMask() {
+            return withMask(Mask::new);
+        }
+
+        @Override
+        public void setMask(Mask mask) {
+            super.setMask(mask);
+        }
+
+        @Override
+        public TestThing getObject() {
+            return invoke(ServiceImpl.GET_OBJECT, null);
+        }
+
+        @Override
+        public List<TestEntity> getTestEntity() {
+            return invoke(ServiceImpl.GET_TEST_ENTITY, null);
+        }
+    }
+
+    public static class ServiceAsyncImpl extends com.softlayer.api.AbstractService implements ServiceAsync {
+
+        public ServiceAsyncImpl(com.softlayer.api.AbstractService service) {
+            super(service);
+        }
+
+        @Override
+        protected ServiceAsyncImpl copy() {
+            return new ServiceAsyncImpl(this);
+        }
+
+        @Override
+        public <T> Future<ApiResponse<T>> call(CallOptions options, ServiceAsync.Call<Future<T>> method) {
+            return invokeAsyncWithOptions(options, method);
+        }
+
+        @Override
+        public Mask withNewMask() {
+            return withNewMask(new Mask());
+        }
+
+        @Override
+        public Mask withMask() {
+            return withMask(Mask::new);
+        }
+
+        @Override
+        public void setMask(Mask mask) {
+            super.setMask(mask);
+        }
+
+        @Override
+        public Future<TestThing> getObject() {
+            return invokeAsync(ServiceImpl.GET_OBJECT, null);
+        }
+
+        @Override
+        public Future<?> getObject(ResponseHandler<TestThing> handler) {
+            return invokeAsync(ServiceImpl.GET_OBJECT, null, handler);
+        }
+
+        @Override
+        public Future<List<TestEntity>> getTestEntity() {
+            return invokeAsync(ServiceImpl.GET_TEST_ENTITY, null);
+        }
+
+        @Override
+        public Future<?> getTestEntity(ResponseHandler<List<TestEntity>> handler) {
+            return invokeAsync(ServiceImpl.GET_TEST_ENTITY, null, handler);
+        }
+    }
+
+    public static class JsonAdapter extends Entity.JsonAdapter {
+
+        private static final EntityJsonAdapter.Property<Long> ID = new EntityJsonAdapter.Property<>(Long.class);
+        private static final EntityJsonAdapter.Property<String> FIRST =
+            new EntityJsonAdapter.Property<>(String.class);
+        private static final EntityJsonAdapter.Property<String> SECOND =
+            new EntityJsonAdapter.Property<>(String.class);
+        private static final EntityJsonAdapter.Property<List<TestEntity>> TEST_ENTITY =
+            new EntityJsonAdapter.Property<>(ServiceMethod.listOf(TestEntity.class));
+
+        @Override
+        public Entity newInstance() {
+            return new TestThing();
+        }
+
+        @Override
+        public boolean readProperty(Entity entity, String name, JsonReader in) throws IOException {
+            TestThing value = (TestThing) entity;
+            switch (name) {
+                case "id": {
+                    value.id = ID.read(in);
+                    value.idSpecified = true;
+                    return true;
+                }
+                case "first": {
+                    value.first = FIRST.read(in);
+                    return true;
+                }
+                case "second": {
+                    value.second = SECOND.read(in);
+                    return true;
+                }
+                case "testEntity": {
+                    value.testEntity = TEST_ENTITY.read(in);
+                    return true;
+                }
+                default: {
+                    return super.readProperty(entity, name, in);
+                }
+            }
+        }
+
+        @Override
+        public void writeProperties(Entity entity, JsonWriter out) throws IOException {
+            super.writeProperties(entity, out);
+            TestThing value = (TestThing) entity;
+            if (value.id != null || value.idSpecified) {
+                ID.write(out, "id", value.id);
+            }
+            if (value.first != null) {
+                FIRST.write(out, "first", value.first);
+            }
+            if (value.second != null) {
+                SECOND.write(out, "second", value.second);
+            }
+            if (value.testEntity != null) {
+                TEST_ENTITY.write(out, "testEntity", value.testEntity);
+            }
+        }
+    }
+
     public static class Mask extends Entity.Mask {
 
         public Mask id() {